@@ -0,0 +1,33 @@
+-- Stock for bookings left PENDING before the inventory engine
+-- Bookings now count towards ticket_types.quantity_sold from creation instead of confirmation,
+-- so confirming one no longer adds its units and cancelling or expiring one takes them off.
+-- Bookings still PENDING from the old version were never counted. This adds their units to
+-- quantity_sold and gives them the 15-minute hold every new booking gets, so they are confirmed,
+-- cancelled or expired under the new rules. Only bookings without a hold are touched, which new
+-- bookings always have, so running it again changes nothing.
+-- Run this BEFORE deploying the new version.
+
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS hold_expires_at TIMESTAMP;
+
+BEGIN;
+
+LOCK TABLE bookings IN SHARE ROW EXCLUSIVE MODE;
+
+UPDATE ticket_types tt
+SET quantity_sold = COALESCE(tt.quantity_sold, 0) + pending.quantity
+FROM (
+    SELECT bi.ticket_type_id, SUM(bi.quantity) AS quantity
+    FROM booking_items bi
+    JOIN bookings b ON b.id = bi.booking_id
+    WHERE b.status = 'PENDING'
+      AND b.hold_expires_at IS NULL
+    GROUP BY bi.ticket_type_id
+) pending
+WHERE tt.id = pending.ticket_type_id;
+
+UPDATE bookings
+SET hold_expires_at = created_at + INTERVAL '15 minutes'
+WHERE status = 'PENDING'
+  AND hold_expires_at IS NULL;
+
+COMMIT;
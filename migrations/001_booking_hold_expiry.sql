@@ -0,0 +1,8 @@
+-- Booking hold expiry
+-- Hibernate (ddl-auto=update) adds the hold_expires_at column and its index on startup.
+-- Bookings left PENDING before the upgrade get their hold in 000_pending_booking_stock.sql,
+-- together with the stock the hold sweeper gives back when it expires them. Do not backfill
+-- hold_expires_at anywhere else: the sweeper would release units those bookings never took.
+
+CREATE INDEX IF NOT EXISTS idx_bookings_status_hold_expires_at
+    ON bookings (status, hold_expires_at);
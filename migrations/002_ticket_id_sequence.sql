@@ -0,0 +1,8 @@
+-- Ticket id sequence
+-- Tickets now take their ids from ticket_id_seq with a pooled allocation of 50 so Hibernate can
+-- batch the inserts. Run this BEFORE deploying the new version: if Hibernate creates the
+-- sequence itself it starts at 1 and collides with existing ticket ids.
+
+CREATE SEQUENCE IF NOT EXISTS ticket_id_seq INCREMENT BY 50;
+
+SELECT setval('ticket_id_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM tickets));
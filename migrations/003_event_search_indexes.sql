@@ -0,0 +1,21 @@
+-- Event search indexes
+-- Hibernate (ddl-auto=update) creates the plain composite indexes declared on the entities; this
+-- script adds them for environments that manage the schema by hand, plus the expression index the
+-- case-insensitive city filter needs, which JPA cannot declare. CONCURRENTLY keeps the events
+-- table writable while the indexes build, so run each statement outside a transaction.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_events_listing_start_date
+    ON events (status, is_public, start_date, id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_events_listing_created_at
+    ON events (status, is_public, created_at, id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_events_listing_category
+    ON events (status, is_public, category, start_date, id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_events_listing_city
+    ON events (lower(city), start_date, id)
+    WHERE status = 'PUBLISHED' AND is_public = true;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_ticket_types_event_price
+    ON ticket_types (event_id, status, price);
@@ -0,0 +1,14 @@
+-- Booking ticket totals
+-- bookings.total_tickets holds the sum of the booking's item quantities so booking reads no
+-- longer touch booking_items. Run this BEFORE deploying the new version: Hibernate would add
+-- the NOT NULL column without a default, which fails on a table that already has rows.
+
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS total_tickets INTEGER NOT NULL DEFAULT 0;
+
+UPDATE bookings b
+SET total_tickets = items.quantity
+FROM (SELECT booking_id, SUM(quantity) AS quantity
+      FROM booking_items
+      GROUP BY booking_id) items
+WHERE b.id = items.booking_id
+  AND b.total_tickets <> items.quantity;
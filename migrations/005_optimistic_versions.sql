@@ -0,0 +1,20 @@
+-- Optimistic locking versions
+-- events and bookings gain a version column for @Version, and events.current_attendees is now
+-- only changed by delta UPDATEs. Run this BEFORE deploying the new version so existing rows
+-- start at version 0; Hibernate treats a NULL version as an unsaved entity.
+
+ALTER TABLE events ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- Re-derive attendee counts from confirmed bookings; lost updates before this change left
+-- them drifting
+UPDATE events e
+SET current_attendees = COALESCE(confirmed.tickets, 0)
+FROM events e2
+LEFT JOIN (SELECT event_id, SUM(total_tickets) AS tickets
+           FROM bookings
+           WHERE status IN ('CONFIRMED', 'CHECKED_IN')
+           GROUP BY event_id) confirmed ON confirmed.event_id = e2.id
+WHERE e.id = e2.id
+  AND e.current_attendees IS DISTINCT FROM COALESCE(confirmed.tickets, 0);
@@ -0,0 +1,15 @@
+-- Sharded attendee and sold counters
+-- counter_slots holds per-slot deltas for events whose expected demand passes
+-- counters.shard-threshold. Run this BEFORE deploying the new version: the reservation check
+-- on ticket_types reads counter_slots, so the table must exist when the first booking arrives.
+
+ALTER TABLE events ADD COLUMN IF NOT EXISTS expected_demand INTEGER;
+
+CREATE TABLE IF NOT EXISTS counter_slots (
+    id BIGSERIAL PRIMARY KEY,
+    kind VARCHAR(30) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    slot INTEGER NOT NULL,
+    delta BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT uk_counter_slots_kind_entity_slot UNIQUE (kind, entity_id, slot)
+);
@@ -0,0 +1,30 @@
+-- Email outbox
+-- Emails are now queued in email_outbox inside the transaction that triggers them and sent by
+-- EmailDeliveryService; emails that exhaust their retries move to email_dead_letters. Run this
+-- BEFORE deploying the new version, since payment verification writes to email_outbox.
+
+CREATE TABLE IF NOT EXISTS email_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    type VARCHAR(30) NOT NULL,
+    booking_id BIGINT NOT NULL,
+    ticket_id BIGINT,
+    recipient VARCHAR(255) NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_email_outbox_next_attempt_at ON email_outbox (next_attempt_at);
+
+CREATE TABLE IF NOT EXISTS email_dead_letters (
+    id BIGSERIAL PRIMARY KEY,
+    type VARCHAR(30) NOT NULL,
+    booking_id BIGINT NOT NULL,
+    ticket_id BIGINT,
+    recipient VARCHAR(255) NOT NULL,
+    attempts INTEGER NOT NULL,
+    last_error VARCHAR(1000),
+    queued_at TIMESTAMP NOT NULL,
+    failed_at TIMESTAMP NOT NULL
+);
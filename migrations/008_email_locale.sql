@@ -0,0 +1,8 @@
+-- Email locale
+-- Queued emails remember the locale of the request that queued them, which selects the
+-- template variant and date formats. Run this BEFORE deploying the new version; existing rows
+-- keep a NULL locale and render with mail.templates.default-locale.
+
+ALTER TABLE email_outbox ADD COLUMN IF NOT EXISTS locale VARCHAR(35);
+
+ALTER TABLE email_dead_letters ADD COLUMN IF NOT EXISTS locale VARCHAR(35);
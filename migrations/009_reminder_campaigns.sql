@@ -0,0 +1,22 @@
+-- Reminder campaigns
+-- reminder_campaigns tracks one reminder run per event and lead time, with the last booking id
+-- queued as its checkpoint. Campaigns page through confirmed bookings by id, which the new
+-- bookings index serves. Run this BEFORE deploying the new version; build the index outside a
+-- transaction.
+
+CREATE TABLE IF NOT EXISTS reminder_campaigns (
+    id BIGSERIAL PRIMARY KEY,
+    event_id BIGINT NOT NULL,
+    lead_minutes BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    last_booking_id BIGINT NOT NULL DEFAULT 0,
+    queued_count BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL,
+    completed_at TIMESTAMP,
+    CONSTRAINT uk_reminder_campaigns_event_lead UNIQUE (event_id, lead_minutes)
+);
+
+CREATE INDEX IF NOT EXISTS idx_reminder_campaigns_status ON reminder_campaigns (status);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bookings_event_status_id
+    ON bookings (event_id, status, id);
@@ -0,0 +1,6 @@
+-- Signed ticket tokens
+-- QR codes now carry a signed token with the ticket's revocation epoch; transferring a ticket
+-- raises the epoch so the tokens already handed out stop validating. NULL reads as epoch 0.
+-- Run this BEFORE deploying the new version.
+
+ALTER TABLE tickets ADD COLUMN IF NOT EXISTS token_epoch INTEGER;
@@ -0,0 +1,28 @@
+-- Analytics rollups
+-- analytics_rollups holds hourly and daily sales, refunds, check-ins, and rating counts per
+-- event and per organizer; analytics_checkpoints records how far the reviews table has been
+-- folded into them. Run this BEFORE deploying the new version. Sales and check-ins are counted
+-- from the deploy onward; existing reviews are folded on the first scan.
+
+CREATE TABLE IF NOT EXISTS analytics_rollups (
+    id BIGSERIAL PRIMARY KEY,
+    grain VARCHAR(10) NOT NULL,
+    scope VARCHAR(20) NOT NULL,
+    scope_id BIGINT NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    tickets_sold BIGINT NOT NULL DEFAULT 0,
+    gross NUMERIC(19, 2) NOT NULL DEFAULT 0,
+    refunds NUMERIC(19, 2) NOT NULL DEFAULT 0,
+    check_ins BIGINT NOT NULL DEFAULT 0,
+    rating_1 BIGINT NOT NULL DEFAULT 0,
+    rating_2 BIGINT NOT NULL DEFAULT 0,
+    rating_3 BIGINT NOT NULL DEFAULT 0,
+    rating_4 BIGINT NOT NULL DEFAULT 0,
+    rating_5 BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT uk_analytics_rollups_grain_scope_bucket UNIQUE (grain, scope, scope_id, bucket_start)
+);
+
+CREATE TABLE IF NOT EXISTS analytics_checkpoints (
+    name VARCHAR(50) PRIMARY KEY,
+    last_id BIGINT NOT NULL
+);
@@ -0,0 +1,9 @@
+-- Idempotency key leases
+-- IN_PROGRESS idempotency keys now hold a lease, renewed while the request runs; a retry takes
+-- over a key whose lease has lapsed instead of being rejected until the key expires. The claim
+-- token identifies the execution holding the key, so one that was taken over cannot store its
+-- response or release the key. Keys claimed before the deploy have no lease and can be taken
+-- over straight away. Run this BEFORE deploying the new version.
+
+ALTER TABLE idempotency_keys ADD COLUMN IF NOT EXISTS lease_expires_at TIMESTAMP;
+ALTER TABLE idempotency_keys ADD COLUMN IF NOT EXISTS claim_token VARCHAR(36);
@@ -0,0 +1,156 @@
+package com.lunar.demo.benchmark;
+
+import com.lunar.demo.service.EmailTemplates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Render cost per email for a reminder campaign of {@value #BATCH} bookings: the String.format
+ * text block EmailService used to build on every send against the compiled
+ * {@link EmailTemplates}. Scores are per email. Run with
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="EmailTemplate -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailTemplateBenchmark {
+
+    private static final int BATCH = 100_000;
+    private static final String BASE_URL = "https://events.example.com";
+
+    private Reminder[] reminders;
+    private EmailTemplates emailTemplates;
+    private DateTimeFormatter eventDateFormatter;
+
+    @Setup
+    public void setUp() {
+        emailTemplates = new EmailTemplates(List.of("en"));
+        eventDateFormatter = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.FULL, FormatStyle.SHORT)
+                .withLocale(Locale.ENGLISH);
+        reminders = new Reminder[BATCH];
+        LocalDateTime start = LocalDateTime.of(2025, 6, 15, 18, 30);
+        for (int i = 0; i < BATCH; i++) {
+            reminders[i] = new Reminder(
+                    "Lunar Sessions Vol. " + (i % 500),
+                    start.plusHours(i % 2000),
+                    "Convention Hall " + (i % 40),
+                    (i % 300) + " MG Road, Bengaluru",
+                    "LUNAR-" + (1_000_000 + i),
+                    (long) i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void legacyStringFormat(Blackhole blackhole) {
+        for (Reminder reminder : reminders) {
+            blackhole.consume(legacyReminderHtml(reminder));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void compiledTemplate(Blackhole blackhole) {
+        for (Reminder reminder : reminders) {
+            blackhole.consume(emailTemplates.render(EmailTemplates.Template.EVENT_REMINDER, Locale.ENGLISH,
+                    reminder.eventTitle(),
+                    eventDateFormatter.format(reminder.startDate()),
+                    reminder.venueName(),
+                    reminder.venueAddress(),
+                    reminder.bookingReference(),
+                    BASE_URL,
+                    reminder.bookingId()));
+        }
+    }
+
+    private static String legacyReminderHtml(Reminder reminder) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("EEEE, MMMM dd, yyyy 'at' h:mm a");
+
+        return String.format("""
+            <!DOCTYPE html>
+            <html>
+            <head>
+                <meta charset="UTF-8">
+                <title>Event Reminder</title>
+                <style>
+                    body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
+                    .container { max-width: 600px; margin: 0 auto; padding: 20px; }
+                    .header { background: linear-gradient(135deg, #28a745 0%%, #20c997 100%%); color: white; padding: 30px; text-align: center; border-radius: 10px 10px 0 0; }
+                    .content { background: #f9f9f9; padding: 30px; border-radius: 0 0 10px 10px; }
+                    .event-details { background: white; padding: 20px; border-radius: 8px; margin: 20px 0; }
+                    .footer { text-align: center; margin-top: 30px; color: #666; }
+                    .button { display: inline-block; background: #28a745; color: white; padding: 12px 24px; text-decoration: none; border-radius: 5px; margin: 10px 0; }
+                </style>
+            </head>
+            <body>
+                <div class="container">
+                    <div class="header">
+                        <h1>⏰ Event Reminder</h1>
+                        <p>Your event is coming up soon!</p>
+                    </div>
+                    
+                    <div class="content">
+                        <div class="event-details">
+                            <h2>%s</h2>
+                            <p><strong>Date & Time:</strong> %s</p>
+                            <p><strong>Venue:</strong> %s</p>
+                            <p><strong>Address:</strong> %s</p>
+                            <p><strong>Booking Reference:</strong> %s</p>
+                        </div>
+                        
+                        <div style="background: #d4edda; padding: 15px; border-radius: 8px; margin: 20px 0;">
+                            <h4>Don't forget to bring:</h4>
+                            <ul>
+                                <li>Your ticket (digital or printed)</li>
+                                <li>A valid photo ID</li>
+                                <li>Any special requirements mentioned in your booking</li>
+                            </ul>
+                        </div>
+                        
+                        <div style="text-align: center; margin: 30px 0;">
+                            <a href="%s/bookings/%d" class="button">View Your Booking</a>
+                        </div>
+                    </div>
+                    
+                    <div class="footer">
+                        <p>This is an automated email. Please do not reply.</p>
+                        <p>© 2024 Lunar Events. All rights reserved.</p>
+                    </div>
+                </div>
+            </body>
+            </html>
+            """,
+            reminder.eventTitle(),
+            reminder.startDate().format(formatter),
+            reminder.venueName(),
+            reminder.venueAddress(),
+            reminder.bookingReference(),
+            BASE_URL,
+            reminder.bookingId()
+        );
+    }
+
+    private record Reminder(String eventTitle, LocalDateTime startDate, String venueName, String venueAddress,
+                            String bookingReference, Long bookingId) {
+    }
+}
@@ -0,0 +1,65 @@
+package com.lunar.demo.benchmark;
+
+import com.lunar.demo.util.IdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the reference generators that BookingService and PaymentService used to inline with
+ * {@link IdGenerator}. Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.args="IdGenerator"};
+ * add {@code -prof gc} to see the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    private final IdGenerator idGenerator = new IdGenerator(1);
+
+    @Benchmark
+    public String legacyBookingReference() {
+        return "LUNAR-" + System.currentTimeMillis() + "-" +
+               String.format("%04d", (int) (Math.random() * 10000));
+    }
+
+    @Benchmark
+    public String legacyTicketCode() {
+        return "TKT-" + System.currentTimeMillis() + "-" +
+               String.format("%06d", (int) (Math.random() * 1000000));
+    }
+
+    @Benchmark
+    public String bookingReference() {
+        return idGenerator.nextCode("LUNAR-");
+    }
+
+    @Benchmark
+    public long rawId() {
+        return idGenerator.nextId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String legacyTicketCodeContended() {
+        return legacyTicketCode();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String ticketCodeContended() {
+        return idGenerator.nextCode("TKT-");
+    }
+}
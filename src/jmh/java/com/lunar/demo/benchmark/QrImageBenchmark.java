@@ -0,0 +1,68 @@
+package com.lunar.demo.benchmark;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.lunar.demo.util.QrImageWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Image writing cost per ticket QR code, from an already encoded {@link BitMatrix}: the
+ * {@code MatrixToImageWriter} + ImageIO path QrCodeService used to take against
+ * {@link QrImageWriter}. Run with {@code -prof gc} for the allocation rate, e.g.
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="QrImage -prof gc"}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QrImageBenchmark {
+
+    @Param({"300"})
+    private int size;
+
+    private BitMatrix scaled;
+    private BitMatrix modules;
+
+    @Setup
+    public void setUp() throws WriterException {
+        String payload = "LUNAR_TICKET|1048576|2097152|TKT-3F9K2M7QX1";
+        scaled = new QRCodeWriter().encode(payload, BarcodeFormat.QR_CODE, size, size);
+        modules = new QRCodeWriter().encode(payload, BarcodeFormat.QR_CODE, 0, 0);
+    }
+
+    @Benchmark
+    public byte[] imageIoPng() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MatrixToImageWriter.writeToStream(scaled, "PNG", out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] directPng() {
+        return QrImageWriter.png(scaled);
+    }
+
+    @Benchmark
+    public String directSvg() {
+        return QrImageWriter.svg(modules, size);
+    }
+}
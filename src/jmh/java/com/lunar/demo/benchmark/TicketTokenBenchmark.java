@@ -0,0 +1,80 @@
+package com.lunar.demo.benchmark;
+
+import com.lunar.demo.service.TicketTokenService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures issuing and verifying signed ticket tokens, against an Ed25519 signature over the
+ * same 29-byte body for reference. Run with
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="TicketToken"}; add {@code -prof gc} to
+ * see the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TicketTokenBenchmark {
+
+    private final TicketTokenService ticketTokenService = new TicketTokenService(null,
+            "benchmark-secret-key-for-ticket-tokens", 24, 6);
+    private final LocalDateTime start = LocalDateTime.now().plusHours(1);
+    private final LocalDateTime end = start.plusHours(3);
+    private final byte[] body = new byte[29];
+    private String token;
+    private KeyPair keyPair;
+    private byte[] ed25519Signature;
+
+    @Setup
+    public void setUp() throws Exception {
+        token = ticketTokenService.issue(1_234_567L, 42L, start, end, 0);
+        Arrays.fill(body, (byte) 7);
+        keyPair = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        Signature signer = Signature.getInstance("Ed25519");
+        signer.initSign(keyPair.getPrivate());
+        signer.update(body);
+        ed25519Signature = signer.sign();
+    }
+
+    @Benchmark
+    public String issue() {
+        return ticketTokenService.issue(1_234_567L, 42L, start, end, 0);
+    }
+
+    @Benchmark
+    public TicketTokenService.Verification verify() {
+        return ticketTokenService.verify(token);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public TicketTokenService.Verification verifyContended() {
+        return ticketTokenService.verify(token);
+    }
+
+    @Benchmark
+    public boolean ed25519Verify() throws Exception {
+        Signature verifier = Signature.getInstance("Ed25519");
+        verifier.initVerify(keyPair.getPublic());
+        verifier.update(body);
+        return verifier.verify(ed25519Signature);
+    }
+}
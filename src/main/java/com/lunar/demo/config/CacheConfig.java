@@ -0,0 +1,116 @@
+package com.lunar.demo.config;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.actuate.metrics.cache.CaffeineCacheMeterBinderProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+@Configuration
+@EnableCaching
+@Slf4j
+public class CacheConfig {
+    
+    public static final String EVENTS = "events";
+    public static final String INVALIDATION_CHANNEL = "lunar:cache-invalidation";
+    
+    /**
+     * Caffeine caches sized individually through {@code cache.specs.<name>}; caches without a
+     * spec of their own fall back to {@code spring.cache.caffeine.spec}. Statistics are always
+     * recorded so hit/miss counts show up under the actuator {@code cache.*} metrics.
+     *
+     * With {@code cache.redis.enabled} every cache gets a Redis level shared by all nodes behind
+     * its Caffeine level, see {@link TwoLevelCache}. Evictions keep a marker in Redis for
+     * {@code cache.redis.eviction-marker-seconds}, which should outlast the slowest load.
+     */
+    @Bean
+    public CacheManager cacheManager(Environment environment,
+                                     @Value("${spring.cache.caffeine.spec:maximumSize=1000,expireAfterWrite=1h}") String defaultSpec,
+                                     @Value("${cache.redis.enabled:false}") boolean redisEnabled,
+                                     @Value("${cache.redis.ttl-minutes:30}") long redisTtlMinutes,
+                                     @Value("${cache.redis.eviction-marker-seconds:10}") long evictionMarkerSeconds,
+                                     ObjectProvider<RedisConnectionFactory> redisConnectionFactory) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.from(defaultSpec).recordStats());
+        
+        Map<String, String> specs = new LinkedHashMap<>(Binder.get(environment)
+                .bind("cache.specs", Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of()));
+        specs.putIfAbsent(EVENTS, defaultSpec);
+        specs.forEach((name, spec) -> {
+            cacheManager.registerCustomCache(name, Caffeine.from(CaffeineSpec.parse(spec)).recordStats().build());
+            log.info("Cache '{}' configured with {}", name, spec);
+        });
+        if (!redisEnabled) {
+            return cacheManager;
+        }
+        
+        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer()
+                .configure(mapper -> mapper.registerModule(new JavaTimeModule())
+                        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+        RedisCacheConfiguration sharedConfig = RedisCacheConfiguration.defaultCacheConfig()
+                .prefixCacheNameWith("lunar:cache:")
+                .disableCachingNullValues()
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(serializer));
+        RedisConnectionFactory connectionFactory = redisConnectionFactory.getObject();
+        RedisCacheManager sharedCacheManager = redisCacheManager(connectionFactory,
+                sharedConfig.entryTtl(Duration.ofMinutes(redisTtlMinutes)), specs.keySet());
+        RedisCacheManager evictionCacheManager = redisCacheManager(connectionFactory,
+                sharedConfig.entryTtl(Duration.ofSeconds(evictionMarkerSeconds)), specs.keySet());
+        log.info("Caches backed by Redis with a {} minute TTL", redisTtlMinutes);
+        return new TwoLevelCacheManager(cacheManager, sharedCacheManager, evictionCacheManager);
+    }
+    
+    private static RedisCacheManager redisCacheManager(RedisConnectionFactory connectionFactory,
+                                                       RedisCacheConfiguration configuration,
+                                                       Collection<String> cacheNames) {
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(configuration)
+                .initialCacheNames(Set.copyOf(cacheNames))
+                .build();
+        redisCacheManager.afterPropertiesSet();
+        return redisCacheManager;
+    }
+    
+    /**
+     * Exports the Caffeine statistics of two-level caches, which is where their hits are served.
+     */
+    @Bean
+    public CacheMeterBinderProvider<TwoLevelCache> twoLevelCacheMeterBinderProvider() {
+        CaffeineCacheMeterBinderProvider caffeine = new CaffeineCacheMeterBinderProvider();
+        return (cache, tags) -> caffeine.getMeterBinder(cache.getLocal(), tags);
+    }
+    
+    @Bean
+    @ConditionalOnProperty(name = "cache.redis.enabled", havingValue = "true")
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory redisConnectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        return container;
+    }
+}
@@ -0,0 +1,38 @@
+package com.lunar.demo.config;
+
+import com.lunar.demo.util.IdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+@Configuration
+@Slf4j
+public class IdGeneratorConfig {
+    
+    /**
+     * Each node needs its own id; set {@code id.node-id} explicitly when running more than one
+     * instance, otherwise it is derived from the host name and process id.
+     */
+    @Bean
+    public IdGenerator idGenerator(@Value("${id.node-id:-1}") int nodeId) {
+        int resolved = nodeId >= 0 ? nodeId : deriveNodeId();
+        log.info("ID generator using node id {}", resolved);
+        return new IdGenerator(resolved);
+    }
+    
+    private int deriveNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        int hash = (host + "/" + ManagementFactory.getRuntimeMXBean().getName()).hashCode();
+        return (hash ^ (hash >>> 16)) & IdGenerator.MAX_NODE_ID;
+    }
+}
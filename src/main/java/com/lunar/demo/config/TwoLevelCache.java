@@ -0,0 +1,152 @@
+package com.lunar.demo.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Node-local Caffeine cache (L1) in front of a cache shared by all nodes (L2, Redis).
+ *
+ * Reads fall through L1, then L2, then the value loader, filling the levels above on the way
+ * back. Writes and evictions go to both levels; other nodes learn about evictions through the
+ * invalidation channel and drop only their L1 copy with {@link #evictLocal}. The shared level is
+ * an optimisation only: if it cannot be reached the cache keeps working from L1 and the loader.
+ *
+ * Puts are cache-aside fills of a value read from the database, so they only go into L2 if the
+ * key is absent there (SET NX). An eviction leaves a short-lived marker in L2 instead of deleting
+ * the key: a read that loaded the old row before the change committed then cannot put it back
+ * after the eviction and keep it there for the full L2 TTL.
+ */
+@Slf4j
+public class TwoLevelCache implements Cache {
+    
+    // Marker value left in L2 by an eviction; reads treat it as a miss
+    private static final String EVICTED = "lunar:cache:evicted";
+    
+    private final CaffeineCache local;
+    private final Cache shared;
+    private final Cache evictions;
+    
+    /**
+     * @param evictions the same shared keys as {@code shared}, written with the short TTL the
+     *                  eviction marker should live for
+     */
+    public TwoLevelCache(CaffeineCache local, Cache shared, Cache evictions) {
+        this.local = local;
+        this.shared = shared;
+        this.evictions = evictions;
+    }
+    
+    @Override
+    public String getName() {
+        return local.getName();
+    }
+    
+    @Override
+    public Object getNativeCache() {
+        return local.getNativeCache();
+    }
+    
+    public CaffeineCache getLocal() {
+        return local;
+    }
+    
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper value = local.get(key);
+        if (value != null) {
+            return value;
+        }
+        value = sharedGet(key);
+        if (value != null) {
+            local.put(key, value.get());
+        }
+        return value;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper value = get(key);
+        if (value == null) {
+            return null;
+        }
+        Object stored = value.get();
+        if (stored != null && type != null && !type.isInstance(stored)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + stored);
+        }
+        return (T) stored;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        // Caffeine runs the loader once per key, so concurrent misses share one L2 lookup and one load
+        return local.get(key, () -> {
+            ValueWrapper value = sharedGet(key);
+            if (value != null) {
+                return (T) value.get();
+            }
+            T loaded = valueLoader.call();
+            sharedFill(key, loaded);
+            return loaded;
+        });
+    }
+    
+    @Override
+    public void put(Object key, Object value) {
+        if (sharedFill(key, value)) {
+            local.put(key, value);
+        }
+    }
+    
+    @Override
+    public void evict(Object key) {
+        try {
+            evictions.put(key, EVICTED);
+        } catch (RuntimeException e) {
+            log.warn("Error evicting '{}' from shared cache '{}'", key, getName(), e);
+        }
+        local.evict(key);
+    }
+    
+    public void evictLocal(Object key) {
+        local.evict(key);
+    }
+    
+    @Override
+    public void clear() {
+        try {
+            shared.clear();
+        } catch (RuntimeException e) {
+            log.warn("Error clearing shared cache '{}'", getName(), e);
+        }
+        local.clear();
+    }
+    
+    private ValueWrapper sharedGet(Object key) {
+        try {
+            ValueWrapper value = shared.get(key);
+            return value == null || EVICTED.equals(value.get()) ? null : value;
+        } catch (RuntimeException e) {
+            log.warn("Error reading '{}' from shared cache '{}'", key, getName(), e);
+            return null;
+        }
+    }
+    
+    /**
+     * Returns false if the key was evicted while the value was being loaded, so the value is
+     * known to be stale.
+     */
+    private boolean sharedFill(Object key, Object value) {
+        try {
+            ValueWrapper existing = shared.putIfAbsent(key, value);
+            return existing == null || !EVICTED.equals(existing.get());
+        } catch (RuntimeException e) {
+            log.warn("Error writing '{}' to shared cache '{}'", key, getName(), e);
+            return true;
+        }
+    }
+}
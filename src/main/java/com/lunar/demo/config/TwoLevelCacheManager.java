@@ -0,0 +1,49 @@
+package com.lunar.demo.config;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pairs each Caffeine cache with the shared cache of the same name as a {@link TwoLevelCache}.
+ * The eviction cache manager serves the same shared keys with the eviction marker's TTL.
+ */
+public class TwoLevelCacheManager implements CacheManager {
+    
+    private final CaffeineCacheManager localCacheManager;
+    private final CacheManager sharedCacheManager;
+    private final CacheManager evictionCacheManager;
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    
+    public TwoLevelCacheManager(CaffeineCacheManager localCacheManager, CacheManager sharedCacheManager,
+                                CacheManager evictionCacheManager) {
+        this.localCacheManager = localCacheManager;
+        this.sharedCacheManager = sharedCacheManager;
+        this.evictionCacheManager = evictionCacheManager;
+    }
+    
+    @Override
+    public Cache getCache(String name) {
+        TwoLevelCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        CaffeineCache local = (CaffeineCache) localCacheManager.getCache(name);
+        Cache shared = sharedCacheManager.getCache(name);
+        Cache evictions = evictionCacheManager.getCache(name);
+        if (local == null || shared == null || evictions == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, key -> new TwoLevelCache(local, shared, evictions));
+    }
+    
+    @Override
+    public Collection<String> getCacheNames() {
+        return localCacheManager.getCacheNames();
+    }
+}
@@ -0,0 +1,36 @@
+package com.lunar.demo.controller;
+
+import com.lunar.demo.dto.AnalyticsReportResponse;
+import com.lunar.demo.service.AnalyticsRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/events")
+@RequiredArgsConstructor
+public class AnalyticsController {
+    
+    private final AnalyticsRollupService analyticsRollupService;
+    
+    @GetMapping("/{eventId}/analytics")
+    public ResponseEntity<AnalyticsReportResponse> getEventAnalytics(
+            @PathVariable Long eventId,
+            @RequestParam(defaultValue = "DAY") String grain,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(analyticsRollupService.getEventReport(eventId, grain, from, to));
+    }
+    
+    @GetMapping("/organizer/{organizerId}/analytics")
+    public ResponseEntity<AnalyticsReportResponse> getOrganizerAnalytics(
+            @PathVariable Long organizerId,
+            @RequestParam(defaultValue = "DAY") String grain,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(analyticsRollupService.getOrganizerReport(organizerId, grain, from, to));
+    }
+}
@@ -3,6 +3,8 @@ package com.lunar.demo.controller;
 import com.lunar.demo.dto.BookingCreateRequest;
 import com.lunar.demo.dto.BookingResponse;
 import com.lunar.demo.service.BookingService;
+import com.lunar.demo.service.IdempotencyService;
+import com.lunar.demo.service.WaitingRoomService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,12 +22,23 @@ import java.util.List;
 @Slf4j
 public class BookingController {
     
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    
     private final BookingService bookingService;
+    private final IdempotencyService idempotencyService;
+    private final WaitingRoomService waitingRoomService;
     
     @PostMapping
-    public ResponseEntity<BookingResponse> createBooking(@Valid @RequestBody BookingCreateRequest request) {
+    public ResponseEntity<BookingResponse> createBooking(@Valid @RequestBody BookingCreateRequest request,
+                                                         @RequestHeader(value = WaitingRoomController.QUEUE_TOKEN_HEADER,
+                                                                        required = false) String queueToken,
+                                                         @RequestHeader(value = IDEMPOTENCY_KEY_HEADER,
+                                                                        required = false) String idempotencyKey) {
         log.info("Booking creation attempt for event: {}", request.getEventId());
-        BookingResponse booking = bookingService.createBooking(request);
+        BookingResponse booking = idempotencyKey == null
+                ? createAdmittedBooking(request, queueToken)
+                : idempotencyService.execute(idempotencyKey, request, BookingResponse.class,
+                        () -> createAdmittedBooking(request, queueToken));
         return ResponseEntity.status(HttpStatus.CREATED).body(booking);
     }
     
@@ -78,4 +91,14 @@ public class BookingController {
         BookingResponse booking = bookingService.checkInBooking(id);
         return ResponseEntity.ok(booking);
     }
+    
+    private BookingResponse createAdmittedBooking(BookingCreateRequest request, String queueToken) {
+        waitingRoomService.admit(request.getEventId(), queueToken);
+        try {
+            return bookingService.createBooking(request);
+        } catch (RuntimeException e) {
+            waitingRoomService.readmit(request.getEventId(), queueToken);
+            throw e;
+        }
+    }
 }
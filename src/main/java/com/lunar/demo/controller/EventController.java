@@ -3,6 +3,8 @@ package com.lunar.demo.controller;
 import com.lunar.demo.dto.EventCreateRequest;
 import com.lunar.demo.dto.EventResponse;
 import com.lunar.demo.dto.EventSearchRequest;
+import com.lunar.demo.dto.EventSearchResponse;
+import com.lunar.demo.dto.NearbyEventResponse;
 import com.lunar.demo.service.EventService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -45,10 +47,33 @@ public class EventController {
     }
     
     @PostMapping("/search")
-    public ResponseEntity<Page<EventResponse>> searchEvents(@RequestBody EventSearchRequest request, 
-                                                          Pageable pageable) {
+    public ResponseEntity<EventSearchResponse> searchEvents(@RequestBody EventSearchRequest request) {
         log.info("Event search request: {}", request.getSearchTerm());
-        Page<EventResponse> events = eventService.searchEvents(request, pageable);
+        EventSearchResponse events = eventService.searchEvents(request);
+        return ResponseEntity.ok(events);
+    }
+    
+    @GetMapping("/nearby")
+    public ResponseEntity<List<NearbyEventResponse>> getEventsNearby(@RequestParam double latitude,
+                                                                     @RequestParam double longitude,
+                                                                     @RequestParam(defaultValue = "25") double radiusKm,
+                                                                     @RequestParam(defaultValue = "20") int limit) {
+        log.info("Nearby events request: {}, {} within {} km", latitude, longitude, radiusKm);
+        List<NearbyEventResponse> events = eventService.getEventsNearby(latitude, longitude, radiusKm, limit);
+        return ResponseEntity.ok(events);
+    }
+    
+    @GetMapping("/within")
+    public ResponseEntity<List<NearbyEventResponse>> getEventsInBox(@RequestParam double minLatitude,
+                                                                    @RequestParam double minLongitude,
+                                                                    @RequestParam double maxLatitude,
+                                                                    @RequestParam double maxLongitude,
+                                                                    @RequestParam(required = false) Double latitude,
+                                                                    @RequestParam(required = false) Double longitude,
+                                                                    @RequestParam(defaultValue = "20") int limit) {
+        log.info("Events in box request: [{}, {}] - [{}, {}]", minLatitude, minLongitude, maxLatitude, maxLongitude);
+        List<NearbyEventResponse> events = eventService.getEventsInBox(minLatitude, minLongitude, maxLatitude,
+                maxLongitude, latitude, longitude, limit);
         return ResponseEntity.ok(events);
     }
     
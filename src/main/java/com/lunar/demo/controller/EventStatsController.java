@@ -0,0 +1,30 @@
+package com.lunar.demo.controller;
+
+import com.lunar.demo.dto.EventStatsResponse;
+import com.lunar.demo.service.EventStatsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/events/{eventId}/stats")
+@RequiredArgsConstructor
+@Slf4j
+public class EventStatsController {
+    
+    private final EventStatsService eventStatsService;
+    
+    @GetMapping
+    public ResponseEntity<EventStatsResponse> getEventStats(@PathVariable Long eventId) {
+        return ResponseEntity.ok(eventStatsService.getStats(eventId));
+    }
+    
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEventStats(@PathVariable Long eventId) {
+        log.info("Event stats stream opened for event: {}", eventId);
+        return eventStatsService.stream(eventId);
+    }
+}
@@ -1,21 +1,34 @@
 package com.lunar.demo.controller;
 
+import com.lunar.demo.dto.CheckInBatchRequest;
+import com.lunar.demo.dto.CheckInBatchResponse;
 import com.lunar.demo.dto.TicketResponse;
 import com.lunar.demo.entity.Ticket;
 import com.lunar.demo.repository.TicketRepository;
-import com.lunar.demo.service.QrCodeService;
+import com.lunar.demo.security.UserPrincipal;
+import com.lunar.demo.service.CheckInService;
+import com.lunar.demo.service.EventStatsChangedEvent;
+import com.lunar.demo.service.QrImageCache;
+import com.lunar.demo.service.TicketTokenService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/tickets")
@@ -24,67 +37,91 @@ import java.util.stream.Collectors;
 public class TicketController {
     
     private final TicketRepository ticketRepository;
-    private final QrCodeService qrCodeService;
+    private final QrImageCache qrImageCache;
+    private final CheckInService checkInService;
+    private final TicketTokenService ticketTokenService;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    @Value("${qr.cache.max-age-seconds:86400}")
+    private long qrMaxAgeSeconds;
     
     @GetMapping
     public ResponseEntity<Page<TicketResponse>> getUserTickets(Pageable pageable) {
-        UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        Long userId = Long.parseLong(userDetails.getUsername());
+        UserPrincipal userPrincipal = (UserPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Long userId = userPrincipal.getId();
         
         log.info("Get tickets for user: {}", userId);
-        Page<Ticket> tickets = ticketRepository.findByUserId(userId, pageable);
-        Page<TicketResponse> ticketResponses = tickets.map(this::mapToTicketResponse);
-        return ResponseEntity.ok(ticketResponses);
+        return ResponseEntity.ok(ticketRepository.findResponsesByUserId(userId, pageable));
     }
     
     @GetMapping("/{id}")
     public ResponseEntity<TicketResponse> getTicketById(@PathVariable Long id) {
         log.info("Get ticket by ID: {}", id);
-        Ticket ticket = ticketRepository.findById(id)
+        TicketResponse ticket = ticketRepository.findResponseById(id)
                 .orElseThrow(() -> new RuntimeException("Ticket not found"));
-        return ResponseEntity.ok(mapToTicketResponse(ticket));
+        return ResponseEntity.ok(ticket);
     }
     
     @GetMapping("/booking/{bookingId}")
     public ResponseEntity<List<TicketResponse>> getBookingTickets(@PathVariable Long bookingId) {
         log.info("Get tickets for booking: {}", bookingId);
-        List<Ticket> tickets = ticketRepository.findByBookingId(bookingId);
-        List<TicketResponse> ticketResponses = tickets.stream()
-                .map(this::mapToTicketResponse)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(ticketResponses);
+        return ResponseEntity.ok(ticketRepository.findResponsesByBookingId(bookingId));
     }
     
     @PostMapping("/validate")
     public ResponseEntity<TicketResponse> validateTicket(@RequestParam String qrCode) {
         log.info("Ticket validation attempt for QR code: {}", qrCode);
         
-        // Parse QR code data
-        String[] parts = qrCode.split("\\|");
-        if (parts.length != 4 || !"LUNAR_TICKET".equals(parts[0])) {
-            return ResponseEntity.badRequest().build();
-        }
-        
-        try {
-            Long bookingId = Long.parseLong(parts[1]);
-            Long ticketId = Long.parseLong(parts[2]);
-            
-            Ticket ticket = ticketRepository.findById(ticketId)
-                    .orElseThrow(() -> new RuntimeException("Ticket not found"));
-            
-            if (!ticket.getBooking().getId().equals(bookingId)) {
+        // Signed tokens are verified locally; the booking id only comes with legacy QR codes
+        Long bookingId = null;
+        Long ticketId;
+        if (TicketTokenService.isToken(qrCode)) {
+            TicketTokenService.Verification token = ticketTokenService.verify(qrCode);
+            if (token.status() == TicketTokenService.Status.REVOKED) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+            if (!token.isValid()) {
                 return ResponseEntity.badRequest().build();
             }
-            
-            if (!ticket.canBeUsed()) {
-                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            ticketId = token.ticketId();
+        } else {
+            String[] parts = qrCode.split("\\|");
+            if (parts.length != 4 || !"LUNAR_TICKET".equals(parts[0])) {
+                return ResponseEntity.badRequest().build();
+            }
+            try {
+                bookingId = Long.parseLong(parts[1]);
+                ticketId = Long.parseLong(parts[2]);
+            } catch (NumberFormatException e) {
+                return ResponseEntity.badRequest().build();
             }
-            
-            return ResponseEntity.ok(mapToTicketResponse(ticket));
-            
-        } catch (NumberFormatException e) {
+        }
+        
+        // Events with open gates are checked from memory
+        CheckInService.Verdict verdict = checkInService.check(ticketId, bookingId);
+        if (verdict == CheckInService.Verdict.VALID) {
+            return ResponseEntity.ok(ticketRepository.findResponseById(ticketId)
+                    .orElseThrow(() -> new RuntimeException("Ticket not found")));
+        }
+        if (verdict == CheckInService.Verdict.ALREADY_USED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        if (verdict == CheckInService.Verdict.WRONG_BOOKING) {
             return ResponseEntity.badRequest().build();
         }
+        
+        Ticket ticket = ticketRepository.findById(ticketId)
+                .orElseThrow(() -> new RuntimeException("Ticket not found"));
+        
+        if (bookingId != null && !ticket.getBooking().getId().equals(bookingId)) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        if (!ticket.canBeUsed()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        
+        return ResponseEntity.ok(mapToTicketResponse(ticket));
     }
     
     @PostMapping("/{id}/use")
@@ -92,6 +129,23 @@ public class TicketController {
                                                   @RequestParam String usedBy) {
         log.info("Ticket usage attempt for ID: {} by: {}", id, usedBy);
         
+        LocalDateTime usedAt = LocalDateTime.now();
+        CheckInService.Verdict verdict = checkInService.admit(id, null, usedBy, usedAt);
+        if (verdict == CheckInService.Verdict.ADMITTED) {
+            // The usage is written with the next check-in batch
+            TicketResponse response = ticketRepository.findResponseById(id)
+                    .orElseThrow(() -> new RuntimeException("Ticket not found"));
+            response.setStatus(Ticket.TicketStatus.USED.name());
+            response.setIsUsed(true);
+            response.setUsedAt(usedAt);
+            response.setUsedBy(usedBy);
+            response.setCheckInTime(usedAt);
+            return ResponseEntity.ok(response);
+        }
+        if (verdict != CheckInService.Verdict.NOT_LOADED) {
+            throw new RuntimeException("Ticket cannot be used");
+        }
+        
         Ticket ticket = ticketRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Ticket not found"));
         
@@ -101,10 +155,33 @@ public class TicketController {
         
         ticket.markAsUsed(usedBy);
         ticket = ticketRepository.save(ticket);
+        eventPublisher.publishEvent(EventStatsChangedEvent.ticketsUsed(ticket.getBooking().getEvent().getId(), 1));
         
         return ResponseEntity.ok(mapToTicketResponse(ticket));
     }
     
+    /**
+     * Applies scans buffered by a check-in device in one call, with a verdict per scan.
+     */
+    @PostMapping("/check-ins")
+    public ResponseEntity<CheckInBatchResponse> checkInBatch(@Valid @RequestBody CheckInBatchRequest request) {
+        log.info("Batch check-in of {} scans", request.getScans().size());
+        
+        List<CheckInService.Verdict> verdicts = checkInService.admitAll(request.getScans());
+        List<CheckInBatchResponse.ScanResult> results = new ArrayList<>(verdicts.size());
+        for (int i = 0; i < verdicts.size(); i++) {
+            results.add(CheckInBatchResponse.ScanResult.builder()
+                    .ticketId(request.getScans().get(i).getTicketId())
+                    .verdict(verdicts.get(i).name())
+                    .build());
+        }
+        
+        return ResponseEntity.ok(CheckInBatchResponse.builder()
+                .admitted((int) verdicts.stream().filter(v -> v == CheckInService.Verdict.ADMITTED).count())
+                .results(results)
+                .build());
+    }
+    
     @PostMapping("/{id}/transfer")
     public ResponseEntity<TicketResponse> transferTicket(@PathVariable Long id,
                                                        @RequestParam Long newUserId,
@@ -120,24 +197,32 @@ public class TicketController {
         
         ticket.transferTo(newUserId, notes);
         ticket = ticketRepository.save(ticket);
+        ticketTokenService.revoke(ticket.getId(), Integer.MAX_VALUE);
+        eventPublisher.publishEvent(EventStatsChangedEvent.ticketsReleased(ticket.getBooking().getEvent().getId(), 1));
         
         return ResponseEntity.ok(mapToTicketResponse(ticket));
     }
     
-    @GetMapping("/qr/{id}")
-    public ResponseEntity<String> getTicketQrCode(@PathVariable Long id) {
+    @GetMapping(value = "/qr/{id}", produces = MediaType.IMAGE_PNG_VALUE)
+    public ResponseEntity<byte[]> getTicketQrCode(@PathVariable Long id, WebRequest request) {
         log.info("Get QR code for ticket ID: {}", id);
         
-        Ticket ticket = ticketRepository.findById(id)
+        Object[] parts = ticketRepository.findQrTokenParts(id).stream().findFirst()
                 .orElseThrow(() -> new RuntimeException("Ticket not found"));
+        String payload = ticketTokenService.issue(id, (Long) parts[0],
+                (LocalDateTime) parts[1], (LocalDateTime) parts[2], (Integer) parts[3]);
         
-        String qrCode = qrCodeService.generateQrCodeForTicket(
-                ticket.getBooking().getId(), 
-                ticket.getId(), 
-                ticket.getTicketCode()
-        );
+        // The ETag is derived from the payload, so a revalidation never renders the image
+        if (request.checkNotModified(qrImageCache.etag(payload))) {
+            return null;
+        }
         
-        return ResponseEntity.ok(qrCode);
+        QrImageCache.QrImage image = qrImageCache.get(payload);
+        return ResponseEntity.ok()
+                .eTag(image.etag())
+                .cacheControl(CacheControl.maxAge(qrMaxAgeSeconds, TimeUnit.SECONDS).cachePrivate())
+                .contentType(MediaType.IMAGE_PNG)
+                .body(image.png());
     }
     
     private TicketResponse mapToTicketResponse(Ticket ticket) {
@@ -0,0 +1,40 @@
+package com.lunar.demo.controller;
+
+import com.lunar.demo.dto.QueueStatusResponse;
+import com.lunar.demo.service.WaitingRoomService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/events/{eventId}/queue")
+@RequiredArgsConstructor
+@Slf4j
+public class WaitingRoomController {
+    
+    public static final String QUEUE_TOKEN_HEADER = "X-Queue-Token";
+    
+    private final WaitingRoomService waitingRoomService;
+    
+    @PostMapping
+    public ResponseEntity<QueueStatusResponse> joinQueue(@PathVariable Long eventId) {
+        log.info("Waiting room join for event: {}", eventId);
+        QueueStatusResponse status = waitingRoomService.join(eventId);
+        return ResponseEntity.ok(status);
+    }
+    
+    @GetMapping("/status")
+    public ResponseEntity<QueueStatusResponse> getQueueStatus(@PathVariable Long eventId,
+                                                              @RequestHeader(QUEUE_TOKEN_HEADER) String queueToken) {
+        QueueStatusResponse status = waitingRoomService.getStatus(eventId, queueToken);
+        return ResponseEntity.ok(status);
+    }
+    
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamQueueStatus(@PathVariable Long eventId, @RequestParam String token) {
+        return waitingRoomService.stream(eventId, token);
+    }
+}
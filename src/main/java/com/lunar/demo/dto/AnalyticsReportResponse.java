@@ -0,0 +1,46 @@
+package com.lunar.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Rollups of an event or organizer from {@code from} (inclusive) to {@code to} (exclusive).
+ * Buckets with no activity are left out.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsReportResponse {
+    
+    private String scope;
+    private Long scopeId;
+    private String grain;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Bucket totals;
+    private List<Bucket> buckets;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bucket {
+        
+        private LocalDateTime bucketStart;
+        private Long ticketsSold;
+        private BigDecimal gross;
+        private BigDecimal refunds;
+        private BigDecimal net;
+        private Long checkIns;
+        /** Review counts for 1 to 5 stars */
+        private List<Long> ratings;
+        private BigDecimal averageRating;
+    }
+}
@@ -1,6 +1,7 @@
 package com.lunar.demo.dto;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
@@ -40,6 +41,7 @@ public class BookingCreateRequest {
         private Long ticketTypeId;
         
         @NotNull(message = "Quantity is required")
+        @Min(value = 1, message = "Quantity must be at least 1")
         private Integer quantity;
         
         @Size(max = 200, message = "Special instructions must not exceed 200 characters")
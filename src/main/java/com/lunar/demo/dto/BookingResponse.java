@@ -8,6 +8,10 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+/**
+ * Field order is the all-args constructor used by the projection in
+ * {@link com.lunar.demo.repository.BookingRepository#BOOKING_RESPONSE}; keep the two in sync.
+ */
 @Data
 @Builder
 @NoArgsConstructor
@@ -31,6 +35,7 @@ public class BookingResponse {
     private LocalDateTime cancelledAt;
     private BigDecimal refundAmount;
     private LocalDateTime refundProcessedAt;
+    private LocalDateTime holdExpiresAt;
     private Long userId;
     private String userName;
     private Long eventId;
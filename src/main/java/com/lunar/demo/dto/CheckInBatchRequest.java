@@ -0,0 +1,45 @@
+package com.lunar.demo.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckInBatchRequest {
+    
+    @Valid
+    @NotNull(message = "Scans are required")
+    @Size(min = 1, max = 1000, message = "A batch must contain between 1 and 1000 scans")
+    private List<Scan> scans;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Scan {
+        
+        @NotNull(message = "Ticket ID is required")
+        private Long ticketId;
+        
+        // From the scanned QR code; checked against the ticket's booking when present
+        private Long bookingId;
+        
+        @NotBlank(message = "Used by is required")
+        @Size(max = 255, message = "Used by must not exceed 255 characters")
+        private String usedBy;
+        
+        @NotNull(message = "Scan time is required")
+        private LocalDateTime scannedAt;
+    }
+}
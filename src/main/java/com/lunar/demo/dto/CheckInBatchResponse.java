@@ -0,0 +1,31 @@
+package com.lunar.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One result per scan, in the order of the request.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckInBatchResponse {
+    
+    private Integer admitted;
+    private List<ScanResult> results;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ScanResult {
+        
+        private Long ticketId;
+        private String verdict;
+    }
+}
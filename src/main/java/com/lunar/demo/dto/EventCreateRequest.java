@@ -1,6 +1,7 @@
 package com.lunar.demo.dto;
 
 import com.lunar.demo.entity.Event;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
@@ -77,6 +78,15 @@ public class EventCreateRequest {
     private Boolean isFeatured = false;
     private Boolean isPublic = true;
     private Boolean requiresApproval = false;
+    @Builder.Default
+    private Boolean waitingRoomEnabled = false;
+    
+    @Min(value = 1, message = "Admission rate must be at least 1 per second")
+    private Integer admissionRatePerSecond;
+    
+    @Min(value = 0, message = "Expected demand must not be negative")
+    private Integer expectedDemand;
+    
     private Integer ageRestriction;
     
     @Size(max = 1000, message = "Terms and conditions must not exceed 1000 characters")
@@ -7,6 +7,10 @@ import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 
+/**
+ * Field order is the all-args constructor used by the projection in
+ * {@link com.lunar.demo.repository.EventRepository#EVENT_RESPONSE}; keep the two in sync.
+ */
 @Data
 @Builder
 @NoArgsConstructor
@@ -40,6 +44,9 @@ public class EventResponse {
     private Boolean isFeatured;
     private Boolean isPublic;
     private Boolean requiresApproval;
+    private Boolean waitingRoomEnabled;
+    private Integer admissionRatePerSecond;
+    private Integer expectedDemand;
     private Integer ageRestriction;
     private String termsAndConditions;
     private String cancellationPolicy;
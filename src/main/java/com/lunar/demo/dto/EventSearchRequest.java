@@ -25,4 +25,7 @@ public class EventSearchRequest {
     private Double maxPrice;
     private String sortBy;
     private String sortDirection;
+    // Opaque position returned as EventSearchResponse.nextCursor; omit for the first page
+    private String cursor;
+    private Integer size;
 }
@@ -0,0 +1,21 @@
+package com.lunar.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventSearchResponse {
+    
+    private List<EventResponse> events;
+    private Integer size;
+    // Pass back as EventSearchRequest.cursor to fetch the next page; null on the last page
+    private String nextCursor;
+    private Boolean hasNext;
+}
@@ -0,0 +1,22 @@
+package com.lunar.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventStatsResponse {
+    
+    private Long eventId;
+    private Long activeTickets;
+    private Long usedTickets;
+    private BigDecimal revenue;
+    private LocalDateTime asOf;
+}
@@ -0,0 +1,16 @@
+package com.lunar.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyEventResponse {
+    
+    private EventResponse event;
+    private Double distanceKm;
+}
@@ -0,0 +1,21 @@
+package com.lunar.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueueStatusResponse {
+    
+    private Long eventId;
+    private String queueToken;
+    private Long position;
+    private Long admittedThrough;
+    private Long usersAhead;
+    private Long estimatedWaitSeconds;
+    private Boolean admitted;
+}
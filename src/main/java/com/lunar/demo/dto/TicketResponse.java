@@ -7,6 +7,10 @@ import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 
+/**
+ * Field order is the all-args constructor used by the projection in
+ * {@link com.lunar.demo.repository.TicketRepository#TICKET_RESPONSE}; keep the two in sync.
+ */
 @Data
 @Builder
 @NoArgsConstructor
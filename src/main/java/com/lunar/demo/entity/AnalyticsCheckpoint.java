@@ -0,0 +1,27 @@
+package com.lunar.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * How far a table scanned into the analytics rollups has been folded, by the id of its last
+ * folded row. Advanced in the same transaction as the rollups it wrote.
+ */
+@Entity
+@Table(name = "analytics_checkpoints")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsCheckpoint {
+    
+    @Id
+    @Column(name = "name", length = 50)
+    private String name;
+    
+    @Column(name = "last_id", nullable = false)
+    private long lastId;
+}
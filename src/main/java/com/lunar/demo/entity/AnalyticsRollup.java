@@ -0,0 +1,78 @@
+package com.lunar.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Sales, refunds, check-ins, and ratings of one event or organizer over one hour or day. Rows
+ * only ever grow by deltas; see AnalyticsRollupService.
+ */
+@Entity
+@Table(name = "analytics_rollups",
+       uniqueConstraints = @UniqueConstraint(name = "uk_analytics_rollups_grain_scope_bucket",
+                                             columnNames = {"grain", "scope", "scope_id", "bucket_start"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsRollup {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "grain", nullable = false, length = 10)
+    private Grain grain;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "scope", nullable = false, length = 20)
+    private Scope scope;
+    
+    @Column(name = "scope_id", nullable = false)
+    private Long scopeId;
+    
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+    
+    @Column(name = "tickets_sold", nullable = false)
+    private long ticketsSold;
+    
+    @Column(name = "gross", nullable = false, precision = 19, scale = 2)
+    private BigDecimal gross;
+    
+    @Column(name = "refunds", nullable = false, precision = 19, scale = 2)
+    private BigDecimal refunds;
+    
+    @Column(name = "check_ins", nullable = false)
+    private long checkIns;
+    
+    @Column(name = "rating_1", nullable = false)
+    private long rating1;
+    
+    @Column(name = "rating_2", nullable = false)
+    private long rating2;
+    
+    @Column(name = "rating_3", nullable = false)
+    private long rating3;
+    
+    @Column(name = "rating_4", nullable = false)
+    private long rating4;
+    
+    @Column(name = "rating_5", nullable = false)
+    private long rating5;
+    
+    public enum Grain {
+        HOUR, DAY
+    }
+    
+    public enum Scope {
+        EVENT, ORGANIZER
+    }
+}
@@ -18,7 +18,10 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = {
+        @Index(name = "idx_bookings_status_hold_expires_at", columnList = "status, hold_expires_at"),
+        @Index(name = "idx_bookings_event_status_id", columnList = "event_id, status, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -29,6 +32,10 @@ public class Booking {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    @Version
+    @Column(name = "version")
+    private Long version;
+    
     @NotBlank
     @Size(max = 50)
     @Column(name = "booking_reference", nullable = false, unique = true)
@@ -80,6 +87,14 @@ public class Booking {
     @Column(name = "refund_processed_at")
     private LocalDateTime refundProcessedAt;
     
+    // Sum of the item quantities, written with the items so reads never load booking_items
+    @Column(name = "total_tickets", nullable = false)
+    private int totalTickets;
+    
+    // Pending bookings release their reserved stock once this passes; see BookingHoldService
+    @Column(name = "hold_expires_at")
+    private LocalDateTime holdExpiresAt;
+    
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -122,6 +137,12 @@ public class Booking {
         return status == BookingStatus.CHECKED_IN;
     }
     
+    public boolean isHoldExpired() {
+        return status == BookingStatus.PENDING &&
+               holdExpiresAt != null &&
+               !LocalDateTime.now().isBefore(holdExpiresAt);
+    }
+    
     public boolean canBeCancelled() {
         return (status == BookingStatus.PENDING || status == BookingStatus.CONFIRMED) &&
                event.getRegistrationEndDate() != null &&
@@ -134,12 +155,6 @@ public class Booking {
                !event.getCancellationPolicy().isEmpty();
     }
     
-    public int getTotalTickets() {
-        return bookingItems.stream()
-                .mapToInt(BookingItem::getQuantity)
-                .sum();
-    }
-    
     public BigDecimal getNetAmount() {
         return totalAmount.subtract(discountAmount).add(taxAmount).add(serviceFee);
     }
@@ -0,0 +1,46 @@
+package com.lunar.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One slot of a sharded counter. The counter's value is the owning row's column plus the sum of
+ * its slot deltas; see ShardedCounterService.
+ */
+@Entity
+@Table(name = "counter_slots",
+       uniqueConstraints = @UniqueConstraint(name = "uk_counter_slots_kind_entity_slot",
+                                             columnNames = {"kind", "entity_id", "slot"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CounterSlot {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind", nullable = false, length = 30)
+    private CounterKind kind;
+    
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+    
+    @Column(name = "slot", nullable = false)
+    private int slot;
+    
+    @Column(name = "delta", nullable = false)
+    private long delta;
+    
+    public enum CounterKind {
+        /** Adds to events.current_attendees */
+        EVENT_ATTENDEES,
+        /** Adds to ticket_types.quantity_sold; only releases go through slots */
+        TICKET_TYPE_SOLD
+    }
+}
@@ -0,0 +1,53 @@
+package com.lunar.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An email that failed every delivery attempt, kept for inspection and manual resend.
+ */
+@Entity
+@Table(name = "email_dead_letters")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailDeadLetter {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 30)
+    private EmailOutbox.EmailType type;
+    
+    @Column(name = "booking_id", nullable = false)
+    private Long bookingId;
+    
+    @Column(name = "ticket_id")
+    private Long ticketId;
+    
+    @Column(name = "recipient", nullable = false)
+    private String recipient;
+    
+    @Column(name = "locale", length = 35)
+    private String locale;
+    
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+    
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+    
+    @Column(name = "queued_at", nullable = false)
+    private LocalDateTime queuedAt;
+    
+    @Column(name = "failed_at", nullable = false)
+    private LocalDateTime failedAt;
+}
@@ -0,0 +1,63 @@
+package com.lunar.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * An email waiting to be sent. Rows are written in the transaction that triggers the email and
+ * deleted once the message is accepted by the SMTP server; see EmailDeliveryService.
+ */
+@Entity
+@Table(name = "email_outbox",
+       indexes = @Index(name = "idx_email_outbox_next_attempt_at", columnList = "next_attempt_at"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailOutbox {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 30)
+    private EmailType type;
+    
+    @Column(name = "booking_id", nullable = false)
+    private Long bookingId;
+    
+    @Column(name = "ticket_id")
+    private Long ticketId;
+    
+    @Column(name = "recipient", nullable = false)
+    private String recipient;
+    
+    // BCP 47 tag of the request that queued the email; selects the template variant
+    @Column(name = "locale", length = 35)
+    private String locale;
+    
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+    
+    // Also serves as the lease: a claimed row is pushed forward until its delivery is recorded
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+    
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    public enum EmailType {
+        BOOKING_CONFIRMATION, BOOKING_CANCELLATION, TICKET, EVENT_REMINDER
+    }
+}
@@ -17,7 +17,11 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "events")
+@Table(name = "events", indexes = {
+        @Index(name = "idx_events_listing_start_date", columnList = "status, is_public, start_date, id"),
+        @Index(name = "idx_events_listing_created_at", columnList = "status, is_public, created_at, id"),
+        @Index(name = "idx_events_listing_category", columnList = "status, is_public, category, start_date, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -28,6 +32,10 @@ public class Event {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    @Version
+    @Column(name = "version")
+    private Long version;
+    
     @NotBlank
     @Size(max = 200)
     @Column(name = "title", nullable = false)
@@ -98,7 +106,8 @@ public class Event {
     @Column(name = "max_attendees")
     private Integer maxAttendees;
     
-    @Column(name = "current_attendees")
+    // Only changed by delta UPDATEs (EventRepository#adjustCurrentAttendees), never by entity saves
+    @Column(name = "current_attendees", updatable = false)
     private Integer currentAttendees = 0;
     
     @Column(name = "is_online")
@@ -125,6 +134,18 @@ public class Event {
     @Column(name = "requires_approval")
     private Boolean requiresApproval = false;
     
+    // Route bookings through the waiting room, admitting this many users per second
+    @Builder.Default
+    @Column(name = "waiting_room_enabled")
+    private Boolean waitingRoomEnabled = false;
+    
+    // Demand the organizer expects; past counters.shard-threshold the event uses sharded counters
+    @Column(name = "expected_demand")
+    private Integer expectedDemand;
+    
+    @Column(name = "admission_rate_per_second")
+    private Integer admissionRatePerSecond;
+    
     @Column(name = "age_restriction")
     private Integer ageRestriction;
     
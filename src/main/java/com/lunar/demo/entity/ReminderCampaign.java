@@ -0,0 +1,58 @@
+package com.lunar.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reminder emails for one event and one lead time (e.g. 24h before start). The campaign walks
+ * the event's confirmed bookings in id order; {@code lastBookingId} is the checkpoint, committed
+ * together with the emails queued for each page.
+ */
+@Entity
+@Table(name = "reminder_campaigns",
+       uniqueConstraints = @UniqueConstraint(name = "uk_reminder_campaigns_event_lead",
+                                             columnNames = {"event_id", "lead_minutes"}),
+       indexes = @Index(name = "idx_reminder_campaigns_status", columnList = "status"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReminderCampaign {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "event_id", nullable = false)
+    private Long eventId;
+    
+    @Column(name = "lead_minutes", nullable = false)
+    private long leadMinutes;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private CampaignStatus status;
+    
+    @Column(name = "last_booking_id", nullable = false)
+    private long lastBookingId;
+    
+    @Column(name = "queued_count", nullable = false)
+    private long queuedCount;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+    
+    public enum CampaignStatus {
+        RUNNING, COMPLETED
+    }
+}
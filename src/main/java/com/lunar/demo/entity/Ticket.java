@@ -7,7 +7,9 @@ import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -21,8 +23,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Ticket {
     
+    // Pooled sequence ids let Hibernate batch ticket inserts; see TicketIssuanceService
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ticket_id_seq")
+    @SequenceGenerator(name = "ticket_id_seq", sequenceName = "ticket_id_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank
@@ -76,6 +80,10 @@ public class Ticket {
     @Column(name = "used_by")
     private String usedBy;
     
+    // Signed ticket tokens carry this; raising it revokes the ones already handed out
+    @Column(name = "token_epoch")
+    private Integer tokenEpoch;
+    
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -84,14 +92,22 @@ public class Ticket {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Associations stay out of equals/hashCode/toString so putting this into the booking's
+    // set does not walk the whole object graph through lazy collections
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "booking_id", nullable = false)
     private Booking booking;
     
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "ticket_type_id", nullable = false)
     private TicketType ticketType;
     
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -122,11 +138,15 @@ public class Ticket {
     }
     
     public void markAsUsed(String usedBy) {
+        markAsUsed(usedBy, LocalDateTime.now());
+    }
+    
+    public void markAsUsed(String usedBy, LocalDateTime usedAt) {
         this.status = TicketStatus.USED;
         this.isUsed = true;
-        this.usedAt = LocalDateTime.now();
+        this.usedAt = usedAt;
         this.usedBy = usedBy;
-        this.checkInTime = LocalDateTime.now();
+        this.checkInTime = usedAt;
     }
     
     public void transferTo(Long newUserId, String notes) {
@@ -134,6 +154,7 @@ public class Ticket {
         this.transferredAt = LocalDateTime.now();
         this.transferNotes = notes;
         this.status = TicketStatus.TRANSFERRED;
+        this.tokenEpoch = (tokenEpoch != null ? tokenEpoch : 0) + 1;
     }
     
     public void generateTicketCode() {
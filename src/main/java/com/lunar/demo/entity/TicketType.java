@@ -19,7 +19,9 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "ticket_types")
+@Table(name = "ticket_types", indexes = {
+        @Index(name = "idx_ticket_types_event_price", columnList = "event_id, status, price")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -49,7 +51,8 @@ public class TicketType {
     @Column(name = "quantity_available", nullable = false)
     private Integer quantityAvailable;
     
-    @Column(name = "quantity_sold")
+    // Includes units held by pending bookings; only changed by the delta UPDATEs in TicketInventoryService
+    @Column(name = "quantity_sold", updatable = false)
     private Integer quantitySold = 0;
     
     @Column(name = "max_quantity_per_booking")
@@ -148,9 +151,17 @@ public class TicketType {
     
     public boolean canPurchase(int quantity) {
         return isAvailable() && 
-               isOnSale() && 
-               quantity >= minQuantityPerBooking &&
-               (maxQuantityPerBooking == null || quantity <= maxQuantityPerBooking) &&
+               acceptsQuantity(quantity) &&
                quantity <= getRemainingQuantity();
     }
+    
+    /**
+     * Sale window and per-booking limits only; stock is checked by the inventory reservation.
+     */
+    public boolean acceptsQuantity(int quantity) {
+        return status == TicketStatus.ACTIVE && 
+               isOnSale() && 
+               quantity >= (minQuantityPerBooking != null ? minQuantityPerBooking : 1) &&
+               (maxQuantityPerBooking == null || quantity <= maxQuantityPerBooking);
+    }
 }
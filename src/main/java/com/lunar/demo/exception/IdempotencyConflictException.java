@@ -0,0 +1,12 @@
+package com.lunar.demo.exception;
+
+/**
+ * Thrown when an Idempotency-Key is still being processed elsewhere or is reused with a
+ * different request body. Mapped to 409.
+ */
+public class IdempotencyConflictException extends RuntimeException {
+    
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.lunar.demo.exception;
+
+/**
+ * Thrown when a booking for a waiting-room event arrives without a queue token that has been
+ * admitted yet. Mapped to 429 so clients go back to polling their queue status.
+ */
+public class QueueAdmissionException extends RuntimeException {
+    
+    public QueueAdmissionException(String message) {
+        super(message);
+    }
+}
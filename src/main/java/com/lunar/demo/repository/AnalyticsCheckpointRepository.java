@@ -0,0 +1,19 @@
+package com.lunar.demo.repository;
+
+import com.lunar.demo.entity.AnalyticsCheckpoint;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface AnalyticsCheckpointRepository extends JpaRepository<AnalyticsCheckpoint, String> {
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM AnalyticsCheckpoint c WHERE c.name = :name")
+    Optional<AnalyticsCheckpoint> findByNameForUpdate(@Param("name") String name);
+}
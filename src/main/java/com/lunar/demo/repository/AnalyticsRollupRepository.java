@@ -0,0 +1,37 @@
+package com.lunar.demo.repository;
+
+import com.lunar.demo.entity.AnalyticsRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AnalyticsRollupRepository extends JpaRepository<AnalyticsRollup, Long> {
+    
+    @Modifying
+    @Query("UPDATE AnalyticsRollup r SET r.ticketsSold = r.ticketsSold + :ticketsSold, " +
+           "r.gross = r.gross + :gross, r.refunds = r.refunds + :refunds, r.checkIns = r.checkIns + :checkIns, " +
+           "r.rating1 = r.rating1 + :rating1, r.rating2 = r.rating2 + :rating2, r.rating3 = r.rating3 + :rating3, " +
+           "r.rating4 = r.rating4 + :rating4, r.rating5 = r.rating5 + :rating5 " +
+           "WHERE r.grain = :grain AND r.scope = :scope AND r.scopeId = :scopeId AND r.bucketStart = :bucketStart")
+    int addTo(@Param("grain") AnalyticsRollup.Grain grain, @Param("scope") AnalyticsRollup.Scope scope,
+              @Param("scopeId") Long scopeId, @Param("bucketStart") LocalDateTime bucketStart,
+              @Param("ticketsSold") long ticketsSold, @Param("gross") BigDecimal gross,
+              @Param("refunds") BigDecimal refunds, @Param("checkIns") long checkIns,
+              @Param("rating1") long rating1, @Param("rating2") long rating2, @Param("rating3") long rating3,
+              @Param("rating4") long rating4, @Param("rating5") long rating5);
+    
+    @Query("SELECT r FROM AnalyticsRollup r WHERE r.grain = :grain AND r.scope = :scope AND r.scopeId = :scopeId " +
+           "AND r.bucketStart >= :from AND r.bucketStart < :to ORDER BY r.bucketStart")
+    List<AnalyticsRollup> findBuckets(@Param("grain") AnalyticsRollup.Grain grain,
+                                      @Param("scope") AnalyticsRollup.Scope scope,
+                                      @Param("scopeId") Long scopeId,
+                                      @Param("from") LocalDateTime from,
+                                      @Param("to") LocalDateTime to);
+}
@@ -1,22 +1,49 @@
 package com.lunar.demo.repository;
 
+import com.lunar.demo.dto.BookingResponse;
 import com.lunar.demo.entity.Booking;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
     
+    /**
+     * Builds {@link BookingResponse} in the select list, joining user and event; the ticket count
+     * comes from the persisted total, so booking items are never read. Arguments follow the DTO's
+     * field order.
+     */
+    String BOOKING_RESPONSE = "SELECT new com.lunar.demo.dto.BookingResponse(" +
+           "b.id, b.bookingReference, CAST(b.status AS String), b.totalAmount, b.discountAmount, b.taxAmount, " +
+           "b.serviceFee, b.totalAmount - b.discountAmount + b.taxAmount + b.serviceFee, b.currency, " +
+           "b.bookingNotes, b.specialRequirements, b.checkInTime, b.checkOutTime, b.cancellationReason, " +
+           "b.cancelledAt, b.refundAmount, b.refundProcessedAt, " +
+           "b.holdExpiresAt, u.id, CONCAT(u.firstName, ' ', u.lastName), e.id, e.title, " +
+           "b.totalTickets, b.createdAt, b.updatedAt) " +
+           "FROM Booking b JOIN b.user u JOIN b.event e ";
+    
     Optional<Booking> findByBookingReference(String bookingReference);
     
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Booking b WHERE b.id = :id")
+    Optional<Booking> findByIdForUpdate(@Param("id") Long id);
+    
+    @Query("SELECT b FROM Booking b JOIN FETCH b.user JOIN FETCH b.event e JOIN FETCH e.organizer WHERE b.id = :id")
+    Optional<Booking> findWithEventAndUserById(@Param("id") Long id);
+    
     List<Booking> findByUserId(Long userId);
     
     List<Booking> findByEventId(Long eventId);
@@ -59,6 +86,32 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
            "b.status = 'PENDING' AND b.createdAt < :expiryDate")
     List<Booking> findExpiredPendingBookings(@Param("expiryDate") LocalDateTime expiryDate);
     
+    @Query("SELECT b.id FROM Booking b WHERE " +
+           "b.status = 'PENDING' AND b.holdExpiresAt <= :now ORDER BY b.holdExpiresAt")
+    List<Long> findExpiredHoldIds(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    /**
+     * Locks the given bookings whose hold has lapsed; rows locked by a concurrent confirm or
+     * cancel are skipped and picked up by a later sweep
+     */
+    @Query(value = "SELECT id FROM bookings WHERE id IN (:ids) AND status = 'PENDING' " +
+                   "AND hold_expires_at <= :now FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockExpiredHolds(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    @Query("SELECT b.id FROM Booking b WHERE b.event.id = :eventId AND b.status = 'CONFIRMED' " +
+           "AND b.id > :afterId ORDER BY b.id")
+    List<Long> findConfirmedIdsAfter(@Param("eventId") Long eventId, @Param("afterId") long afterId,
+                                     Pageable pageable);
+    
+    @Query("SELECT bi.ticketType.id, SUM(bi.quantity) FROM BookingItem bi " +
+           "WHERE bi.booking.id IN :ids GROUP BY bi.ticketType.id ORDER BY bi.ticketType.id")
+    List<Object[]> sumQuantitiesByTicketType(@Param("ids") Collection<Long> ids);
+    
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = 'EXPIRED', b.updatedAt = :now, " +
+           "b.version = COALESCE(b.version, 0) + 1 WHERE b.id IN :ids")
+    int markExpired(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
     @Query("SELECT COUNT(b) FROM Booking b WHERE b.user.id = :userId")
     long countByUser(@Param("userId") Long userId);
     
@@ -68,9 +121,10 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     @Query("SELECT COUNT(b) FROM Booking b WHERE b.status = :status")
     long countByStatus(@Param("status") Booking.BookingStatus status);
     
+    // Checked-in bookings were confirmed and paid for, so their revenue still counts
     @Query("SELECT SUM(b.totalAmount) FROM Booking b WHERE " +
-           "b.status = 'CONFIRMED' AND b.event.id = :eventId")
-    Double getTotalRevenueByEvent(@Param("eventId") Long eventId);
+           "b.status IN ('CONFIRMED', 'CHECKED_IN') AND b.event.id = :eventId")
+    BigDecimal getTotalRevenueByEvent(@Param("eventId") Long eventId);
     
     @Query("SELECT SUM(b.totalAmount) FROM Booking b WHERE " +
            "b.status = 'CONFIRMED' AND b.user.id = :userId")
@@ -91,4 +145,17 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
            "b.event.organizer.id = :organizerId AND b.status = :status")
     List<Booking> findByOrganizerAndStatus(@Param("organizerId") Long organizerId,
                                           @Param("status") Booking.BookingStatus status);
+    
+    @Query(BOOKING_RESPONSE + "WHERE b.id = :id")
+    Optional<BookingResponse> findResponseById(@Param("id") Long id);
+    
+    @Query(BOOKING_RESPONSE + "WHERE b.bookingReference = :reference")
+    Optional<BookingResponse> findResponseByBookingReference(@Param("reference") String reference);
+    
+    @Query(value = BOOKING_RESPONSE + "WHERE u.id = :userId",
+           countQuery = "SELECT COUNT(b) FROM Booking b WHERE b.user.id = :userId")
+    Page<BookingResponse> findResponsesByUserId(@Param("userId") Long userId, Pageable pageable);
+    
+    @Query(BOOKING_RESPONSE + "WHERE e.id = :eventId")
+    List<BookingResponse> findResponsesByEventId(@Param("eventId") Long eventId);
 }
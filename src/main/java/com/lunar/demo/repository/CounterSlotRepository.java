@@ -0,0 +1,41 @@
+package com.lunar.demo.repository;
+
+import com.lunar.demo.entity.CounterSlot;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CounterSlotRepository extends JpaRepository<CounterSlot, Long> {
+    
+    long countByKindAndEntityId(CounterSlot.CounterKind kind, Long entityId);
+    
+    @Modifying
+    @Query("UPDATE CounterSlot c SET c.delta = c.delta + :delta " +
+           "WHERE c.kind = :kind AND c.entityId = :entityId AND c.slot = :slot")
+    int addToSlot(@Param("kind") CounterSlot.CounterKind kind, @Param("entityId") Long entityId,
+                  @Param("slot") int slot, @Param("delta") long delta);
+    
+    @Query("SELECT COALESCE(SUM(c.delta), 0) FROM CounterSlot c WHERE c.kind = :kind AND c.entityId = :entityId")
+    long sumDeltas(@Param("kind") CounterSlot.CounterKind kind, @Param("entityId") Long entityId);
+    
+    @Query("SELECT DISTINCT c.entityId FROM CounterSlot c WHERE c.kind = :kind AND c.delta <> 0")
+    List<Long> findEntityIdsWithPendingDeltas(@Param("kind") CounterSlot.CounterKind kind);
+    
+    /**
+     * Locks all slots of a counter in slot order, so folding never deadlocks with another fold
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM CounterSlot c WHERE c.kind = :kind AND c.entityId = :entityId ORDER BY c.slot")
+    List<CounterSlot> lockSlots(@Param("kind") CounterSlot.CounterKind kind, @Param("entityId") Long entityId);
+    
+    @Modifying
+    @Query("UPDATE CounterSlot c SET c.delta = 0 WHERE c.kind = :kind AND c.entityId = :entityId")
+    int resetSlots(@Param("kind") CounterSlot.CounterKind kind, @Param("entityId") Long entityId);
+}
@@ -0,0 +1,54 @@
+package com.lunar.demo.repository;
+
+import com.lunar.demo.entity.EmailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+    
+    @Query("SELECT e.id FROM EmailOutbox e WHERE e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    /**
+     * Locks the given emails that are still due; rows being claimed by another node are skipped
+     */
+    @Query(value = "SELECT id FROM email_outbox WHERE id IN (:ids) AND next_attempt_at <= :now " +
+                   "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockDue(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.attempts = e.attempts + 1, e.nextAttemptAt = :leaseUntil " +
+           "WHERE e.id IN :ids")
+    int lease(@Param("ids") Collection<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+    
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.nextAttemptAt = :nextAttemptAt, e.lastError = :lastError " +
+           "WHERE e.id = :id")
+    int reschedule(@Param("id") Long id, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("lastError") String lastError);
+    
+    /**
+     * Queues a reminder for each confirmed booking of the event with an id in (afterId, upToId],
+     * in one statement and without loading the bookings
+     */
+    @Modifying
+    @Query("INSERT INTO EmailOutbox (type, bookingId, recipient, attempts, nextAttemptAt, createdAt) " +
+           "SELECT :type, b.id, u.email, 0, :now, :now FROM Booking b JOIN b.user u " +
+           "WHERE b.event.id = :eventId AND b.status = 'CONFIRMED' AND b.id > :afterId AND b.id <= :upToId")
+    int queueForConfirmedBookings(@Param("type") EmailOutbox.EmailType type, @Param("eventId") Long eventId,
+                                  @Param("afterId") long afterId, @Param("upToId") long upToId,
+                                  @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("DELETE FROM EmailOutbox e WHERE e.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -1,18 +1,37 @@
 package com.lunar.demo.repository;
 
+import com.lunar.demo.dto.EventResponse;
 import com.lunar.demo.entity.Event;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface EventRepository extends JpaRepository<Event, Long> {
+public interface EventRepository extends JpaRepository<Event, Long>, JpaSpecificationExecutor<Event> {
+    
+    /**
+     * Builds {@link EventResponse} in the select list, joining the organizer, so read endpoints
+     * never hydrate events or touch lazy associations. Arguments follow the DTO's field order.
+     */
+    String EVENT_RESPONSE = "SELECT new com.lunar.demo.dto.EventResponse(" +
+           "e.id, e.title, e.description, e.detailedDescription, e.startDate, e.endDate, " +
+           "e.registrationStartDate, e.registrationEndDate, e.venueName, e.venueAddress, e.city, e.state, " +
+           "e.country, e.postalCode, e.latitude, e.longitude, CAST(e.category AS String), " +
+           "CAST(e.status AS String), e.maxAttendees, e.currentAttendees, e.isOnline, e.onlineMeetingUrl, " +
+           "e.imageUrl, e.bannerUrl, e.isFeatured, e.isPublic, e.requiresApproval, e.waitingRoomEnabled, " +
+           "e.admissionRatePerSecond, e.expectedDemand, e.ageRestriction, e.termsAndConditions, e.cancellationPolicy, " +
+           "o.id, CONCAT(o.firstName, ' ', o.lastName), e.createdAt, e.updatedAt) " +
+           "FROM Event e JOIN e.organizer o ";
     
     List<Event> findByOrganizerId(Long organizerId);
     
@@ -48,12 +67,40 @@ public interface EventRepository extends JpaRepository<Event, Long> {
     List<Event> findActiveEvents(@Param("currentDate") LocalDateTime currentDate);
     
     @Query("SELECT e FROM Event e WHERE " +
-           "e.status = 'PUBLISHED' AND e.isPublic = true AND " +
+           "e.status = 'PUBLISHED' AND e.isPublic = true AND (" +
            "LOWER(e.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(e.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(e.city) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
+           "LOWER(e.city) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
     Page<Event> searchEvents(@Param("searchTerm") String searchTerm, Pageable pageable);
     
+    /**
+     * Searchable fields of published public events after {@code afterId}, in id order:
+     * id, title, description, venue name, city, category.
+     */
+    @Query("SELECT e.id, e.title, e.description, e.venueName, e.city, e.category FROM Event e WHERE " +
+           "e.status = 'PUBLISHED' AND e.isPublic = true AND e.id > :afterId ORDER BY e.id")
+    List<Object[]> findSearchDocumentsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT e.id, e.title, e.description, e.venueName, e.city, e.category FROM Event e WHERE " +
+           "e.status = 'PUBLISHED' AND e.isPublic = true AND e.id = :id")
+    List<Object[]> findSearchDocument(@Param("id") Long id);
+    
+    /**
+     * Coordinates of published public events after {@code afterId}, in id order: id, latitude, longitude.
+     */
+    @Query("SELECT e.id, e.latitude, e.longitude FROM Event e WHERE " +
+           "e.status = 'PUBLISHED' AND e.isPublic = true AND e.latitude IS NOT NULL AND e.longitude IS NOT NULL " +
+           "AND e.id > :afterId ORDER BY e.id")
+    List<Object[]> findGeoPointsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT e.id, e.latitude, e.longitude FROM Event e WHERE " +
+           "e.status = 'PUBLISHED' AND e.isPublic = true AND e.latitude IS NOT NULL AND e.longitude IS NOT NULL " +
+           "AND e.id = :id")
+    List<Object[]> findGeoPoint(@Param("id") Long id);
+    
+    @Query("SELECT e FROM Event e JOIN FETCH e.organizer WHERE e.id IN :ids")
+    List<Event> findAllWithOrganizerByIdIn(@Param("ids") Collection<Long> ids);
+    
     @Query("SELECT e FROM Event e WHERE " +
            "e.status = 'PUBLISHED' AND e.isPublic = true AND " +
            "e.city = :city AND e.startDate >= :currentDate")
@@ -89,6 +136,18 @@ public interface EventRepository extends JpaRepository<Event, Long> {
                                               @Param("startDate") LocalDateTime startDate,
                                               @Param("endDate") LocalDateTime endDate);
     
+    /**
+     * Published events whose gates are open: starting by {@code opensBefore} and not ended
+     * before {@code closedAfter}.
+     */
+    @Query("SELECT e.id FROM Event e WHERE e.status = 'PUBLISHED' AND e.startDate <= :opensBefore " +
+           "AND COALESCE(e.endDate, e.startDate) >= :closedAfter")
+    List<Long> findIdsOpenForCheckIn(@Param("opensBefore") LocalDateTime opensBefore,
+                                     @Param("closedAfter") LocalDateTime closedAfter);
+    
+    @Query("SELECT e.organizer.id FROM Event e WHERE e.id = :id")
+    List<Long> findOrganizerIdById(@Param("id") Long id);
+    
     @Query("SELECT COUNT(e) FROM Event e WHERE e.organizer.id = :organizerId")
     long countByOrganizer(@Param("organizerId") Long organizerId);
     
@@ -97,4 +156,31 @@ public interface EventRepository extends JpaRepository<Event, Long> {
     
     @Query("SELECT e FROM Event e WHERE e.isFeatured = true ORDER BY e.createdAt DESC")
     List<Event> findRecentlyFeaturedEvents();
+    
+    @Query(EVENT_RESPONSE + "WHERE e.id = :id")
+    Optional<EventResponse> findResponseById(@Param("id") Long id);
+    
+    @Query(value = EVENT_RESPONSE + "WHERE e.status = :status AND e.isPublic = true",
+           countQuery = "SELECT COUNT(e) FROM Event e WHERE e.status = :status AND e.isPublic = true")
+    Page<EventResponse> findResponsesByStatusAndIsPublicTrue(@Param("status") Event.EventStatus status,
+                                                             Pageable pageable);
+    
+    @Query(EVENT_RESPONSE + "WHERE " +
+           "e.status = 'PUBLISHED' AND e.isPublic = true AND " +
+           "e.isFeatured = true AND e.startDate >= :currentDate")
+    List<EventResponse> findFeaturedResponses(@Param("currentDate") LocalDateTime currentDate);
+    
+    @Query(EVENT_RESPONSE + "WHERE " +
+           "e.status = 'PUBLISHED' AND e.isPublic = true AND " +
+           "e.startDate >= :startDate AND e.startDate <= :endDate")
+    List<EventResponse> findUpcomingResponses(@Param("startDate") LocalDateTime startDate,
+                                              @Param("endDate") LocalDateTime endDate);
+    
+    /**
+     * Applies an attendee delta in place, so concurrent confirmations never read-modify-write
+     * the counter. Does not bump the version: the counter is not part of the editable event.
+     */
+    @Modifying
+    @Query("UPDATE Event e SET e.currentAttendees = COALESCE(e.currentAttendees, 0) + :delta WHERE e.id = :id")
+    int adjustCurrentAttendees(@Param("id") Long id, @Param("delta") int delta);
 }
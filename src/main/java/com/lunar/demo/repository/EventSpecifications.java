@@ -0,0 +1,124 @@
+package com.lunar.demo.repository;
+
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.TicketType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Building blocks for event search queries. Each returns {@code null} when its filter is not set,
+ * which {@link Specification#allOf} skips, so callers can combine them unconditionally.
+ */
+public final class EventSpecifications {
+    
+    private EventSpecifications() {
+    }
+    
+    public static Specification<Event> listed() {
+        return (root, query, cb) -> cb.and(
+                cb.equal(root.get("status"), Event.EventStatus.PUBLISHED),
+                cb.isTrue(root.get("isPublic")));
+    }
+    
+    /**
+     * Loads the organizer in the same query; skipped for count queries, which cannot fetch.
+     */
+    public static Specification<Event> fetchOrganizer() {
+        return (root, query, cb) -> {
+            if (query.getResultType() != Long.class && query.getResultType() != long.class) {
+                root.fetch("organizer");
+            }
+            return null;
+        };
+    }
+    
+    public static Specification<Event> hasCategory(Event.EventCategory category) {
+        return category == null ? null : (root, query, cb) -> cb.equal(root.get("category"), category);
+    }
+    
+    public static Specification<Event> inCity(String city) {
+        if (city == null || city.isBlank()) {
+            return null;
+        }
+        String normalized = city.trim().toLowerCase(Locale.ROOT);
+        return (root, query, cb) -> cb.equal(cb.lower(root.get("city")), normalized);
+    }
+    
+    public static Specification<Event> startsOnOrAfter(LocalDateTime from) {
+        return from == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("startDate"), from);
+    }
+    
+    public static Specification<Event> startsOnOrBefore(LocalDateTime to) {
+        return to == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.get("startDate"), to);
+    }
+    
+    public static Specification<Event> isOnline(Boolean online) {
+        return online == null ? null : (root, query, cb) -> cb.equal(root.get("isOnline"), online);
+    }
+    
+    public static Specification<Event> isFeatured(Boolean featured) {
+        return featured == null ? null : (root, query, cb) -> cb.equal(root.get("isFeatured"), featured);
+    }
+    
+    /**
+     * Events with at least one active ticket type priced within the range.
+     */
+    public static Specification<Event> hasTicketPricedBetween(BigDecimal min, BigDecimal max) {
+        if (min == null && max == null) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            Subquery<Long> ticketTypes = query.subquery(Long.class);
+            Root<TicketType> ticketType = ticketTypes.from(TicketType.class);
+            Path<BigDecimal> price = ticketType.get("price");
+            ticketTypes.select(ticketType.get("id")).where(
+                    cb.equal(ticketType.get("event"), root),
+                    cb.equal(ticketType.get("status"), TicketType.TicketStatus.ACTIVE),
+                    min != null ? cb.greaterThanOrEqualTo(price, min) : cb.conjunction(),
+                    max != null ? cb.lessThanOrEqualTo(price, max) : cb.conjunction());
+            return cb.exists(ticketTypes);
+        };
+    }
+    
+    /**
+     * Case-insensitive substring match on title, description and city.
+     */
+    public static Specification<Event> mentions(String term) {
+        if (term == null || term.isBlank()) {
+            return null;
+        }
+        String pattern = "%" + term.trim().toLowerCase(Locale.ROOT) + "%";
+        return (root, query, cb) -> cb.or(
+                cb.like(cb.lower(root.get("title")), pattern),
+                cb.like(cb.lower(root.get("description")), pattern),
+                cb.like(cb.lower(root.get("city")), pattern));
+    }
+    
+    public static Specification<Event> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> ids.isEmpty() ? cb.disjunction() : root.get("id").in(ids);
+    }
+    
+    /**
+     * Seek predicate for keyset pagination: rows strictly after ({@code sortValue}, {@code id})
+     * in (field, id) order.
+     */
+    public static <T extends Comparable<? super T>> Specification<Event> after(String field, T sortValue,
+                                                                             Long id, boolean ascending) {
+        return (root, query, cb) -> {
+            Path<T> sortField = root.get(field);
+            Path<Long> idField = root.get("id");
+            return ascending
+                    ? cb.or(cb.greaterThan(sortField, sortValue),
+                            cb.and(cb.equal(sortField, sortValue), cb.greaterThan(idField, id)))
+                    : cb.or(cb.lessThan(sortField, sortValue),
+                            cb.and(cb.equal(sortField, sortValue), cb.lessThan(idField, id)));
+        };
+    }
+}
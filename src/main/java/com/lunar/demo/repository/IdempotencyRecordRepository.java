@@ -0,0 +1,58 @@
+package com.lunar.demo.repository;
+
+import com.lunar.demo.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+    
+    Optional<IdempotencyRecord> findByUserIdAndIdempotencyKeyAndExpiresAtAfter(Long userId, String idempotencyKey,
+                                                                               LocalDateTime now);
+    
+    /**
+     * Claims an IN_PROGRESS key whose lease has lapsed; returns 0 if it completed or another
+     * retry took it over first.
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.leaseExpiresAt = :lease, r.claimToken = :token WHERE r.id = :id " +
+           "AND r.status = 'IN_PROGRESS' AND (r.leaseExpiresAt IS NULL OR r.leaseExpiresAt < :now)")
+    int takeOverLapsed(@Param("id") Long id, @Param("token") String token, @Param("lease") LocalDateTime lease,
+                       @Param("now") LocalDateTime now);
+    
+    /**
+     * Extends a claim still held by {@code token}; returns 0 if it was taken over.
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.leaseExpiresAt = :lease WHERE r.id = :id " +
+           "AND r.claimToken = :token AND r.status = 'IN_PROGRESS'")
+    int renewLease(@Param("id") Long id, @Param("token") String token, @Param("lease") LocalDateTime lease);
+    
+    /**
+     * Stores the response of a claim still held by {@code token}; returns 0 if it was taken over.
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = 'COMPLETED', r.responseBody = :body, " +
+           "r.leaseExpiresAt = NULL WHERE r.id = :id AND r.claimToken = :token AND r.status = 'IN_PROGRESS'")
+    int complete(@Param("id") Long id, @Param("token") String token, @Param("body") String body);
+    
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.claimToken = :token " +
+           "AND r.status = 'IN_PROGRESS'")
+    int deleteInProgress(@Param("id") Long id, @Param("token") String token);
+    
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.userId = :userId AND r.idempotencyKey = :key " +
+           "AND r.expiresAt < :now")
+    int deleteExpiredKey(@Param("userId") Long userId, @Param("key") String key, @Param("now") LocalDateTime now);
+}
@@ -72,6 +72,10 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     @Query("SELECT COUNT(p) FROM Payment p WHERE p.booking.id = :bookingId")
     long countByBooking(@Param("bookingId") Long bookingId);
     
+    @Query("SELECT COUNT(p) > 0 FROM Payment p WHERE " +
+           "p.booking.id = :bookingId AND p.status IN ('COMPLETED', 'PARTIALLY_REFUNDED')")
+    boolean existsCapturedByBookingId(@Param("bookingId") Long bookingId);
+    
     @Query("SELECT COUNT(p) FROM Payment p WHERE p.status = :status")
     long countByStatus(@Param("status") Payment.PaymentStatus status);
     
@@ -0,0 +1,36 @@
+package com.lunar.demo.repository;
+
+import com.lunar.demo.entity.ReminderCampaign;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReminderCampaignRepository extends JpaRepository<ReminderCampaign, Long> {
+    
+    Optional<ReminderCampaign> findByEventIdAndLeadMinutes(Long eventId, long leadMinutes);
+    
+    @Query("SELECT c.id FROM ReminderCampaign c WHERE c.status = :status ORDER BY c.id")
+    List<Long> findIdsByStatus(@Param("status") ReminderCampaign.CampaignStatus status);
+    
+    /**
+     * Published events starting in (from, until] that have no campaign for this lead time yet
+     */
+    @Query("SELECT e.id FROM Event e WHERE e.status = 'PUBLISHED' " +
+           "AND e.startDate > :from AND e.startDate <= :until " +
+           "AND NOT EXISTS (SELECT c.id FROM ReminderCampaign c WHERE c.eventId = e.id AND c.leadMinutes = :leadMinutes)")
+    List<Long> findEventIdsDueForReminder(@Param("from") LocalDateTime from, @Param("until") LocalDateTime until,
+                                          @Param("leadMinutes") long leadMinutes);
+    
+    /**
+     * Locks a running campaign; a campaign another node is advancing is skipped
+     */
+    @Query(value = "SELECT id FROM reminder_campaigns WHERE id = :id AND status = 'RUNNING' " +
+                   "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockRunning(@Param("id") Long id);
+}
@@ -97,4 +97,11 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     @Query("SELECT r FROM Review r WHERE " +
            "r.event.id = :eventId AND r.user.id = :userId")
     Optional<Review> findByEventAndUser(@Param("eventId") Long eventId, @Param("userId") Long userId);
+    
+    /**
+     * Rows of [id, event id, organizer id, rating, created at] in id order, for the analytics rollups
+     */
+    @Query("SELECT r.id, r.event.id, r.event.organizer.id, r.rating, r.createdAt FROM Review r " +
+           "WHERE r.id > :afterId ORDER BY r.id")
+    List<Object[]> findRatingsAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
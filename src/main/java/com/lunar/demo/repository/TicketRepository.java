@@ -1,20 +1,36 @@
 package com.lunar.demo.repository;
 
+import com.lunar.demo.dto.TicketResponse;
 import com.lunar.demo.entity.Ticket;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TicketRepository extends JpaRepository<Ticket, Long> {
     
+    /**
+     * Builds {@link TicketResponse} in the select list, joining booking, event, ticket type and
+     * user in the same statement. Arguments follow the DTO's field order.
+     */
+    String TICKET_RESPONSE = "SELECT new com.lunar.demo.dto.TicketResponse(" +
+           "t.id, t.ticketCode, t.qrCode, t.qrCodeImageUrl, CAST(t.status AS String), t.seatNumber, t.section, " +
+           "t.rowNumber, t.checkInTime, t.checkOutTime, t.transferToUserId, t.transferredAt, t.transferNotes, " +
+           "t.isUsed, t.usedAt, t.usedBy, b.id, tt.id, tt.name, u.id, CONCAT(u.firstName, ' ', u.lastName), " +
+           "e.id, e.title, t.createdAt, t.updatedAt) " +
+           "FROM Ticket t JOIN t.booking b JOIN b.event e JOIN t.ticketType tt JOIN t.user u ";
+    
     Optional<Ticket> findByTicketCode(String ticketCode);
     
     Optional<Ticket> findByQrCode(String qrCode);
@@ -37,6 +53,14 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
     List<Ticket> findByBookingAndStatus(@Param("bookingId") Long bookingId, 
                                        @Param("status") Ticket.TicketStatus status);
     
+    @Query("SELECT t.booking.event.id, COUNT(t) FROM Ticket t WHERE t.booking.id IN :bookingIds " +
+           "AND t.status = 'ACTIVE' GROUP BY t.booking.event.id")
+    List<Object[]> countActiveTicketsByEventForBookingIds(@Param("bookingIds") Collection<Long> bookingIds);
+    
+    @Modifying
+    @Query("UPDATE Ticket t SET t.status = 'EXPIRED' WHERE t.booking.id IN :bookingIds AND t.status = 'ACTIVE'")
+    int expireActiveTicketsByBookingIds(@Param("bookingIds") Collection<Long> bookingIds);
+    
     @Query("SELECT t FROM Ticket t WHERE " +
            "t.booking.event.id = :eventId AND t.status = 'ACTIVE'")
     List<Ticket> findActiveTicketsByEvent(@Param("eventId") Long eventId);
@@ -96,4 +120,45 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
            "t.booking.event.id = :eventId AND t.section = :section")
     List<Ticket> findByEventAndSection(@Param("eventId") Long eventId,
                                       @Param("section") String section);
+    
+    @Query(TICKET_RESPONSE + "WHERE t.id = :id")
+    Optional<TicketResponse> findResponseById(@Param("id") Long id);
+    
+    @Query(value = TICKET_RESPONSE + "WHERE u.id = :userId",
+           countQuery = "SELECT COUNT(t) FROM Ticket t WHERE t.user.id = :userId")
+    Page<TicketResponse> findResponsesByUserId(@Param("userId") Long userId, Pageable pageable);
+    
+    @Query(TICKET_RESPONSE + "WHERE b.id = :bookingId")
+    List<TicketResponse> findResponsesByBookingId(@Param("bookingId") Long bookingId);
+    
+    /**
+     * What a ticket's signed QR token encodes, without loading the ticket: event id, event
+     * start date, event end date, token epoch.
+     */
+    @Query("SELECT e.id, e.startDate, e.endDate, t.tokenEpoch FROM Ticket t " +
+           "JOIN t.booking b JOIN b.event e WHERE t.id = :id")
+    List<Object[]> findQrTokenParts(@Param("id") Long id);
+    
+    /**
+     * Tickets of events not ended before {@code since} whose tokens are revoked: ticket id,
+     * token epoch, and whether every token is revoked (the ticket was cancelled, transferred,
+     * or expired).
+     */
+    @Query("SELECT t.id, t.tokenEpoch, CASE WHEN t.status IN ('CANCELLED', 'TRANSFERRED', 'EXPIRED') " +
+           "THEN true ELSE false END FROM Ticket t JOIN t.booking b JOIN b.event e " +
+           "WHERE COALESCE(e.endDate, e.startDate) >= :since " +
+           "AND (t.tokenEpoch > 0 OR t.status IN ('CANCELLED', 'TRANSFERRED', 'EXPIRED'))")
+    List<Object[]> findTokenRevocations(@Param("since") LocalDateTime since);
+    
+    /**
+     * The tickets that can be presented at an event's gates: ticket id, booking id, status,
+     * isUsed. Active and used tickets of confirmed bookings.
+     */
+    @Query("SELECT t.id, t.booking.id, t.status, t.isUsed FROM Ticket t WHERE " +
+           "t.booking.event.id = :eventId AND t.booking.status = 'CONFIRMED' AND t.status IN ('ACTIVE', 'USED')")
+    List<Object[]> findCheckInEntries(@Param("eventId") Long eventId);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Ticket t JOIN FETCH t.booking WHERE t.id IN :ids")
+    List<Ticket> findAllForCheckIn(@Param("ids") Collection<Long> ids);
 }
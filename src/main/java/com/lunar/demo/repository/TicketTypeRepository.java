@@ -1,7 +1,12 @@
 package com.lunar.demo.repository;
 
 import com.lunar.demo.entity.TicketType;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,6 +15,13 @@ import java.util.Optional;
 @Repository
 public interface TicketTypeRepository extends JpaRepository<TicketType, Long> {
     
+    /**
+     * Releases not yet folded in from the sharded sold counter; never positive. Only consistent
+     * with quantitySold when read in the same statement, see ShardedCounterService
+     */
+    String PENDING_SOLD_DELTA = "(SELECT COALESCE(SUM(c.delta), 0) FROM CounterSlot c " +
+           "WHERE c.kind = 'TICKET_TYPE_SOLD' AND c.entityId = tt.id)";
+    
     /**
      * Find ticket types by event ID
      */
@@ -23,10 +35,47 @@ public interface TicketTypeRepository extends JpaRepository<TicketType, Long> {
     /**
      * Find active ticket types by event ID
      */
-    List<TicketType> findByEventIdAndIsActiveTrue(Long eventId);
+    @Query("SELECT tt FROM TicketType tt WHERE tt.event.id = :eventId AND tt.status = 'ACTIVE'")
+    List<TicketType> findByEventIdAndIsActiveTrue(@Param("eventId") Long eventId);
     
     /**
      * Check if ticket type exists by event ID and name
      */
     boolean existsByEventIdAndName(Long eventId, String name);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT tt FROM TicketType tt WHERE tt.id = :id")
+    Optional<TicketType> findByIdForUpdate(@Param("id") Long id);
+    
+    /**
+     * Units still available for sale, or null if the ticket type does not exist
+     */
+    @Query("SELECT CAST(tt.quantityAvailable - COALESCE(tt.quantitySold, 0) - " + PENDING_SOLD_DELTA +
+           " AS Integer) FROM TicketType tt WHERE tt.id = :id")
+    Integer findRemainingQuantity(@Param("id") Long id);
+    
+    /**
+     * Atomically reserve units; returns 0 when the reservation would oversell the ticket type.
+     * {@code pendingDelta} is the sharded sold counter's unfolded sum, read under the row lock.
+     */
+    @Modifying
+    @Query("UPDATE TicketType tt SET tt.quantitySold = COALESCE(tt.quantitySold, 0) + :quantity " +
+           "WHERE tt.id = :id AND COALESCE(tt.quantitySold, 0) + :pendingDelta + :quantity <= tt.quantityAvailable")
+    int reserveQuantity(@Param("id") Long id, @Param("quantity") int quantity,
+                        @Param("pendingDelta") long pendingDelta);
+    
+    /**
+     * Atomically give back previously reserved units
+     */
+    @Modifying
+    @Query("UPDATE TicketType tt SET tt.quantitySold = COALESCE(tt.quantitySold, 0) - :quantity " +
+           "WHERE tt.id = :id AND COALESCE(tt.quantitySold, 0) >= :quantity")
+    int releaseQuantity(@Param("id") Long id, @Param("quantity") int quantity);
+    
+    /**
+     * Applies a folded delta from the sharded sold counter
+     */
+    @Modifying
+    @Query("UPDATE TicketType tt SET tt.quantitySold = COALESCE(tt.quantitySold, 0) + :delta WHERE tt.id = :id")
+    int adjustQuantitySold(@Param("id") Long id, @Param("delta") int delta);
 }
@@ -76,6 +76,8 @@ public class SecurityConfig {
                 .requestMatchers("/api/events/public/**").permitAll()
                 .requestMatchers("/api/events/search").permitAll()
                 .requestMatchers("/api/events/featured").permitAll()
+                .requestMatchers("/api/events/nearby").permitAll()
+                .requestMatchers("/api/events/within").permitAll()
                 .requestMatchers("/api/events/{id}").permitAll()
                 .requestMatchers("/api/events/{id}/reviews").permitAll()
                 .requestMatchers("/api/health/**").permitAll()
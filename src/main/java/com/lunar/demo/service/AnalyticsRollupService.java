@@ -0,0 +1,362 @@
+package com.lunar.demo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lunar.demo.dto.AnalyticsReportResponse;
+import com.lunar.demo.entity.AnalyticsCheckpoint;
+import com.lunar.demo.entity.AnalyticsRollup;
+import com.lunar.demo.repository.AnalyticsCheckpointRepository;
+import com.lunar.demo.repository.AnalyticsRollupRepository;
+import com.lunar.demo.repository.EventRepository;
+import com.lunar.demo.repository.ReviewRepository;
+import com.lunar.demo.security.UserPrincipal;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Hourly and daily sales, refunds, check-ins, and rating histograms per event and per organizer,
+ * kept in {@code analytics_rollups} so organizer reports read a few pre-aggregated rows instead
+ * of every booking, payment, and review.
+ *
+ * Sales and refunds come from {@link SalesRecordedEvent}s and check-ins from the used tickets of
+ * {@link EventStatsChangedEvent}s, once they commit. They are summed in memory by event and hour
+ * and written every {@code analytics.flush-interval-ms} as one additive update per touched row,
+ * in one transaction; a flush that fails is put back for the next one. Deltas still in memory
+ * when a node dies are lost, so rollups can fall short of the source tables by that much.
+ *
+ * Reviews are not written through this application, so ratings are folded from the reviews table
+ * every {@code analytics.review-scan-interval-ms}, in id order from a checkpoint committed with
+ * the rollups it wrote. Each review counts once, in the hour it was created; later moderation
+ * does not change the histogram.
+ *
+ * Buckets are in the server's time zone.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AnalyticsRollupService {
+    
+    static final String REVIEWS_CHECKPOINT = "reviews";
+    
+    private static final Comparator<RollupKey> WRITE_ORDER = Comparator.comparing(RollupKey::grain)
+            .thenComparing(RollupKey::scope)
+            .thenComparing(RollupKey::scopeId)
+            .thenComparing(RollupKey::bucketStart);
+    
+    private final AnalyticsRollupRepository analyticsRollupRepository;
+    private final AnalyticsCheckpointRepository analyticsCheckpointRepository;
+    private final EventRepository eventRepository;
+    private final ReviewRepository reviewRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<EventHour, Delta> pending = new ConcurrentHashMap<>();
+    // An event's organizer never changes, so entries only need evicting for size
+    private final Cache<Long, Long> organizerIds = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .build();
+    
+    @Value("${analytics.review-batch-size:1000}")
+    private int reviewBatchSize;
+    
+    @Value("${analytics.review-settle-seconds:60}")
+    private long reviewSettleSeconds;
+    
+    @Value("${analytics.max-buckets:1000}")
+    private int maxBuckets;
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onSalesRecorded(SalesRecordedEvent sale) {
+        record(sale.eventId(), sale.occurredAt(), delta -> {
+            delta.ticketsSold += sale.tickets();
+            delta.gross = delta.gross.add(sale.gross());
+            delta.refunds = delta.refunds.add(sale.refunds());
+        });
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStatsChanged(EventStatsChangedEvent change) {
+        if (change.usedTickets() != 0) {
+            record(change.eventId(), LocalDateTime.now(), delta -> delta.checkIns += change.usedTickets());
+        }
+    }
+    
+    public AnalyticsReportResponse getEventReport(Long eventId, String grain, LocalDateTime from, LocalDateTime to) {
+        Long organizerId = organizerId(eventId);
+        if (organizerId == null) {
+            throw new RuntimeException("Event not found");
+        }
+        authorize(organizerId);
+        return report(AnalyticsRollup.Scope.EVENT, eventId, grain, from, to);
+    }
+    
+    public AnalyticsReportResponse getOrganizerReport(Long organizerId, String grain, LocalDateTime from, LocalDateTime to) {
+        authorize(organizerId);
+        return report(AnalyticsRollup.Scope.ORGANIZER, organizerId, grain, from, to);
+    }
+    
+    @Scheduled(fixedDelayString = "${analytics.flush-interval-ms:5000}")
+    @PreDestroy
+    public void flush() {
+        Map<EventHour, Delta> taken = new HashMap<>();
+        for (EventHour key : pending.keySet()) {
+            Delta delta = pending.remove(key);
+            if (delta != null) {
+                taken.put(key, delta);
+            }
+        }
+        if (taken.isEmpty()) {
+            return;
+        }
+        try {
+            Map<RollupKey, Delta> rollups = new HashMap<>();
+            taken.forEach((key, delta) -> spread(rollups, key.eventId(), organizerId(key.eventId()), key.hour(), delta));
+            transactionTemplate.executeWithoutResult(status -> write(rollups));
+        } catch (RuntimeException e) {
+            log.error("Error writing {} analytics deltas, retrying with the next flush", taken.size(), e);
+            taken.forEach((key, delta) -> pending.merge(key, delta, Delta::add));
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${analytics.review-scan-interval-ms:60000}")
+    public void foldReviews() {
+        try {
+            Integer folded;
+            do {
+                folded = transactionTemplate.execute(status -> foldReviewPage());
+            } while (folded != null && folded == reviewBatchSize);
+        } catch (RuntimeException e) {
+            log.error("Error folding reviews into the analytics rollups", e);
+        }
+    }
+    
+    // Returns how many reviews were folded; fewer than a batch means the scan caught up
+    private int foldReviewPage() {
+        AnalyticsCheckpoint checkpoint = analyticsCheckpointRepository.findByNameForUpdate(REVIEWS_CHECKPOINT)
+                .orElseGet(() -> analyticsCheckpointRepository.saveAndFlush(AnalyticsCheckpoint.builder()
+                        .name(REVIEWS_CHECKPOINT)
+                        .lastId(0)
+                        .build()));
+        // Stop at the first review too recent to be sure every lower id has committed
+        LocalDateTime settled = LocalDateTime.now().minusSeconds(reviewSettleSeconds);
+        Map<RollupKey, Delta> rollups = new HashMap<>();
+        int folded = 0;
+        for (Object[] row : reviewRepository.findRatingsAfter(checkpoint.getLastId(), PageRequest.of(0, reviewBatchSize))) {
+            LocalDateTime createdAt = (LocalDateTime) row[4];
+            if (!createdAt.isBefore(settled)) {
+                break;
+            }
+            Delta delta = new Delta();
+            delta.addRating((Integer) row[3]);
+            spread(rollups, (Long) row[1], (Long) row[2], createdAt.truncatedTo(ChronoUnit.HOURS), delta);
+            checkpoint.setLastId((Long) row[0]);
+            folded++;
+        }
+        write(rollups);
+        analyticsCheckpointRepository.save(checkpoint);
+        return folded;
+    }
+    
+    private void record(Long eventId, LocalDateTime at, Consumer<Delta> change) {
+        pending.compute(new EventHour(eventId, at.truncatedTo(ChronoUnit.HOURS)), (key, delta) -> {
+            Delta updated = delta != null ? delta : new Delta();
+            change.accept(updated);
+            return updated;
+        });
+    }
+    
+    private static void spread(Map<RollupKey, Delta> rollups, Long eventId, Long organizerId, LocalDateTime hour, Delta delta) {
+        LocalDateTime day = hour.truncatedTo(ChronoUnit.DAYS);
+        add(rollups, new RollupKey(AnalyticsRollup.Grain.HOUR, AnalyticsRollup.Scope.EVENT, eventId, hour), delta);
+        add(rollups, new RollupKey(AnalyticsRollup.Grain.DAY, AnalyticsRollup.Scope.EVENT, eventId, day), delta);
+        if (organizerId != null) {
+            add(rollups, new RollupKey(AnalyticsRollup.Grain.HOUR, AnalyticsRollup.Scope.ORGANIZER, organizerId, hour), delta);
+            add(rollups, new RollupKey(AnalyticsRollup.Grain.DAY, AnalyticsRollup.Scope.ORGANIZER, organizerId, day), delta);
+        }
+    }
+    
+    private static void add(Map<RollupKey, Delta> rollups, RollupKey key, Delta delta) {
+        rollups.computeIfAbsent(key, k -> new Delta()).add(delta);
+    }
+    
+    // Rows are updated in one order on every node, so concurrent writers never deadlock
+    private void write(Map<RollupKey, Delta> rollups) {
+        List<RollupKey> keys = new ArrayList<>(rollups.keySet());
+        keys.sort(WRITE_ORDER);
+        for (RollupKey key : keys) {
+            Delta delta = rollups.get(key);
+            if (delta.isEmpty()) {
+                continue;
+            }
+            int updated = analyticsRollupRepository.addTo(key.grain(), key.scope(), key.scopeId(), key.bucketStart(),
+                    delta.ticketsSold, delta.gross, delta.refunds, delta.checkIns,
+                    delta.ratings[0], delta.ratings[1], delta.ratings[2], delta.ratings[3], delta.ratings[4]);
+            if (updated == 0) {
+                // A row inserted by another node first fails this transaction on the unique key
+                analyticsRollupRepository.save(AnalyticsRollup.builder()
+                        .grain(key.grain())
+                        .scope(key.scope())
+                        .scopeId(key.scopeId())
+                        .bucketStart(key.bucketStart())
+                        .ticketsSold(delta.ticketsSold)
+                        .gross(delta.gross)
+                        .refunds(delta.refunds)
+                        .checkIns(delta.checkIns)
+                        .rating1(delta.ratings[0])
+                        .rating2(delta.ratings[1])
+                        .rating3(delta.ratings[2])
+                        .rating4(delta.ratings[3])
+                        .rating5(delta.ratings[4])
+                        .build());
+            }
+        }
+    }
+    
+    private AnalyticsReportResponse report(AnalyticsRollup.Scope scope, Long scopeId, String grainName,
+                                           LocalDateTime from, LocalDateTime to) {
+        AnalyticsRollup.Grain grain = AnalyticsRollup.Grain.valueOf(grainName.toUpperCase(Locale.ROOT));
+        ChronoUnit unit = grain == AnalyticsRollup.Grain.HOUR ? ChronoUnit.HOURS : ChronoUnit.DAYS;
+        // Whole buckets only: from rounds down to its bucket, to up to the end of its bucket
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime endBucket = end.truncatedTo(unit);
+        end = endBucket.equals(end) ? end : endBucket.plus(1, unit);
+        LocalDateTime start = from != null ? from.truncatedTo(unit) : end.minus(grain == AnalyticsRollup.Grain.HOUR ? 24 : 30, unit);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("The report range must end after it starts");
+        }
+        if (unit.between(start, end) > maxBuckets) {
+            throw new IllegalArgumentException("The report range spans more than " + maxBuckets + " buckets");
+        }
+        
+        List<AnalyticsReportResponse.Bucket> buckets = new ArrayList<>();
+        Delta totals = new Delta();
+        for (AnalyticsRollup rollup : analyticsRollupRepository.findBuckets(grain, scope, scopeId, start, end)) {
+            Delta bucket = Delta.of(rollup);
+            buckets.add(toBucket(rollup.getBucketStart(), bucket));
+            totals.add(bucket);
+        }
+        return AnalyticsReportResponse.builder()
+                .scope(scope.name())
+                .scopeId(scopeId)
+                .grain(grain.name())
+                .from(start)
+                .to(end)
+                .totals(toBucket(null, totals))
+                .buckets(buckets)
+                .build();
+    }
+    
+    private static AnalyticsReportResponse.Bucket toBucket(LocalDateTime bucketStart, Delta delta) {
+        long ratingCount = 0;
+        long ratingSum = 0;
+        List<Long> ratings = new ArrayList<>(5);
+        for (int i = 0; i < delta.ratings.length; i++) {
+            ratings.add(delta.ratings[i]);
+            ratingCount += delta.ratings[i];
+            ratingSum += (i + 1) * delta.ratings[i];
+        }
+        return AnalyticsReportResponse.Bucket.builder()
+                .bucketStart(bucketStart)
+                .ticketsSold(delta.ticketsSold)
+                .gross(delta.gross)
+                .refunds(delta.refunds)
+                .net(delta.gross.subtract(delta.refunds))
+                .checkIns(delta.checkIns)
+                .ratings(ratings)
+                .averageRating(ratingCount > 0
+                        ? BigDecimal.valueOf(ratingSum).divide(BigDecimal.valueOf(ratingCount), 2, RoundingMode.HALF_UP)
+                        : null)
+                .build();
+    }
+    
+    private Long organizerId(Long eventId) {
+        return organizerIds.get(eventId, id -> eventRepository.findOrganizerIdById(id).stream().findFirst().orElse(null));
+    }
+    
+    private static void authorize(Long organizerId) {
+        UserPrincipal userPrincipal = (UserPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (!organizerId.equals(userPrincipal.getId()) && !userPrincipal.getRole().equals("ADMIN")) {
+            throw new RuntimeException("You don't have permission to view these analytics");
+        }
+    }
+    
+    private record EventHour(Long eventId, LocalDateTime hour) {
+    }
+    
+    private record RollupKey(AnalyticsRollup.Grain grain, AnalyticsRollup.Scope scope, Long scopeId,
+                             LocalDateTime bucketStart) {
+    }
+    
+    private static final class Delta {
+        
+        private long ticketsSold;
+        private BigDecimal gross = BigDecimal.ZERO;
+        private BigDecimal refunds = BigDecimal.ZERO;
+        private long checkIns;
+        // Counts of 1 to 5 star reviews
+        private final long[] ratings = new long[5];
+        
+        private static Delta of(AnalyticsRollup rollup) {
+            Delta delta = new Delta();
+            delta.ticketsSold = rollup.getTicketsSold();
+            delta.gross = rollup.getGross();
+            delta.refunds = rollup.getRefunds();
+            delta.checkIns = rollup.getCheckIns();
+            delta.ratings[0] = rollup.getRating1();
+            delta.ratings[1] = rollup.getRating2();
+            delta.ratings[2] = rollup.getRating3();
+            delta.ratings[3] = rollup.getRating4();
+            delta.ratings[4] = rollup.getRating5();
+            return delta;
+        }
+        
+        private void addRating(Integer rating) {
+            if (rating != null && rating >= 1 && rating <= 5) {
+                ratings[rating - 1]++;
+            }
+        }
+        
+        private Delta add(Delta other) {
+            ticketsSold += other.ticketsSold;
+            gross = gross.add(other.gross);
+            refunds = refunds.add(other.refunds);
+            checkIns += other.checkIns;
+            for (int i = 0; i < ratings.length; i++) {
+                ratings[i] += other.ratings[i];
+            }
+            return this;
+        }
+        
+        private boolean isEmpty() {
+            if (ticketsSold != 0 || checkIns != 0 || gross.signum() != 0 || refunds.signum() != 0) {
+                return false;
+            }
+            for (long count : ratings) {
+                if (count != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.repository.BookingRepository;
+import com.lunar.demo.repository.TicketRepository;
+import com.lunar.demo.util.HierarchicalTimingWheel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Expires PENDING bookings whose hold on ticket stock has lapsed.
+ *
+ * Bookings created on this node are tracked in a {@link HierarchicalTimingWheel}, so the sweep
+ * only touches ids that are actually due. A slower catch-up pass reads due ids from the
+ * (status, hold_expires_at) index to cover bookings created by other nodes or before a restart.
+ * Either way a batch is expired with a handful of set-based statements: lock the still-pending
+ * rows, release the summed quantities per ticket type, expire their tickets and mark the
+ * bookings EXPIRED. No booking entity is loaded.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookingHoldService {
+    
+    private static final long WHEEL_TICK_MS = 1000;
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 3;
+    
+    private final BookingRepository bookingRepository;
+    private final TicketRepository ticketRepository;
+    private final TicketInventoryService ticketInventoryService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final HierarchicalTimingWheel wheel =
+            new HierarchicalTimingWheel(WHEEL_TICK_MS, WHEEL_SIZE, WHEEL_LEVELS, System.currentTimeMillis());
+    
+    @Value("${booking.hold.ttl-minutes:15}")
+    private long holdTtlMinutes;
+    
+    @Value("${booking.hold.batch-size:500}")
+    private int batchSize;
+    
+    public LocalDateTime newHoldExpiry() {
+        return LocalDateTime.now().plusMinutes(holdTtlMinutes);
+    }
+    
+    /**
+     * Schedules a committed PENDING booking for expiry. Holds that are already due are left to
+     * the catch-up pass.
+     */
+    public void track(Long bookingId, LocalDateTime holdExpiresAt) {
+        wheel.add(bookingId, toEpochMillis(holdExpiresAt));
+    }
+    
+    @Scheduled(fixedDelayString = "${booking.hold.sweep-interval-ms:1000}")
+    public void sweep() {
+        List<Long> due = wheel.advance(System.currentTimeMillis());
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<Long> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+            try {
+                expireHolds(batch);
+            } catch (RuntimeException e) {
+                log.error("Error expiring booking holds, leaving {} bookings to catch-up", batch.size(), e);
+            }
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${booking.hold.catch-up-interval-ms:60000}")
+    public void catchUp() {
+        try {
+            List<Long> due;
+            do {
+                due = bookingRepository.findExpiredHoldIds(LocalDateTime.now(), PageRequest.of(0, batchSize));
+            } while (!due.isEmpty() && expireHolds(due) == due.size() && due.size() == batchSize);
+        } catch (RuntimeException e) {
+            log.error("Error during booking hold catch-up", e);
+        }
+    }
+    
+    /**
+     * Expires the given bookings if they are still PENDING and past their hold.
+     *
+     * @return the number of bookings that were expired
+     */
+    public int expireHolds(List<Long> bookingIds) {
+        if (bookingIds.isEmpty()) {
+            return 0;
+        }
+        Integer expired = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> locked = bookingRepository.lockExpiredHolds(bookingIds, now);
+            if (locked.isEmpty()) {
+                return 0;
+            }
+            
+            // Sums come back ordered by ticket type id, which keeps row lock order consistent
+            for (Object[] row : bookingRepository.sumQuantitiesByTicketType(locked)) {
+                ticketInventoryService.releaseInTransaction((Long) row[0], ((Number) row[1]).intValue());
+            }
+            for (Object[] row : ticketRepository.countActiveTicketsByEventForBookingIds(locked)) {
+                eventPublisher.publishEvent(EventStatsChangedEvent.ticketsReleased((Long) row[0], (Long) row[1]));
+            }
+            ticketRepository.expireActiveTicketsByBookingIds(locked);
+            return bookingRepository.markExpired(locked, now);
+        });
+        
+        int count = expired != null ? expired : 0;
+        if (count > 0) {
+            log.info("Expired {} pending bookings", count);
+        }
+        return count;
+    }
+    
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -5,25 +5,29 @@ import com.lunar.demo.dto.BookingResponse;
 import com.lunar.demo.entity.*;
 import com.lunar.demo.repository.BookingRepository;
 import com.lunar.demo.repository.EventRepository;
+import com.lunar.demo.repository.PaymentRepository;
 import com.lunar.demo.repository.TicketRepository;
 import com.lunar.demo.repository.TicketTypeRepository;
 import com.lunar.demo.repository.UserRepository;
 import com.lunar.demo.security.UserPrincipal;
+import com.lunar.demo.util.IdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Service
 @RequiredArgsConstructor
@@ -34,10 +38,41 @@ public class BookingService {
     private final EventRepository eventRepository;
     private final TicketTypeRepository ticketTypeRepository;
     private final TicketRepository ticketRepository;
+    private final PaymentRepository paymentRepository;
     private final UserRepository userRepository;
+    private final TicketInventoryService ticketInventoryService;
+    private final ShardedCounterService shardedCounterService;
+    private final BookingHoldService bookingHoldService;
+    private final TicketIssuanceService ticketIssuanceService;
+    private final IdGenerator idGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
     
-    @Transactional
+    /**
+     * Stock is reserved through the inventory engine before the booking transaction starts, so
+     * no database connection is held while waiting for the reservation to be flushed. If the
+     * booking cannot be created the reservation is released again; otherwise it is held until
+     * the booking is confirmed, cancelled or its hold expires.
+     */
     public BookingResponse createBooking(BookingCreateRequest request) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (BookingCreateRequest.TicketRequest ticketRequest : request.getTickets()) {
+            quantities.merge(ticketRequest.getTicketTypeId(), ticketRequest.getQuantity(), Integer::sum);
+        }
+        
+        List<TicketInventoryService.InventoryHold> holds = ticketInventoryService.reserve(quantities);
+        BookingResponse response;
+        try {
+            response = transactionTemplate.execute(status -> createPendingBooking(request));
+        } catch (RuntimeException e) {
+            ticketInventoryService.release(holds);
+            throw e;
+        }
+        bookingHoldService.track(response.getId(), response.getHoldExpiresAt());
+        return response;
+    }
+    
+    private BookingResponse createPendingBooking(BookingCreateRequest request) {
         UserPrincipal userPrincipal = (UserPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         User user = userRepository.findById(userPrincipal.getId())
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -65,6 +100,7 @@ public class BookingService {
                 .currency("INR")
                 .bookingNotes(request.getBookingNotes())
                 .specialRequirements(request.getSpecialRequirements())
+                .holdExpiresAt(bookingHoldService.newHoldExpiry())
                 .user(user)
                 .event(event)
                 .build();
@@ -74,14 +110,19 @@ public class BookingService {
         // Process booking items
         List<BookingItem> bookingItems = new ArrayList<>();
         BigDecimal totalAmount = BigDecimal.ZERO;
+        int totalTickets = 0;
         
         for (BookingCreateRequest.TicketRequest ticketRequest : request.getTickets()) {
             TicketType ticketType = ticketTypeRepository.findById(ticketRequest.getTicketTypeId())
                     .orElseThrow(() -> new RuntimeException("Ticket type not found"));
             
-            // Validate ticket availability
-            if (!ticketType.canPurchase(ticketRequest.getQuantity())) {
-                throw new RuntimeException("Insufficient tickets available for " + ticketType.getName());
+            if (!ticketType.getEvent().getId().equals(event.getId())) {
+                throw new RuntimeException("Ticket type does not belong to this event");
+            }
+            
+            // Stock is already reserved; only the sale window and per-booking limits remain
+            if (!ticketType.acceptsQuantity(ticketRequest.getQuantity())) {
+                throw new RuntimeException("Tickets are not available for " + ticketType.getName());
             }
             
             BigDecimal unitPrice = ticketType.getEffectivePrice();
@@ -99,6 +140,7 @@ public class BookingService {
             
             bookingItems.add(bookingItem);
             totalAmount = totalAmount.add(itemTotal);
+            totalTickets += ticketRequest.getQuantity();
         }
         
         // Calculate service fee (2% of total amount)
@@ -108,12 +150,13 @@ public class BookingService {
         booking.setTotalAmount(totalAmount);
         booking.setServiceFee(serviceFee);
         booking.setTaxAmount(taxAmount);
+        booking.setTotalTickets(totalTickets);
         booking.setBookingItems(new HashSet<>(bookingItems));
         
         booking = bookingRepository.save(booking);
         
         // Generate tickets
-        List<Ticket> tickets = generateTickets(booking);
+        List<Ticket> tickets = ticketIssuanceService.issueTickets(booking, bookingItems);
         booking.setTickets(new HashSet<>(tickets));
         
         log.info("Booking created successfully with ID: {} and reference: {}", 
@@ -124,95 +167,120 @@ public class BookingService {
     
     @Transactional(readOnly = true)
     public BookingResponse getBookingById(Long id) {
-        Booking booking = bookingRepository.findById(id)
+        return bookingRepository.findResponseById(id)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
-        
-        return mapToBookingResponse(booking);
     }
     
     @Transactional(readOnly = true)
     public BookingResponse getBookingByReference(String reference) {
-        Booking booking = bookingRepository.findByBookingReference(reference)
+        return bookingRepository.findResponseByBookingReference(reference)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
-        
-        return mapToBookingResponse(booking);
     }
     
     @Transactional(readOnly = true)
     public Page<BookingResponse> getUserBookings(Pageable pageable) {
         UserPrincipal userPrincipal = (UserPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        Page<Booking> bookings = bookingRepository.findByUserId(userPrincipal.getId(), pageable);
-        return bookings.map(this::mapToBookingResponse);
+        return bookingRepository.findResponsesByUserId(userPrincipal.getId(), pageable);
     }
     
     @Transactional(readOnly = true)
     public List<BookingResponse> getEventBookings(Long eventId) {
-        List<Booking> bookings = bookingRepository.findByEventId(eventId);
-        return bookings.stream()
-                .map(this::mapToBookingResponse)
-                .collect(Collectors.toList());
+        return bookingRepository.findResponsesByEventId(eventId);
     }
     
     @Transactional
     public BookingResponse confirmBooking(Long bookingId) {
+        ConfirmOutcome outcome = confirmHeldBooking(bookingId);
+        if (outcome == ConfirmOutcome.HOLD_EXPIRED) {
+            throw new RuntimeException("Booking hold has expired");
+        }
+        if (outcome != ConfirmOutcome.CONFIRMED) {
+            throw new RuntimeException("Booking is not in pending status");
+        }
+        
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
+        return mapToBookingResponse(booking);
+    }
+    
+    /**
+     * Confirms a pending booking whose hold is still running; shared by direct confirmation and
+     * payment capture so both count the booking the same way. Nothing is changed for any other
+     * outcome, so callers can decide how to report it without rolling back their transaction.
+     */
+    @Transactional
+    public ConfirmOutcome confirmHeldBooking(Long bookingId) {
+        // Lock the row so the hold sweeper cannot expire the booking while it is being confirmed
+        Booking booking = bookingRepository.findByIdForUpdate(bookingId)
+                .orElseThrow(() -> new RuntimeException("Booking not found"));
         
+        if (booking.isConfirmed()) {
+            return ConfirmOutcome.ALREADY_CONFIRMED;
+        }
         if (booking.getStatus() != Booking.BookingStatus.PENDING) {
-            throw new RuntimeException("Booking is not in pending status");
+            return ConfirmOutcome.NOT_PENDING;
+        }
+        if (booking.isHoldExpired()) {
+            return ConfirmOutcome.HOLD_EXPIRED;
         }
         
         booking.setStatus(Booking.BookingStatus.CONFIRMED);
         booking = bookingRepository.save(booking);
         
-        // Update event attendee count
-        Event event = booking.getEvent();
-        event.setCurrentAttendees(event.getCurrentAttendees() + booking.getTotalTickets());
-        eventRepository.save(event);
-        
-        // Update ticket type quantities
-        for (BookingItem item : booking.getBookingItems()) {
-            TicketType ticketType = item.getTicketType();
-            ticketType.setQuantitySold(ticketType.getQuantitySold() + item.getQuantity());
-            ticketTypeRepository.save(ticketType);
-        }
+        // Ticket type stock was already reserved at booking creation; the event counter is locked last
+        Long eventId = booking.getEvent().getId();
+        shardedCounterService.adjustAttendees(eventId, booking.getTotalTickets());
+        eventPublisher.publishEvent(EventChangedEvent.attendees(eventId));
+        eventPublisher.publishEvent(EventStatsChangedEvent.revenue(eventId, booking.getTotalAmount()));
+        eventPublisher.publishEvent(SalesRecordedEvent.confirmed(eventId, booking.getTotalTickets(), booking.getTotalAmount()));
         
         log.info("Booking confirmed with ID: {}", bookingId);
         
-        return mapToBookingResponse(booking);
+        return ConfirmOutcome.CONFIRMED;
     }
     
     @Transactional
     public BookingResponse cancelBooking(Long bookingId, String reason) {
-        Booking booking = bookingRepository.findById(bookingId)
+        Booking booking = bookingRepository.findByIdForUpdate(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
         
         if (!booking.canBeCancelled()) {
             throw new RuntimeException("Booking cannot be cancelled");
         }
         
+        boolean wasConfirmed = booking.isConfirmed();
         booking.setStatus(Booking.BookingStatus.CANCELLED);
         booking.setCancellationReason(reason);
         booking.setCancelledAt(LocalDateTime.now());
         booking = bookingRepository.save(booking);
         
-        // Update event attendee count
-        Event event = booking.getEvent();
-        event.setCurrentAttendees(event.getCurrentAttendees() - booking.getTotalTickets());
-        eventRepository.save(event);
+        // Same lock order as confirmation and hold expiry: booking, ticket types by id, then event counter
+        for (Object[] row : bookingRepository.sumQuantitiesByTicketType(List.of(bookingId))) {
+            ticketInventoryService.releaseInTransaction((Long) row[0], ((Number) row[1]).intValue());
+        }
         
-        // Update ticket type quantities
-        for (BookingItem item : booking.getBookingItems()) {
-            TicketType ticketType = item.getTicketType();
-            ticketType.setQuantitySold(ticketType.getQuantitySold() - item.getQuantity());
-            ticketTypeRepository.save(ticketType);
+        // Pending bookings were never counted as attendees
+        Long eventId = booking.getEvent().getId();
+        if (wasConfirmed) {
+            shardedCounterService.adjustAttendees(eventId, -booking.getTotalTickets());
+            eventPublisher.publishEvent(EventStatsChangedEvent.revenue(eventId, booking.getTotalAmount().negate()));
+            eventPublisher.publishEvent(SalesRecordedEvent.cancelled(eventId, booking.getTotalTickets(),
+                    booking.getTotalAmount(), paymentRepository.existsCapturedByBookingId(bookingId)));
         }
+        eventPublisher.publishEvent(EventChangedEvent.attendees(eventId));
         
         log.info("Booking cancelled with ID: {}", bookingId);
         
         return mapToBookingResponse(booking);
     }
     
+    public enum ConfirmOutcome {
+        CONFIRMED,
+        ALREADY_CONFIRMED,
+        NOT_PENDING,
+        HOLD_EXPIRED
+    }
+    
     @Transactional
     public BookingResponse checkInBooking(Long bookingId) {
         Booking booking = bookingRepository.findById(bookingId)
@@ -227,51 +295,27 @@ public class BookingService {
         booking = bookingRepository.save(booking);
         
         // Mark all tickets as used
+        long wereActive = 0;
+        long wereUsed = 0;
         for (Ticket ticket : booking.getTickets()) {
+            if (ticket.getStatus() == Ticket.TicketStatus.ACTIVE) {
+                wereActive++;
+            } else if (ticket.getStatus() == Ticket.TicketStatus.USED) {
+                wereUsed++;
+            }
             ticket.markAsUsed("SYSTEM");
             ticketRepository.save(ticket);
         }
+        eventPublisher.publishEvent(new EventStatsChangedEvent(booking.getEvent().getId(), -wereActive,
+                booking.getTickets().size() - wereUsed, BigDecimal.ZERO));
         
         log.info("Booking checked in with ID: {}", bookingId);
         
         return mapToBookingResponse(booking);
     }
     
-    private List<Ticket> generateTickets(Booking booking) {
-        List<Ticket> tickets = new ArrayList<>();
-        
-        for (BookingItem item : booking.getBookingItems()) {
-            for (int i = 0; i < item.getQuantity(); i++) {
-                Ticket ticket = Ticket.builder()
-                        .ticketCode(generateTicketCode())
-                        .qrCode(generateQrCode(booking.getId(), item.getTicketType().getId()))
-                        .status(Ticket.TicketStatus.ACTIVE)
-                        .isUsed(false)
-                        .booking(booking)
-                        .ticketType(item.getTicketType())
-                        .user(booking.getUser())
-                        .build();
-                
-                tickets.add(ticket);
-            }
-        }
-        
-        return ticketRepository.saveAll(tickets);
-    }
-    
     private String generateBookingReference() {
-        return "LUNAR-" + System.currentTimeMillis() + "-" + 
-               String.format("%04d", (int) (Math.random() * 10000));
-    }
-    
-    private String generateTicketCode() {
-        return "TKT-" + System.currentTimeMillis() + "-" + 
-               String.format("%06d", (int) (Math.random() * 1000000));
-    }
-    
-    private String generateQrCode(Long bookingId, Long ticketTypeId) {
-        return "QR-" + bookingId + "-" + ticketTypeId + "-" + 
-               System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        return idGenerator.nextCode("LUNAR-");
     }
     
     private BookingResponse mapToBookingResponse(Booking booking) {
@@ -293,6 +337,7 @@ public class BookingService {
                 .cancelledAt(booking.getCancelledAt())
                 .refundAmount(booking.getRefundAmount())
                 .refundProcessedAt(booking.getRefundProcessedAt())
+                .holdExpiresAt(booking.getHoldExpiresAt())
                 .userId(booking.getUser().getId())
                 .userName(booking.getUser().getFullName())
                 .eventId(booking.getEvent().getId())
@@ -0,0 +1,96 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.config.CacheConfig;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keeps the node-local state of all instances in step over Redis pub/sub.
+ *
+ * Committed event and ticket type changes are broadcast as {@code node|kind|id}. Receiving nodes
+ * hand event changes to {@link EventCacheInvalidator} and refresh the event in every
+ * {@link EventIndex} unless only its attendee count changed, or drop their in-memory inventory
+ * counter for the ticket type; messages from this node are ignored.
+ * A lost message is bounded by the L1 expiry and the periodic inventory resync.
+ */
+@Component
+@ConditionalOnProperty(name = "cache.redis.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class CacheInvalidationBroadcaster implements MessageListener {
+    
+    private static final String EVENT = "event";
+    private static final String EVENT_ATTENDEES = "event-attendees";
+    private static final String TICKET_TYPE = "ticket-type";
+    
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final EventCacheInvalidator eventCacheInvalidator;
+    private final TicketInventoryService ticketInventoryService;
+    private final List<EventIndex> eventIndexes;
+    private final String nodeId = UUID.randomUUID().toString();
+    
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CacheConfig.INVALIDATION_CHANNEL));
+    }
+    
+    // Runs after EventCacheInvalidator so the shared entry is gone before other nodes reload it
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onEventChanged(EventChangedEvent change) {
+        broadcast(change.attendeesOnly() ? EVENT_ATTENDEES : EVENT, change.eventId());
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTicketTypeChanged(TicketTypeChangedEvent change) {
+        broadcast(TICKET_TYPE, change.ticketTypeId());
+    }
+    
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|");
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        try {
+            Long id = Long.valueOf(parts[2]);
+            switch (parts[1]) {
+                case EVENT -> {
+                    eventCacheInvalidator.onRemoteEventChanged(id, false);
+                    eventIndexes.forEach(index -> index.refresh(id));
+                }
+                case EVENT_ATTENDEES -> eventCacheInvalidator.onRemoteEventChanged(id, true);
+                case TICKET_TYPE -> ticketInventoryService.invalidate(id);
+                default -> log.warn("Ignoring unknown cache invalidation: {}", body);
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed cache invalidation: {}", body);
+        }
+    }
+    
+    private void broadcast(String kind, Long id) {
+        try {
+            redisTemplate.convertAndSend(CacheConfig.INVALIDATION_CHANNEL, nodeId + "|" + kind + "|" + id);
+        } catch (RuntimeException e) {
+            log.warn("Error broadcasting {} {} invalidation", kind, id, e);
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.dto.CheckInBatchRequest;
+import com.lunar.demo.entity.Ticket;
+import com.lunar.demo.repository.EventRepository;
+import com.lunar.demo.repository.TicketRepository;
+import com.lunar.demo.util.CheckInIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Gate check-in from memory for events that are about to start or running.
+ *
+ * The gates of an event open {@code checkin.open-before-minutes} before it starts: its active
+ * and used tickets of confirmed bookings are loaded into a {@link CheckInIndex}, and scans are
+ * then decided from the index with no database access. Admitted scans are queued and written in
+ * batches every {@code checkin.flush-interval-ms}; when a write fails the scans stay queued, so
+ * gates keep admitting while the database is unreachable. The index is reloaded every
+ * {@code checkin.refresh-interval-ms} to pick up new bookings and cancellations, carrying its
+ * used bits over, and dropped {@code checkin.close-after-minutes} after the event ends.
+ *
+ * The used bits are per node, so an event's gates should be served by one node. A scan another
+ * node or the database already recorded is logged when its batch is written.
+ */
+@Service
+@Slf4j
+public class CheckInService {
+    
+    public enum Verdict {
+        /** The ticket was valid and is now marked used. */
+        ADMITTED,
+        /** The ticket is valid and unused. */
+        VALID,
+        ALREADY_USED,
+        /** The ticket exists for the event but the scanned booking id is not its own. */
+        WRONG_BOOKING,
+        /** The ticket is cancelled, transferred, expired, or its booking is not confirmed. */
+        NOT_VALID,
+        NOT_FOUND,
+        /** No open event has the ticket; the caller decides from the database. */
+        NOT_LOADED
+    }
+    
+    private record Scan(long ticketId, String usedBy, LocalDateTime scannedAt) {
+    }
+    
+    private static final class Gate {
+        
+        // Scans hold the read lock; a reload holds the write lock while it copies the used bits
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private CheckInIndex index;
+        
+        private Gate(CheckInIndex index) {
+            this.index = index;
+        }
+    }
+    
+    private final TicketRepository ticketRepository;
+    private final EventRepository eventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<Long, Gate> gates = new ConcurrentHashMap<>();
+    private final Queue<Scan> pending = new ConcurrentLinkedQueue<>();
+    private final Map<Verdict, Counter> scans = new EnumMap<>(Verdict.class);
+    
+    @Value("${checkin.open-before-minutes:180}")
+    private long openBeforeMinutes;
+    
+    @Value("${checkin.close-after-minutes:120}")
+    private long closeAfterMinutes;
+    
+    @Value("${checkin.batch-size:500}")
+    private int batchSize;
+    
+    public CheckInService(TicketRepository ticketRepository,
+                          EventRepository eventRepository,
+                          TransactionTemplate transactionTemplate,
+                          ApplicationEventPublisher eventPublisher,
+                          MeterRegistry meterRegistry) {
+        this.ticketRepository = ticketRepository;
+        this.eventRepository = eventRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        for (Verdict verdict : Verdict.values()) {
+            scans.put(verdict, meterRegistry.counter("checkin.scans", "verdict", verdict.name()));
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${checkin.refresh-interval-ms:60000}")
+    public void syncGates() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            Set<Long> due = new HashSet<>(eventRepository.findIdsOpenForCheckIn(
+                    now.plusMinutes(openBeforeMinutes), now.minusMinutes(closeAfterMinutes)));
+            for (Long eventId : List.copyOf(gates.keySet())) {
+                if (!due.contains(eventId)) {
+                    close(eventId);
+                }
+            }
+            due.forEach(this::open);
+        } catch (RuntimeException e) {
+            log.error("Error syncing check-in gates", e);
+        }
+    }
+    
+    /**
+     * Loads the event's tickets, or reloads them if its gates are already open. Tickets used in
+     * the current index stay used.
+     */
+    public void open(Long eventId) {
+        List<Object[]> entries = ticketRepository.findCheckInEntries(eventId);
+        long[] ticketIds = new long[entries.size()];
+        long[] bookingIds = new long[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            ticketIds[i] = (Long) entries.get(i)[0];
+            bookingIds[i] = (Long) entries.get(i)[1];
+        }
+        CheckInIndex fresh = new CheckInIndex(ticketIds, bookingIds);
+        for (int i = 0; i < entries.size(); i++) {
+            Object[] entry = entries.get(i);
+            if (entry[2] == Ticket.TicketStatus.USED || Boolean.TRUE.equals(entry[3])) {
+                fresh.markUsed(fresh.slot(ticketIds[i]));
+            }
+        }
+        
+        Gate gate = gates.putIfAbsent(eventId, new Gate(fresh));
+        if (gate == null) {
+            log.info("Opened check-in for event {} with {} tickets", eventId, fresh.size());
+            return;
+        }
+        gate.lock.writeLock().lock();
+        try {
+            gate.index.forEachUsed(ticketId -> {
+                int slot = fresh.slot(ticketId);
+                if (slot >= 0) {
+                    fresh.markUsed(slot);
+                }
+            });
+            gate.index = fresh;
+        } finally {
+            gate.lock.writeLock().unlock();
+        }
+        log.debug("Reloaded check-in for event {} with {} tickets", eventId, fresh.size());
+    }
+    
+    public void close(Long eventId) {
+        if (gates.remove(eventId) != null) {
+            flush();
+            log.info("Closed check-in for event {}", eventId);
+        }
+    }
+    
+    public boolean isOpen(Long eventId) {
+        return gates.containsKey(eventId);
+    }
+    
+    /**
+     * Checks a scan without marking the ticket used.
+     *
+     * @param bookingId the booking id from the scanned code, or null to skip that check
+     */
+    public Verdict check(long ticketId, Long bookingId) {
+        return scan(ticketId, bookingId, null);
+    }
+    
+    /**
+     * Marks the ticket used if it is valid. Exactly one of any number of concurrent scans of a
+     * ticket is admitted.
+     *
+     * @param bookingId the booking id from the scanned code, or null to skip that check
+     */
+    public Verdict admit(long ticketId, Long bookingId, String usedBy, LocalDateTime scannedAt) {
+        return scan(ticketId, bookingId, new Scan(ticketId, usedBy, scannedAt));
+    }
+    
+    /**
+     * Applies scans a check-in device recorded, possibly while it was offline. Scans are decided
+     * in scan time order, so of several scans of a ticket the earliest is admitted. Tickets of
+     * events with open gates are decided from memory; the others are read and locked with one
+     * query and marked used in one JDBC batch.
+     *
+     * @return a verdict per scan, in the order given
+     */
+    public List<Verdict> admitAll(List<CheckInBatchRequest.Scan> batch) {
+        Verdict[] verdicts = new Verdict[batch.size()];
+        List<Integer> inScanOrder = IntStream.range(0, batch.size()).boxed()
+                .sorted(Comparator.comparing(i -> batch.get(i).getScannedAt()))
+                .toList();
+        List<Integer> fromDatabase = new ArrayList<>();
+        for (int i : inScanOrder) {
+            CheckInBatchRequest.Scan scan = batch.get(i);
+            verdicts[i] = admit(scan.getTicketId(), scan.getBookingId(), scan.getUsedBy(), scan.getScannedAt());
+            if (verdicts[i] == Verdict.NOT_LOADED) {
+                fromDatabase.add(i);
+            }
+        }
+        if (fromDatabase.isEmpty()) {
+            return List.of(verdicts);
+        }
+        
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<Long, Ticket> tickets = ticketRepository.findAllForCheckIn(fromDatabase.stream()
+                            .map(i -> batch.get(i).getTicketId())
+                            .collect(Collectors.toSet()))
+                    .stream()
+                    .collect(Collectors.toMap(Ticket::getId, Function.identity()));
+            for (int i : fromDatabase) {
+                CheckInBatchRequest.Scan scan = batch.get(i);
+                Ticket ticket = tickets.get(scan.getTicketId());
+                Verdict verdict;
+                if (ticket == null) {
+                    verdict = Verdict.NOT_FOUND;
+                } else if (scan.getBookingId() != null && !ticket.getBooking().getId().equals(scan.getBookingId())) {
+                    verdict = Verdict.WRONG_BOOKING;
+                } else if (ticket.isUsed()) {
+                    verdict = Verdict.ALREADY_USED;
+                } else if (!ticket.canBeUsed()) {
+                    verdict = Verdict.NOT_VALID;
+                } else {
+                    ticket.markAsUsed(scan.getUsedBy(), scan.getScannedAt());
+                    eventPublisher.publishEvent(EventStatsChangedEvent.ticketsUsed(
+                            ticket.getBooking().getEvent().getId(), 1));
+                    verdict = Verdict.ADMITTED;
+                }
+                scans.get(verdict).increment();
+                verdicts[i] = verdict;
+            }
+        });
+        return List.of(verdicts);
+    }
+    
+    @Scheduled(fixedDelayString = "${checkin.flush-interval-ms:500}")
+    @PreDestroy
+    public void flush() {
+        List<Scan> batch = new ArrayList<>(batchSize);
+        Scan scan;
+        while ((scan = pending.poll()) != null) {
+            batch.add(scan);
+            if (batch.size() == batchSize) {
+                if (!write(batch)) {
+                    return;
+                }
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+    
+    // Marks the ticket used and queues the scan when one is given, otherwise only checks
+    private Verdict scan(long ticketId, Long bookingId, Scan admission) {
+        for (Map.Entry<Long, Gate> open : gates.entrySet()) {
+            Gate gate = open.getValue();
+            Verdict verdict;
+            gate.lock.readLock().lock();
+            try {
+                CheckInIndex index = gate.index;
+                int slot = index.slot(ticketId);
+                if (slot < 0) {
+                    continue;
+                }
+                if (bookingId != null && index.bookingId(slot) != bookingId) {
+                    verdict = Verdict.WRONG_BOOKING;
+                } else if (admission == null) {
+                    verdict = index.isUsed(slot) ? Verdict.ALREADY_USED : Verdict.VALID;
+                } else if (index.markUsed(slot)) {
+                    pending.add(admission);
+                    verdict = Verdict.ADMITTED;
+                } else {
+                    verdict = Verdict.ALREADY_USED;
+                }
+            } finally {
+                gate.lock.readLock().unlock();
+            }
+            scans.get(verdict).increment();
+            // Counted as used right away; the ticket row follows with the next batch
+            if (verdict == Verdict.ADMITTED) {
+                eventPublisher.publishEvent(EventStatsChangedEvent.ticketsUsed(open.getKey(), 1));
+            }
+            return verdict;
+        }
+        scans.get(Verdict.NOT_LOADED).increment();
+        return Verdict.NOT_LOADED;
+    }
+    
+    // Returns false, with the batch queued again, if it could not be written
+    private boolean write(List<Scan> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<Long, Ticket> tickets = ticketRepository.findAllById(batch.stream().map(Scan::ticketId).toList())
+                        .stream()
+                        .collect(Collectors.toMap(Ticket::getId, Function.identity()));
+                for (Scan scan : batch) {
+                    Ticket ticket = tickets.get(scan.ticketId());
+                    if (ticket == null || ticket.getStatus() != Ticket.TicketStatus.ACTIVE || ticket.isUsed()) {
+                        log.warn("Ticket {} admitted at {} was already {} in the database", scan.ticketId(),
+                                scan.usedBy(), ticket != null ? ticket.getStatus() : "deleted");
+                        continue;
+                    }
+                    ticket.markAsUsed(scan.usedBy(), scan.scannedAt());
+                }
+            });
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Error writing {} check-ins, will retry", batch.size(), e);
+            pending.addAll(batch);
+            return false;
+        }
+    }
+}
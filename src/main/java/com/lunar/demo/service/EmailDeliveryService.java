@@ -0,0 +1,254 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.entity.EmailDeadLetter;
+import com.lunar.demo.entity.EmailOutbox;
+import com.lunar.demo.repository.EmailDeadLetterRepository;
+import com.lunar.demo.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the emails queued in {@code email_outbox}.
+ *
+ * Each poll claims a batch of due rows with SKIP LOCKED and leases them by pushing
+ * next_attempt_at forward, so nodes never send the same row concurrently and a node that dies
+ * mid-batch only delays its emails by the lease. The batch is split across a fixed pool of
+ * workers; each worker hands its share to the mail sender in one call, which delivers them over
+ * a single SMTP connection.
+ *
+ * Delivered rows are deleted. Failed rows are retried with exponential backoff and moved to
+ * {@code email_dead_letters} after the last attempt.
+ */
+@Service
+@Slf4j
+public class EmailDeliveryService {
+    
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailDeadLetterRepository emailDeadLetterRepository;
+    private final EmailService emailService;
+    private final JavaMailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final int workers;
+    private final ExecutorService pool;
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter deadLettered;
+    private final Timer batchTimer;
+    
+    @Value("${mail.outbox.batch-size:200}")
+    private int batchSize;
+    
+    @Value("${mail.outbox.max-attempts:6}")
+    private int maxAttempts;
+    
+    @Value("${mail.outbox.backoff-base-ms:5000}")
+    private long backoffBaseMs;
+    
+    @Value("${mail.outbox.backoff-max-ms:900000}")
+    private long backoffMaxMs;
+    
+    @Value("${mail.outbox.lease-seconds:300}")
+    private long leaseSeconds;
+    
+    public EmailDeliveryService(EmailOutboxRepository emailOutboxRepository,
+                                EmailDeadLetterRepository emailDeadLetterRepository,
+                                EmailService emailService,
+                                JavaMailSender mailSender,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${mail.outbox.workers:4}") int workers) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.emailDeadLetterRepository = emailDeadLetterRepository;
+        this.emailService = emailService;
+        this.mailSender = mailSender;
+        this.transactionTemplate = transactionTemplate;
+        this.workers = workers;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "email-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sent = meterRegistry.counter("email.outbox.sent");
+        this.retried = meterRegistry.counter("email.outbox.retried");
+        this.deadLettered = meterRegistry.counter("email.outbox.dead_lettered");
+        this.batchTimer = meterRegistry.timer("email.outbox.batch");
+    }
+    
+    @Scheduled(fixedDelayString = "${mail.outbox.poll-interval-ms:1000}")
+    public void dispatch() {
+        try {
+            int claimed;
+            do {
+                List<EmailOutbox> batch = claim();
+                if (!batch.isEmpty()) {
+                    batchTimer.record(() -> deliver(batch));
+                }
+                claimed = batch.size();
+            } while (claimed == batchSize);
+        } catch (RuntimeException e) {
+            log.error("Error dispatching queued emails", e);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+    
+    private List<EmailOutbox> claim() {
+        List<EmailOutbox> claimed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> due = emailOutboxRepository.findDueIds(now, PageRequest.of(0, batchSize));
+            if (due.isEmpty()) {
+                return List.of();
+            }
+            List<Long> locked = emailOutboxRepository.lockDue(due, now);
+            if (locked.isEmpty()) {
+                return List.of();
+            }
+            emailOutboxRepository.lease(locked, now.plusSeconds(leaseSeconds));
+            return emailOutboxRepository.findAllById(locked);
+        });
+        return claimed != null ? claimed : List.of();
+    }
+    
+    private void deliver(List<EmailOutbox> emails) {
+        int shares = Math.min(workers, emails.size());
+        List<List<EmailOutbox>> split = new ArrayList<>();
+        for (int i = 0; i < shares; i++) {
+            split.add(new ArrayList<>());
+        }
+        for (int i = 0; i < emails.size(); i++) {
+            split.get(i % shares).add(emails.get(i));
+        }
+        
+        List<Future<?>> results = new ArrayList<>();
+        for (List<EmailOutbox> share : split) {
+            results.add(pool.submit(() -> send(share)));
+        }
+        for (Future<?> result : results) {
+            try {
+                result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // Leased rows that were not recorded become due again once the lease runs out
+                log.error("Email worker failed", e.getCause());
+            }
+        }
+    }
+    
+    private void send(List<EmailOutbox> emails) {
+        Map<MimeMessage, EmailOutbox> messages = new LinkedHashMap<>();
+        for (EmailOutbox email : emails) {
+            try {
+                messages.put(emailService.compose(email), email);
+            } catch (RuntimeException e) {
+                recordFailure(email, e);
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+        
+        Map<Object, Exception> failed = Map.of();
+        try {
+            mailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            failed = e.getFailedMessages();
+            if (failed.isEmpty()) {
+                failed = allFailed(messages, e);
+            }
+        } catch (MailException e) {
+            failed = allFailed(messages, e);
+        }
+        
+        List<Long> delivered = new ArrayList<>();
+        for (Map.Entry<MimeMessage, EmailOutbox> entry : messages.entrySet()) {
+            Exception error = failed.get(entry.getKey());
+            if (error == null) {
+                delivered.add(entry.getValue().getId());
+            } else {
+                recordFailure(entry.getValue(), error);
+            }
+        }
+        if (!delivered.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> emailOutboxRepository.deleteByIdIn(delivered));
+            sent.increment(delivered.size());
+        }
+    }
+    
+    private void recordFailure(EmailOutbox email, Exception error) {
+        String message = truncate(error.getMessage());
+        LocalDateTime now = LocalDateTime.now();
+        if (email.getAttempts() >= maxAttempts) {
+            transactionTemplate.executeWithoutResult(status -> {
+                emailDeadLetterRepository.save(EmailDeadLetter.builder()
+                        .type(email.getType())
+                        .bookingId(email.getBookingId())
+                        .ticketId(email.getTicketId())
+                        .recipient(email.getRecipient())
+                        .locale(email.getLocale())
+                        .attempts(email.getAttempts())
+                        .lastError(message)
+                        .queuedAt(email.getCreatedAt())
+                        .failedAt(now)
+                        .build());
+                emailOutboxRepository.deleteByIdIn(List.of(email.getId()));
+            });
+            deadLettered.increment();
+            log.error("Giving up on {} email {} after {} attempts: {}",
+                    email.getType(), email.getId(), email.getAttempts(), message);
+        } else {
+            LocalDateTime nextAttemptAt = now.plusNanos(backoffMillis(email.getAttempts()) * 1_000_000);
+            transactionTemplate.executeWithoutResult(status ->
+                    emailOutboxRepository.reschedule(email.getId(), nextAttemptAt, message));
+            retried.increment();
+            log.warn("Failed to send {} email {}, retrying at {}: {}",
+                    email.getType(), email.getId(), nextAttemptAt, message);
+        }
+    }
+    
+    private long backoffMillis(int attempts) {
+        int exponent = Math.min(Math.max(attempts - 1, 0), 20);
+        return Math.min(backoffBaseMs << exponent, backoffMaxMs);
+    }
+    
+    private static Map<Object, Exception> allFailed(Map<MimeMessage, EmailOutbox> messages, Exception error) {
+        Map<Object, Exception> failed = new LinkedHashMap<>();
+        messages.keySet().forEach(message -> failed.put(message, error));
+        return failed;
+    }
+    
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+}
@@ -0,0 +1,111 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.util.HtmlTemplate;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled email templates from {@code classpath:templates/email}, one set per locale.
+ *
+ * A locale variant is looked up like a resource bundle: {@code name_lang_COUNTRY.html}, then
+ * {@code name_lang.html}, then {@code name.html}. Each file is parsed once and shared by every
+ * locale that resolves to it. The configured locales are compiled at startup, so a broken
+ * template fails the boot; other locales are compiled on first use.
+ */
+@Component
+public class EmailTemplates {
+    
+    private static final String LOCATION = "templates/email/";
+    
+    @Getter
+    public enum Template {
+        BOOKING_CONFIRMATION("booking-confirmation", "bookingReference", "totalAmount", "bookingDate",
+                "eventTitle", "eventDate", "venueName", "venueAddress", "organizerName", "totalTickets",
+                "baseUrl", "bookingId"),
+        TICKET("ticket", "eventTitle", "eventDate", "venueName", "ticketCode", "seat", "qrCode"),
+        BOOKING_CANCELLATION("booking-cancellation", "bookingReference", "eventTitle", "cancellationReason",
+                "cancelledAt"),
+        EVENT_REMINDER("event-reminder", "eventTitle", "eventDate", "venueName", "venueAddress",
+                "bookingReference", "baseUrl", "bookingId");
+        
+        private final String fileName;
+        private final List<String> variables;
+        
+        Template(String fileName, String... variables) {
+            this.fileName = fileName;
+            this.variables = List.of(variables);
+        }
+    }
+    
+    private final Map<Locale, Map<Template, HtmlTemplate>> byLocale = new ConcurrentHashMap<>();
+    private final Map<String, HtmlTemplate> byPath = new ConcurrentHashMap<>();
+    
+    public EmailTemplates(@Value("${mail.templates.locales:en}") List<String> locales) {
+        forLocale(Locale.ROOT);
+        locales.forEach(tag -> forLocale(Locale.forLanguageTag(tag)));
+    }
+    
+    /**
+     * Renders a template with its values in the order of {@link Template#getVariables()}.
+     */
+    public String render(Template template, Locale locale, Object... values) {
+        return forLocale(locale).get(template).render(values);
+    }
+    
+    private Map<Template, HtmlTemplate> forLocale(Locale locale) {
+        // Variants and scripts never select a template, so they do not get their own entry
+        Locale key = new Locale(locale.getLanguage(), locale.getCountry());
+        return byLocale.computeIfAbsent(key, this::compile);
+    }
+    
+    private Map<Template, HtmlTemplate> compile(Locale locale) {
+        Map<Template, HtmlTemplate> templates = new EnumMap<>(Template.class);
+        for (Template template : Template.values()) {
+            String path = resolve(template, locale);
+            templates.put(template, byPath.computeIfAbsent(path,
+                    p -> HtmlTemplate.compile(read(p), template.getVariables())));
+        }
+        return templates;
+    }
+    
+    private String resolve(Template template, Locale locale) {
+        List<String> candidates = new ArrayList<>();
+        if (!locale.getLanguage().isEmpty()) {
+            if (!locale.getCountry().isEmpty()) {
+                candidates.add(template.getFileName() + "_" + locale.getLanguage() + "_" + locale.getCountry());
+            }
+            candidates.add(template.getFileName() + "_" + locale.getLanguage());
+        }
+        candidates.add(template.getFileName());
+        for (String candidate : candidates) {
+            String path = LOCATION + candidate + ".html";
+            if (getClass().getClassLoader().getResource(path) != null) {
+                return path;
+            }
+        }
+        throw new IllegalStateException("Email template not found: " + template.getFileName());
+    }
+    
+    private String read(String path) {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IllegalStateException("Email template not found: " + path);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading email template " + path, e);
+        }
+    }
+}
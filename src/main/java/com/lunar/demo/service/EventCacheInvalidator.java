@@ -0,0 +1,56 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.config.CacheConfig;
+import com.lunar.demo.config.TwoLevelCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Drops cached {@code EventResponse} snapshots and waiting room settings after the change that
+ * made them stale has committed. Evicting any earlier would let a concurrent read cache the old
+ * row again before the new one is visible.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EventCacheInvalidator {
+    
+    private final CacheManager cacheManager;
+    private final WaitingRoomService waitingRoomService;
+    
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onEventChanged(EventChangedEvent change) {
+        Cache cache = cacheManager.getCache(CacheConfig.EVENTS);
+        if (cache != null) {
+            cache.evict(change.eventId());
+            log.debug("Evicted cached event {}", change.eventId());
+        }
+        if (!change.attendeesOnly()) {
+            waitingRoomService.evict(change.eventId());
+        }
+    }
+    
+    /**
+     * Applies a change committed on another node. Only this node's copies are dropped: the
+     * sending node has already evicted the shared cache entry.
+     */
+    public void onRemoteEventChanged(Long eventId, boolean attendeesOnly) {
+        Cache cache = cacheManager.getCache(CacheConfig.EVENTS);
+        if (cache instanceof TwoLevelCache twoLevelCache) {
+            twoLevelCache.evictLocal(eventId);
+        } else if (cache != null) {
+            cache.evict(eventId);
+        }
+        if (!attendeesOnly) {
+            waitingRoomService.evict(eventId);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.lunar.demo.service;
+
+/**
+ * Published whenever an event's stored state changes, including its attendee count.
+ * Listeners that cache event data act on it once the surrounding transaction has committed.
+ *
+ * @param attendeesOnly true when only the attendee count changed, which listeners indexing the
+ *                      event's content can ignore
+ */
+public record EventChangedEvent(Long eventId, boolean attendeesOnly) {
+    
+    public EventChangedEvent(Long eventId) {
+        this(eventId, false);
+    }
+    
+    public static EventChangedEvent attendees(Long eventId) {
+        return new EventChangedEvent(eventId, true);
+    }
+}
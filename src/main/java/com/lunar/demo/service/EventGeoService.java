@@ -0,0 +1,93 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.repository.EventRepository;
+import com.lunar.demo.util.GeoGridIndex;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Location queries over published public events with coordinates, answered from a
+ * {@link GeoGridIndex} held in memory on every node and maintained like the search index.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EventGeoService implements EventIndex {
+    
+    private final EventRepository eventRepository;
+    private GeoGridIndex index;
+    
+    @Value("${geo.cell-degrees:0.1}")
+    private double cellDegrees;
+    
+    @Value("${geo.rebuild-batch-size:5000}")
+    private int rebuildBatchSize;
+    
+    @PostConstruct
+    void initIndex() {
+        index = new GeoGridIndex(cellDegrees);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        index.clear();
+        Long afterId = 0L;
+        List<Object[]> batch;
+        do {
+            batch = eventRepository.findGeoPointsAfter(afterId, PageRequest.of(0, rebuildBatchSize));
+            for (Object[] row : batch) {
+                put(row);
+            }
+            if (!batch.isEmpty()) {
+                afterId = (Long) batch.get(batch.size() - 1)[0];
+            }
+        } while (batch.size() == rebuildBatchSize);
+        log.info("Indexed {} event locations in {} ms", index.size(), System.currentTimeMillis() - started);
+    }
+    
+    public List<GeoGridIndex.Hit> withinRadius(double lat, double lon, double radiusKm, int limit) {
+        return index.withinRadius(lat, lon, radiusKm, limit);
+    }
+    
+    public List<GeoGridIndex.Hit> withinBox(double minLat, double minLon, double maxLat, double maxLon,
+                                            double fromLat, double fromLon, int limit) {
+        return index.withinBox(minLat, minLon, maxLat, maxLon, fromLat, fromLon, limit);
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onEventChanged(EventChangedEvent change) {
+        if (!change.attendeesOnly()) {
+            refresh(change.eventId());
+        }
+    }
+    
+    @Override
+    public void refresh(Long eventId) {
+        List<Object[]> rows = eventRepository.findGeoPoint(eventId);
+        if (rows.isEmpty()) {
+            index.remove(eventId);
+        } else {
+            put(rows.get(0));
+        }
+    }
+    
+    private void put(Object[] row) {
+        try {
+            index.put((Long) row[0], (Double) row[1], (Double) row[2]);
+        } catch (IllegalArgumentException e) {
+            log.warn("Skipping event {} with invalid coordinates", row[0]);
+            index.remove((Long) row[0]);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.lunar.demo.service;
+
+/**
+ * A node-local index over listed events. Implementations follow committed changes on their own
+ * node themselves; {@link CacheInvalidationBroadcaster} calls {@link #refresh} for changes made
+ * on other nodes.
+ */
+public interface EventIndex {
+    
+    /**
+     * Re-reads one event and adds, replaces or removes it depending on whether it is still listed.
+     */
+    void refresh(Long eventId);
+}
@@ -0,0 +1,222 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.dto.EventSearchRequest;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.repository.EventRepository;
+import com.lunar.demo.repository.EventSpecifications;
+import com.lunar.demo.util.InvertedIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.lunar.demo.repository.EventSpecifications.*;
+
+/**
+ * Executes event searches that combine the full-text index with any of the structured filters
+ * of {@link EventSearchRequest} in one database query.
+ *
+ * Results are paged with an opaque cursor rather than an offset. For field orderings the cursor
+ * carries the last row's (sort value, id) and the next page is a seek past it, so every page
+ * costs the same no matter how deep it is. Relevance ordering comes from the index, which ranks
+ * at most {@code search.max-candidates} matches; filters are then applied to those candidates
+ * and the cursor carries the position in the ranking.
+ */
+@Service
+@RequiredArgsConstructor
+public class EventQueryService {
+    
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    
+    private final EventRepository eventRepository;
+    private final EventSearchService eventSearchService;
+    
+    @Value("${search.max-candidates:1000}")
+    private int maxCandidates;
+    
+    @Transactional(readOnly = true)
+    public Result search(EventSearchRequest request) {
+        int size = request.getSize() == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(request.getSize(), MAX_PAGE_SIZE));
+        String term = request.getSearchTerm() != null && !request.getSearchTerm().isBlank()
+                ? request.getSearchTerm().trim() : null;
+        SortKey sortKey = SortKey.resolve(request.getSortBy(), term != null);
+        boolean ascending = !"desc".equalsIgnoreCase(request.getSortDirection());
+        
+        if (sortKey == SortKey.RELEVANCE && eventSearchService.isReady()) {
+            return searchByRelevance(request, term, size);
+        }
+        if (sortKey == SortKey.RELEVANCE) {
+            // The index is still being built; fall back to the default field order
+            sortKey = SortKey.START_DATE;
+            ascending = true;
+        }
+        return searchBySeek(request, term, sortKey, ascending, size);
+    }
+    
+    private Result searchBySeek(EventSearchRequest request, String term, SortKey sortKey, boolean ascending, int size) {
+        List<Specification<Event>> specs = filters(request);
+        if (term != null) {
+            specs.add(eventSearchService.isReady()
+                    ? idIn(eventSearchService.search(term, PageRequest.of(0, maxCandidates)).ids())
+                    : mentions(term));
+        }
+        if (request.getCursor() != null) {
+            Cursor cursor = Cursor.decode(request.getCursor());
+            if (cursor.sortKey != sortKey || cursor.ascending != ascending) {
+                throw new RuntimeException("Search cursor does not match the requested sort order");
+            }
+            specs.add(sortKey.after(cursor.value, cursor.id, ascending));
+        }
+        specs.add(fetchOrganizer());
+        
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort sort = Sort.by(direction, sortKey.field).and(Sort.by(direction, "id"));
+        List<Event> events = eventRepository.findBy(Specification.allOf(specs),
+                query -> query.sortBy(sort).limit(size + 1).all());
+        
+        if (events.size() <= size) {
+            return new Result(events, null);
+        }
+        List<Event> page = events.subList(0, size);
+        Event last = page.get(size - 1);
+        return new Result(page, new Cursor(sortKey, ascending, last.getId(), sortKey.valueOf(last)).encode());
+    }
+    
+    private Result searchByRelevance(EventSearchRequest request, String term, int size) {
+        List<Long> ranked = eventSearchService.search(term, PageRequest.of(0, maxCandidates)).ids();
+        List<Specification<Event>> filters = filters(request);
+        Map<Long, Event> loaded = null;
+        if (filters.size() > 1 && !ranked.isEmpty()) {
+            // Structured filters narrow the ranked candidates; the index only holds listed events
+            filters.add(idIn(ranked));
+            filters.add(fetchOrganizer());
+            loaded = eventRepository.findAll(Specification.allOf(filters)).stream()
+                    .collect(Collectors.toMap(Event::getId, Function.identity()));
+            ranked = ranked.stream().filter(loaded::containsKey).toList();
+        }
+        
+        int offset = 0;
+        if (request.getCursor() != null) {
+            Cursor cursor = Cursor.decode(request.getCursor());
+            if (cursor.sortKey != SortKey.RELEVANCE) {
+                throw new RuntimeException("Search cursor does not match the requested sort order");
+            }
+            offset = Math.toIntExact(cursor.id);
+        }
+        int end = Math.min(offset + size, ranked.size());
+        List<Long> ids = offset < end ? ranked.subList(offset, end) : List.of();
+        
+        Map<Long, Event> events = loaded != null ? loaded : eventRepository.findAllWithOrganizerByIdIn(ids).stream()
+                .collect(Collectors.toMap(Event::getId, Function.identity()));
+        List<Event> page = ids.stream().map(events::get).filter(Objects::nonNull).collect(Collectors.toList());
+        String next = end < ranked.size() ? new Cursor(SortKey.RELEVANCE, true, end, "").encode() : null;
+        return new Result(page, next);
+    }
+    
+    private List<Specification<Event>> filters(EventSearchRequest request) {
+        List<Specification<Event>> specs = new ArrayList<>();
+        specs.add(listed());
+        addIfSet(specs, hasCategory(request.getCategory()));
+        addIfSet(specs, inCity(request.getCity()));
+        addIfSet(specs, startsOnOrAfter(request.getStartDate()));
+        addIfSet(specs, startsOnOrBefore(request.getEndDate()));
+        addIfSet(specs, isOnline(request.getIsOnline()));
+        addIfSet(specs, isFeatured(request.getIsFeatured()));
+        addIfSet(specs, hasTicketPricedBetween(toPrice(request.getMinPrice()), toPrice(request.getMaxPrice())));
+        return specs;
+    }
+    
+    private static void addIfSet(List<Specification<Event>> specs, Specification<Event> spec) {
+        if (spec != null) {
+            specs.add(spec);
+        }
+    }
+    
+    private static BigDecimal toPrice(Double price) {
+        return price == null ? null : BigDecimal.valueOf(price);
+    }
+    
+    public record Result(List<Event> events, String nextCursor) {
+    }
+    
+    private enum SortKey {
+        RELEVANCE(null),
+        START_DATE("startDate"),
+        CREATED_AT("createdAt"),
+        TITLE("title");
+        
+        private final String field;
+        
+        SortKey(String field) {
+            this.field = field;
+        }
+        
+        static SortKey resolve(String sortBy, boolean hasTerm) {
+            if (sortBy == null || sortBy.isBlank()) {
+                return hasTerm ? RELEVANCE : START_DATE;
+            }
+            for (SortKey key : values()) {
+                if (key.field != null && key.field.equalsIgnoreCase(sortBy) || key.name().equalsIgnoreCase(sortBy)) {
+                    return key;
+                }
+            }
+            throw new RuntimeException("Unsupported sort field: " + sortBy);
+        }
+        
+        String valueOf(Event event) {
+            return switch (this) {
+                case START_DATE -> event.getStartDate().toString();
+                case CREATED_AT -> event.getCreatedAt().toString();
+                case TITLE -> event.getTitle();
+                case RELEVANCE -> "";
+            };
+        }
+        
+        Specification<Event> after(String value, long id, boolean ascending) {
+            return switch (this) {
+                case START_DATE, CREATED_AT -> EventSpecifications.after(field, LocalDateTime.parse(value), id, ascending);
+                case TITLE -> EventSpecifications.after(field, value, id, ascending);
+                case RELEVANCE -> throw new IllegalStateException("Relevance is not seekable");
+            };
+        }
+    }
+    
+    /**
+     * Encoded as URL-safe base64 of {@code sortKey|asc|id|value}; for relevance the id slot holds
+     * the position in the ranking.
+     */
+    private record Cursor(SortKey sortKey, boolean ascending, long id, String value) {
+        
+        String encode() {
+            String raw = sortKey.name() + "|" + (ascending ? "asc" : "desc") + "|" + id + "|" + value;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        static Cursor decode(String encoded) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\\|", 4);
+                return new Cursor(SortKey.valueOf(parts[0]), "asc".equals(parts[1].toLowerCase(Locale.ROOT)),
+                        Long.parseLong(parts[2]), parts[3]);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new RuntimeException("Invalid search cursor");
+            }
+        }
+    }
+}
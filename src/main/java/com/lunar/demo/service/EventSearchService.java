@@ -0,0 +1,97 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.repository.EventRepository;
+import com.lunar.demo.util.InvertedIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Full-text search over published public events, answered from an {@link InvertedIndex} held
+ * in memory on every node.
+ *
+ * The index is built from a keyset scan of the searchable columns once the application is ready
+ * and kept current from {@link EventChangedEvent}s: changes committed on this node directly,
+ * changes on other nodes through the cache invalidation broadcast. Until the first build has
+ * finished {@link #isReady()} is false and callers fall back to the database.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EventSearchService implements EventIndex {
+    
+    private static final float TITLE_WEIGHT = 3f;
+    private static final float PLACE_WEIGHT = 1.5f;
+    private static final float TEXT_WEIGHT = 1f;
+    
+    private final EventRepository eventRepository;
+    private final InvertedIndex index = new InvertedIndex();
+    private volatile boolean ready;
+    
+    @Value("${search.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        ready = false;
+        index.clear();
+        Long afterId = 0L;
+        List<Object[]> batch;
+        do {
+            batch = eventRepository.findSearchDocumentsAfter(afterId, PageRequest.of(0, rebuildBatchSize));
+            for (Object[] row : batch) {
+                put(row);
+            }
+            if (!batch.isEmpty()) {
+                afterId = (Long) batch.get(batch.size() - 1)[0];
+            }
+        } while (batch.size() == rebuildBatchSize);
+        ready = true;
+        log.info("Indexed {} events for search in {} ms", index.size(), System.currentTimeMillis() - started);
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    public InvertedIndex.Hits search(String query, Pageable pageable) {
+        return index.search(query, (int) pageable.getOffset(), pageable.getPageSize());
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onEventChanged(EventChangedEvent change) {
+        if (!change.attendeesOnly()) {
+            refresh(change.eventId());
+        }
+    }
+    
+    @Override
+    public void refresh(Long eventId) {
+        List<Object[]> rows = eventRepository.findSearchDocument(eventId);
+        if (rows.isEmpty()) {
+            index.remove(eventId);
+        } else {
+            put(rows.get(0));
+        }
+    }
+    
+    private void put(Object[] row) {
+        index.put((Long) row[0], List.of(
+                new InvertedIndex.Field((String) row[1], TITLE_WEIGHT),
+                new InvertedIndex.Field((String) row[2], TEXT_WEIGHT),
+                new InvertedIndex.Field((String) row[3], PLACE_WEIGHT),
+                new InvertedIndex.Field((String) row[4], PLACE_WEIGHT),
+                new InvertedIndex.Field(((Event.EventCategory) row[5]).name(), TEXT_WEIGHT)));
+    }
+}
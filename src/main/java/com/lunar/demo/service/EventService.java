@@ -1,15 +1,22 @@
 package com.lunar.demo.service;
 
+import com.lunar.demo.config.CacheConfig;
 import com.lunar.demo.dto.EventCreateRequest;
 import com.lunar.demo.dto.EventResponse;
 import com.lunar.demo.dto.EventSearchRequest;
+import com.lunar.demo.dto.EventSearchResponse;
+import com.lunar.demo.dto.NearbyEventResponse;
 import com.lunar.demo.entity.Event;
 import com.lunar.demo.entity.User;
 import com.lunar.demo.repository.EventRepository;
 import com.lunar.demo.repository.UserRepository;
 import com.lunar.demo.security.UserPrincipal;
+import com.lunar.demo.util.GeoGridIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -18,6 +25,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,6 +36,13 @@ public class EventService {
     
     private final EventRepository eventRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EventQueryService eventQueryService;
+    private final EventGeoService eventGeoService;
+    private final ShardedCounterService shardedCounterService;
+    
+    @Value("${geo.max-radius-km:500}")
+    private double maxRadiusKm;
     
     @Transactional
     public EventResponse createEvent(EventCreateRequest request) {
@@ -60,6 +76,9 @@ public class EventService {
                 .isFeatured(request.getIsFeatured())
                 .isPublic(request.getIsPublic())
                 .requiresApproval(request.getRequiresApproval())
+                .waitingRoomEnabled(request.getWaitingRoomEnabled())
+                .admissionRatePerSecond(request.getAdmissionRatePerSecond())
+                .expectedDemand(request.getExpectedDemand())
                 .ageRestriction(request.getAgeRestriction())
                 .termsAndConditions(request.getTermsAndConditions())
                 .cancellationPolicy(request.getCancellationPolicy())
@@ -67,60 +86,90 @@ public class EventService {
                 .build();
         
         Event savedEvent = eventRepository.save(event);
+        if (shardedCounterService.shouldShard(savedEvent.getExpectedDemand())) {
+            shardedCounterService.enable(savedEvent);
+        }
+        eventPublisher.publishEvent(new EventChangedEvent(savedEvent.getId()));
         log.info("Event created successfully with ID: {}", savedEvent.getId());
         
         return mapToEventResponse(savedEvent);
     }
     
+    /**
+     * Served from the {@link CacheConfig#EVENTS} cache; every write to an event publishes an
+     * {@link EventChangedEvent} that evicts its snapshot once committed.
+     */
+    @Cacheable(cacheNames = CacheConfig.EVENTS, key = "#id")
     @Transactional(readOnly = true)
     public EventResponse getEventById(Long id) {
-        Event event = eventRepository.findById(id)
+        return eventRepository.findResponseById(id)
                 .orElseThrow(() -> new RuntimeException("Event not found"));
-        
-        return mapToEventResponse(event);
     }
     
     @Transactional(readOnly = true)
     public Page<EventResponse> getAllEvents(Pageable pageable) {
-        Page<Event> events = eventRepository.findByStatusAndIsPublicTrue(Event.EventStatus.PUBLISHED, pageable);
-        return events.map(this::mapToEventResponse);
+        return eventRepository.findResponsesByStatusAndIsPublicTrue(Event.EventStatus.PUBLISHED, pageable);
     }
     
+    /**
+     * Combines the search term with every structured filter of the request; see
+     * {@link EventQueryService} for ordering and cursor paging.
+     */
     @Transactional(readOnly = true)
-    public Page<EventResponse> searchEvents(EventSearchRequest request, Pageable pageable) {
-        Page<Event> events;
-        
-        if (request.getSearchTerm() != null && !request.getSearchTerm().trim().isEmpty()) {
-            events = eventRepository.searchEvents(request.getSearchTerm(), pageable);
-        } else if (request.getCategory() != null) {
-            events = eventRepository.findByCategoryAndStatusAndIsPublicTrue(
-                    request.getCategory(), Event.EventStatus.PUBLISHED, pageable);
-        } else if (request.getCity() != null && !request.getCity().trim().isEmpty()) {
-            List<Event> cityEvents = eventRepository.findEventsByCity(request.getCity(), LocalDateTime.now());
-            events = Page.empty(pageable);
-        } else {
-            events = eventRepository.findByStatusAndIsPublicTrue(Event.EventStatus.PUBLISHED, pageable);
+    public EventSearchResponse searchEvents(EventSearchRequest request) {
+        EventQueryService.Result result = eventQueryService.search(request);
+        List<EventResponse> events = result.events().stream()
+                .map(this::mapToEventResponse)
+                .collect(Collectors.toList());
+        return EventSearchResponse.builder()
+                .events(events)
+                .size(events.size())
+                .nextCursor(result.nextCursor())
+                .hasNext(result.nextCursor() != null)
+                .build();
+    }
+    
+    /**
+     * Listed events within {@code radiusKm} of the given point, nearest first.
+     */
+    @Transactional(readOnly = true)
+    public List<NearbyEventResponse> getEventsNearby(double latitude, double longitude, double radiusKm, int limit) {
+        validateCoordinates(latitude, longitude);
+        if (!(radiusKm > 0) || radiusKm > maxRadiusKm) {
+            throw new IllegalArgumentException("Radius must be greater than 0 and at most " + maxRadiusKm + " km");
         }
-        
-        return events.map(this::mapToEventResponse);
+        return toNearbyResponses(eventGeoService.withinRadius(latitude, longitude, radiusKm, validateLimit(limit)));
+    }
+    
+    /**
+     * Listed events inside the bounding box, nearest to the given point (the box centre if none)
+     * first. A box with {@code minLongitude > maxLongitude} crosses the antimeridian.
+     */
+    @Transactional(readOnly = true)
+    public List<NearbyEventResponse> getEventsInBox(double minLatitude, double minLongitude, double maxLatitude,
+                                                    double maxLongitude, Double latitude, Double longitude, int limit) {
+        validateCoordinates(minLatitude, minLongitude);
+        validateCoordinates(maxLatitude, maxLongitude);
+        if (minLatitude > maxLatitude) {
+            throw new IllegalArgumentException("minLatitude must not exceed maxLatitude");
+        }
+        double fromLatitude = latitude != null ? latitude : (minLatitude + maxLatitude) / 2;
+        double fromLongitude = longitude != null ? longitude : boxCentreLongitude(minLongitude, maxLongitude);
+        validateCoordinates(fromLatitude, fromLongitude);
+        return toNearbyResponses(eventGeoService.withinBox(minLatitude, minLongitude, maxLatitude, maxLongitude,
+                fromLatitude, fromLongitude, validateLimit(limit)));
     }
     
     @Transactional(readOnly = true)
     public List<EventResponse> getFeaturedEvents() {
-        List<Event> events = eventRepository.findFeaturedEvents(LocalDateTime.now());
-        return events.stream()
-                .map(this::mapToEventResponse)
-                .collect(Collectors.toList());
+        return eventRepository.findFeaturedResponses(LocalDateTime.now());
     }
     
     @Transactional(readOnly = true)
     public List<EventResponse> getUpcomingEvents() {
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime nextMonth = now.plusMonths(1);
-        List<Event> events = eventRepository.findUpcomingEvents(now, nextMonth);
-        return events.stream()
-                .map(this::mapToEventResponse)
-                .collect(Collectors.toList());
+        return eventRepository.findUpcomingResponses(now, nextMonth);
     }
     
     @Transactional(readOnly = true)
@@ -166,11 +215,19 @@ public class EventService {
         event.setIsFeatured(request.getIsFeatured());
         event.setIsPublic(request.getIsPublic());
         event.setRequiresApproval(request.getRequiresApproval());
+        event.setWaitingRoomEnabled(request.getWaitingRoomEnabled());
+        event.setAdmissionRatePerSecond(request.getAdmissionRatePerSecond());
+        event.setExpectedDemand(request.getExpectedDemand());
         event.setAgeRestriction(request.getAgeRestriction());
         event.setTermsAndConditions(request.getTermsAndConditions());
         event.setCancellationPolicy(request.getCancellationPolicy());
         
         Event updatedEvent = eventRepository.save(event);
+        // Sharding is one-way; lowering the expected demand keeps the slots
+        if (shardedCounterService.shouldShard(updatedEvent.getExpectedDemand())) {
+            shardedCounterService.enable(updatedEvent);
+        }
+        eventPublisher.publishEvent(new EventChangedEvent(id));
         log.info("Event updated successfully with ID: {}", updatedEvent.getId());
         
         return mapToEventResponse(updatedEvent);
@@ -189,6 +246,7 @@ public class EventService {
         }
         
         eventRepository.delete(event);
+        eventPublisher.publishEvent(new EventChangedEvent(id));
         log.info("Event deleted successfully with ID: {}", id);
     }
     
@@ -206,11 +264,53 @@ public class EventService {
         
         event.setStatus(Event.EventStatus.PUBLISHED);
         Event updatedEvent = eventRepository.save(event);
+        // Ticket types are usually in place by now, so their sold counters get slots too
+        if (shardedCounterService.shouldShard(updatedEvent.getExpectedDemand())) {
+            shardedCounterService.enable(updatedEvent);
+        }
+        eventPublisher.publishEvent(new EventChangedEvent(id));
         log.info("Event published successfully with ID: {}", updatedEvent.getId());
         
         return mapToEventResponse(updatedEvent);
     }
     
+    private List<NearbyEventResponse> toNearbyResponses(List<GeoGridIndex.Hit> hits) {
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Event> events = eventRepository.findAllWithOrganizerByIdIn(hits.stream().map(GeoGridIndex.Hit::id).toList())
+                .stream()
+                .collect(Collectors.toMap(Event::getId, Function.identity()));
+        return hits.stream()
+                .filter(hit -> events.containsKey(hit.id()))
+                .map(hit -> NearbyEventResponse.builder()
+                        .event(mapToEventResponse(events.get(hit.id())))
+                        .distanceKm(Math.round(hit.distanceKm() * 1000) / 1000.0)
+                        .build())
+                .collect(Collectors.toList());
+    }
+    
+    private static void validateCoordinates(double latitude, double longitude) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Latitude must be within [-90, 90] and longitude within [-180, 180]");
+        }
+    }
+    
+    private static int validateLimit(int limit) {
+        if (limit < 1 || limit > 100) {
+            throw new IllegalArgumentException("Limit must be between 1 and 100");
+        }
+        return limit;
+    }
+    
+    private static double boxCentreLongitude(double minLongitude, double maxLongitude) {
+        if (minLongitude <= maxLongitude) {
+            return (minLongitude + maxLongitude) / 2;
+        }
+        double centre = (minLongitude + maxLongitude + 360) / 2;
+        return centre > 180 ? centre - 360 : centre;
+    }
+    
     private EventResponse mapToEventResponse(Event event) {
         return EventResponse.builder()
                 .id(event.getId())
@@ -240,6 +340,9 @@ public class EventService {
                 .isFeatured(event.getIsFeatured())
                 .isPublic(event.getIsPublic())
                 .requiresApproval(event.getRequiresApproval())
+                .waitingRoomEnabled(event.getWaitingRoomEnabled())
+                .admissionRatePerSecond(event.getAdmissionRatePerSecond())
+                .expectedDemand(event.getExpectedDemand())
                 .ageRestriction(event.getAgeRestriction())
                 .termsAndConditions(event.getTermsAndConditions())
                 .cancellationPolicy(event.getCancellationPolicy())
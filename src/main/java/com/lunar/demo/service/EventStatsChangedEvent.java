@@ -0,0 +1,28 @@
+package com.lunar.demo.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Published with every change to what an event's live stats count: its active and used tickets
+ * and the total of its confirmed and checked-in bookings. Applied by {@link EventStatsService}
+ * once the surrounding transaction has committed.
+ */
+public record EventStatsChangedEvent(Long eventId, long activeTickets, long usedTickets, BigDecimal revenue) {
+    
+    public static EventStatsChangedEvent ticketsIssued(Long eventId, long count) {
+        return new EventStatsChangedEvent(eventId, count, 0, BigDecimal.ZERO);
+    }
+    
+    public static EventStatsChangedEvent ticketsUsed(Long eventId, long count) {
+        return new EventStatsChangedEvent(eventId, -count, count, BigDecimal.ZERO);
+    }
+    
+    /** Active tickets that were transferred or expired. */
+    public static EventStatsChangedEvent ticketsReleased(Long eventId, long count) {
+        return new EventStatsChangedEvent(eventId, -count, 0, BigDecimal.ZERO);
+    }
+    
+    public static EventStatsChangedEvent revenue(Long eventId, BigDecimal amount) {
+        return new EventStatsChangedEvent(eventId, 0, 0, amount);
+    }
+}
@@ -0,0 +1,188 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.dto.EventStatsResponse;
+import com.lunar.demo.repository.BookingRepository;
+import com.lunar.demo.repository.EventRepository;
+import com.lunar.demo.repository.TicketRepository;
+import com.lunar.demo.security.UserPrincipal;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Live per-event counters for organizer dashboards: active tickets, used tickets, and the total
+ * of confirmed and checked-in bookings.
+ *
+ * An event's counters are loaded with one aggregate query each the first time they are asked
+ * for, then kept current in memory from the {@link EventStatsChangedEvent}s that bookings,
+ * payments, transfers, and check-ins publish once they commit. Reads and SSE streams are
+ * answered from memory; subscribers get a snapshot at most every
+ * {@code event-stats.push-interval-ms}, and only when something changed, however many changes
+ * that interval held.
+ *
+ * Changes are applied on the node that made them. Every {@code event-stats.resync-interval-ms}
+ * the counters are reloaded, which picks up changes made on other nodes or by bulk statements,
+ * and events nobody watched or read since the last resync are dropped.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EventStatsService {
+    
+    private final TicketRepository ticketRepository;
+    private final BookingRepository bookingRepository;
+    private final EventRepository eventRepository;
+    private final Map<Long, Stats> stats = new ConcurrentHashMap<>();
+    
+    @Value("${event-stats.resync-interval-ms:300000}")
+    private long resyncIntervalMs;
+    
+    @Value("${event-stats.stream-timeout-ms:1800000}")
+    private long streamTimeoutMs;
+    
+    public EventStatsResponse getStats(Long eventId) {
+        Stats entry = authorize(eventId);
+        entry.lastReadNanos = System.nanoTime();
+        return snapshot(eventId, entry);
+    }
+    
+    /**
+     * Streams the event's stats, starting with the current ones, until the stream times out.
+     */
+    public SseEmitter stream(Long eventId) {
+        Stats entry = authorize(eventId);
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        entry.subscribers.add(emitter);
+        emitter.onCompletion(() -> entry.subscribers.remove(emitter));
+        emitter.onTimeout(() -> entry.subscribers.remove(emitter));
+        emitter.onError(e -> entry.subscribers.remove(emitter));
+        send(entry, emitter, snapshot(eventId, entry));
+        return emitter;
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStatsChanged(EventStatsChangedEvent change) {
+        // Events nobody is watching are loaded with their current totals when first asked for
+        Stats entry = stats.get(change.eventId());
+        if (entry != null) {
+            entry.apply(change);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${event-stats.push-interval-ms:500}")
+    public void pushStats() {
+        stats.forEach((eventId, entry) -> {
+            if (!entry.subscribers.isEmpty() && entry.changed.getAndSet(false)) {
+                EventStatsResponse snapshot = snapshot(eventId, entry);
+                entry.subscribers.forEach(emitter -> send(entry, emitter, snapshot));
+            }
+        });
+    }
+    
+    @Scheduled(fixedDelayString = "${event-stats.resync-interval-ms:300000}")
+    public void resync() {
+        long idleSince = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(resyncIntervalMs);
+        for (Map.Entry<Long, Stats> tracked : stats.entrySet()) {
+            Stats entry = tracked.getValue();
+            if (entry.subscribers.isEmpty() && entry.lastReadNanos - idleSince < 0) {
+                stats.remove(tracked.getKey(), entry);
+                continue;
+            }
+            try {
+                if (load(tracked.getKey(), entry)) {
+                    entry.changed.set(true);
+                }
+            } catch (RuntimeException e) {
+                log.error("Error reloading stats for event {}", tracked.getKey(), e);
+            }
+        }
+    }
+    
+    private Stats authorize(Long eventId) {
+        Stats entry = stats.computeIfAbsent(eventId, id -> {
+            Long organizerId = eventRepository.findOrganizerIdById(id).stream().findFirst()
+                    .orElseThrow(() -> new RuntimeException("Event not found"));
+            Stats loaded = new Stats(organizerId);
+            load(id, loaded);
+            return loaded;
+        });
+        UserPrincipal userPrincipal = (UserPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (!entry.organizerId.equals(userPrincipal.getId()) && !userPrincipal.getRole().equals("ADMIN")) {
+            throw new RuntimeException("You don't have permission to view this event's stats");
+        }
+        return entry;
+    }
+    
+    // Returns whether any counter moved
+    private boolean load(Long eventId, Stats entry) {
+        BigDecimal revenue = bookingRepository.getTotalRevenueByEvent(eventId);
+        long active = entry.activeTickets.getAndSet(ticketRepository.countActiveTicketsByEvent(eventId));
+        long used = entry.usedTickets.getAndSet(ticketRepository.countUsedTicketsByEvent(eventId));
+        BigDecimal total = entry.revenue.getAndSet(revenue != null ? revenue : BigDecimal.ZERO);
+        entry.asOf = LocalDateTime.now();
+        return active != entry.activeTickets.get() || used != entry.usedTickets.get()
+                || total.compareTo(entry.revenue.get()) != 0;
+    }
+    
+    private EventStatsResponse snapshot(Long eventId, Stats entry) {
+        return EventStatsResponse.builder()
+                .eventId(eventId)
+                .activeTickets(entry.activeTickets.get())
+                .usedTickets(entry.usedTickets.get())
+                .revenue(entry.revenue.get())
+                .asOf(entry.asOf)
+                .build();
+    }
+    
+    private void send(Stats entry, SseEmitter emitter, EventStatsResponse snapshot) {
+        try {
+            emitter.send(SseEmitter.event().name("event-stats").data(snapshot));
+        } catch (IOException | IllegalStateException e) {
+            entry.subscribers.remove(emitter);
+        }
+    }
+    
+    private static final class Stats {
+        
+        private final Long organizerId;
+        private final AtomicLong activeTickets = new AtomicLong();
+        private final AtomicLong usedTickets = new AtomicLong();
+        private final AtomicReference<BigDecimal> revenue = new AtomicReference<>(BigDecimal.ZERO);
+        private final AtomicBoolean changed = new AtomicBoolean();
+        private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+        private volatile LocalDateTime asOf;
+        private volatile long lastReadNanos = System.nanoTime();
+        
+        private Stats(Long organizerId) {
+            this.organizerId = organizerId;
+        }
+        
+        private void apply(EventStatsChangedEvent change) {
+            activeTickets.addAndGet(change.activeTickets());
+            usedTickets.addAndGet(change.usedTickets());
+            if (change.revenue().signum() != 0) {
+                revenue.accumulateAndGet(change.revenue(), BigDecimal::add);
+            }
+            asOf = LocalDateTime.now();
+            changed.set(true);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.lunar.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lunar.demo.entity.IdempotencyRecord;
+import com.lunar.demo.exception.IdempotencyConflictException;
+import com.lunar.demo.repository.IdempotencyRecordRepository;
+import com.lunar.demo.security.UserPrincipal;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per (user, Idempotency-Key).
+ *
+ * Completed responses are kept in a bounded Caffeine cache in front of the
+ * {@code idempotency_keys} table, so replays are answered without running the request again.
+ * Duplicates that arrive while the first request is still running on this node wait for its
+ * result instead of starting another execution; a duplicate arriving on another node while the
+ * key is IN_PROGRESS is rejected with 409. Failed requests release their key so the client can
+ * retry.
+ *
+ * An IN_PROGRESS claim is only held for {@code idempotency.lease-seconds}, renewed while the
+ * request is still running: if its node crashed or could not record the response, a retry of the
+ * same request takes the key over once the lease has lapsed instead of getting 409 until the key
+ * expires. Each claim carries a token, so an execution whose claim was taken over can neither
+ * overwrite nor release the key its successor now holds. Expired keys are treated as unused even
+ * before the purge removes them.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyService {
+    
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, String> heldClaims = new ConcurrentHashMap<>();
+    
+    @Value("${idempotency.cache.maximum-size:100000}")
+    private long cacheMaximumSize;
+    
+    @Value("${idempotency.ttl-hours:24}")
+    private long ttlHours;
+    
+    @Value("${idempotency.lease-seconds:60}")
+    private long leaseSeconds;
+    
+    private Cache<String, Completed> completed;
+    
+    @PostConstruct
+    void initCache() {
+        completed = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfterWrite(Duration.ofHours(ttlHours))
+                .build();
+    }
+    
+    /**
+     * Returns the stored response for {@code key} if the current user already made this request,
+     * otherwise runs {@code action} and stores its response.
+     */
+    public <T> T execute(String key, Object request, Class<T> responseType, Supplier<T> action) {
+        if (key.length() > 100) {
+            throw new IllegalArgumentException("Idempotency key must not exceed 100 characters");
+        }
+        Long userId = currentUserId();
+        String cacheKey = userId + ":" + key;
+        String requestHash = hash(request);
+        
+        Completed cached = completed.getIfPresent(cacheKey);
+        if (cached != null) {
+            return replay(cached, requestHash, responseType);
+        }
+        
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(cacheKey, mine);
+        if (running != null) {
+            requireSameRequest(running.requestHash, requestHash);
+            return responseType.cast(await(running.result));
+        }
+        
+        try {
+            T response = executeOnce(userId, key, cacheKey, requestHash, responseType, action);
+            mine.result.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+    
+    /**
+     * Keeps the claims of requests still running on this node from lapsing.
+     */
+    @Scheduled(fixedDelayString = "${idempotency.lease-renew-interval-ms:20000}")
+    public void renewLeases() {
+        LocalDateTime lease = LocalDateTime.now().plusSeconds(leaseSeconds);
+        heldClaims.forEach((id, token) -> {
+            Integer renewed = transactionTemplate.execute(status ->
+                    idempotencyRecordRepository.renewLease(id, token, lease));
+            if (renewed == null || renewed == 0) {
+                log.warn("Idempotency claim {} was taken over while its request was still running", id);
+                heldClaims.remove(id, token);
+            }
+        });
+    }
+    
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        Integer purged = transactionTemplate.execute(status ->
+                idempotencyRecordRepository.deleteExpired(LocalDateTime.now()));
+        if (purged != null && purged > 0) {
+            log.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+    
+    private <T> T executeOnce(Long userId, String key, String cacheKey, String requestHash,
+                              Class<T> responseType, Supplier<T> action) {
+        IdempotencyRecord existing = idempotencyRecordRepository
+                .findByUserIdAndIdempotencyKeyAndExpiresAtAfter(userId, key, LocalDateTime.now())
+                .orElse(null);
+        IdempotencyRecord record;
+        if (existing == null) {
+            record = claim(userId, key, requestHash);
+        } else if (existing.getStatus() == IdempotencyRecord.IdempotencyStatus.IN_PROGRESS) {
+            requireSameRequest(existing.getRequestHash(), requestHash);
+            record = takeOver(existing);
+        } else {
+            Completed stored = new Completed(existing.getRequestHash(), existing.getResponseBody());
+            completed.put(cacheKey, stored);
+            return replay(stored, requestHash, responseType);
+        }
+        
+        Long id = record.getId();
+        String token = record.getClaimToken();
+        heldClaims.put(id, token);
+        T response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            transactionTemplate.executeWithoutResult(status ->
+                    idempotencyRecordRepository.deleteInProgress(id, token));
+            throw e;
+        } finally {
+            heldClaims.remove(id, token);
+        }
+        
+        String body = serialize(response);
+        Integer stored = transactionTemplate.execute(status -> idempotencyRecordRepository.complete(id, token, body));
+        if (stored == null || stored == 0) {
+            // A retry took the key over while this request ran; its response is the one kept
+            log.warn("Idempotency key {} of user {} was taken over before its response was stored", key, userId);
+            return response;
+        }
+        completed.put(cacheKey, new Completed(requestHash, body));
+        return response;
+    }
+    
+    private IdempotencyRecord claim(Long userId, String key, String requestHash) {
+        IdempotencyRecord record = IdempotencyRecord.builder()
+                .userId(userId)
+                .idempotencyKey(key)
+                .requestHash(requestHash)
+                .status(IdempotencyRecord.IdempotencyStatus.IN_PROGRESS)
+                .expiresAt(LocalDateTime.now().plusHours(ttlHours))
+                .leaseExpiresAt(LocalDateTime.now().plusSeconds(leaseSeconds))
+                .claimToken(UUID.randomUUID().toString())
+                .build();
+        try {
+            return transactionTemplate.execute(status -> {
+                idempotencyRecordRepository.deleteExpiredKey(userId, key, LocalDateTime.now());
+                return idempotencyRecordRepository.saveAndFlush(record);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another node claimed the key between our lookup and insert
+            throw new IdempotencyConflictException("A request with this idempotency key is already in progress");
+        }
+    }
+    
+    private IdempotencyRecord takeOver(IdempotencyRecord record) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime lease = now.plusSeconds(leaseSeconds);
+        String token = UUID.randomUUID().toString();
+        Integer claimed = transactionTemplate.execute(status ->
+                idempotencyRecordRepository.takeOverLapsed(record.getId(), token, lease, now));
+        if (claimed == null || claimed == 0) {
+            throw new IdempotencyConflictException("A request with this idempotency key is already in progress");
+        }
+        log.warn("Took over idempotency key {} of user {} after its lease lapsed",
+                record.getIdempotencyKey(), record.getUserId());
+        record.setLeaseExpiresAt(lease);
+        record.setClaimToken(token);
+        return record;
+    }
+    
+    private <T> T replay(Completed stored, String requestHash, Class<T> responseType) {
+        requireSameRequest(stored.requestHash, requestHash);
+        try {
+            return objectMapper.readValue(stored.responseBody, responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored idempotent response could not be read", e);
+        }
+    }
+    
+    private void requireSameRequest(String storedHash, String requestHash) {
+        if (!storedHash.equals(requestHash)) {
+            throw new IdempotencyConflictException("Idempotency key was already used for a different request");
+        }
+    }
+    
+    private Object await(CompletableFuture<?> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+    
+    private String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(serialize(request).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    private String serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize idempotent request", e);
+        }
+    }
+    
+    private Long currentUserId() {
+        UserPrincipal userPrincipal = (UserPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        return userPrincipal.getId();
+    }
+    
+    private record InFlight(String requestHash, CompletableFuture<Object> result) {
+    }
+    
+    private record Completed(String requestHash, String responseBody) {
+    }
+}
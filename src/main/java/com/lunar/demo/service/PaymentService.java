@@ -9,6 +9,7 @@ import com.lunar.demo.repository.BookingRepository;
 import com.lunar.demo.repository.PaymentRepository;
 import com.lunar.demo.repository.UserRepository;
 import com.lunar.demo.security.UserPrincipal;
+import com.lunar.demo.util.IdGenerator;
 import com.razorpay.Order;
 import com.razorpay.RazorpayClient;
 import com.razorpay.RazorpayException;
@@ -16,6 +17,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -36,6 +38,9 @@ public class PaymentService {
     private final BookingRepository bookingRepository;
     private final UserRepository userRepository;
     private final EmailService emailService;
+    private final BookingService bookingService;
+    private final IdGenerator idGenerator;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Value("${razorpay.key-id}")
     private String razorpayKeyId;
@@ -92,7 +97,7 @@ public class PaymentService {
                     payment.getId(), order.get("id"));
             
             return mapToPaymentResponse(payment, order);
-            
+        
         } catch (RazorpayException e) {
             log.error("Error creating Razorpay payment for booking: {}", request.getBookingId(), e);
             throw new RuntimeException("Failed to create payment: " + e.getMessage());
@@ -125,13 +130,10 @@ public class PaymentService {
                 payment.setGatewayResponse(razorpayPayment.toString());
                 payment = paymentRepository.save(payment);
                 
-                // Confirm booking
-                Booking booking = payment.getBooking();
-                booking.setStatus(Booking.BookingStatus.CONFIRMED);
-                bookingRepository.save(booking);
-                
-                // Send confirmation email
-                emailService.sendBookingConfirmationEmail(booking);
+                // Confirm booking; queued with this transaction and sent once it commits
+                if (confirm(payment)) {
+                    emailService.queueBookingConfirmationEmail(payment.getBooking());
+                }
                 
                 log.info("Payment verified and completed for payment ID: {}", payment.getId());
                 
@@ -141,7 +143,7 @@ public class PaymentService {
                 paymentRepository.save(payment);
                 throw new RuntimeException("Payment not captured");
             }
-            
+        
         } catch (RazorpayException e) {
             log.error("Error verifying payment: {}", paymentId, e);
             payment.markAsFailed("Verification failed: " + e.getMessage());
@@ -175,10 +177,15 @@ public class PaymentService {
             payment.processRefund(refundAmount, reason);
             payment.setGatewayResponse(refund.toString());
             payment = paymentRepository.save(payment);
+            eventPublisher.publishEvent(SalesRecordedEvent.refunded(payment.getBooking().getEvent().getId(), refundAmount));
             
             // Update booking status if fully refunded
             if (payment.getStatus() == Payment.PaymentStatus.REFUNDED) {
                 Booking booking = payment.getBooking();
+                if (booking.isConfirmed() || booking.getStatus() == Booking.BookingStatus.CHECKED_IN) {
+                    eventPublisher.publishEvent(EventStatsChangedEvent.revenue(booking.getEvent().getId(),
+                            booking.getTotalAmount().negate()));
+                }
                 booking.setStatus(Booking.BookingStatus.REFUNDED);
                 bookingRepository.save(booking);
             }
@@ -186,7 +193,7 @@ public class PaymentService {
             log.info("Refund processed for payment ID: {} with amount: {}", paymentId, refundAmount);
             
             return mapToPaymentResponse(payment, null);
-            
+        
         } catch (RazorpayException e) {
             log.error("Error processing refund for payment: {}", paymentId, e);
             throw new RuntimeException("Failed to process refund: " + e.getMessage());
@@ -216,6 +223,8 @@ public class PaymentService {
                 .collect(Collectors.toList());
     }
     
+    // One transaction, so a capture's payment and booking updates commit together under the booking lock
+    @Transactional
     public void handleWebhook(String payload, String signature) {
         try {
             // Verify webhook signature
@@ -234,7 +243,7 @@ public class PaymentService {
             } else if ("payment.failed".equals(event)) {
                 handlePaymentFailed(webhookData);
             }
-            
+        
         } catch (Exception e) {
             log.error("Error processing webhook", e);
         }
@@ -254,13 +263,10 @@ public class PaymentService {
             payment.setWebhookData(webhookData.toString());
             paymentRepository.save(payment);
             
-            // Confirm booking
-            Booking booking = payment.getBooking();
-            booking.setStatus(Booking.BookingStatus.CONFIRMED);
-            bookingRepository.save(booking);
-            
-            // Send confirmation email
-            emailService.sendBookingConfirmationEmail(booking);
+            // Confirm booking; queued with this transaction and sent once it commits
+            if (confirm(payment)) {
+                emailService.queueBookingConfirmationEmail(payment.getBooking());
+            }
             
             log.info("Payment captured via webhook for payment ID: {}", payment.getId());
         }
@@ -283,9 +289,30 @@ public class PaymentService {
         }
     }
     
+    /**
+     * Confirms the booking a captured payment is for. A booking that is no longer pending, or
+     * whose hold ran out, may already have its stock sold to someone else: it is left as it is
+     * and the payment is flagged for a refund instead.
+     *
+     * @return whether the booking is confirmed
+     */
+    private boolean confirm(Payment payment) {
+        Booking booking = payment.getBooking();
+        BookingService.ConfirmOutcome outcome = bookingService.confirmHeldBooking(booking.getId());
+        if (outcome == BookingService.ConfirmOutcome.CONFIRMED
+                || outcome == BookingService.ConfirmOutcome.ALREADY_CONFIRMED) {
+            return true;
+        }
+        String state = outcome == BookingService.ConfirmOutcome.HOLD_EXPIRED ? "hold expired" : booking.getStatus().name();
+        payment.setFailureReason("Captured after the booking was " + state + "; refund required");
+        paymentRepository.save(payment);
+        log.warn("Payment {} captured for booking {} that is {}, flagged for refund",
+                payment.getId(), booking.getId(), state);
+        return false;
+    }
+    
     private String generatePaymentReference() {
-        return "PAY-" + System.currentTimeMillis() + "-" + 
-               String.format("%06d", (int) (Math.random() * 1000000));
+        return idGenerator.nextCode("PAY-");
     }
     
     private String generateSignature(String payload, String secret) {
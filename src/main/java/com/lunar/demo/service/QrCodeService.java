@@ -5,6 +5,7 @@ import com.google.zxing.WriterException;
 import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
+import com.lunar.demo.util.QrImageWriter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -30,32 +31,51 @@ public class QrCodeService {
     private String uploadDir;
     
     public String generateQrCode(String data) {
+        return Base64.getEncoder().encodeToString(renderPng(data));
+    }
+    
+    /**
+     * Encodes the data as a QR code image in the configured size and format.
+     */
+    public byte[] renderPng(String data) {
         try {
-            QRCodeWriter qrCodeWriter = new QRCodeWriter();
-            BitMatrix bitMatrix = qrCodeWriter.encode(data, BarcodeFormat.QR_CODE, qrCodeSize, qrCodeSize);
-            
-            ByteArrayOutputStream pngOutputStream = new ByteArrayOutputStream();
-            MatrixToImageWriter.writeToStream(bitMatrix, qrCodeFormat, pngOutputStream);
-            byte[] pngData = pngOutputStream.toByteArray();
-            
-            return Base64.getEncoder().encodeToString(pngData);
+            return toImage(encode(data, qrCodeSize));
         } catch (WriterException | IOException e) {
             log.error("Error generating QR code for data: {}", data, e);
             throw new RuntimeException("Failed to generate QR code", e);
         }
     }
     
+    /**
+     * Encodes the data as an SVG QR code displayed at the configured size.
+     */
+    public String renderSvg(String data) {
+        try {
+            // One unit per module; the viewBox scales it without resampling
+            return QrImageWriter.svg(encode(data, 0), qrCodeSize);
+        } catch (WriterException e) {
+            log.error("Error generating QR code for data: {}", data, e);
+            throw new RuntimeException("Failed to generate QR code", e);
+        }
+    }
+    
+    /**
+     * Identifies everything that changes the rendered image, so cached images can be keyed by it.
+     */
+    public String renderSettings() {
+        return qrCodeSize + "|" + qrCodeFormat;
+    }
+    
     public String generateQrCodeImage(String data, String fileName) {
         try {
-            QRCodeWriter qrCodeWriter = new QRCodeWriter();
-            BitMatrix bitMatrix = qrCodeWriter.encode(data, BarcodeFormat.QR_CODE, qrCodeSize, qrCodeSize);
+            BitMatrix bitMatrix = encode(data, qrCodeSize);
             
             // Ensure upload directory exists
             Path uploadPath = Paths.get(uploadDir, "qr-codes");
             Files.createDirectories(uploadPath);
             
             Path filePath = uploadPath.resolve(fileName + ".png");
-            MatrixToImageWriter.writeToPath(bitMatrix, qrCodeFormat, filePath);
+            Files.write(filePath, toImage(bitMatrix));
             
             return "/uploads/qr-codes/" + fileName + ".png";
         } catch (WriterException | IOException e) {
@@ -64,13 +84,30 @@ public class QrCodeService {
         }
     }
     
+    private static BitMatrix encode(String data, int size) throws WriterException {
+        return new QRCodeWriter().encode(data, BarcodeFormat.QR_CODE, size, size);
+    }
+    
+    // PNG is written directly as a 1-bit image; other formats go through ImageIO
+    private byte[] toImage(BitMatrix bitMatrix) throws IOException {
+        if ("PNG".equalsIgnoreCase(qrCodeFormat)) {
+            return QrImageWriter.png(bitMatrix);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MatrixToImageWriter.writeToStream(bitMatrix, qrCodeFormat, out);
+        return out.toByteArray();
+    }
+    
+    public static String ticketPayload(Long bookingId, Long ticketId, String ticketCode) {
+        return "LUNAR_TICKET|" + bookingId + "|" + ticketId + "|" + ticketCode;
+    }
+    
     public String generateQrCodeForTicket(Long bookingId, Long ticketId, String ticketCode) {
-        String qrData = String.format("LUNAR_TICKET|%d|%d|%s", bookingId, ticketId, ticketCode);
-        return generateQrCode(qrData);
+        return generateQrCode(ticketPayload(bookingId, ticketId, ticketCode));
     }
     
     public String generateQrCodeImageForTicket(Long bookingId, Long ticketId, String ticketCode) {
-        String qrData = String.format("LUNAR_TICKET|%d|%d|%s", bookingId, ticketId, ticketCode);
+        String qrData = ticketPayload(bookingId, ticketId, ticketCode);
         String fileName = String.format("ticket_%d_%d_%s", bookingId, ticketId, ticketCode);
         return generateQrCodeImage(qrData, fileName);
     }
@@ -0,0 +1,180 @@
+package com.lunar.demo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Rendered QR code images, addressed by a SHA-256 of the payload and the render settings.
+ *
+ * The key doubles as the image's ETag: a ticket's payload never changes, so a client holding
+ * the image can be answered with a 304 without rendering or reading anything. Images are kept
+ * in a memory tier bounded by {@code qr.cache.max-memory-bytes}; with {@code qr.cache.disk-enabled}
+ * they are also written under {@code file.upload-dir}/qr-cache, so a restart or an eviction
+ * reads the file instead of encoding again. Files older than {@code qr.cache.disk-max-age-hours}
+ * are swept, so the disk tier holds the recent working set rather than every ticket ever issued.
+ * Concurrent requests for the same image render it once.
+ *
+ * Tickets are pre-rendered on a small background pool once their booking commits, so the first
+ * download and the ticket email usually hit the cache. Pre-rendering is best effort: when its
+ * queue is full the work is dropped and the image is rendered on first request instead.
+ */
+@Service
+@Slf4j
+public class QrImageCache {
+    
+    public record QrImage(String etag, byte[] png) {
+    }
+    
+    private final QrCodeService qrCodeService;
+    private final Cache<String, QrImage> memory;
+    private final Path diskDir;
+    private final Duration diskMaxAge;
+    private final ExecutorService prerenderPool;
+    
+    public QrImageCache(QrCodeService qrCodeService,
+                        @Value("${qr.cache.max-memory-bytes:67108864}") long maxMemoryBytes,
+                        @Value("${qr.cache.disk-enabled:false}") boolean diskEnabled,
+                        @Value("${file.upload-dir:./uploads}") String uploadDir,
+                        @Value("${qr.cache.disk-max-age-hours:168}") long diskMaxAgeHours,
+                        @Value("${qr.cache.prerender-threads:2}") int prerenderThreads,
+                        @Value("${qr.cache.prerender-queue-size:1000}") int prerenderQueueSize) {
+        this.qrCodeService = qrCodeService;
+        this.memory = Caffeine.newBuilder()
+                .maximumWeight(maxMemoryBytes)
+                .<String, QrImage>weigher((key, image) -> image.png().length)
+                .build();
+        this.diskDir = diskEnabled ? Paths.get(uploadDir, "qr-cache") : null;
+        this.diskMaxAge = Duration.ofHours(diskMaxAgeHours);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.prerenderPool = new ThreadPoolExecutor(prerenderThreads, prerenderThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(prerenderQueueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "qr-prerender-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    /**
+     * The ETag of the image for a payload, computed without rendering it.
+     */
+    public String etag(String payload) {
+        return sha256(qrCodeService.renderSettings() + "|" + payload);
+    }
+    
+    public QrImage get(String payload) {
+        String key = etag(payload);
+        return memory.get(key, k -> new QrImage(k, load(k, payload)));
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTicketsIssued(TicketsIssuedEvent event) {
+        try {
+            prerenderPool.execute(() -> event.qrPayloads().forEach(payload -> {
+                try {
+                    get(payload);
+                } catch (RuntimeException e) {
+                    log.warn("Error pre-rendering QR code", e);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            log.debug("QR pre-render queue full, {} images will render on first request", event.qrPayloads().size());
+        }
+    }
+    
+    /**
+     * Deletes disk tier files written before the age bound, including temp files left behind by
+     * interrupted writes. An image still in use is rendered and written again on its next request.
+     */
+    @Scheduled(fixedDelayString = "${qr.cache.disk-sweep-interval-ms:3600000}")
+    public void sweepDisk() {
+        if (diskDir == null || !Files.isDirectory(diskDir)) {
+            return;
+        }
+        FileTime cutoff = FileTime.from(Instant.now().minus(diskMaxAge));
+        int deleted = 0;
+        try (Stream<Path> files = Files.walk(diskDir)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                try {
+                    if (Files.getLastModifiedTime(file).compareTo(cutoff) < 0 && Files.deleteIfExists(file)) {
+                        deleted++;
+                    }
+                } catch (IOException e) {
+                    log.debug("Error removing cached QR code {}", file, e);
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Error sweeping QR code cache {}", diskDir, e);
+        }
+        if (deleted > 0) {
+            log.info("Removed {} cached QR codes older than {} from disk", deleted, diskMaxAge);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        prerenderPool.shutdownNow();
+    }
+    
+    private byte[] load(String key, String payload) {
+        if (diskDir == null) {
+            return qrCodeService.renderPng(payload);
+        }
+        Path file = diskDir.resolve(key.substring(0, 2)).resolve(key + ".png");
+        try {
+            if (Files.exists(file)) {
+                return Files.readAllBytes(file);
+            }
+        } catch (IOException e) {
+            log.warn("Error reading cached QR code {}", file, e);
+        }
+        
+        byte[] png = qrCodeService.renderPng(payload);
+        try {
+            // Written aside and moved into place so readers never see a partial file
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), key, ".tmp");
+            Files.write(temp, png);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Error writing cached QR code {}", file, e);
+        }
+        return png;
+    }
+    
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
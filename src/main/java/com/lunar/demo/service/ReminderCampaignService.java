@@ -0,0 +1,150 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.entity.EmailOutbox;
+import com.lunar.demo.entity.ReminderCampaign;
+import com.lunar.demo.repository.BookingRepository;
+import com.lunar.demo.repository.EmailOutboxRepository;
+import com.lunar.demo.repository.ReminderCampaignRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Queues event reminder emails in campaigns, one per event and lead time.
+ *
+ * A campaign starts when a published event enters its window: with lead times 24h and 1h, an
+ * event starting in (1h, 24h] gets the 24h reminder and one starting within the hour only the
+ * 1h reminder. Campaigns then advance page by page over the event's confirmed booking ids;
+ * each page is queued into the email outbox with a single INSERT ... SELECT and the page's last
+ * id is committed as the checkpoint in the same transaction, so a restart resumes after the
+ * last committed page without duplicates and memory stays at one page of ids whatever the
+ * audience. Bookings confirmed after the cursor has passed them are not reminded.
+ *
+ * Each run queues at most {@code reminders.max-per-second} times the run interval, which paces
+ * a large campaign instead of flooding the outbox ahead of transactional emails.
+ */
+@Service
+@Slf4j
+public class ReminderCampaignService {
+    
+    private final ReminderCampaignRepository reminderCampaignRepository;
+    private final BookingRepository bookingRepository;
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final List<Duration> leadTimes;
+    
+    @Value("${reminders.batch-size:1000}")
+    private int batchSize;
+    
+    @Value("${reminders.max-per-second:500}")
+    private int maxPerSecond;
+    
+    @Value("${reminders.run-interval-ms:1000}")
+    private long runIntervalMs;
+    
+    public ReminderCampaignService(ReminderCampaignRepository reminderCampaignRepository,
+                                   BookingRepository bookingRepository,
+                                   EmailOutboxRepository emailOutboxRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${reminders.lead-times:24h,1h}") List<Duration> leadTimes) {
+        this.reminderCampaignRepository = reminderCampaignRepository;
+        this.bookingRepository = bookingRepository;
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.leadTimes = leadTimes.stream().sorted(Comparator.reverseOrder()).toList();
+    }
+    
+    @Scheduled(fixedDelayString = "${reminders.scan-interval-ms:60000}")
+    public void startDueCampaigns() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < leadTimes.size(); i++) {
+                Duration lead = leadTimes.get(i);
+                Duration shorter = i + 1 < leadTimes.size() ? leadTimes.get(i + 1) : Duration.ZERO;
+                for (Long eventId : reminderCampaignRepository.findEventIdsDueForReminder(
+                        now.plus(shorter), now.plus(lead), lead.toMinutes())) {
+                    start(eventId, lead.toMinutes());
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Error starting reminder campaigns", e);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${reminders.run-interval-ms:1000}")
+    public void runCampaigns() {
+        long budget = Math.max(1, maxPerSecond * runIntervalMs / 1000);
+        try {
+            for (Long campaignId : reminderCampaignRepository.findIdsByStatus(ReminderCampaign.CampaignStatus.RUNNING)) {
+                int scanned;
+                do {
+                    scanned = advance(campaignId, (int) Math.min(batchSize, budget));
+                    budget -= scanned;
+                } while (scanned > 0 && budget > 0);
+                if (budget <= 0) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Error running reminder campaigns", e);
+        }
+    }
+    
+    /**
+     * Queues reminders for the next page of up to {@code limit} confirmed bookings and moves the
+     * checkpoint past them. Completes the campaign once no bookings are left.
+     *
+     * @return the number of bookings in the page; 0 when the campaign is done or being advanced
+     *         by another node
+     */
+    public int advance(Long campaignId, int limit) {
+        Integer scanned = transactionTemplate.execute(status -> {
+            if (reminderCampaignRepository.lockRunning(campaignId).isEmpty()) {
+                return 0;
+            }
+            ReminderCampaign campaign = reminderCampaignRepository.findById(campaignId).orElseThrow();
+            List<Long> page = bookingRepository.findConfirmedIdsAfter(
+                    campaign.getEventId(), campaign.getLastBookingId(), PageRequest.of(0, limit));
+            LocalDateTime now = LocalDateTime.now();
+            if (page.isEmpty()) {
+                campaign.setStatus(ReminderCampaign.CampaignStatus.COMPLETED);
+                campaign.setCompletedAt(now);
+                log.info("Reminder campaign {} for event {} completed with {} emails",
+                        campaignId, campaign.getEventId(), campaign.getQueuedCount());
+                return 0;
+            }
+            
+            long upToId = page.get(page.size() - 1);
+            int queued = emailOutboxRepository.queueForConfirmedBookings(EmailOutbox.EmailType.EVENT_REMINDER,
+                    campaign.getEventId(), campaign.getLastBookingId(), upToId, now);
+            campaign.setLastBookingId(upToId);
+            campaign.setQueuedCount(campaign.getQueuedCount() + queued);
+            return page.size();
+        });
+        return scanned != null ? scanned : 0;
+    }
+    
+    private void start(Long eventId, long leadMinutes) {
+        try {
+            reminderCampaignRepository.save(ReminderCampaign.builder()
+                    .eventId(eventId)
+                    .leadMinutes(leadMinutes)
+                    .status(ReminderCampaign.CampaignStatus.RUNNING)
+                    .lastBookingId(0)
+                    .queuedCount(0)
+                    .build());
+            log.info("Started {}-minute reminder campaign for event: {}", leadMinutes, eventId);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Reminder campaign for event {} already started elsewhere", eventId);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.lunar.demo.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Published when a booking is confirmed, a confirmed booking is cancelled, or a payment is
+ * refunded. Applied to the analytics rollups by {@link AnalyticsRollupService} once the
+ * surrounding transaction has committed, in the hour and day of {@code occurredAt}.
+ */
+public record SalesRecordedEvent(Long eventId, long tickets, BigDecimal gross, BigDecimal refunds,
+                                 LocalDateTime occurredAt) {
+    
+    public static SalesRecordedEvent confirmed(Long eventId, long tickets, BigDecimal amount) {
+        return new SalesRecordedEvent(eventId, tickets, amount, BigDecimal.ZERO, LocalDateTime.now());
+    }
+    
+    /**
+     * Takes back the sale of a confirmed booking; no money moved, so it is not a refund. A paid
+     * booking keeps its gross: the money is only given back, and counted, by its refund.
+     */
+    public static SalesRecordedEvent cancelled(Long eventId, long tickets, BigDecimal amount, boolean paid) {
+        return new SalesRecordedEvent(eventId, -tickets, paid ? BigDecimal.ZERO : amount.negate(), BigDecimal.ZERO,
+                LocalDateTime.now());
+    }
+    
+    public static SalesRecordedEvent refunded(Long eventId, BigDecimal amount) {
+        return new SalesRecordedEvent(eventId, 0, BigDecimal.ZERO, amount, LocalDateTime.now());
+    }
+}
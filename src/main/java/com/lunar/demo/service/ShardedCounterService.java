@@ -0,0 +1,208 @@
+package com.lunar.demo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lunar.demo.entity.CounterSlot;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.repository.CounterSlotRepository;
+import com.lunar.demo.repository.EventRepository;
+import com.lunar.demo.repository.TicketTypeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sharded mode for the attendee and sold counters of high-demand events.
+ *
+ * A counter is sharded once it has rows in {@code counter_slots}. Each write then adds its delta
+ * to one randomly chosen slot instead of the owning row, so concurrent confirmations lock
+ * different rows. The owning column stays the materialized total and a periodic fold moves the
+ * slot sums into it, so {@code Event.currentAttendees} lags by at most one fold interval.
+ *
+ * Ticket type reservations stay on the owning row because they must check stock atomically;
+ * only releases go through slots. A reservation locks the ticket type row before reading the
+ * slot sum, and a fold locks the same row before moving the slots into it, so a reservation never
+ * sees a release both in the folded quantitySold and in the slots. Releases landing in a slot
+ * after the sum was read only make it under-report free stock.
+ *
+ * Sharding is one-way: slots are emptied by the fold but never removed.
+ */
+@Service
+@Slf4j
+public class ShardedCounterService {
+    
+    private final CounterSlotRepository counterSlotRepository;
+    private final EventRepository eventRepository;
+    private final TicketTypeRepository ticketTypeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Cache<SlotKey, Integer> slotCounts;
+    
+    @Value("${counters.shard-threshold:10000}")
+    private int shardThreshold;
+    
+    @Value("${counters.slots:16}")
+    private int slotsPerCounter;
+    
+    public ShardedCounterService(CounterSlotRepository counterSlotRepository,
+                                 EventRepository eventRepository,
+                                 TicketTypeRepository ticketTypeRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${counters.slot-cache-seconds:60}") long slotCacheSeconds) {
+        this.counterSlotRepository = counterSlotRepository;
+        this.eventRepository = eventRepository;
+        this.ticketTypeRepository = ticketTypeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        // Counters sharded on another node are picked up once the cached "not sharded" expires
+        this.slotCounts = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofSeconds(slotCacheSeconds))
+                .build();
+    }
+    
+    /**
+     * Whether an event with this expected demand should use sharded counters.
+     */
+    public boolean shouldShard(Integer expectedDemand) {
+        return expectedDemand != null && expectedDemand >= shardThreshold;
+    }
+    
+    /**
+     * Creates the slots for the event's attendee counter and the sold counters of its ticket
+     * types. Runs in the caller's transaction; slots that already exist are kept.
+     */
+    public void enable(Event event) {
+        createSlots(CounterSlot.CounterKind.EVENT_ATTENDEES, event.getId());
+        ticketTypeRepository.findByEventId(event.getId())
+                .forEach(ticketType -> createSlots(CounterSlot.CounterKind.TICKET_TYPE_SOLD, ticketType.getId()));
+        log.info("Enabled sharded counters for event: {}", event.getId());
+    }
+    
+    /**
+     * Adds to the event's attendee count as part of the caller's transaction.
+     */
+    public void adjustAttendees(Long eventId, int delta) {
+        if (delta != 0 && !addToRandomSlot(CounterSlot.CounterKind.EVENT_ATTENDEES, eventId, delta)) {
+            eventRepository.adjustCurrentAttendees(eventId, delta);
+        }
+    }
+    
+    /**
+     * Takes released units off the ticket type's sold count as part of the caller's transaction.
+     *
+     * @return false if the unsharded sold count is lower than {@code quantity}, in which case
+     *         nothing was released
+     */
+    public boolean releaseSold(Long ticketTypeId, int quantity) {
+        if (addToRandomSlot(CounterSlot.CounterKind.TICKET_TYPE_SOLD, ticketTypeId, -quantity)) {
+            return true;
+        }
+        if (ticketTypeRepository.releaseQuantity(ticketTypeId, quantity) == 1) {
+            return true;
+        }
+        log.error("Ticket type {} has fewer than {} units sold, release skipped", ticketTypeId, quantity);
+        return false;
+    }
+    
+    /**
+     * Reserves units of the ticket type as part of the caller's transaction.
+     *
+     * @return false if the reservation would oversell the ticket type
+     */
+    public boolean reserveSold(Long ticketTypeId, int quantity) {
+        long pending = 0;
+        if (slotCount(CounterSlot.CounterKind.TICKET_TYPE_SOLD, ticketTypeId) > 1) {
+            // Held until commit, so no fold can move the slots into quantitySold after this read
+            ticketTypeRepository.findByIdForUpdate(ticketTypeId);
+            pending = counterSlotRepository.sumDeltas(CounterSlot.CounterKind.TICKET_TYPE_SOLD, ticketTypeId);
+        }
+        return ticketTypeRepository.reserveQuantity(ticketTypeId, quantity, pending) == 1;
+    }
+    
+    /**
+     * Exact value of a counter's pending slot deltas, not yet folded into the owning row.
+     */
+    public long pendingDelta(CounterSlot.CounterKind kind, Long entityId) {
+        return counterSlotRepository.sumDeltas(kind, entityId);
+    }
+    
+    @Scheduled(fixedDelayString = "${counters.fold-interval-ms:2000}")
+    public void foldAll() {
+        for (CounterSlot.CounterKind kind : CounterSlot.CounterKind.values()) {
+            for (Long entityId : counterSlotRepository.findEntityIdsWithPendingDeltas(kind)) {
+                try {
+                    fold(kind, entityId);
+                } catch (RuntimeException e) {
+                    log.error("Error folding {} counter slots for entity: {}", kind, entityId, e);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Moves a counter's slot deltas into the owning row. A ticket type row is locked before its
+     * slots, in the same order as {@link #reserveSold}.
+     *
+     * @return the delta that was applied
+     */
+    public long fold(CounterSlot.CounterKind kind, Long entityId) {
+        Long folded = transactionTemplate.execute(status -> {
+            if (kind == CounterSlot.CounterKind.TICKET_TYPE_SOLD) {
+                ticketTypeRepository.findByIdForUpdate(entityId);
+            }
+            long total = counterSlotRepository.lockSlots(kind, entityId).stream()
+                    .mapToLong(CounterSlot::getDelta)
+                    .sum();
+            if (total == 0) {
+                return 0L;
+            }
+            if (kind == CounterSlot.CounterKind.EVENT_ATTENDEES) {
+                eventRepository.adjustCurrentAttendees(entityId, Math.toIntExact(total));
+                eventPublisher.publishEvent(EventChangedEvent.attendees(entityId));
+            } else {
+                ticketTypeRepository.adjustQuantitySold(entityId, Math.toIntExact(total));
+            }
+            counterSlotRepository.resetSlots(kind, entityId);
+            return total;
+        });
+        return folded != null ? folded : 0;
+    }
+    
+    private boolean addToRandomSlot(CounterSlot.CounterKind kind, Long entityId, long delta) {
+        int slots = slotCount(kind, entityId);
+        if (slots <= 1) {
+            return false;
+        }
+        int slot = ThreadLocalRandom.current().nextInt(slots);
+        return counterSlotRepository.addToSlot(kind, entityId, slot, delta) == 1;
+    }
+    
+    private int slotCount(CounterSlot.CounterKind kind, Long entityId) {
+        return slotCounts.get(new SlotKey(kind, entityId),
+                key -> (int) counterSlotRepository.countByKindAndEntityId(key.kind, key.entityId));
+    }
+    
+    private void createSlots(CounterSlot.CounterKind kind, Long entityId) {
+        long existing = counterSlotRepository.countByKindAndEntityId(kind, entityId);
+        for (int slot = (int) existing; slot < slotsPerCounter; slot++) {
+            counterSlotRepository.save(CounterSlot.builder()
+                    .kind(kind)
+                    .entityId(entityId)
+                    .slot(slot)
+                    .delta(0)
+                    .build());
+        }
+        slotCounts.invalidate(new SlotKey(kind, entityId));
+    }
+    
+    private record SlotKey(CounterSlot.CounterKind kind, Long entityId) {
+    }
+}
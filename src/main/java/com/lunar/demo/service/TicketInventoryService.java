@@ -0,0 +1,346 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.repository.TicketTypeRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory front for ticket type stock.
+ *
+ * Every ticket type touched by a booking gets an {@link AtomicInteger} of remaining units that
+ * is decremented with CAS, so requests for sold-out stock are rejected without a database round
+ * trip. Holds that pass the in-memory check are queued and applied by a single flusher thread,
+ * which coalesces all holds queued for a ticket type into one conditional
+ * {@code UPDATE ... WHERE quantity_sold + :n <= quantity_available} in its own short transaction.
+ * The database row stays the source of truth: if the conditional update is rejected (for example
+ * because another node sold the stock) the holds are settled one by one and the counter is
+ * reloaded.
+ *
+ * Reserved units are counted in {@code quantity_sold} from the moment a booking is created, so
+ * confirming a booking does not touch the ticket type again while cancelling or expiring it
+ * releases the units. Releases publish a {@link TicketTypeChangedEvent} so other nodes reload
+ * their counters instead of rejecting stock that has come back; sales by other nodes need no
+ * such message because the conditional update catches them. For events with sharded counters,
+ * releases go to a slot of {@link ShardedCounterService} instead of the ticket type row.
+ */
+@Service
+@Slf4j
+public class TicketInventoryService {
+    
+    private final TicketTypeRepository ticketTypeRepository;
+    private final ShardedCounterService shardedCounterService;
+    private final TransactionTemplate flushTransaction;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ConcurrentMap<Long, AtomicInteger> remaining = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<PendingHold> pendingHolds = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ExecutorService flusher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "inventory-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    @Value("${inventory.hold-timeout-ms:5000}")
+    private long holdTimeoutMs;
+    
+    public TicketInventoryService(TicketTypeRepository ticketTypeRepository,
+                                  ShardedCounterService shardedCounterService,
+                                  PlatformTransactionManager transactionManager,
+                                  ApplicationEventPublisher eventPublisher) {
+        this.ticketTypeRepository = ticketTypeRepository;
+        this.shardedCounterService = shardedCounterService;
+        this.eventPublisher = eventPublisher;
+        this.flushTransaction = new TransactionTemplate(transactionManager);
+        this.flushTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+    
+    /**
+     * Reserves the requested quantities and persists them before returning.
+     *
+     * Must be called outside of a transaction: the caller blocks until the flusher has committed
+     * the holds, and the flusher needs a connection of its own to do that.
+     *
+     * @param quantities quantity per ticket type id
+     * @return the holds that were placed, to be handed back to {@link #release} if the booking fails
+     */
+    public List<InventoryHold> reserve(Map<Long, Integer> quantities) {
+        // Reserve in ticket type id order so concurrent bookings never wait on each other in a cycle
+        Map<Long, Integer> ordered = new TreeMap<>(quantities);
+        List<PendingHold> placed = new ArrayList<>();
+        
+        for (Map.Entry<Long, Integer> entry : ordered.entrySet()) {
+            int quantity = entry.getValue();
+            if (quantity <= 0) {
+                rollbackInMemory(placed);
+                throw new IllegalArgumentException("Ticket quantity must be positive");
+            }
+            
+            AtomicInteger counter;
+            try {
+                counter = counterFor(entry.getKey());
+            } catch (RuntimeException e) {
+                rollbackInMemory(placed);
+                throw e;
+            }
+            if (!tryDecrement(counter, quantity)) {
+                rollbackInMemory(placed);
+                throw new RuntimeException("Insufficient tickets available for ticket type: " + entry.getKey());
+            }
+            placed.add(new PendingHold(entry.getKey(), quantity, counter));
+        }
+        
+        placed.forEach(pendingHolds::add);
+        scheduleFlush();
+        
+        List<InventoryHold> holds = awaitFlush(placed);
+        if (holds.size() != placed.size()) {
+            release(holds);
+            Long rejected = placed.stream()
+                    .filter(hold -> !Boolean.TRUE.equals(hold.result.getNow(false)))
+                    .map(PendingHold::ticketTypeId)
+                    .findFirst()
+                    .orElse(null);
+            throw new RuntimeException("Insufficient tickets available for ticket type: " + rejected);
+        }
+        return holds;
+    }
+    
+    /**
+     * Gives reserved units back, both in memory and in the database, in a transaction of its own.
+     * A release the database refuses is not credited; the counter is reloaded instead.
+     */
+    public void release(Collection<InventoryHold> holds) {
+        toQuantities(holds).forEach((ticketTypeId, quantity) -> {
+            Boolean released = flushTransaction.execute(status -> {
+                eventPublisher.publishEvent(new TicketTypeChangedEvent(ticketTypeId));
+                return shardedCounterService.releaseSold(ticketTypeId, quantity);
+            });
+            if (Boolean.TRUE.equals(released)) {
+                credit(ticketTypeId, quantity);
+            } else {
+                invalidate(ticketTypeId);
+            }
+        });
+    }
+    
+    /**
+     * Releases units as part of the caller's transaction; the in-memory counter is only credited
+     * once that transaction commits, and reloaded instead if the database refused the release.
+     */
+    public void releaseInTransaction(Long ticketTypeId, int quantity) {
+        boolean released = shardedCounterService.releaseSold(ticketTypeId, quantity);
+        eventPublisher.publishEvent(new TicketTypeChangedEvent(ticketTypeId));
+        afterCommit(released ? () -> credit(ticketTypeId, quantity) : () -> invalidate(ticketTypeId));
+    }
+    
+    /**
+     * Credits units that were already released in the database by a set-based update.
+     */
+    public void creditAfterCommit(Long ticketTypeId, int quantity) {
+        eventPublisher.publishEvent(new TicketTypeChangedEvent(ticketTypeId));
+        afterCommit(() -> credit(ticketTypeId, quantity));
+    }
+    
+    /**
+     * Drops the cached counter so it is reloaded from the database on next use.
+     */
+    public void invalidate(Long ticketTypeId) {
+        remaining.remove(ticketTypeId);
+    }
+    
+    /**
+     * Counters drift when other nodes sell or release stock; dropping them periodically bounds
+     * how long a node keeps rejecting (or optimistically accepting) on stale numbers.
+     */
+    @Scheduled(fixedDelayString = "${inventory.resync-interval-ms:30000}")
+    public void resync() {
+        remaining.clear();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+    }
+    
+    private AtomicInteger counterFor(Long ticketTypeId) {
+        AtomicInteger counter = remaining.get(ticketTypeId);
+        if (counter != null) {
+            return counter;
+        }
+        Integer available = ticketTypeRepository.findRemainingQuantity(ticketTypeId);
+        if (available == null) {
+            throw new RuntimeException("Ticket type not found");
+        }
+        AtomicInteger loaded = new AtomicInteger(Math.max(available, 0));
+        AtomicInteger existing = remaining.putIfAbsent(ticketTypeId, loaded);
+        return existing != null ? existing : loaded;
+    }
+    
+    private boolean tryDecrement(AtomicInteger counter, int quantity) {
+        int current;
+        do {
+            current = counter.get();
+            if (current < quantity) {
+                return false;
+            }
+        } while (!counter.compareAndSet(current, current - quantity));
+        return true;
+    }
+    
+    private void credit(Long ticketTypeId, int quantity) {
+        AtomicInteger counter = remaining.get(ticketTypeId);
+        if (counter != null) {
+            counter.addAndGet(quantity);
+        }
+    }
+    
+    private void rollbackInMemory(List<PendingHold> holds) {
+        holds.forEach(hold -> hold.counter.addAndGet(hold.quantity));
+    }
+    
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            flusher.execute(this::flush);
+        }
+    }
+    
+    private List<InventoryHold> awaitFlush(List<PendingHold> placed) {
+        CompletableFuture<?>[] results = placed.stream().map(hold -> hold.result).toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(results).get(holdTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // The flush may still land; give back whatever it ends up applying
+            placed.forEach(hold -> hold.result.thenAccept(applied -> {
+                if (Boolean.TRUE.equals(applied)) {
+                    release(List.of(new InventoryHold(hold.ticketTypeId, hold.quantity)));
+                }
+            }));
+            throw new RuntimeException("Timed out reserving tickets, please retry");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while reserving tickets", e);
+        } catch (ExecutionException e) {
+            // Every flush has finished; give back the holds other ticket types' flushes applied
+            List<InventoryHold> applied = new ArrayList<>();
+            for (PendingHold hold : placed) {
+                if (Boolean.TRUE.equals(hold.result.exceptionally(failure -> false).join())) {
+                    applied.add(new InventoryHold(hold.ticketTypeId, hold.quantity));
+                } else {
+                    hold.counter.addAndGet(hold.quantity);
+                }
+            }
+            try {
+                release(applied);
+            } catch (RuntimeException releaseFailure) {
+                log.error("Error releasing inventory holds after a failed reservation: {}", applied, releaseFailure);
+            }
+            throw new RuntimeException("Failed to reserve tickets", e.getCause());
+        }
+        
+        List<InventoryHold> holds = new ArrayList<>();
+        for (PendingHold hold : placed) {
+            if (Boolean.TRUE.equals(hold.result.join())) {
+                holds.add(new InventoryHold(hold.ticketTypeId, hold.quantity));
+            } else {
+                hold.counter.addAndGet(hold.quantity);
+            }
+        }
+        return holds;
+    }
+    
+    private void flush() {
+        flushScheduled.set(false);
+        Map<Long, List<PendingHold>> batch = new TreeMap<>();
+        PendingHold hold;
+        while ((hold = pendingHolds.poll()) != null) {
+            batch.computeIfAbsent(hold.ticketTypeId, id -> new ArrayList<>()).add(hold);
+        }
+        
+        for (Map.Entry<Long, List<PendingHold>> entry : batch.entrySet()) {
+            try {
+                flushTicketType(entry.getKey(), entry.getValue());
+            } catch (RuntimeException e) {
+                log.error("Error flushing inventory holds for ticket type: {}", entry.getKey(), e);
+                entry.getValue().forEach(pending -> pending.result.completeExceptionally(e));
+            }
+        }
+    }
+    
+    private void flushTicketType(Long ticketTypeId, List<PendingHold> holds) {
+        int total = holds.stream().mapToInt(PendingHold::quantity).sum();
+        if (applyReservation(ticketTypeId, total)) {
+            holds.forEach(pending -> pending.result.complete(true));
+            return;
+        }
+        
+        // The batch as a whole does not fit; settle holds in arrival order so the earliest win
+        log.debug("Inventory batch of {} for ticket type {} rejected, settling {} holds individually",
+                total, ticketTypeId, holds.size());
+        for (PendingHold pending : holds) {
+            pending.result.complete(applyReservation(ticketTypeId, pending.quantity));
+        }
+        invalidate(ticketTypeId);
+    }
+    
+    private boolean applyReservation(Long ticketTypeId, int quantity) {
+        Boolean reserved = flushTransaction.execute(status ->
+                shardedCounterService.reserveSold(ticketTypeId, quantity));
+        return Boolean.TRUE.equals(reserved);
+    }
+    
+    private static Map<Long, Integer> toQuantities(Collection<InventoryHold> holds) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        holds.forEach(hold -> quantities.merge(hold.ticketTypeId(), hold.quantity(), Integer::sum));
+        return quantities;
+    }
+    
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+    
+    public record InventoryHold(Long ticketTypeId, int quantity) {
+    }
+    
+    private record PendingHold(Long ticketTypeId, int quantity, AtomicInteger counter,
+                               CompletableFuture<Boolean> result) {
+        
+        PendingHold(Long ticketTypeId, int quantity, AtomicInteger counter) {
+            this(ticketTypeId, quantity, counter, new CompletableFuture<>());
+        }
+    }
+}
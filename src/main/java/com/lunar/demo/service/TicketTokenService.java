@@ -0,0 +1,184 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.repository.TicketRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Signed ticket tokens that a gate can trust without reading the ticket.
+ *
+ * A token is {@code LT.} followed by the unpadded base64url of a 29-byte body (version, ticket
+ * id, event id, validity window in epoch minutes, revocation epoch) and the first 16 bytes of
+ * its HMAC-SHA256 under {@code tickets.token.secret}: 63 characters in all. The window runs
+ * from {@code tickets.token.valid-before-start-hours} before the event starts to
+ * {@code tickets.token.valid-after-end-hours} after it ends, in the server's time zone.
+ *
+ * Revocation is by epoch: each ticket carries one, and tokens signed with an older epoch than
+ * the ticket's current one are rejected. Only tickets whose epoch moved or that were cancelled,
+ * transferred, or expired are listed, so the revocation list of upcoming events stays small; it
+ * is reloaded every {@code tickets.token.revocation-refresh-ms}. Whether the ticket is used
+ * or its booking confirmed is not part of the token.
+ */
+@Service
+@Slf4j
+public class TicketTokenService {
+    
+    public static final String PREFIX = "LT.";
+    
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final byte VERSION = 1;
+    private static final int BODY_LENGTH = 29;
+    private static final int MAC_LENGTH = 16;
+    private static final int TOKEN_LENGTH = PREFIX.length() + (4 * (BODY_LENGTH + MAC_LENGTH) + 2) / 3;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    
+    public enum Status {
+        VALID, MALFORMED, BAD_SIGNATURE, NOT_YET_VALID, EXPIRED, REVOKED
+    }
+    
+    public record Verification(Status status, long ticketId, long eventId) {
+        
+        public boolean isValid() {
+            return status == Status.VALID;
+        }
+    }
+    
+    private final TicketRepository ticketRepository;
+    private final ThreadLocal<Mac> macs;
+    private final long validBeforeStartMinutes;
+    private final long validAfterEndMinutes;
+    // Minimum valid epoch per revoked ticket; Integer.MAX_VALUE revokes every token of the ticket
+    private volatile Map<Long, Integer> revocations = new ConcurrentHashMap<>();
+    
+    public TicketTokenService(TicketRepository ticketRepository,
+                              @Value("${tickets.token.secret:${jwt.secret}}") String secret,
+                              @Value("${tickets.token.valid-before-start-hours:24}") long validBeforeStartHours,
+                              @Value("${tickets.token.valid-after-end-hours:6}") long validAfterEndHours) {
+        this.ticketRepository = ticketRepository;
+        SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Unable to initialize ticket token signing", e);
+            }
+        });
+        this.validBeforeStartMinutes = validBeforeStartHours * 60;
+        this.validAfterEndMinutes = validAfterEndHours * 60;
+    }
+    
+    public static boolean isToken(String code) {
+        return code != null && code.startsWith(PREFIX);
+    }
+    
+    /**
+     * @param eventEnd the event's end, or null to count from its start
+     * @param epoch    the ticket's revocation epoch; null counts as 0
+     */
+    public String issue(long ticketId, long eventId, LocalDateTime eventStart, LocalDateTime eventEnd, Integer epoch) {
+        byte[] token = new byte[BODY_LENGTH + MAC_LENGTH];
+        ByteBuffer.wrap(token)
+                .put(VERSION)
+                .putLong(ticketId)
+                .putLong(eventId)
+                .putInt((int) (epochMinutes(eventStart) - validBeforeStartMinutes))
+                .putInt((int) (epochMinutes(eventEnd != null ? eventEnd : eventStart) + validAfterEndMinutes))
+                .putInt(epoch != null ? epoch : 0);
+        Mac mac = macs.get();
+        mac.update(token, 0, BODY_LENGTH);
+        System.arraycopy(mac.doFinal(), 0, token, BODY_LENGTH, MAC_LENGTH);
+        return PREFIX + ENCODER.encodeToString(token);
+    }
+    
+    public Verification verify(String token) {
+        return verify(token, System.currentTimeMillis() / 60_000);
+    }
+    
+    Verification verify(String token, long nowEpochMinutes) {
+        if (token == null || token.length() != TOKEN_LENGTH || !token.startsWith(PREFIX)) {
+            return new Verification(Status.MALFORMED, 0, 0);
+        }
+        byte[] bytes;
+        try {
+            bytes = DECODER.decode(token.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            return new Verification(Status.MALFORMED, 0, 0);
+        }
+        ByteBuffer body = ByteBuffer.wrap(bytes);
+        if (bytes.length != BODY_LENGTH + MAC_LENGTH || body.get() != VERSION) {
+            return new Verification(Status.MALFORMED, 0, 0);
+        }
+        long ticketId = body.getLong();
+        long eventId = body.getLong();
+        int notBefore = body.getInt();
+        int notAfter = body.getInt();
+        int epoch = body.getInt();
+        
+        Mac mac = macs.get();
+        mac.update(bytes, 0, BODY_LENGTH);
+        byte[] expected = mac.doFinal();
+        // Constant time, so the comparison does not leak how much of a forged MAC matched
+        int difference = 0;
+        for (int i = 0; i < MAC_LENGTH; i++) {
+            difference |= expected[i] ^ bytes[BODY_LENGTH + i];
+        }
+        if (difference != 0) {
+            return new Verification(Status.BAD_SIGNATURE, 0, 0);
+        }
+        
+        Status status;
+        if (nowEpochMinutes < notBefore) {
+            status = Status.NOT_YET_VALID;
+        } else if (nowEpochMinutes > notAfter) {
+            status = Status.EXPIRED;
+        } else if (epoch < revocations.getOrDefault(ticketId, 0)) {
+            status = Status.REVOKED;
+        } else {
+            status = Status.VALID;
+        }
+        return new Verification(status, ticketId, eventId);
+    }
+    
+    /**
+     * Rejects the ticket's tokens signed with an epoch below {@code minimumEpoch}, right away
+     * on this node and on the others at their next refresh.
+     */
+    public void revoke(long ticketId, int minimumEpoch) {
+        revocations.merge(ticketId, minimumEpoch, Math::max);
+    }
+    
+    @Scheduled(fixedDelayString = "${tickets.token.revocation-refresh-ms:30000}")
+    public void refreshRevocations() {
+        try {
+            Map<Long, Integer> loaded = new ConcurrentHashMap<>();
+            for (Object[] row : ticketRepository.findTokenRevocations(LocalDateTime.now().minusMinutes(validAfterEndMinutes))) {
+                boolean revoked = (Boolean) row[2];
+                loaded.put((Long) row[0], revoked ? Integer.MAX_VALUE : (Integer) row[1]);
+            }
+            revocations = loaded;
+            log.debug("Loaded {} ticket token revocations", loaded.size());
+        } catch (RuntimeException e) {
+            log.error("Error loading ticket token revocations", e);
+        }
+    }
+    
+    private static long epochMinutes(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond() / 60;
+    }
+}
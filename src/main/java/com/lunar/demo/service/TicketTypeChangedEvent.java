@@ -0,0 +1,8 @@
+package com.lunar.demo.service;
+
+/**
+ * Published when ticket type stock changes in a way other nodes' inventory counters would not
+ * pick up on their own, i.e. units being released.
+ */
+public record TicketTypeChangedEvent(Long ticketTypeId) {
+}
@@ -0,0 +1,10 @@
+package com.lunar.demo.service;
+
+import java.util.List;
+
+/**
+ * Published when a booking's tickets are issued, with the payloads their QR codes encode.
+ * Listeners act on it once the surrounding transaction has committed.
+ */
+public record TicketsIssuedEvent(Long bookingId, List<String> qrPayloads) {
+}
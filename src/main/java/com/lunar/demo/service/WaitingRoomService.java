@@ -0,0 +1,499 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.dto.QueueStatusResponse;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.exception.QueueAdmissionException;
+import com.lunar.demo.repository.EventRepository;
+import com.lunar.demo.security.UserPrincipal;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control in front of booking creation for events with a waiting room.
+ *
+ * Joining the queue hands out the next position for the event, wrapped in an HMAC-signed token
+ * bound to the user. Each room advances an admission watermark at the event's configured rate;
+ * a booking is only accepted once the watermark has passed the token's position, and each
+ * position books once. Polling and SSE status never reach the database, so clients waiting in
+ * the queue cost no more than a Redis round trip.
+ *
+ * With {@code cache.redis.enabled} the issued counter, positions, booked positions and the
+ * watermark live in Redis, so every node hands out and judges positions against the same queue
+ * and the admission rate holds across the cluster. Without Redis they are kept in memory, which
+ * is only correct for a single node. Rooms are dropped once their event has ended.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WaitingRoomService {
+    
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final Room NO_ROOM = new Room(0, LocalDateTime.MAX, null);
+    
+    private final EventRepository eventRepository;
+    private final ObjectProvider<StringRedisTemplate> redisTemplate;
+    private final ConcurrentMap<Long, Room> rooms = new ConcurrentHashMap<>();
+    
+    @Value("${cache.redis.enabled:false}")
+    private boolean redisEnabled;
+    
+    @Value("${waiting-room.secret:${jwt.secret}}")
+    private String secret;
+    
+    @Value("${waiting-room.token-ttl-minutes:120}")
+    private long tokenTtlMinutes;
+    
+    @Value("${waiting-room.default-admission-rate:50}")
+    private int defaultAdmissionRate;
+    
+    @Value("${waiting-room.stream-timeout-ms:300000}")
+    private long streamTimeoutMs;
+    
+    private SecretKeySpec signingKey;
+    
+    @PostConstruct
+    void initSigningKey() {
+        signingKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+    }
+    
+    /**
+     * Places the current user in the event's queue. Joining again returns the same position.
+     */
+    public QueueStatusResponse join(Long eventId) {
+        Room room = requireRoom(eventId);
+        Long userId = currentUserId();
+        long position = room.ledger.join(userId, room.expiresAt(tokenTtlMinutes));
+        String token = sign(eventId, userId, position, System.currentTimeMillis());
+        return status(eventId, room, token, position);
+    }
+    
+    public QueueStatusResponse getStatus(Long eventId, String token) {
+        Room room = requireRoom(eventId);
+        QueueToken queueToken = verify(eventId, token);
+        return status(eventId, room, token, queueToken.position);
+    }
+    
+    /**
+     * Streams queue status until the user is admitted or the stream times out.
+     */
+    public SseEmitter stream(Long eventId, String token) {
+        Room room = requireRoom(eventId);
+        QueueToken queueToken = verify(eventId, token);
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, token, queueToken.position);
+        room.subscribers.add(subscriber);
+        emitter.onCompletion(() -> room.subscribers.remove(subscriber));
+        emitter.onTimeout(() -> room.subscribers.remove(subscriber));
+        emitter.onError(e -> room.subscribers.remove(subscriber));
+        push(eventId, room, subscriber);
+        return emitter;
+    }
+    
+    /**
+     * Lets a booking for the event through. Events without a waiting room need no token;
+     * otherwise the token must be valid, belong to the current user and have been admitted.
+     */
+    public void admit(Long eventId, String token) {
+        Room room = roomFor(eventId);
+        if (room == NO_ROOM) {
+            return;
+        }
+        if (token == null || token.isBlank()) {
+            throw new QueueAdmissionException("This event requires a waiting room token; join the queue first");
+        }
+        QueueToken queueToken = verify(eventId, token);
+        if (!queueToken.userId.equals(currentUserId())) {
+            throw new RuntimeException("Queue token was issued to another user");
+        }
+        if (queueToken.position > room.admittedThrough()) {
+            throw new QueueAdmissionException("Not admitted yet, position " + queueToken.position);
+        }
+        if (!room.ledger.book(queueToken.position, room.expiresAt(tokenTtlMinutes))) {
+            throw new RuntimeException("Queue token has already been used");
+        }
+    }
+    
+    /**
+     * Gives an admitted position back after its booking attempt failed, so the user can retry
+     * without queueing again.
+     */
+    public void readmit(Long eventId, String token) {
+        Room room = rooms.get(eventId);
+        if (room == null || room == NO_ROOM || token == null) {
+            return;
+        }
+        room.ledger.unbook(verify(eventId, token).position);
+    }
+    
+    /**
+     * Drops cached room settings after the event changes; queued positions are kept.
+     */
+    public void evict(Long eventId) {
+        rooms.computeIfPresent(eventId, (id, room) -> room == NO_ROOM ? null : eventRepository.findById(id)
+                .filter(event -> Boolean.TRUE.equals(event.getWaitingRoomEnabled()))
+                .map(event -> room.withSettings(admissionRate(event), event.getEndDate()))
+                .orElse(null));
+    }
+    
+    @Scheduled(fixedDelayString = "${waiting-room.push-interval-ms:1000}")
+    public void pushStatus() {
+        rooms.forEach((eventId, room) -> {
+            if (!room.subscribers.isEmpty()) {
+                long admittedThrough = room.admittedThrough();
+                room.subscribers.forEach(subscriber -> push(eventId, room, subscriber, admittedThrough));
+            }
+        });
+    }
+    
+    /**
+     * Drops the rooms of events that have ended, along with their shared state, and forgets which
+     * events have no waiting room so the map only holds events still on sale.
+     */
+    @Scheduled(fixedDelayString = "${waiting-room.prune-interval-ms:600000}")
+    public void pruneEndedRooms() {
+        LocalDateTime now = LocalDateTime.now();
+        rooms.forEach((eventId, room) -> {
+            if (room == NO_ROOM) {
+                rooms.remove(eventId, NO_ROOM);
+            } else if (room.endsAt.isBefore(now) && rooms.remove(eventId, room)) {
+                room.subscribers.forEach(subscriber -> subscriber.emitter.complete());
+                try {
+                    room.ledger.clear();
+                } catch (RuntimeException e) {
+                    log.warn("Error clearing waiting room state for event {}", eventId, e);
+                }
+                log.debug("Dropped waiting room of ended event {}", eventId);
+            }
+        });
+    }
+    
+    private void push(Long eventId, Room room, Subscriber subscriber) {
+        push(eventId, room, subscriber, room.admittedThrough());
+    }
+    
+    private void push(Long eventId, Room room, Subscriber subscriber, long admittedThrough) {
+        QueueStatusResponse status = status(eventId, room, subscriber.token, subscriber.position, admittedThrough);
+        try {
+            subscriber.emitter.send(SseEmitter.event().name("queue-status").data(status));
+            if (Boolean.TRUE.equals(status.getAdmitted())) {
+                subscriber.emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            room.subscribers.remove(subscriber);
+        }
+    }
+    
+    private QueueStatusResponse status(Long eventId, Room room, String token, long position) {
+        return status(eventId, room, token, position, room.admittedThrough());
+    }
+    
+    private QueueStatusResponse status(Long eventId, Room room, String token, long position, long admittedThrough) {
+        long remaining = Math.max(0, position - admittedThrough);
+        return QueueStatusResponse.builder()
+                .eventId(eventId)
+                .queueToken(token)
+                .position(position)
+                .admittedThrough(admittedThrough)
+                .usersAhead(Math.max(0, remaining - 1))
+                .estimatedWaitSeconds((long) Math.ceil(remaining / room.ratePerSecond))
+                .admitted(remaining == 0)
+                .build();
+    }
+    
+    private Room roomFor(Long eventId) {
+        Room room = rooms.get(eventId);
+        if (room != null) {
+            return room;
+        }
+        return rooms.computeIfAbsent(eventId, this::loadRoom);
+    }
+    
+    private Room requireRoom(Long eventId) {
+        Room room = roomFor(eventId);
+        if (room == NO_ROOM) {
+            throw new RuntimeException("Event does not use a waiting room");
+        }
+        return room;
+    }
+    
+    private Room loadRoom(Long eventId) {
+        Event event = eventRepository.findById(eventId)
+                .orElseThrow(() -> new RuntimeException("Event not found"));
+        if (!Boolean.TRUE.equals(event.getWaitingRoomEnabled())) {
+            return NO_ROOM;
+        }
+        Ledger ledger = redisEnabled ? new RedisLedger(redisTemplate.getObject(), eventId) : new LocalLedger();
+        return new Room(admissionRate(event), event.getEndDate(), ledger);
+    }
+    
+    private int admissionRate(Event event) {
+        Integer rate = event.getAdmissionRatePerSecond();
+        return rate != null && rate > 0 ? rate : defaultAdmissionRate;
+    }
+    
+    private String sign(Long eventId, Long userId, long position, long issuedAt) {
+        String payload = eventId + ":" + userId + ":" + position + ":" + issuedAt;
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "." +
+               encoder.encodeToString(hmac(payload));
+    }
+    
+    private QueueToken verify(Long eventId, String token) {
+        if (token == null) {
+            throw new RuntimeException("Queue token is required");
+        }
+        int separator = token.indexOf('.');
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            String payload = new String(decoder.decode(token.substring(0, separator)), StandardCharsets.UTF_8);
+            byte[] signature = decoder.decode(token.substring(separator + 1));
+            if (!MessageDigest.isEqual(hmac(payload), signature)) {
+                throw new RuntimeException("Invalid queue token");
+            }
+            
+            String[] parts = payload.split(":");
+            if (!Long.valueOf(parts[0]).equals(eventId)) {
+                throw new RuntimeException("Queue token was issued for another event");
+            }
+            long issuedAt = Long.parseLong(parts[3]);
+            if (System.currentTimeMillis() - issuedAt > tokenTtlMinutes * 60_000) {
+                throw new RuntimeException("Queue token has expired");
+            }
+            return new QueueToken(Long.valueOf(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new RuntimeException("Invalid queue token");
+        }
+    }
+    
+    private byte[] hmac(String payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to sign queue token", e);
+        }
+    }
+    
+    private Long currentUserId() {
+        UserPrincipal userPrincipal = (UserPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        return userPrincipal.getId();
+    }
+    
+    private record QueueToken(Long userId, long position) {
+    }
+    
+    private record Subscriber(SseEmitter emitter, String token, long position) {
+    }
+    
+    /**
+     * Settings and subscribers of one event's room on this node; the queue itself is in its
+     * {@link Ledger}.
+     */
+    private static final class Room {
+        
+        private final double ratePerSecond;
+        private final LocalDateTime endsAt;
+        private final Ledger ledger;
+        private final CopyOnWriteArrayList<Subscriber> subscribers;
+        
+        Room(double ratePerSecond, LocalDateTime endsAt, Ledger ledger) {
+            this(ratePerSecond, endsAt, ledger, new CopyOnWriteArrayList<>());
+        }
+        
+        private Room(double ratePerSecond, LocalDateTime endsAt, Ledger ledger,
+                     CopyOnWriteArrayList<Subscriber> subscribers) {
+            this.ratePerSecond = ratePerSecond;
+            this.endsAt = endsAt;
+            this.ledger = ledger;
+            this.subscribers = subscribers;
+        }
+        
+        long admittedThrough() {
+            return ledger.admittedThrough(ratePerSecond);
+        }
+        
+        /** Positions stay valid for a token lifetime after the event ends, then the state expires. */
+        long expiresAt(long tokenTtlMinutes) {
+            return endsAt.plusMinutes(tokenTtlMinutes).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        
+        Room withSettings(double rate, LocalDateTime eventEnd) {
+            return new Room(rate, eventEnd, ledger, subscribers);
+        }
+    }
+    
+    /**
+     * Queue of one event: issued positions, booked positions and the admission watermark. The
+     * watermark is advanced lazily on read; idle rooms bank at most one second of admissions so
+     * a burst after a quiet period stays within rate.
+     */
+    private interface Ledger {
+        
+        /** Returns the user's position, handing out the next one on their first join. */
+        long join(Long userId, long expiresAtMillis);
+        
+        long admittedThrough(double ratePerSecond);
+        
+        /** Marks the position as booked; false if it already was. */
+        boolean book(long position, long expiresAtMillis);
+        
+        void unbook(long position);
+        
+        void clear();
+    }
+    
+    private static final class LocalLedger implements Ledger {
+        
+        private final AtomicLong issued = new AtomicLong();
+        private final ConcurrentMap<Long, Long> positions = new ConcurrentHashMap<>();
+        private final Set<Long> booked = ConcurrentHashMap.newKeySet();
+        private double admitted = -1;
+        private long lastAdvanceNanos = System.nanoTime();
+        
+        @Override
+        public long join(Long userId, long expiresAtMillis) {
+            return positions.computeIfAbsent(userId, id -> issued.incrementAndGet());
+        }
+        
+        @Override
+        public synchronized long admittedThrough(double ratePerSecond) {
+            long nowNanos = System.nanoTime();
+            if (admitted < 0) {
+                admitted = ratePerSecond;
+            }
+            double earned = ratePerSecond * (nowNanos - lastAdvanceNanos) / 1_000_000_000d;
+            admitted = Math.min(issued.get() + ratePerSecond, admitted + earned);
+            lastAdvanceNanos = nowNanos;
+            return Math.min(issued.get(), (long) admitted);
+        }
+        
+        @Override
+        public boolean book(long position, long expiresAtMillis) {
+            return booked.add(position);
+        }
+        
+        @Override
+        public void unbook(long position) {
+            booked.remove(position);
+        }
+        
+        @Override
+        public void clear() {
+        }
+    }
+    
+    /**
+     * Ledger shared by all nodes. The keys of an event share a hash tag so the scripts stay on one
+     * slot, and expire after the event as a backstop for nodes that never prune them; the
+     * watermark is advanced on the Redis clock so node clock skew does not matter.
+     */
+    private static final class RedisLedger implements Ledger {
+        
+        private static final RedisScript<Long> JOIN = RedisScript.of("""
+                local position = redis.call('HGET', KEYS[1], ARGV[1])
+                if position then
+                    return tonumber(position)
+                end
+                position = redis.call('INCR', KEYS[2])
+                redis.call('HSET', KEYS[1], ARGV[1], position)
+                redis.call('PEXPIREAT', KEYS[1], ARGV[2])
+                redis.call('PEXPIREAT', KEYS[2], ARGV[2])
+                return position
+                """, Long.class);
+        
+        private static final RedisScript<Long> ADMITTED_THROUGH = RedisScript.of("""
+                local time = redis.call('TIME')
+                local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+                local rate = tonumber(ARGV[1])
+                local issued = tonumber(redis.call('GET', KEYS[1]) or '0')
+                if issued == 0 then
+                    return 0
+                end
+                local admitted = tonumber(redis.call('HGET', KEYS[2], 'admitted') or rate)
+                local last = tonumber(redis.call('HGET', KEYS[2], 'at') or now)
+                admitted = math.min(issued + rate, admitted + rate * (now - last) / 1000)
+                redis.call('HSET', KEYS[2], 'admitted', string.format('%.3f', admitted))
+                redis.call('HSET', KEYS[2], 'at', string.format('%d', now))
+                local ttl = redis.call('PTTL', KEYS[1])
+                if ttl > 0 then
+                    redis.call('PEXPIRE', KEYS[2], ttl)
+                end
+                return math.min(issued, math.floor(admitted))
+                """, Long.class);
+        
+        private static final RedisScript<Long> BOOK = RedisScript.of("""
+                local added = redis.call('SADD', KEYS[1], ARGV[1])
+                redis.call('PEXPIREAT', KEYS[1], ARGV[2])
+                return added
+                """, Long.class);
+        
+        private final StringRedisTemplate redisTemplate;
+        private final String positionsKey;
+        private final String issuedKey;
+        private final String watermarkKey;
+        private final String bookedKey;
+        
+        RedisLedger(StringRedisTemplate redisTemplate, Long eventId) {
+            this.redisTemplate = redisTemplate;
+            String prefix = "lunar:waiting-room:{" + eventId + "}:";
+            this.positionsKey = prefix + "positions";
+            this.issuedKey = prefix + "issued";
+            this.watermarkKey = prefix + "watermark";
+            this.bookedKey = prefix + "booked";
+        }
+        
+        @Override
+        public long join(Long userId, long expiresAtMillis) {
+            return redisTemplate.execute(JOIN, List.of(positionsKey, issuedKey),
+                    userId.toString(), Long.toString(expiresAtMillis));
+        }
+        
+        @Override
+        public long admittedThrough(double ratePerSecond) {
+            return redisTemplate.execute(ADMITTED_THROUGH, List.of(issuedKey, watermarkKey),
+                    Double.toString(ratePerSecond));
+        }
+        
+        @Override
+        public boolean book(long position, long expiresAtMillis) {
+            return redisTemplate.execute(BOOK, List.of(bookedKey),
+                    Long.toString(position), Long.toString(expiresAtMillis)) == 1;
+        }
+        
+        @Override
+        public void unbook(long position) {
+            redisTemplate.opsForSet().remove(bookedKey, Long.toString(position));
+        }
+        
+        @Override
+        public void clear() {
+            redisTemplate.delete(List.of(positionsKey, issuedKey, watermarkKey, bookedKey));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.lunar.demo.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongConsumer;
+
+/**
+ * The valid tickets of an event, keyed by ticket id, with a used bit per ticket.
+ *
+ * Ids live in an open-addressing table of primitive longs at most half full, with the owning
+ * booking id in a parallel array, so a lookup is a few probes over flat arrays and 40,000 tickets
+ * take about 1 MB. The set of tickets is fixed at construction; only the used bits change. They
+ * are set with a compare-and-set on a word of an {@link AtomicLongArray}, so of any number of
+ * concurrent {@link #markUsed} calls for a ticket exactly one succeeds, without locks.
+ *
+ * Instances are thread-safe.
+ */
+public final class CheckInIndex {
+    
+    private static final long EMPTY = 0;
+    
+    private final long[] keys;
+    private final long[] bookingIds;
+    private final AtomicLongArray used;
+    private final int mask;
+    private final int size;
+    
+    /**
+     * @param ticketIds  positive, distinct ticket ids
+     * @param bookingIds the booking of each ticket, at the same position
+     */
+    public CheckInIndex(long[] ticketIds, long[] bookingIds) {
+        if (ticketIds.length != bookingIds.length) {
+            throw new IllegalArgumentException("Expected a booking id per ticket id");
+        }
+        int capacity = Integer.highestOneBit(Math.max(2, ticketIds.length) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.bookingIds = new long[capacity];
+        this.used = new AtomicLongArray(Math.max(1, capacity >>> 6));
+        this.mask = capacity - 1;
+        for (int i = 0; i < ticketIds.length; i++) {
+            long id = ticketIds[i];
+            if (id <= EMPTY) {
+                throw new IllegalArgumentException("Ticket ids must be positive: " + id);
+            }
+            int slot = probe(id);
+            if (keys[slot] == id) {
+                throw new IllegalArgumentException("Duplicate ticket id: " + id);
+            }
+            keys[slot] = id;
+            this.bookingIds[slot] = bookingIds[i];
+        }
+        this.size = ticketIds.length;
+    }
+    
+    /**
+     * The slot of a ticket, or -1 if it is not in the index.
+     */
+    public int slot(long ticketId) {
+        if (ticketId <= EMPTY) {
+            return -1;
+        }
+        int slot = probe(ticketId);
+        return keys[slot] == ticketId ? slot : -1;
+    }
+    
+    public long bookingId(int slot) {
+        return bookingIds[slot];
+    }
+    
+    public boolean isUsed(int slot) {
+        return (used.get(slot >>> 6) & (1L << slot)) != 0;
+    }
+    
+    /**
+     * Sets the ticket's used bit.
+     *
+     * @return true if this call set it, false if it was already set
+     */
+    public boolean markUsed(int slot) {
+        int word = slot >>> 6;
+        long bit = 1L << slot;
+        long current;
+        do {
+            current = used.get(word);
+            if ((current & bit) != 0) {
+                return false;
+            }
+        } while (!used.compareAndSet(word, current, current | bit));
+        return true;
+    }
+    
+    /**
+     * Calls the action with the id of every used ticket.
+     */
+    public void forEachUsed(LongConsumer action) {
+        for (int word = 0; word < used.length(); word++) {
+            long bits = used.get(word);
+            while (bits != 0) {
+                action.accept(keys[(word << 6) + Long.numberOfTrailingZeros(bits)]);
+                bits &= bits - 1;
+            }
+        }
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    // Linear probing from a mixed hash; sequence-allocated ids would otherwise cluster
+    private int probe(long id) {
+        int slot = (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,241 @@
+package com.lunar.demo.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory spatial index of id-keyed points on a fixed latitude/longitude grid.
+ *
+ * Points are bucketed into square cells of {@code cellDegrees}; a query only visits the cells
+ * overlapping its bounding box (or, when that would be more, every non-empty cell) and computes
+ * great-circle distances for the points in them. Cells keep their points in parallel primitive
+ * arrays, so a million points cost a few tens of megabytes and scanning a cell is a tight loop.
+ * Longitudes wrap at the antimeridian; near the poles a radius query widens to all longitudes.
+ *
+ * Instances are thread-safe; queries run concurrently and block only while points are written.
+ */
+public class GeoGridIndex {
+    
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+    
+    private final double cellDegrees;
+    private final int lonCells;
+    private final Map<Long, Cell> cells = new HashMap<>();
+    private final Map<Long, Long> cellOf = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    public GeoGridIndex(double cellDegrees) {
+        if (!(cellDegrees > 0) || cellDegrees > 90) {
+            throw new IllegalArgumentException("Cell size must be between 0 and 90 degrees");
+        }
+        this.cellDegrees = cellDegrees;
+        this.lonCells = (int) Math.ceil(360 / cellDegrees);
+    }
+    
+    /**
+     * Adds the point, moving it if the id is already indexed.
+     */
+    public void put(long id, double lat, double lon) {
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+            throw new IllegalArgumentException("Coordinates out of range: " + lat + ", " + lon);
+        }
+        long key = cellKey(latIndex(lat), lonIndex(lon));
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            cells.computeIfAbsent(key, k -> new Cell()).add(id, lat, lon);
+            cellOf.put(id, key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            cells.clear();
+            cellOf.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return cellOf.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Points within {@code radiusKm} of the centre, nearest first, at most {@code limit} of them.
+     */
+    public List<Hit> withinRadius(double lat, double lon, double radiusKm, int limit) {
+        double latSpan = radiusKm / KM_PER_DEGREE;
+        double minLat = Math.max(-90, lat - latSpan);
+        double maxLat = Math.min(90, lat + latSpan);
+        double widestLat = Math.max(Math.abs(minLat), Math.abs(maxLat));
+        double cos = Math.cos(Math.toRadians(widestLat));
+        double lonSpan = cos > 1e-9 ? radiusKm / (KM_PER_DEGREE * cos) : 180;
+        
+        double minLon;
+        double maxLon;
+        if (lonSpan >= 180) {
+            minLon = -180;
+            maxLon = 180;
+        } else {
+            minLon = wrap(lon - lonSpan);
+            maxLon = wrap(lon + lonSpan);
+        }
+        return query(minLat, minLon, maxLat, maxLon, lat, lon, radiusKm, limit);
+    }
+    
+    /**
+     * Points inside the box, nearest to ({@code fromLat}, {@code fromLon}) first. A box whose
+     * {@code minLon} is greater than its {@code maxLon} crosses the antimeridian.
+     */
+    public List<Hit> withinBox(double minLat, double minLon, double maxLat, double maxLon,
+                               double fromLat, double fromLon, int limit) {
+        return query(minLat, minLon, maxLat, maxLon, fromLat, fromLon, Double.POSITIVE_INFINITY, limit);
+    }
+    
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+    
+    private List<Hit> query(double minLat, double minLon, double maxLat, double maxLon,
+                            double fromLat, double fromLon, double radiusKm, int limit) {
+        boolean wraps = minLon > maxLon;
+        int fromLatIndex = latIndex(minLat);
+        int toLatIndex = latIndex(maxLat);
+        int fromLonIndex = lonIndex(minLon);
+        // Not wrapped, so a box ending at +180 does not collapse onto the first column
+        int toLonIndex = Math.min(lonCells - 1, (int) Math.floor((maxLon + 180) / cellDegrees));
+        int lonCount = wraps ? lonCells - fromLonIndex + toLonIndex + 1 : toLonIndex - fromLonIndex + 1;
+        long cellCount = (long) (toLatIndex - fromLatIndex + 1) * lonCount;
+        
+        List<Hit> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (cellCount > cells.size()) {
+                for (Cell cell : cells.values()) {
+                    cell.collect(minLat, minLon, maxLat, maxLon, wraps, fromLat, fromLon, radiusKm, hits);
+                }
+            } else {
+                for (int latIndex = fromLatIndex; latIndex <= toLatIndex; latIndex++) {
+                    for (int i = 0; i < lonCount; i++) {
+                        Cell cell = cells.get(cellKey(latIndex, (fromLonIndex + i) % lonCells));
+                        if (cell != null) {
+                            cell.collect(minLat, minLon, maxLat, maxLon, wraps, fromLat, fromLon, radiusKm, hits);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        hits.sort(Comparator.comparingDouble(Hit::distanceKm).thenComparingLong(Hit::id));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+    
+    private void removeLocked(long id) {
+        Long key = cellOf.remove(id);
+        if (key == null) {
+            return;
+        }
+        Cell cell = cells.get(key);
+        cell.remove(id);
+        if (cell.size == 0) {
+            cells.remove(key);
+        }
+    }
+    
+    private int latIndex(double lat) {
+        return (int) Math.floor((lat + 90) / cellDegrees);
+    }
+    
+    private int lonIndex(double lon) {
+        return Math.floorMod((int) Math.floor((lon + 180) / cellDegrees), lonCells);
+    }
+    
+    private static long cellKey(int latIndex, int lonIndex) {
+        return ((long) latIndex << 32) | lonIndex;
+    }
+    
+    private static double wrap(double lon) {
+        return lon < -180 ? lon + 360 : lon > 180 ? lon - 360 : lon;
+    }
+    
+    public record Hit(long id, double distanceKm) {
+    }
+    
+    private static final class Cell {
+        
+        private long[] ids = new long[4];
+        private double[] lats = new double[4];
+        private double[] lons = new double[4];
+        private int size;
+        
+        void add(long id, double lat, double lon) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                lats = Arrays.copyOf(lats, size * 2);
+                lons = Arrays.copyOf(lons, size * 2);
+            }
+            ids[size] = id;
+            lats[size] = lat;
+            lons[size] = lon;
+            size++;
+        }
+        
+        void remove(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    size--;
+                    ids[i] = ids[size];
+                    lats[i] = lats[size];
+                    lons[i] = lons[size];
+                    return;
+                }
+            }
+        }
+        
+        void collect(double minLat, double minLon, double maxLat, double maxLon, boolean wraps,
+                     double fromLat, double fromLon, double radiusKm, List<Hit> hits) {
+            for (int i = 0; i < size; i++) {
+                double lat = lats[i];
+                double lon = lons[i];
+                boolean inLon = wraps ? lon >= minLon || lon <= maxLon : lon >= minLon && lon <= maxLon;
+                if (lat < minLat || lat > maxLat || !inLon) {
+                    continue;
+                }
+                double distance = distanceKm(fromLat, fromLon, lat, lon);
+                if (distance <= radiusKm) {
+                    hits.add(new Hit(ids[i], distance));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.lunar.demo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel for scheduling large numbers of id-keyed deadlines.
+ *
+ * Level 0 has {@code wheelSize} buckets of {@code tickMs} each; every level above it covers
+ * {@code wheelSize} buckets of the whole span of the level below. Adding an entry and expiring a
+ * bucket are O(1) regardless of how many entries are scheduled, and entries only move when the
+ * lower level wraps around and their bucket is cascaded down. Deadlines beyond the span of the
+ * top level are parked in an overflow list and re-inserted each time the top level wraps.
+ *
+ * Instances are thread-safe; all operations synchronize on the wheel.
+ */
+public class HierarchicalTimingWheel {
+    
+    private final long tickMs;
+    private final int wheelSize;
+    private final long[] levelTickMs;
+    private final List<List<Entry>> levels;
+    private final List<Entry> overflow = new ArrayList<>();
+    private long currentTime;
+    private int size;
+    
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, int levelCount, long startTimeMs) {
+        if (tickMs <= 0 || wheelSize <= 1 || levelCount <= 0) {
+            throw new IllegalArgumentException("Invalid timing wheel dimensions");
+        }
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.levelTickMs = new long[levelCount];
+        this.levels = new ArrayList<>(levelCount * wheelSize);
+        long levelTick = tickMs;
+        for (int level = 0; level < levelCount; level++) {
+            levelTickMs[level] = levelTick;
+            levelTick = Math.multiplyExact(levelTick, wheelSize);
+        }
+        for (int i = 0; i < levelCount * wheelSize; i++) {
+            levels.add(new ArrayList<>());
+        }
+        this.currentTime = startTimeMs - Math.floorMod(startTimeMs, tickMs);
+    }
+    
+    /**
+     * Schedules {@code id} to expire at {@code deadlineMs}.
+     *
+     * @return false if the deadline has already passed, in which case nothing was scheduled
+     */
+    public synchronized boolean add(long id, long deadlineMs) {
+        if (!insert(new Entry(id, deadlineMs))) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+    
+    /**
+     * Moves the wheel forward to {@code nowMs}, returning the ids whose deadlines have passed.
+     * Entries fire once their whole tick has elapsed, so never early and at most one tick late.
+     */
+    public synchronized List<Long> advance(long nowMs) {
+        List<Long> expired = new ArrayList<>();
+        while (currentTime + tickMs <= nowMs) {
+            drain(bucket(0, currentTime), expired);
+            currentTime += tickMs;
+            cascade(expired);
+        }
+        size -= expired.size();
+        return expired;
+    }
+    
+    public synchronized int size() {
+        return size;
+    }
+    
+    private boolean insert(Entry entry) {
+        if (entry.deadlineMs < currentTime) {
+            return false;
+        }
+        for (int level = 0; level < levelTickMs.length; level++) {
+            long levelTick = levelTickMs[level];
+            long levelStart = currentTime - Math.floorMod(currentTime, levelTick);
+            if (entry.deadlineMs < levelStart + levelTick * wheelSize) {
+                bucket(level, entry.deadlineMs).add(entry);
+                return true;
+            }
+        }
+        overflow.add(entry);
+        return true;
+    }
+    
+    private void cascade(List<Long> expired) {
+        // Redistribute the upper-level bucket that now overlaps the start of the level below it
+        for (int level = 1; level < levelTickMs.length; level++) {
+            if (Math.floorMod(currentTime, levelTickMs[level]) != 0) {
+                return;
+            }
+            reinsert(bucket(level, currentTime), expired);
+        }
+        long span = levelTickMs[levelTickMs.length - 1] * wheelSize;
+        if (Math.floorMod(currentTime, span) == 0) {
+            reinsert(overflow, expired);
+        }
+    }
+    
+    private void reinsert(List<Entry> bucket, List<Long> expired) {
+        if (bucket.isEmpty()) {
+            return;
+        }
+        List<Entry> entries = new ArrayList<>(bucket);
+        bucket.clear();
+        for (Entry entry : entries) {
+            if (!insert(entry)) {
+                expired.add(entry.id);
+            }
+        }
+    }
+    
+    private void drain(List<Entry> bucket, List<Long> expired) {
+        for (Entry entry : bucket) {
+            expired.add(entry.id);
+        }
+        bucket.clear();
+    }
+    
+    private List<Entry> bucket(int level, long timeMs) {
+        int slot = (int) Math.floorMod(Math.floorDiv(timeMs, levelTickMs[level]), (long) wheelSize);
+        return levels.get(level * wheelSize + slot);
+    }
+    
+    private record Entry(long id, long deadlineMs) {
+    }
+}
@@ -0,0 +1,113 @@
+package com.lunar.demo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An HTML template with {@code {{name}}} placeholders, parsed once into alternating literal and
+ * placeholder segments.
+ *
+ * Placeholders are bound to positions in a variable list given at compile time, so rendering
+ * is a single pass over the segments with positional values and no lookups or format parsing.
+ * Values are HTML-escaped. {@link #render} writes into a per-thread buffer that is reused
+ * across calls; {@link #renderTo} appends to a caller-owned one.
+ *
+ * Instances are immutable and thread-safe.
+ */
+public final class HtmlTemplate {
+    
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{\\s*([A-Za-z][A-Za-z0-9_]*)\\s*}}");
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(8 * 1024));
+    
+    private final String[] literals;
+    private final int[] slots;
+    private final int variableCount;
+    private final int literalLength;
+    
+    private HtmlTemplate(String[] literals, int[] slots, int variableCount) {
+        this.literals = literals;
+        this.slots = slots;
+        this.variableCount = variableCount;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+    
+    /**
+     * Parses a template whose placeholders must all be among {@code variables}; values are later
+     * passed in the same order.
+     *
+     * @throws IllegalArgumentException if the template uses a placeholder that is not declared
+     */
+    public static HtmlTemplate compile(String source, List<String> variables) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER.matcher(source);
+        int from = 0;
+        while (matcher.find()) {
+            int slot = variables.indexOf(matcher.group(1));
+            if (slot < 0) {
+                throw new IllegalArgumentException("Undeclared template variable: " + matcher.group(1));
+            }
+            literals.add(source.substring(from, matcher.start()));
+            slots.add(slot);
+            from = matcher.end();
+        }
+        literals.add(source.substring(from));
+        return new HtmlTemplate(literals.toArray(new String[0]),
+                slots.stream().mapToInt(Integer::intValue).toArray(), variables.size());
+    }
+    
+    /**
+     * Renders with the values in declaration order; {@code null} renders as an empty string.
+     */
+    public String render(Object... values) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        renderTo(buffer, values);
+        String rendered = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+            BUFFER.remove();
+        }
+        return rendered;
+    }
+    
+    public void renderTo(StringBuilder out, Object... values) {
+        if (values.length != variableCount) {
+            throw new IllegalArgumentException("Expected " + variableCount + " values but got " + values.length);
+        }
+        out.ensureCapacity(out.length() + literalLength + 64 * slots.length);
+        out.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            Object value = values[slots[i]];
+            if (value != null) {
+                appendEscaped(out, value.toString());
+            }
+            out.append(literals[i + 1]);
+        }
+    }
+    
+    private static void appendEscaped(StringBuilder out, String value) {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            String replacement = switch (value.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (replacement != null) {
+                out.append(value, start, i).append(replacement);
+                start = i + 1;
+            }
+        }
+        out.append(value, start, value.length());
+    }
+}
@@ -0,0 +1,122 @@
+package com.lunar.demo.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free, node-aware generator of time-ordered 64-bit ids.
+ *
+ * Layout (Snowflake style): 41 bits of milliseconds since {@link #EPOCH_MS}, 10 bits of node id
+ * and a 12-bit per-millisecond sequence. The timestamp and sequence live in a single
+ * {@link AtomicLong} advanced by CAS; when a millisecond's 4096 ids are used up the generator
+ * borrows the next millisecond instead of spinning, so ids stay strictly increasing even if the
+ * wall clock steps backwards.
+ *
+ * Ids are rendered as fixed-width Crockford base32 (13 characters), which sorts in id order and
+ * avoids the ambiguous characters I, L, O and U.
+ */
+public class IdGenerator {
+    
+    /** 2024-01-01T00:00:00Z */
+    public static final long EPOCH_MS = 1_704_067_200_000L;
+    
+    public static final int NODE_BITS = 10;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int ENCODED_LENGTH = 13;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final byte[] DECODE = new byte[128];
+    
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE[ALPHABET[i]] = (byte) i;
+            DECODE[Character.toLowerCase(ALPHABET[i])] = (byte) i;
+        }
+        // Crockford decoding folds the look-alike characters
+        DECODE['O'] = DECODE['o'] = 0;
+        DECODE['I'] = DECODE['i'] = DECODE['L'] = DECODE['l'] = 1;
+    }
+    
+    private final long nodeBits;
+    private final AtomicLong lastState = new AtomicLong();
+    
+    public IdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+    }
+    
+    public long nextId() {
+        long now = System.currentTimeMillis() - EPOCH_MS;
+        long prev;
+        long next;
+        do {
+            prev = lastState.get();
+            long prevMillis = prev >>> SEQUENCE_BITS;
+            if (now > prevMillis) {
+                next = now << SEQUENCE_BITS;
+            } else {
+                // Same (or earlier) millisecond: take the next sequence, rolling into the next millisecond when full
+                next = prev + 1;
+            }
+        } while (!lastState.compareAndSet(prev, next));
+        
+        long millis = next >>> SEQUENCE_BITS;
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (next & SEQUENCE_MASK);
+    }
+    
+    /**
+     * Next id encoded as Crockford base32 behind the given prefix, e.g. {@code LUNAR-0C8Z3K2M5Q7R0}.
+     */
+    public String nextCode(String prefix) {
+        char[] chars = new char[prefix.length() + ENCODED_LENGTH];
+        prefix.getChars(0, prefix.length(), chars, 0);
+        encode(nextId(), chars, prefix.length());
+        return new String(chars);
+    }
+    
+    public static String encode(long value) {
+        char[] chars = new char[ENCODED_LENGTH];
+        encode(value, chars, 0);
+        return new String(chars);
+    }
+    
+    public static long decode(CharSequence encoded) {
+        if (encoded.length() != ENCODED_LENGTH) {
+            throw new IllegalArgumentException("Encoded id must be " + ENCODED_LENGTH + " characters");
+        }
+        long value = 0;
+        for (int i = 0; i < ENCODED_LENGTH; i++) {
+            char c = encoded.charAt(i);
+            int digit = c < DECODE.length ? DECODE[c] : -1;
+            if (digit < 0 || (i == 0 && digit > 15)) {
+                throw new IllegalArgumentException("Invalid character in encoded id: " + c);
+            }
+            value = (value << 5) | digit;
+        }
+        return value;
+    }
+    
+    /**
+     * Milliseconds since the Unix epoch at which the id was generated.
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MS;
+    }
+    
+    public static int nodeOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+    
+    private static void encode(long value, char[] chars, int offset) {
+        // 13 five-bit groups cover 65 bits; the leading group only carries the top 4 bits
+        for (int i = offset + ENCODED_LENGTH - 1; i >= offset; i--) {
+            chars[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+    }
+}
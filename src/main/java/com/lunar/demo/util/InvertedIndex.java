@@ -0,0 +1,224 @@
+package com.lunar.demo.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over id-keyed documents made of weighted text fields, ranked with BM25.
+ *
+ * Text is folded to lower-case ASCII-ish tokens (diacritics stripped, split on anything that is
+ * not a letter or digit). Every query token must match a document, either exactly or as the
+ * prefix of an indexed term; prefix matches score lower than exact ones and only the best
+ * matching term counts per query token. The term dictionary is kept sorted so a prefix is a range
+ * scan, capped at {@value #MAX_PREFIX_EXPANSION} terms.
+ *
+ * Instances are thread-safe; searches run concurrently and block only while a document is being
+ * replaced.
+ */
+public class InvertedIndex {
+    
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double PREFIX_MATCH_BOOST = 0.5;
+    private static final int MAX_PREFIX_EXPANSION = 64;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    
+    private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private double totalLength;
+    
+    /**
+     * Adds the document, replacing any previous version with the same id.
+     */
+    public void put(long id, List<Field> fields) {
+        Map<String, Float> frequencies = new HashMap<>();
+        for (Field field : fields) {
+            for (String token : tokenize(field.text())) {
+                frequencies.merge(token, field.weight(), Float::sum);
+            }
+        }
+        float length = 0;
+        for (float frequency : frequencies.values()) {
+            length += frequency;
+        }
+        
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            if (frequencies.isEmpty()) {
+                return;
+            }
+            frequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(id, frequency));
+            documents.put(id, new Document(frequencies.keySet().toArray(String[]::new), length));
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Returns one page of matching ids, best match first (ties broken by id), and the total
+     * number of matches.
+     */
+    public Hits search(String query, int offset, int limit) {
+        Set<String> tokens = new LinkedHashSet<>(tokenize(query));
+        if (tokens.isEmpty() || limit <= 0) {
+            return Hits.EMPTY;
+        }
+        
+        Map<Long, Float> scores = null;
+        lock.readLock().lock();
+        try {
+            if (documents.isEmpty()) {
+                return Hits.EMPTY;
+            }
+            double averageLength = totalLength / documents.size();
+            for (String token : tokens) {
+                Map<Long, Float> tokenScores = scoreToken(token, averageLength);
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    scores.replaceAll((id, score) -> score + tokenScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return Hits.EMPTY;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return topHits(scores, offset, limit);
+    }
+    
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        for (String token : SEPARATORS.split(folded.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+    
+    private Map<Long, Float> scoreToken(String token, double averageLength) {
+        Map<Long, Float> scores = new HashMap<>();
+        Map<Long, Float> exact = postings.get(token);
+        if (exact != null) {
+            addScores(exact, 1.0, averageLength, scores);
+        }
+        int expanded = 0;
+        for (Map<Long, Float> docs : postings.subMap(token, false, token + Character.MAX_VALUE, false).values()) {
+            if (++expanded > MAX_PREFIX_EXPANSION) {
+                break;
+            }
+            addScores(docs, PREFIX_MATCH_BOOST, averageLength, scores);
+        }
+        return scores;
+    }
+    
+    private void addScores(Map<Long, Float> docs, double boost, double averageLength, Map<Long, Float> scores) {
+        int documentCount = documents.size();
+        double idf = Math.log(1 + (documentCount - docs.size() + 0.5) / (docs.size() + 0.5));
+        docs.forEach((id, frequency) -> {
+            double lengthRatio = documents.get(id).length / averageLength;
+            double score = boost * idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * lengthRatio));
+            scores.merge(id, (float) score, Math::max);
+        });
+    }
+    
+    private static Hits topHits(Map<Long, Float> scores, int offset, int limit) {
+        int wanted = offset + limit;
+        Comparator<Map.Entry<Long, Float>> best = Map.Entry.<Long, Float>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+        // Min-heap on rank keeps only the best offset + limit entries
+        PriorityQueue<Map.Entry<Long, Float>> heap = new PriorityQueue<>(wanted + 1, best.reversed());
+        for (Map.Entry<Long, Float> entry : scores.entrySet()) {
+            heap.add(entry);
+            if (heap.size() > wanted) {
+                heap.poll();
+            }
+        }
+        List<Map.Entry<Long, Float>> ranked = new ArrayList<>(heap);
+        ranked.sort(best);
+        List<Long> ids = new ArrayList<>();
+        for (int i = offset; i < ranked.size(); i++) {
+            ids.add(ranked.get(i).getKey());
+        }
+        return new Hits(ids, scores.size());
+    }
+    
+    private void removeLocked(long id) {
+        Document document = documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.terms) {
+            Map<Long, Float> docs = postings.get(term);
+            docs.remove(id);
+            if (docs.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= document.length;
+    }
+    
+    public record Field(String text, float weight) {
+    }
+    
+    public record Hits(List<Long> ids, int total) {
+        
+        public static final Hits EMPTY = new Hits(List.of(), 0);
+    }
+    
+    private record Document(String[] terms, float length) {
+    }
+}
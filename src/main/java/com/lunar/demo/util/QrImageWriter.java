@@ -0,0 +1,150 @@
+package com.lunar.demo.util;
+
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes QR code bit matrices straight to PNG or SVG, without going through a
+ * {@code BufferedImage} and ImageIO.
+ *
+ * The PNG is a 1-bit palette image (white, black): each matrix row is copied word by word into
+ * its scanline, so a 300x300 code is about 11 KB of raw data before compression instead of a
+ * 360 KB RGB raster. The deflater, scanline, and output buffers are kept per thread and reused
+ * across calls; the deflater is never ended, so its native memory lives as long as the thread.
+ * The SVG draws one path segment per run of dark modules, in module units scaled by its
+ * {@code viewBox}.
+ */
+public final class QrImageWriter {
+    
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final byte[] PALETTE = {(byte) 0xff, (byte) 0xff, (byte) 0xff, 0, 0, 0};
+    private static final int MAX_RETAINED_BUFFER = 256 * 1024;
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+    
+    private QrImageWriter() {
+    }
+    
+    public static byte[] png(BitMatrix matrix) {
+        Buffers buffers = BUFFERS.get();
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        int rowBytes = (width + 7) / 8;
+        int rawLength = height * (rowBytes + 1);
+        
+        // Scanlines: filter type 0, then the row's bits most significant first, 1 = dark. Rows are
+        // copied four bytes at a time; the spill is overwritten by the next row or lands in the slack
+        byte[] raw = buffers.raw(rawLength + 4);
+        int pos = 0;
+        for (int y = 0; y < height; y++) {
+            buffers.row = matrix.getRow(y, buffers.row);
+            int[] words = buffers.row.getBitArray();
+            raw[pos] = 0;
+            int rowStart = pos + 1;
+            for (int i = 0, out = rowStart; out < rowStart + rowBytes; i++, out += 4) {
+                int reversed = Integer.reverse(words[i]);
+                raw[out] = (byte) (reversed >>> 24);
+                raw[out + 1] = (byte) (reversed >>> 16);
+                raw[out + 2] = (byte) (reversed >>> 8);
+                raw[out + 3] = (byte) reversed;
+            }
+            pos = rowStart + rowBytes;
+        }
+        
+        Deflater deflater = buffers.deflater;
+        deflater.reset();
+        deflater.setInput(raw, 0, rawLength);
+        deflater.finish();
+        byte[] compressed = buffers.compressed;
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = buffers.compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        
+        byte[] png = new byte[SIGNATURE.length + 12 + 13 + 12 + PALETTE.length + 12 + compressedLength + 12];
+        System.arraycopy(SIGNATURE, 0, png, 0, SIGNATURE.length);
+        pos = SIGNATURE.length;
+        
+        byte[] header = buffers.header;
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 1;
+        header[9] = 3;
+        pos = chunk(png, pos, "IHDR", header, 13, buffers.crc);
+        pos = chunk(png, pos, "PLTE", PALETTE, PALETTE.length, buffers.crc);
+        pos = chunk(png, pos, "IDAT", compressed, compressedLength, buffers.crc);
+        chunk(png, pos, "IEND", header, 0, buffers.crc);
+        
+        if (compressed.length > MAX_RETAINED_BUFFER || buffers.raw.length > MAX_RETAINED_BUFFER) {
+            BUFFERS.remove();
+        }
+        return png;
+    }
+    
+    /**
+     * An SVG of the matrix, one unit per module, displayed at {@code size} pixels square.
+     */
+    public static String svg(BitMatrix matrix, int size) {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        StringBuilder svg = new StringBuilder(256 + width * height);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 ").append(width).append(' ').append(height)
+                .append("\" width=\"").append(size).append("\" height=\"").append(size)
+                .append("\" shape-rendering=\"crispEdges\"><rect width=\"100%\" height=\"100%\" fill=\"#fff\"/><path d=\"");
+        BitArray row = null;
+        for (int y = 0; y < height; y++) {
+            row = matrix.getRow(y, row);
+            int x = row.getNextSet(0);
+            while (x < width) {
+                int end = row.getNextUnset(x);
+                svg.append('M').append(x).append(' ').append(y).append('h').append(end - x).append("v1h-")
+                        .append(end - x).append('z');
+                x = row.getNextSet(end);
+            }
+        }
+        return svg.append("\"/></svg>").toString();
+    }
+    
+    private static int chunk(byte[] png, int pos, String type, byte[] data, int length, CRC32 crc) {
+        putInt(png, pos, length);
+        for (int i = 0; i < 4; i++) {
+            png[pos + 4 + i] = (byte) type.charAt(i);
+        }
+        System.arraycopy(data, 0, png, pos + 8, length);
+        crc.reset();
+        crc.update(png, pos + 4, length + 4);
+        putInt(png, pos + 8 + length, (int) crc.getValue());
+        return pos + 12 + length;
+    }
+    
+    private static void putInt(byte[] bytes, int pos, int value) {
+        bytes[pos] = (byte) (value >>> 24);
+        bytes[pos + 1] = (byte) (value >>> 16);
+        bytes[pos + 2] = (byte) (value >>> 8);
+        bytes[pos + 3] = (byte) value;
+    }
+    
+    private static final class Buffers {
+        
+        // 1-bit rows compress far better than photos, so the fastest level loses little size
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final CRC32 crc = new CRC32();
+        private final byte[] header = new byte[13];
+        private byte[] raw = new byte[16 * 1024];
+        private byte[] compressed = new byte[4 * 1024];
+        private BitArray row;
+        
+        private byte[] raw(int length) {
+            if (raw.length < length) {
+                raw = new byte[length];
+            }
+            return raw;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.lunar.demo;
+
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.TicketType;
+import com.lunar.demo.entity.User;
+import com.lunar.demo.repository.EventRepository;
+import com.lunar.demo.repository.TicketTypeRepository;
+import com.lunar.demo.repository.UserRepository;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Saves the users, events and ticket types tests build on. The test contexts share one in-memory
+ * database, so user names get a unique suffix; anything a test depends on beyond the defaults
+ * is set through the builder customizer.
+ */
+@Component
+public class TestFixtures {
+
+    private final UserRepository userRepository;
+    private final EventRepository eventRepository;
+    private final TicketTypeRepository ticketTypeRepository;
+
+    public TestFixtures(UserRepository userRepository, EventRepository eventRepository,
+                        TicketTypeRepository ticketTypeRepository) {
+        this.userRepository = userRepository;
+        this.eventRepository = eventRepository;
+        this.ticketTypeRepository = ticketTypeRepository;
+    }
+
+    public User createUser(String prefix) {
+        return createUser(prefix, user -> {
+        });
+    }
+
+    public User createUser(String prefix, Consumer<User.UserBuilder> customizer) {
+        String name = prefix + "-" + System.nanoTime();
+        User.UserBuilder user = User.builder()
+                .username(name)
+                .email(name + "@example.com")
+                .password("password")
+                .firstName("Test")
+                .lastName("User")
+                .role(User.UserRole.USER)
+                .status(User.UserStatus.ACTIVE);
+        customizer.accept(user);
+        return userRepository.save(user.build());
+    }
+
+    public Event createEvent(User organizer) {
+        return createEvent(organizer, event -> {
+        });
+    }
+
+    public Event createEvent(User organizer, Consumer<Event.EventBuilder> customizer) {
+        Event.EventBuilder event = Event.builder()
+                .title("Test Event")
+                .startDate(LocalDateTime.now().plusDays(10))
+                .endDate(LocalDateTime.now().plusDays(11))
+                .venueName("Test Venue")
+                .venueAddress("1 Test Street")
+                .category(Event.EventCategory.CONCERT)
+                .status(Event.EventStatus.PUBLISHED)
+                .currentAttendees(0)
+                .organizer(organizer);
+        customizer.accept(event);
+        return eventRepository.save(event.build());
+    }
+
+    public TicketType createTicketType(Event event, int quantityAvailable) {
+        return createTicketType(event, ticketType -> ticketType.quantityAvailable(quantityAvailable));
+    }
+
+    public TicketType createTicketType(Event event, Consumer<TicketType.TicketTypeBuilder> customizer) {
+        TicketType.TicketTypeBuilder ticketType = TicketType.builder()
+                .name("General")
+                .price(new BigDecimal("25.00"))
+                .quantityAvailable(100)
+                .quantitySold(0)
+                .isEarlyBird(false)
+                .status(TicketType.TicketStatus.ACTIVE)
+                .event(event);
+        customizer.accept(ticketType);
+        return ticketTypeRepository.save(ticketType.build());
+    }
+}
@@ -0,0 +1,205 @@
+package com.lunar.demo.controller;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.entity.Booking;
+import com.lunar.demo.entity.BookingItem;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.Ticket;
+import com.lunar.demo.entity.TicketType;
+import com.lunar.demo.entity.User;
+import com.lunar.demo.repository.BookingRepository;
+import com.lunar.demo.repository.TicketRepository;
+import com.lunar.demo.security.UserPrincipal;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureWebMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Each read endpoint must answer with one statement (plus a count for pages), however many
+ * rows and associations it returns.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureWebMvc
+@ActiveProfiles("test")
+class ReadEndpointQueryCountTest {
+
+    private static final int TICKETS = 50;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private MockMvc mockMvc;
+    private Statistics statistics;
+    private User attendee;
+    private Event event;
+    private Booking booking;
+    private Ticket ticket;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        String suffix = String.valueOf(System.nanoTime());
+        User organizer = fixtures.createUser("projection-organizer");
+        attendee = fixtures.createUser("projection-attendee");
+        event = fixtures.createEvent(organizer, builder -> builder
+                .title("Projection Event " + suffix)
+                .startDate(LocalDateTime.now().plusDays(5))
+                .endDate(LocalDateTime.now().plusDays(6))
+                .category(Event.EventCategory.WORKSHOP)
+                .isPublic(true)
+                .isFeatured(true));
+        TicketType ticketType = fixtures.createTicketType(event, builder -> builder
+                .price(new BigDecimal("10.00"))
+                .quantitySold(TICKETS));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            booking = bookingRepository.save(Booking.builder()
+                    .bookingReference("PROJ-" + suffix)
+                    .status(Booking.BookingStatus.CONFIRMED)
+                    .totalAmount(new BigDecimal("500.00"))
+                    .discountAmount(BigDecimal.ZERO)
+                    .taxAmount(BigDecimal.ZERO)
+                    .serviceFee(BigDecimal.ZERO)
+                    .currency("USD")
+                    .totalTickets(TICKETS)
+                    .user(attendee)
+                    .event(event)
+                    .build());
+            entityManager.persist(BookingItem.builder()
+                    .quantity(TICKETS)
+                    .unitPrice(ticketType.getPrice())
+                    .totalPrice(new BigDecimal("500.00"))
+                    .booking(booking)
+                    .ticketType(ticketType)
+                    .build());
+            for (int i = 0; i < TICKETS; i++) {
+                ticket = ticketRepository.save(Ticket.builder()
+                        .ticketCode("PROJ-" + suffix + "-" + i)
+                        .qrCode("PROJ-QR-" + suffix + "-" + i)
+                        .status(Ticket.TicketStatus.ACTIVE)
+                        .isUsed(false)
+                        .booking(booking)
+                        .ticketType(ticketType)
+                        .user(attendee)
+                        .build());
+            }
+        });
+
+        UserPrincipal principal = UserPrincipal.create(attendee);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void eventEndpointsUseOneStatement() throws Exception {
+        assertStatements(1, "/api/events/" + event.getId());
+        assertStatements(1, "/api/events/featured");
+        assertStatements(1, "/api/events/upcoming");
+        // Page content plus its count query
+        assertStatements(2, "/api/events?size=1");
+    }
+
+    @Test
+    void bookingEndpointsUseOneStatement() throws Exception {
+        mockMvc.perform(get("/api/bookings/" + booking.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalTickets").value(TICKETS))
+                .andExpect(jsonPath("$.userName").value("Test User"));
+
+        assertStatements(1, "/api/bookings/" + booking.getId());
+        assertStatements(1, "/api/bookings/reference/" + booking.getBookingReference());
+        assertStatements(1, "/api/bookings/event/" + event.getId());
+        assertStatements(1, "/api/bookings");
+    }
+
+    @Test
+    void ticketEndpointsUseOneStatementPerPage() throws Exception {
+        mockMvc.perform(get("/api/tickets/" + ticket.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.eventTitle").value(event.getTitle()))
+                .andExpect(jsonPath("$.ticketTypeName").value("General"));
+
+        assertStatements(1, "/api/tickets/" + ticket.getId());
+        assertStatements(1, "/api/tickets/booking/" + booking.getId());
+        // A short last page needs no count query
+        assertStatements(1, "/api/tickets?size=" + (TICKETS + 1));
+        assertStatements(2, "/api/tickets?size=" + (TICKETS / 2));
+    }
+
+    @Test
+    void ticketQrCodeIsServedAsCacheablePngAndRevalidatedWithoutRendering() throws Exception {
+        String url = "/api/tickets/qr/" + ticket.getId();
+        MvcResult first = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_PNG))
+                .andExpect(header().string("Cache-Control", "max-age=86400, private"))
+                .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+        byte[] png = first.getResponse().getContentAsByteArray();
+        assertEquals((byte) 0x89, png[0]);
+        assertEquals('P', png[1]);
+
+        mockMvc.perform(get(url).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+        assertStatements(1, url);
+    }
+
+    private void assertStatements(long expected, String url) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+        assertEquals(expected, statistics.getPrepareStatementCount(), "statements for GET " + url);
+    }
+}
@@ -0,0 +1,218 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.dto.AnalyticsReportResponse;
+import com.lunar.demo.entity.Booking;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.Payment;
+import com.lunar.demo.entity.Review;
+import com.lunar.demo.entity.User;
+import com.lunar.demo.repository.BookingRepository;
+import com.lunar.demo.repository.PaymentRepository;
+import com.lunar.demo.repository.ReviewRepository;
+import com.lunar.demo.security.UserPrincipal;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "analytics.review-settle-seconds=0"
+})
+@ActiveProfiles("test")
+class AnalyticsRollupServiceTest {
+
+    @Autowired
+    private AnalyticsRollupService analyticsRollupService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private User organizer;
+    private Event event;
+    private Event otherEvent;
+
+    @BeforeEach
+    void setUp() {
+        organizer = fixtures.createUser("analytics-organizer");
+        event = createEvent();
+        otherEvent = createEvent();
+        login(organizer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void salesRefundsAndCheckInsRollUpPerEventAndOrganizer() {
+        bookingService.confirmBooking(createBooking(event, 3, new BigDecimal("30.00")).getId());
+        bookingService.confirmBooking(createBooking(otherEvent, 1, new BigDecimal("12.50")).getId());
+        Booking cancelled = createBooking(event, 2, new BigDecimal("20.00"));
+        bookingService.confirmBooking(cancelled.getId());
+        bookingService.cancelBooking(cancelled.getId(), "changed plans");
+        eventPublisher.publishEvent(SalesRecordedEvent.refunded(event.getId(), new BigDecimal("10.00")));
+        eventPublisher.publishEvent(EventStatsChangedEvent.ticketsUsed(event.getId(), 2));
+        transactionTemplate.executeWithoutResult(status -> {
+            eventPublisher.publishEvent(SalesRecordedEvent.confirmed(event.getId(), 99, new BigDecimal("999.99")));
+            status.setRollbackOnly();
+        });
+        analyticsRollupService.flush();
+
+        // A second flush adds to the rows the first one created
+        eventPublisher.publishEvent(EventStatsChangedEvent.ticketsUsed(event.getId(), 1));
+        analyticsRollupService.flush();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        AnalyticsReportResponse daily = analyticsRollupService.getEventReport(event.getId(), "day", null, null);
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        AnalyticsReportResponse.Bucket totals = daily.getTotals();
+        assertEquals(3, totals.getTicketsSold());
+        assertEquals(new BigDecimal("30.00"), totals.getGross());
+        assertEquals(new BigDecimal("10.00"), totals.getRefunds());
+        assertEquals(new BigDecimal("20.00"), totals.getNet());
+        assertEquals(3, totals.getCheckIns());
+
+        AnalyticsReportResponse hourly = analyticsRollupService.getOrganizerReport(organizer.getId(), "HOUR", null, null);
+        assertEquals(4, hourly.getTotals().getTicketsSold());
+        assertEquals(new BigDecimal("42.50"), hourly.getTotals().getGross());
+        assertEquals(new BigDecimal("32.50"), hourly.getTotals().getNet());
+        assertEquals(3, hourly.getTotals().getCheckIns());
+    }
+
+    @Test
+    void paidBookingsCancelledThenRefundedAreTakenBackOnce() {
+        Booking booking = createBooking(event, 2, new BigDecimal("20.00"));
+        bookingService.confirmBooking(booking.getId());
+        paymentRepository.save(Payment.builder()
+                .paymentReference("PAY-ANALYTICS-" + System.nanoTime())
+                .externalPaymentId("order_analytics_" + System.nanoTime())
+                .paymentMethod(Payment.PaymentMethod.RAZORPAY)
+                .status(Payment.PaymentStatus.COMPLETED)
+                .amount(new BigDecimal("20.00"))
+                .processingFee(BigDecimal.ZERO)
+                .netAmount(new BigDecimal("20.00"))
+                .booking(booking)
+                .user(organizer)
+                .build());
+        bookingService.cancelBooking(booking.getId(), "changed plans");
+        // What PaymentService.processRefund publishes once the gateway has refunded the payment
+        eventPublisher.publishEvent(SalesRecordedEvent.refunded(event.getId(), new BigDecimal("20.00")));
+        analyticsRollupService.flush();
+
+        AnalyticsReportResponse.Bucket totals = analyticsRollupService
+                .getEventReport(event.getId(), "DAY", null, null).getTotals();
+        assertEquals(0, totals.getTicketsSold());
+        assertEquals(new BigDecimal("20.00"), totals.getGross());
+        assertEquals(new BigDecimal("20.00"), totals.getRefunds());
+        assertEquals(new BigDecimal("0.00"), totals.getNet());
+    }
+
+    @Test
+    void reviewsAreFoldedIntoTheRatingHistogramOnce() {
+        for (int rating : new int[] {5, 4, 4, 1}) {
+            reviewRepository.save(Review.builder()
+                    .rating(rating)
+                    .user(organizer)
+                    .event(event)
+                    .build());
+        }
+
+        analyticsRollupService.foldReviews();
+        analyticsRollupService.foldReviews();
+
+        AnalyticsReportResponse.Bucket totals = analyticsRollupService
+                .getEventReport(event.getId(), "DAY", null, null).getTotals();
+        assertEquals(List.of(1L, 0L, 0L, 2L, 1L), totals.getRatings());
+        assertEquals(new BigDecimal("3.50"), totals.getAverageRating());
+        assertEquals(List.of(1L, 0L, 0L, 2L, 1L), analyticsRollupService
+                .getOrganizerReport(organizer.getId(), "HOUR", null, null).getTotals().getRatings());
+    }
+
+    @Test
+    void onlyTheOrganizerCanReadBoundedReports() {
+        LocalDateTime now = LocalDateTime.now();
+        assertThrows(IllegalArgumentException.class,
+                () -> analyticsRollupService.getEventReport(event.getId(), "WEEK", null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> analyticsRollupService.getEventReport(event.getId(), "HOUR", now.minusDays(60), now));
+        assertThrows(IllegalArgumentException.class,
+                () -> analyticsRollupService.getEventReport(event.getId(), "DAY", now, now.minusDays(1)));
+
+        login(fixtures.createUser("analytics-other"));
+
+        assertThrows(RuntimeException.class,
+                () -> analyticsRollupService.getEventReport(event.getId(), "DAY", null, null));
+        assertThrows(RuntimeException.class,
+                () -> analyticsRollupService.getOrganizerReport(organizer.getId(), "DAY", null, null));
+    }
+
+    private void login(User user) {
+        UserPrincipal principal = UserPrincipal.create(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    private Event createEvent() {
+        return fixtures.createEvent(organizer, builder -> builder
+                .startDate(LocalDateTime.now().plusDays(7))
+                .endDate(LocalDateTime.now().plusDays(7).plusHours(3))
+                .registrationEndDate(LocalDateTime.now().plusDays(6)));
+    }
+
+    private Booking createBooking(Event bookedEvent, int tickets, BigDecimal totalAmount) {
+        return bookingRepository.save(Booking.builder()
+                .bookingReference("ANALYTICS-" + System.nanoTime())
+                .status(Booking.BookingStatus.PENDING)
+                .totalAmount(totalAmount)
+                .discountAmount(BigDecimal.ZERO)
+                .taxAmount(BigDecimal.ZERO)
+                .serviceFee(BigDecimal.ZERO)
+                .totalTickets(tickets)
+                .holdExpiresAt(LocalDateTime.now().plusMinutes(15))
+                .user(organizer)
+                .event(bookedEvent)
+                .build());
+    }
+}
@@ -0,0 +1,214 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.entity.Booking;
+import com.lunar.demo.entity.BookingItem;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.Payment;
+import com.lunar.demo.entity.TicketType;
+import com.lunar.demo.entity.User;
+import com.lunar.demo.repository.BookingRepository;
+import com.lunar.demo.repository.EventRepository;
+import com.lunar.demo.repository.PaymentRepository;
+import com.lunar.demo.repository.TicketTypeRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.HexFormat;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BookingHoldServiceTest {
+
+    @Autowired
+    private BookingHoldService bookingHoldService;
+
+    @Autowired
+    private TicketInventoryService ticketInventoryService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private TicketTypeRepository ticketTypeRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${razorpay.webhook-secret}")
+    private String webhookSecret;
+
+    @Test
+    void lapsedHoldsAreExpiredAndStockReleased() {
+        User user = fixtures.createUser("hold-expiry");
+        TicketType ticketType = createTicketType(user, 10);
+        ticketInventoryService.reserve(Map.of(ticketType.getId(), 5));
+
+        Booking lapsed = createPendingBooking(user, ticketType, 3, LocalDateTime.now().minusMinutes(1));
+        Booking live = createPendingBooking(user, ticketType, 2, LocalDateTime.now().plusMinutes(10));
+
+        assertEquals(1, bookingHoldService.expireHolds(List.of(lapsed.getId(), live.getId())));
+
+        assertEquals(Booking.BookingStatus.EXPIRED, bookingRepository.findById(lapsed.getId()).orElseThrow().getStatus());
+        assertEquals(Booking.BookingStatus.PENDING, bookingRepository.findById(live.getId()).orElseThrow().getStatus());
+        assertEquals(2, ticketTypeRepository.findById(ticketType.getId()).orElseThrow().getQuantitySold());
+
+        // Already expired bookings are not released twice
+        assertEquals(0, bookingHoldService.expireHolds(List.of(lapsed.getId())));
+        assertEquals(2, ticketTypeRepository.findById(ticketType.getId()).orElseThrow().getQuantitySold());
+    }
+
+    @Test
+    void catchUpExpiresHoldsNotTrackedByThisNode() {
+        User user = fixtures.createUser("hold-catch-up");
+        TicketType ticketType = createTicketType(user, 10);
+        ticketInventoryService.reserve(Map.of(ticketType.getId(), 4));
+        Booking lapsed = createPendingBooking(user, ticketType, 4, LocalDateTime.now().minusSeconds(5));
+
+        bookingHoldService.catchUp();
+
+        assertEquals(Booking.BookingStatus.EXPIRED, bookingRepository.findById(lapsed.getId()).orElseThrow().getStatus());
+        assertEquals(0, ticketTypeRepository.findById(ticketType.getId()).orElseThrow().getQuantitySold());
+    }
+
+    @Test
+    void paymentsCapturedAfterTheHoldLapsedDoNotConfirmTheBooking() throws Exception {
+        User user = fixtures.createUser("hold-late-capture");
+        TicketType ticketType = createTicketType(user, 10);
+        ticketInventoryService.reserve(Map.of(ticketType.getId(), 5));
+        Booking expired = createPendingBooking(user, ticketType, 3, LocalDateTime.now().minusMinutes(1));
+        Booking lapsed = createPendingBooking(user, ticketType, 1, LocalDateTime.now().minusSeconds(1));
+        Booking live = createPendingBooking(user, ticketType, 1, LocalDateTime.now().plusMinutes(10));
+        Payment expiredPayment = createPayment(user, expired);
+        Payment lapsedPayment = createPayment(user, lapsed);
+        Payment livePayment = createPayment(user, live);
+        bookingHoldService.expireHolds(List.of(expired.getId()));
+
+        capture(expiredPayment);
+        capture(lapsedPayment);
+        capture(livePayment);
+
+        // The expired booking's stock is already back on sale, so its capture is flagged instead
+        assertEquals(Booking.BookingStatus.EXPIRED, bookingRepository.findById(expired.getId()).orElseThrow().getStatus());
+        assertEquals(Booking.BookingStatus.PENDING, bookingRepository.findById(lapsed.getId()).orElseThrow().getStatus());
+        assertEquals(Booking.BookingStatus.CONFIRMED, bookingRepository.findById(live.getId()).orElseThrow().getStatus());
+        for (Payment flagged : List.of(expiredPayment, lapsedPayment)) {
+            Payment captured = paymentRepository.findById(flagged.getId()).orElseThrow();
+            assertEquals(Payment.PaymentStatus.COMPLETED, captured.getStatus());
+            assertTrue(captured.getFailureReason().endsWith("refund required"));
+        }
+        assertNull(paymentRepository.findById(livePayment.getId()).orElseThrow().getFailureReason());
+        assertEquals(2, ticketTypeRepository.findById(ticketType.getId()).orElseThrow().getQuantitySold());
+    }
+
+    @Test
+    void bookingsConfirmedByPaymentCountAsAttendeesUntilCancelled() throws Exception {
+        User user = fixtures.createUser("hold-paid-cancel");
+        TicketType ticketType = createTicketType(user, 10);
+        Event event = ticketType.getEvent();
+        ticketInventoryService.reserve(Map.of(ticketType.getId(), 3));
+        Booking booking = createPendingBooking(user, ticketType, 3, LocalDateTime.now().plusMinutes(10));
+
+        capture(createPayment(user, booking));
+
+        assertEquals(Booking.BookingStatus.CONFIRMED, bookingRepository.findById(booking.getId()).orElseThrow().getStatus());
+        assertEquals(3, eventRepository.findById(event.getId()).orElseThrow().getCurrentAttendees());
+
+        bookingService.cancelBooking(booking.getId(), "Changed plans");
+
+        assertEquals(0, eventRepository.findById(event.getId()).orElseThrow().getCurrentAttendees());
+        assertEquals(0, ticketTypeRepository.findById(ticketType.getId()).orElseThrow().getQuantitySold());
+    }
+
+    private void capture(Payment payment) throws Exception {
+        String payload = new JSONObject()
+                .put("event", "payment.captured")
+                .put("payload", new JSONObject().put("payment", new JSONObject()
+                        .put("id", "pay_" + payment.getId())
+                        .put("order_id", payment.getExternalPaymentId())))
+                .toString();
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(webhookSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        paymentService.handleWebhook(payload, HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private Payment createPayment(User user, Booking booking) {
+        return paymentRepository.save(Payment.builder()
+                .paymentReference("PAY-HOLD-" + System.nanoTime())
+                .externalPaymentId("order_hold_" + System.nanoTime())
+                .paymentMethod(Payment.PaymentMethod.RAZORPAY)
+                .status(Payment.PaymentStatus.PENDING)
+                .amount(new BigDecimal("100.00"))
+                .processingFee(BigDecimal.ZERO)
+                .netAmount(new BigDecimal("100.00"))
+                .booking(booking)
+                .user(user)
+                .build());
+    }
+
+    private Booking createPendingBooking(User user, TicketType ticketType, int quantity, LocalDateTime holdExpiresAt) {
+        Booking booking = Booking.builder()
+                .bookingReference("HOLD-" + System.nanoTime())
+                .status(Booking.BookingStatus.PENDING)
+                .totalAmount(BigDecimal.ZERO)
+                .discountAmount(BigDecimal.ZERO)
+                .taxAmount(BigDecimal.ZERO)
+                .serviceFee(BigDecimal.ZERO)
+                .totalTickets(quantity)
+                .holdExpiresAt(holdExpiresAt)
+                .user(user)
+                .event(ticketType.getEvent())
+                .build();
+        BookingItem item = BookingItem.builder()
+                .quantity(quantity)
+                .unitPrice(ticketType.getPrice())
+                .totalPrice(ticketType.getPrice().multiply(new BigDecimal(quantity)))
+                .booking(bookingRepository.save(booking))
+                .ticketType(ticketType)
+                .build();
+        transactionTemplate.executeWithoutResult(status -> entityManager.persist(item));
+        return booking;
+    }
+
+    private TicketType createTicketType(User organizer, int quantityAvailable) {
+        Event event = fixtures.createEvent(organizer,
+                builder -> builder.registrationEndDate(LocalDateTime.now().plusDays(5)));
+        return fixtures.createTicketType(event, quantityAvailable);
+    }
+}
@@ -0,0 +1,197 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.dto.BookingCreateRequest;
+import com.lunar.demo.dto.BookingResponse;
+import com.lunar.demo.entity.Booking;
+import com.lunar.demo.entity.BookingItem;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.TicketType;
+import com.lunar.demo.entity.User;
+import com.lunar.demo.repository.BookingRepository;
+import com.lunar.demo.repository.EventRepository;
+import com.lunar.demo.repository.TicketTypeRepository;
+import com.lunar.demo.security.UserPrincipal;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class BookingServiceTest {
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private TicketTypeRepository ticketTypeRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private TicketInventoryService ticketInventoryService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void ticketTotalIsPersistedWithTheItemsAndUsedWithoutLoadingThem() {
+        User user = fixtures.createUser("booking-total");
+        Event event = fixtures.createEvent(user,
+                builder -> builder.registrationEndDate(LocalDateTime.now().plusDays(9)));
+        TicketType general = fixtures.createTicketType(event, builder -> builder.name("General").quantityAvailable(200));
+        TicketType vip = fixtures.createTicketType(event, builder -> builder.name("VIP").quantityAvailable(200));
+        authenticate(user);
+
+        BookingResponse created = bookingService.createBooking(BookingCreateRequest.builder()
+                .eventId(event.getId())
+                .tickets(List.of(
+                        BookingCreateRequest.TicketRequest.builder().ticketTypeId(general.getId()).quantity(2).build(),
+                        BookingCreateRequest.TicketRequest.builder().ticketTypeId(vip.getId()).quantity(3).build()))
+                .build());
+
+        assertEquals(5, created.getTotalTickets());
+        assertEquals(5, bookingRepository.findById(created.getId()).orElseThrow().getTotalTickets());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        BookingResponse confirmed = bookingService.confirmBooking(created.getId());
+
+        assertEquals(5, confirmed.getTotalTickets());
+        assertEquals(5, eventRepository.findById(event.getId()).orElseThrow().getCurrentAttendees());
+        assertEquals(0, statistics.getEntityStatistics(BookingItem.class.getName()).getLoadCount());
+        assertEquals(0, statistics.getCollectionStatistics(
+                Booking.class.getName() + ".bookingItems").getFetchCount());
+    }
+
+    @Test
+    void parallelConfirmationsAndCancellationsKeepExactCounts() throws Exception {
+        int confirmers = 64;
+        int cancellers = 32;
+        User user = fixtures.createUser("booking-stress");
+        Event event = fixtures.createEvent(user,
+                builder -> builder.registrationEndDate(LocalDateTime.now().plusDays(9)));
+        TicketType general = fixtures.createTicketType(event, builder -> builder.name("General").quantityAvailable(200));
+        TicketType vip = fixtures.createTicketType(event, builder -> builder.name("VIP").quantityAvailable(200));
+        int bookings = confirmers + cancellers;
+        ticketInventoryService.reserve(Map.of(general.getId(), bookings, vip.getId(), bookings));
+
+        List<Long> pending = new ArrayList<>();
+        List<Long> confirmed = new ArrayList<>();
+        for (int i = 0; i < bookings; i++) {
+            Long bookingId = createPendingBooking(user, general, vip);
+            if (i < cancellers) {
+                bookingService.confirmBooking(bookingId);
+                confirmed.add(bookingId);
+            } else {
+                pending.add(bookingId);
+            }
+        }
+        assertEquals(2 * cancellers, currentAttendees(event));
+
+        ExecutorService executor = Executors.newFixedThreadPool(confirmers + cancellers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (Long bookingId : pending) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return bookingService.confirmBooking(bookingId);
+                }));
+            }
+            for (Long bookingId : confirmed) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return bookingService.cancelBooking(bookingId, "stress test");
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(2 * confirmers, currentAttendees(event));
+        assertEquals(confirmers, ticketTypeRepository.findById(general.getId()).orElseThrow().getQuantitySold());
+        assertEquals(confirmers, ticketTypeRepository.findById(vip.getId()).orElseThrow().getQuantitySold());
+    }
+
+    private int currentAttendees(Event event) {
+        return eventRepository.findById(event.getId()).orElseThrow().getCurrentAttendees();
+    }
+
+    private Long createPendingBooking(User user, TicketType... ticketTypes) {
+        return transactionTemplate.execute(status -> {
+            Booking booking = bookingRepository.save(Booking.builder()
+                    .bookingReference("STRESS-" + System.nanoTime())
+                    .status(Booking.BookingStatus.PENDING)
+                    .totalAmount(BigDecimal.ZERO)
+                    .discountAmount(BigDecimal.ZERO)
+                    .taxAmount(BigDecimal.ZERO)
+                    .serviceFee(BigDecimal.ZERO)
+                    .totalTickets(ticketTypes.length)
+                    .holdExpiresAt(LocalDateTime.now().plusMinutes(10))
+                    .user(user)
+                    .event(ticketTypes[0].getEvent())
+                    .build());
+            for (TicketType ticketType : ticketTypes) {
+                entityManager.persist(BookingItem.builder()
+                        .quantity(1)
+                        .unitPrice(ticketType.getPrice())
+                        .totalPrice(ticketType.getPrice())
+                        .booking(booking)
+                        .ticketType(ticketType)
+                        .build());
+            }
+            return booking.getId();
+        });
+    }
+
+    private void authenticate(User user) {
+        UserPrincipal principal = UserPrincipal.create(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+}
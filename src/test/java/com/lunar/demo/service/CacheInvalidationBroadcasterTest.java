@@ -0,0 +1,141 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.config.CacheConfig;
+import com.lunar.demo.config.TwoLevelCache;
+import com.lunar.demo.dto.EventResponse;
+import com.lunar.demo.entity.Event;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "cache.redis.enabled=true")
+@ActiveProfiles("test")
+class CacheInvalidationBroadcasterTest {
+
+    private static RedisServer redisServer;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        registry.add("spring.data.redis.host", () -> "localhost");
+        registry.add("spring.data.redis.port", () -> port);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        redisServer.stop();
+    }
+
+    @Test
+    void eventsAreSharedThroughRedis() {
+        Event event = fixtures.createEvent(fixtures.createUser("l2-shared"));
+
+        EventResponse first = eventService.getEventById(event.getId());
+        assertTrue(redisTemplate.hasKey(redisKey(event.getId())));
+
+        cache().evictLocal(event.getId());
+        EventResponse fromRedis = eventService.getEventById(event.getId());
+
+        assertNotSame(first, fromRedis);
+        assertEquals(first.getTitle(), fromRedis.getTitle());
+        assertEquals(first.getStartDate(), fromRedis.getStartDate());
+    }
+
+    @Test
+    void invalidationsFromOtherNodesEvictTheLocalCopy() throws InterruptedException {
+        Event event = fixtures.createEvent(fixtures.createUser("l2-remote"));
+        eventService.getEventById(event.getId());
+        assertNotNull(cache().getLocal().get(event.getId()));
+
+        redisTemplate.convertAndSend(CacheConfig.INVALIDATION_CHANNEL, "other-node|event|" + event.getId());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache().getLocal().get(event.getId()) != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertNull(cache().getLocal().get(event.getId()));
+        assertTrue(redisTemplate.hasKey(redisKey(event.getId())));
+    }
+
+    @Test
+    void committedChangesEvictBothLevels() {
+        Event event = fixtures.createEvent(fixtures.createUser("l2-commit"));
+        eventService.getEventById(event.getId());
+
+        transactionTemplate.executeWithoutResult(status ->
+                eventPublisher.publishEvent(new EventChangedEvent(event.getId())));
+
+        assertNull(cache().getLocal().get(event.getId()));
+        assertNull(cache().get(event.getId()));
+        assertTrue(redisTemplate.getExpire(redisKey(event.getId())) <= 10);
+    }
+
+    @Test
+    void loadsThatFinishAfterAnEvictionDoNotRefillRedis() {
+        Event event = fixtures.createEvent(fixtures.createUser("l2-stale"));
+        EventResponse stale = eventService.getEventById(event.getId());
+
+        // The change commits and evicts while another read still holds the row it loaded before
+        cache().evict(event.getId());
+        cache().put(event.getId(), stale);
+        cache().get(event.getId(), () -> stale);
+        cache().evictLocal(event.getId());
+
+        assertNull(cache().get(event.getId()));
+        EventResponse reloaded = eventService.getEventById(event.getId());
+        assertNotSame(stale, reloaded);
+        cache().evictLocal(event.getId());
+        assertNull(cache().get(event.getId()));
+    }
+
+    private TwoLevelCache cache() {
+        return assertInstanceOf(TwoLevelCache.class, cacheManager.getCache(CacheConfig.EVENTS));
+    }
+
+    private String redisKey(Long eventId) {
+        return "lunar:cache:" + CacheConfig.EVENTS + "::" + eventId;
+    }
+}
@@ -0,0 +1,252 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.dto.CheckInBatchRequest;
+import com.lunar.demo.entity.Booking;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.Ticket;
+import com.lunar.demo.entity.TicketType;
+import com.lunar.demo.entity.User;
+import com.lunar.demo.repository.BookingRepository;
+import com.lunar.demo.repository.TicketRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class CheckInServiceTest {
+
+    @Autowired
+    private CheckInService checkInService;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private User user;
+    private Event event;
+    private TicketType ticketType;
+
+    @BeforeEach
+    void setUp() {
+        user = fixtures.createUser("checkin");
+        event = fixtures.createEvent(user, builder -> builder
+                .startDate(LocalDateTime.now().plusHours(1))
+                .endDate(LocalDateTime.now().plusHours(4)));
+        ticketType = fixtures.createTicketType(event, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        checkInService.close(event.getId());
+    }
+
+    @Test
+    void scansAreDecidedFromMemoryAndWrittenInOneBatch() {
+        Booking booking = createBooking(Booking.BookingStatus.CONFIRMED);
+        List<Ticket> tickets = createTickets(booking, 3, Ticket.TicketStatus.ACTIVE);
+        Ticket used = createTickets(booking, 1, Ticket.TicketStatus.USED).get(0);
+        Ticket cancelled = createTickets(createBooking(Booking.BookingStatus.CANCELLED), 1, Ticket.TicketStatus.ACTIVE)
+                .get(0);
+        checkInService.open(event.getId());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        LocalDateTime scannedAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        statistics.clear();
+        assertEquals(CheckInService.Verdict.VALID, checkInService.check(tickets.get(0).getId(), booking.getId()));
+        assertEquals(CheckInService.Verdict.WRONG_BOOKING, checkInService.check(tickets.get(0).getId(), -1L));
+        for (Ticket ticket : tickets) {
+            assertEquals(CheckInService.Verdict.ADMITTED,
+                    checkInService.admit(ticket.getId(), booking.getId(), "gate-1", scannedAt));
+        }
+        assertEquals(CheckInService.Verdict.ALREADY_USED,
+                checkInService.admit(tickets.get(0).getId(), null, "gate-2", scannedAt));
+        assertEquals(CheckInService.Verdict.ALREADY_USED, checkInService.check(used.getId(), null));
+        assertEquals(CheckInService.Verdict.NOT_LOADED, checkInService.check(cancelled.getId(), null));
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        checkInService.flush();
+
+        // The tickets are read with one query and updated in one JDBC batch
+        assertEquals(2, statistics.getPrepareStatementCount());
+        for (Ticket ticket : tickets) {
+            Ticket stored = ticketRepository.findById(ticket.getId()).orElseThrow();
+            assertEquals(Ticket.TicketStatus.USED, stored.getStatus());
+            assertEquals("gate-1", stored.getUsedBy());
+            assertEquals(scannedAt, stored.getUsedAt());
+            assertEquals(scannedAt, stored.getCheckInTime());
+        }
+    }
+
+    @Test
+    void concurrentGatesAdmitEachTicketOnce() throws Exception {
+        Booking booking = createBooking(Booking.BookingStatus.CONFIRMED);
+        List<Ticket> tickets = createTickets(booking, 50, Ticket.TicketStatus.ACTIVE);
+        checkInService.open(event.getId());
+        int gates = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(gates);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        List<Future<?>> scans = new ArrayList<>();
+        for (int gate = 0; gate < gates; gate++) {
+            String usedBy = "gate-" + gate;
+            scans.add(pool.submit(() -> {
+                start.await();
+                for (Ticket ticket : tickets) {
+                    if (checkInService.admit(ticket.getId(), booking.getId(), usedBy, LocalDateTime.now())
+                            == CheckInService.Verdict.ADMITTED) {
+                        admitted.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> scan : scans) {
+            scan.get();
+        }
+        pool.shutdown();
+        checkInService.flush();
+
+        assertEquals(tickets.size(), admitted.get());
+        assertTrue(ticketRepository.findAllById(tickets.stream().map(Ticket::getId).toList()).stream()
+                .allMatch(ticket -> ticket.getStatus() == Ticket.TicketStatus.USED));
+    }
+
+    @Test
+    void reloadKeepsUnwrittenScansAndDropsCancelledBookings() {
+        Booking kept = createBooking(Booking.BookingStatus.CONFIRMED);
+        Booking cancelledLater = createBooking(Booking.BookingStatus.CONFIRMED);
+        Ticket scanned = createTickets(kept, 1, Ticket.TicketStatus.ACTIVE).get(0);
+        Ticket revoked = createTickets(cancelledLater, 1, Ticket.TicketStatus.ACTIVE).get(0);
+        checkInService.open(event.getId());
+        assertEquals(CheckInService.Verdict.ADMITTED,
+                checkInService.admit(scanned.getId(), null, "gate-1", LocalDateTime.now()));
+
+        cancelledLater.setStatus(Booking.BookingStatus.CANCELLED);
+        bookingRepository.save(cancelledLater);
+        Ticket late = createTickets(kept, 1, Ticket.TicketStatus.ACTIVE).get(0);
+        checkInService.open(event.getId());
+
+        assertEquals(CheckInService.Verdict.ALREADY_USED, checkInService.check(scanned.getId(), null));
+        assertEquals(CheckInService.Verdict.NOT_LOADED, checkInService.check(revoked.getId(), null));
+        assertEquals(CheckInService.Verdict.VALID, checkInService.check(late.getId(), kept.getId()));
+
+        checkInService.close(event.getId());
+        assertEquals(Ticket.TicketStatus.USED, ticketRepository.findById(scanned.getId()).orElseThrow().getStatus());
+        assertEquals(CheckInService.Verdict.NOT_LOADED, checkInService.check(late.getId(), null));
+    }
+
+    @Test
+    void bufferedScansAreAppliedWithOneReadAndOneBatch() {
+        Booking booking = createBooking(Booking.BookingStatus.CONFIRMED);
+        List<Ticket> tickets = createTickets(booking, 3, Ticket.TicketStatus.ACTIVE);
+        Ticket used = createTickets(booking, 1, Ticket.TicketStatus.USED).get(0);
+        Ticket cancelled = createTickets(createBooking(Booking.BookingStatus.CANCELLED), 1, Ticket.TicketStatus.ACTIVE)
+                .get(0);
+        LocalDateTime opened = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusMinutes(30);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        List<CheckInService.Verdict> verdicts = checkInService.admitAll(List.of(
+                scan(tickets.get(0), "gate-2", opened.plusMinutes(5)),
+                scan(tickets.get(0), "gate-1", opened.plusMinutes(1)),
+                scan(tickets.get(1), "gate-1", opened.plusMinutes(2)),
+                CheckInBatchRequest.Scan.builder().ticketId(tickets.get(2).getId()).bookingId(-1L)
+                        .usedBy("gate-1").scannedAt(opened).build(),
+                scan(used, "gate-1", opened),
+                scan(cancelled, "gate-1", opened),
+                CheckInBatchRequest.Scan.builder().ticketId(-7L).usedBy("gate-1").scannedAt(opened).build()));
+
+        assertEquals(List.of(
+                CheckInService.Verdict.ALREADY_USED,
+                CheckInService.Verdict.ADMITTED,
+                CheckInService.Verdict.ADMITTED,
+                CheckInService.Verdict.WRONG_BOOKING,
+                CheckInService.Verdict.ALREADY_USED,
+                CheckInService.Verdict.NOT_VALID,
+                CheckInService.Verdict.NOT_FOUND), verdicts);
+        assertEquals(2, statistics.getPrepareStatementCount());
+        Ticket first = ticketRepository.findById(tickets.get(0).getId()).orElseThrow();
+        assertEquals("gate-1", first.getUsedBy());
+        assertEquals(opened.plusMinutes(1), first.getUsedAt());
+        assertEquals(Ticket.TicketStatus.ACTIVE,
+                ticketRepository.findById(tickets.get(2).getId()).orElseThrow().getStatus());
+
+        // With the gates open the same device sync is decided from memory
+        Ticket late = createTickets(booking, 1, Ticket.TicketStatus.ACTIVE).get(0);
+        checkInService.open(event.getId());
+        statistics.clear();
+        assertEquals(List.of(CheckInService.Verdict.ALREADY_USED, CheckInService.Verdict.ADMITTED),
+                checkInService.admitAll(List.of(scan(tickets.get(1), "gate-3", opened), scan(late, "gate-3", opened))));
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    private static CheckInBatchRequest.Scan scan(Ticket ticket, String usedBy, LocalDateTime scannedAt) {
+        return CheckInBatchRequest.Scan.builder()
+                .ticketId(ticket.getId())
+                .bookingId(ticket.getBooking().getId())
+                .usedBy(usedBy)
+                .scannedAt(scannedAt)
+                .build();
+    }
+
+    private Booking createBooking(Booking.BookingStatus status) {
+        return bookingRepository.save(Booking.builder()
+                .bookingReference("CHECKIN-" + System.nanoTime())
+                .status(status)
+                .totalAmount(BigDecimal.TEN)
+                .discountAmount(BigDecimal.ZERO)
+                .taxAmount(BigDecimal.ZERO)
+                .serviceFee(BigDecimal.ZERO)
+                .totalTickets(1)
+                .user(user)
+                .event(event)
+                .build());
+    }
+
+    private List<Ticket> createTickets(Booking booking, int count, Ticket.TicketStatus status) {
+        List<Ticket> tickets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            tickets.add(Ticket.builder()
+                    .ticketCode("CHK-" + System.nanoTime() + "-" + i)
+                    .qrCode("CHK-QR-" + System.nanoTime() + "-" + i)
+                    .status(status)
+                    .isUsed(status == Ticket.TicketStatus.USED)
+                    .booking(booking)
+                    .ticketType(ticketType)
+                    .user(user)
+                    .build());
+        }
+        return ticketRepository.saveAll(tickets);
+    }
+}
@@ -0,0 +1,164 @@
+package com.lunar.demo.service;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.entity.Booking;
+import com.lunar.demo.entity.EmailDeadLetter;
+import com.lunar.demo.entity.EmailOutbox;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.User;
+import com.lunar.demo.repository.BookingRepository;
+import com.lunar.demo.repository.EmailDeadLetterRepository;
+import com.lunar.demo.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.mail.port=3025",
+        "mail.outbox.poll-interval-ms=100",
+        "mail.outbox.max-attempts=2",
+        "mail.outbox.backoff-base-ms=10",
+        // Own database, so the outbox only holds this class's mail and the reminder scan at
+        // startup finds no events other test classes left behind
+        "spring.datasource.url=jdbc:h2:mem:email-delivery-test;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+@ActiveProfiles("test")
+class EmailDeliveryServiceTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig().withUser("test@example.com", "test-password"));
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private EmailDeadLetterRepository emailDeadLetterRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    void emailsAreQueuedWithTheCallerTransactionAndSentAfterCommit() throws Exception {
+        Booking booking = createBooking("outbox-commit");
+        Booking rolledBack = createBooking("outbox-rollback");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            emailService.queueBookingConfirmationEmail(rolledBack);
+            status.setRollbackOnly();
+        });
+        transactionTemplate.executeWithoutResult(status -> emailService.queueBookingConfirmationEmail(booking));
+
+        assertTrue(greenMail.waitForIncomingEmail(10_000, 1));
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(1, received.length);
+        assertEquals("Booking Confirmation - " + booking.getEvent().getTitle(), received[0].getSubject());
+        assertEquals(booking.getUser().getEmail(), received[0].getAllRecipients()[0].toString());
+
+        awaitUntil(() -> outboxRows(booking).isEmpty());
+        assertTrue(outboxRows(rolledBack).isEmpty());
+        assertTrue(meterRegistry.counter("email.outbox.sent").count() >= 1);
+    }
+
+    @Test
+    void batchesAreSplitAcrossWorkersAndAllDelivered() {
+        int emails = 25;
+        Booking booking = createBooking("outbox-batch");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < emails; i++) {
+                emailService.queueEventReminderEmail(booking);
+            }
+        });
+
+        assertTrue(greenMail.waitForIncomingEmail(10_000, emails));
+        assertEquals(emails, greenMail.getReceivedMessages().length);
+        awaitUntil(() -> outboxRows(booking).isEmpty());
+    }
+
+    @Test
+    void failingEmailsAreRetriedThenDeadLettered() {
+        Long missingBookingId = -System.nanoTime();
+        emailOutboxRepository.save(EmailOutbox.builder()
+                .type(EmailOutbox.EmailType.BOOKING_CONFIRMATION)
+                .bookingId(missingBookingId)
+                .recipient("outbox-missing@example.com")
+                .attempts(0)
+                .nextAttemptAt(LocalDateTime.now())
+                .build());
+
+        awaitUntil(() -> !emailDeadLetterRepository.findByBookingId(missingBookingId).isEmpty());
+
+        EmailDeadLetter deadLetter = emailDeadLetterRepository.findByBookingId(missingBookingId).get(0);
+        assertEquals(2, deadLetter.getAttempts());
+        assertEquals("Booking not found", deadLetter.getLastError());
+        assertTrue(emailOutboxRepository.findAll().stream()
+                .noneMatch(email -> email.getBookingId().equals(missingBookingId)));
+        assertTrue(meterRegistry.counter("email.outbox.retried").count() >= 1);
+        assertTrue(meterRegistry.counter("email.outbox.dead_lettered").count() >= 1);
+        assertEquals(0, greenMail.getReceivedMessages().length);
+    }
+
+    private List<EmailOutbox> outboxRows(Booking booking) {
+        return emailOutboxRepository.findAll().stream()
+                .filter(email -> email.getBookingId().equals(booking.getId()))
+                .toList();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met within 10s");
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private Booking createBooking(String name) {
+        User user = fixtures.createUser(name);
+        Event event = fixtures.createEvent(user);
+        return bookingRepository.save(Booking.builder()
+                .bookingReference("OUTBOX-" + System.nanoTime())
+                .status(Booking.BookingStatus.CONFIRMED)
+                .totalAmount(new BigDecimal("50.00"))
+                .discountAmount(BigDecimal.ZERO)
+                .taxAmount(BigDecimal.ZERO)
+                .serviceFee(BigDecimal.ZERO)
+                .totalTickets(2)
+                .user(user)
+                .event(event)
+                .build());
+    }
+}
@@ -0,0 +1,43 @@
+package com.lunar.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmailTemplatesTest {
+
+    private final EmailTemplates emailTemplates = new EmailTemplates(List.of("en", "fr"));
+
+    @Test
+    void localeVariantsFallBackFromCountryToLanguageToDefault() {
+        Object[] values = {"Jazz Night", "samedi 15 juin", "Blue Hall", "1 Rue Test", "LUNAR-1", "https://x.test", 9L};
+
+        String french = emailTemplates.render(EmailTemplates.Template.EVENT_REMINDER, Locale.CANADA_FRENCH, values);
+        String english = emailTemplates.render(EmailTemplates.Template.EVENT_REMINDER, Locale.UK, values);
+        String unknown = emailTemplates.render(EmailTemplates.Template.EVENT_REMINDER, Locale.forLanguageTag("hi-IN"), values);
+
+        assertEquals("<p>Rappel : Jazz Night le samedi 15 juin à Blue Hall (1 Rue Test), réservation LUNAR-1.</p>\n" +
+                "<a href=\"https://x.test/bookings/9\">Voir la réservation</a>\n", french);
+        assertTrue(english.contains("<h2>Jazz Night</h2>"));
+        assertTrue(english.contains("<a href=\"https://x.test/bookings/9\" class=\"button\">View Your Booking</a>"));
+        assertEquals(english, unknown);
+    }
+
+    @Test
+    void everyTemplateRendersAllOfItsVariables() {
+        for (EmailTemplates.Template template : EmailTemplates.Template.values()) {
+            Object[] values = template.getVariables().stream().map(name -> "<" + name + ">").toArray();
+
+            String html = emailTemplates.render(template, Locale.ENGLISH, values);
+
+            for (String name : template.getVariables()) {
+                assertTrue(html.contains("&lt;" + name + "&gt;"), template + " does not use " + name);
+            }
+            assertTrue(!html.contains("{{"), template + " has an unfilled placeholder");
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.config.CacheConfig;
+import com.lunar.demo.dto.EventResponse;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.User;
+import com.lunar.demo.security.UserPrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class EventCacheTest {
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void repeatedReadsAreServedFromTheCache() {
+        Event event = createEvent(fixtures.createUser("cache-read"));
+
+        EventResponse first = eventService.getEventById(event.getId());
+        EventResponse second = eventService.getEventById(event.getId());
+
+        assertSame(first, second);
+        assertNotNull(cache().get(event.getId()));
+    }
+
+    @Test
+    void publishingEvictsTheCachedSnapshot() {
+        User organizer = fixtures.createUser("cache-publish");
+        Event event = createEvent(organizer);
+        assertEquals("DRAFT", eventService.getEventById(event.getId()).getStatus());
+
+        UserPrincipal principal = UserPrincipal.create(organizer);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        eventService.publishEvent(event.getId());
+
+        assertEquals("PUBLISHED", eventService.getEventById(event.getId()).getStatus());
+    }
+
+    @Test
+    void evictionWaitsForCommit() {
+        Event event = createEvent(fixtures.createUser("cache-commit"));
+        eventService.getEventById(event.getId());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            eventPublisher.publishEvent(new EventChangedEvent(event.getId()));
+            assertNotNull(cache().get(event.getId()));
+        });
+
+        assertNull(cache().get(event.getId()));
+    }
+
+    private Cache cache() {
+        return cacheManager.getCache(CacheConfig.EVENTS);
+    }
+
+    private Event createEvent(User organizer) {
+        return fixtures.createEvent(organizer, builder -> builder.status(Event.EventStatus.DRAFT));
+    }
+}
@@ -0,0 +1,62 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.dto.NearbyEventResponse;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class EventGeoServiceTest {
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private EventGeoService eventGeoService;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    void nearbyEventsAreListedEventsSortedByDistance() {
+        User organizer = fixtures.createUser("geo-organizer");
+        Event near = createEvent(organizer, "Near", 64.1466, -21.9426, Event.EventStatus.PUBLISHED);
+        Event further = createEvent(organizer, "Further", 64.1000, -21.8000, Event.EventStatus.PUBLISHED);
+        Event draft = createEvent(organizer, "Draft", 64.1466, -21.9426, Event.EventStatus.DRAFT);
+        createEvent(organizer, "Elsewhere", 65.6835, -18.0878, Event.EventStatus.PUBLISHED);
+        List.of(near, further, draft).forEach(event -> eventGeoService.refresh(event.getId()));
+
+        List<NearbyEventResponse> nearby = eventService.getEventsNearby(64.1466, -21.9426, 20, 10);
+
+        assertEquals(List.of("Near", "Further"), nearby.stream().map(result -> result.getEvent().getTitle()).toList());
+        assertEquals(0.0, nearby.get(0).getDistanceKm());
+        assertEquals(List.of("Near", "Further"), eventService.getEventsInBox(64.0, -22.0, 64.2, -21.7, 64.1466, -21.9426, 10)
+                .stream().map(result -> result.getEvent().getTitle()).toList());
+    }
+
+    @Test
+    void invalidQueriesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> eventService.getEventsNearby(91, 0, 10, 10));
+        assertThrows(IllegalArgumentException.class, () -> eventService.getEventsNearby(0, 0, 5000, 10));
+        assertThrows(IllegalArgumentException.class, () -> eventService.getEventsNearby(0, 0, 10, 0));
+    }
+
+    private Event createEvent(User organizer, String title, double latitude, double longitude, Event.EventStatus status) {
+        return fixtures.createEvent(organizer, builder -> builder
+                .title(title)
+                .latitude(latitude)
+                .longitude(longitude)
+                .status(status)
+                .isPublic(true));
+    }
+}
@@ -0,0 +1,167 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.dto.EventResponse;
+import com.lunar.demo.dto.EventSearchRequest;
+import com.lunar.demo.dto.EventSearchResponse;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class EventQueryServiceTest {
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private EventSearchService eventSearchService;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private String city;
+    private LocalDateTime base;
+    private List<Event> events;
+
+    @BeforeEach
+    void createEvents() {
+        city = "Keyset" + System.nanoTime();
+        base = LocalDateTime.now().plusDays(30).withNano(0);
+        User organizer = fixtures.createUser("query");
+        events = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            events.add(createEvent(organizer, "Event " + i, base.plusDays(i % 5), i == 3, i % 2 == 0,
+                    Event.EventStatus.PUBLISHED));
+        }
+        createEvent(organizer, "Draft", base, false, false, Event.EventStatus.DRAFT);
+        fixtures.createTicketType(events.get(1), builder -> builder.price(new BigDecimal("25.00")));
+        fixtures.createTicketType(events.get(4), builder -> builder.price(new BigDecimal("120.00")));
+    }
+
+    @Test
+    void seekPagesCoverEveryMatchExactlyOnceInOrder() {
+        EventSearchRequest request = new EventSearchRequest();
+        request.setCity(city.toUpperCase());
+        request.setSize(3);
+
+        List<Long> seen = new ArrayList<>();
+        EventSearchResponse page;
+        do {
+            page = eventService.searchEvents(request);
+            page.getEvents().forEach(event -> seen.add(event.getId()));
+            request.setCursor(page.getNextCursor());
+        } while (page.getHasNext());
+
+        List<Long> expected = events.stream()
+                .sorted((a, b) -> a.getStartDate().equals(b.getStartDate())
+                        ? a.getId().compareTo(b.getId()) : a.getStartDate().compareTo(b.getStartDate()))
+                .map(Event::getId)
+                .toList();
+        assertEquals(expected, seen);
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void descendingPagesContinueBackwards() {
+        EventSearchRequest request = new EventSearchRequest();
+        request.setCity(city);
+        request.setSortBy("title");
+        request.setSortDirection("desc");
+        request.setSize(4);
+
+        EventSearchResponse first = eventService.searchEvents(request);
+        request.setCursor(first.getNextCursor());
+        EventSearchResponse second = eventService.searchEvents(request);
+
+        assertEquals(List.of("Event 6", "Event 5", "Event 4", "Event 3"), titles(first));
+        assertEquals(List.of("Event 2", "Event 1", "Event 0"), titles(second));
+        assertFalse(second.getHasNext());
+    }
+
+    @Test
+    void filtersAreCombined() {
+        EventSearchRequest request = new EventSearchRequest();
+        request.setCity(city);
+        request.setIsOnline(true);
+        request.setStartDate(base.plusDays(2));
+        assertEquals(List.of("Event 2", "Event 4"), titles(eventService.searchEvents(request)));
+
+        request = new EventSearchRequest();
+        request.setCity(city);
+        request.setIsFeatured(true);
+        assertEquals(List.of("Event 3"), titles(eventService.searchEvents(request)));
+
+        request = new EventSearchRequest();
+        request.setCity(city);
+        request.setMinPrice(20.0);
+        request.setMaxPrice(100.0);
+        assertEquals(List.of("Event 1"), titles(eventService.searchEvents(request)));
+    }
+
+    @Test
+    void searchTermsAreRankedWithinTheFilters() {
+        events.forEach(event -> eventSearchService.refresh(event.getId()));
+
+        EventSearchRequest request = new EventSearchRequest();
+        request.setSearchTerm(city);
+        request.setIsOnline(true);
+        request.setSize(2);
+        EventSearchResponse first = eventService.searchEvents(request);
+        request.setCursor(first.getNextCursor());
+        EventSearchResponse second = eventService.searchEvents(request);
+
+        assertEquals(2, first.getEvents().size());
+        assertEquals(2, second.getEvents().size());
+        assertFalse(second.getHasNext());
+        assertTrue(first.getEvents().stream().allMatch(EventResponse::getIsOnline));
+    }
+
+    @Test
+    void cursorsAreTiedToTheirSortOrder() {
+        EventSearchRequest request = new EventSearchRequest();
+        request.setCity(city);
+        request.setSize(2);
+        String cursor = eventService.searchEvents(request).getNextCursor();
+
+        request.setCursor(cursor);
+        request.setSortBy("title");
+        assertThrows(RuntimeException.class, () -> eventService.searchEvents(request));
+
+        request.setCursor("not-a-cursor");
+        assertThrows(RuntimeException.class, () -> eventService.searchEvents(request));
+    }
+
+    private static List<String> titles(EventSearchResponse response) {
+        return response.getEvents().stream().map(EventResponse::getTitle).toList();
+    }
+
+    private Event createEvent(User organizer, String title, LocalDateTime startDate, boolean featured,
+                              boolean online, Event.EventStatus status) {
+        return fixtures.createEvent(organizer, builder -> builder
+                .title(title)
+                .startDate(startDate)
+                .endDate(startDate.plusHours(3))
+                .city(city)
+                .status(status)
+                .isPublic(true)
+                .isFeatured(featured)
+                .isOnline(online));
+    }
+}
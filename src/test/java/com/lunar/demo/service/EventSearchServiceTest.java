@@ -0,0 +1,69 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.dto.EventSearchRequest;
+import com.lunar.demo.dto.EventSearchResponse;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.User;
+import com.lunar.demo.security.UserPrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class EventSearchServiceTest {
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private EventSearchService eventSearchService;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void onlyPublishedEventsAreSearchable() {
+        User organizer = fixtures.createUser("search-organizer");
+        Event event = fixtures.createEvent(organizer, builder -> builder
+                .title("Zanzibar Drumming Workshop")
+                .description("Hands-on percussion")
+                .venueName("Stone Town Hall")
+                .city("Zanzibar")
+                .category(Event.EventCategory.WORKSHOP)
+                .status(Event.EventStatus.DRAFT)
+                .isPublic(true));
+        eventSearchService.refresh(event.getId());
+        assertTrue(search("zanzibar drum").getEvents().isEmpty());
+
+        UserPrincipal principal = UserPrincipal.create(organizer);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        eventService.publishEvent(event.getId());
+
+        EventSearchResponse results = search("zanzibar drum");
+        assertEquals(1, results.getEvents().size());
+        assertEquals(event.getId(), results.getEvents().get(0).getId());
+        assertEquals("Test User", results.getEvents().get(0).getOrganizerName());
+    }
+
+    private EventSearchResponse search(String term) {
+        assertTrue(eventSearchService.isReady());
+        EventSearchRequest request = new EventSearchRequest();
+        request.setSearchTerm(term);
+        return eventService.searchEvents(request);
+    }
+}
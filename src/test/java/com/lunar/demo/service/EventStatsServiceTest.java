@@ -0,0 +1,199 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.dto.EventStatsResponse;
+import com.lunar.demo.entity.Booking;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.Ticket;
+import com.lunar.demo.entity.TicketType;
+import com.lunar.demo.entity.User;
+import com.lunar.demo.repository.BookingRepository;
+import com.lunar.demo.repository.TicketRepository;
+import com.lunar.demo.security.UserPrincipal;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureWebMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureWebMvc
+@ActiveProfiles("test")
+class EventStatsServiceTest {
+
+    @Autowired
+    private EventStatsService eventStatsService;
+
+    @Autowired
+    private CheckInService checkInService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private User organizer;
+    private Event event;
+    private TicketType ticketType;
+    private List<Ticket> tickets;
+
+    @BeforeEach
+    void setUp() {
+        organizer = fixtures.createUser("stats-organizer");
+        event = fixtures.createEvent(organizer, builder -> builder
+                .startDate(LocalDateTime.now().plusHours(1))
+                .endDate(LocalDateTime.now().plusHours(4)));
+        ticketType = fixtures.createTicketType(event, 100);
+        Booking booking = createBooking(Booking.BookingStatus.CONFIRMED, new BigDecimal("100.00"));
+        tickets = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            tickets.add(ticketRepository.save(Ticket.builder()
+                    .ticketCode("STAT-" + System.nanoTime() + "-" + i)
+                    .qrCode("STAT-QR-" + System.nanoTime() + "-" + i)
+                    .status(Ticket.TicketStatus.ACTIVE)
+                    .isUsed(false)
+                    .booking(booking)
+                    .ticketType(ticketType)
+                    .user(organizer)
+                    .build()));
+        }
+        login(organizer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        checkInService.close(event.getId());
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void countersFollowCommittedChangesWithoutQueries() {
+        Booking pending = createBooking(Booking.BookingStatus.PENDING, new BigDecimal("40.00"));
+        EventStatsResponse loaded = eventStatsService.getStats(event.getId());
+        assertEquals(3, loaded.getActiveTickets());
+        assertEquals(0, loaded.getUsedTickets());
+        assertEquals(0, new BigDecimal("100.00").compareTo(loaded.getRevenue()));
+
+        checkInService.open(event.getId());
+        bookingService.confirmBooking(pending.getId());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        checkInService.admit(tickets.get(0).getId(), null, "gate-1", LocalDateTime.now());
+        transactionTemplate.executeWithoutResult(status -> {
+            eventPublisher.publishEvent(EventStatsChangedEvent.revenue(event.getId(), new BigDecimal("999.99")));
+            status.setRollbackOnly();
+        });
+        EventStatsResponse live = eventStatsService.getStats(event.getId());
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(2, live.getActiveTickets());
+        assertEquals(1, live.getUsedTickets());
+        assertEquals(0, new BigDecimal("140.00").compareTo(live.getRevenue()));
+
+        // A resync agrees once the check-in is written
+        checkInService.flush();
+        eventStatsService.resync();
+        EventStatsResponse resynced = eventStatsService.getStats(event.getId());
+        assertEquals(2, resynced.getActiveTickets());
+        assertEquals(1, resynced.getUsedTickets());
+        assertEquals(0, new BigDecimal("140.00").compareTo(resynced.getRevenue()));
+    }
+
+    @Test
+    void subscribersGetOneSnapshotPerPushWhateverChanged() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        MvcResult stream = mockMvc.perform(get("/api/events/{eventId}/stats/stream", event.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(1, snapshots(stream));
+        assertTrue(stream.getResponse().getContentAsString().contains("\"activeTickets\":3"));
+
+        eventStatsService.pushStats();
+        assertEquals(1, snapshots(stream));
+
+        eventPublisher.publishEvent(EventStatsChangedEvent.ticketsIssued(event.getId(), 2));
+        eventPublisher.publishEvent(EventStatsChangedEvent.ticketsIssued(event.getId(), 1));
+        eventStatsService.pushStats();
+        eventStatsService.pushStats();
+
+        assertEquals(2, snapshots(stream));
+        assertTrue(stream.getResponse().getContentAsString().contains("\"activeTickets\":6"));
+    }
+
+    @Test
+    void onlyTheOrganizerCanSeeTheStats() {
+        login(fixtures.createUser("stats-other"));
+
+        assertThrows(RuntimeException.class, () -> eventStatsService.getStats(event.getId()));
+        assertThrows(RuntimeException.class, () -> eventStatsService.stream(event.getId()));
+    }
+
+    private static int snapshots(MvcResult stream) throws Exception {
+        return stream.getResponse().getContentAsString().split("event:event-stats", -1).length - 1;
+    }
+
+    private void login(User user) {
+        UserPrincipal principal = UserPrincipal.create(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    private Booking createBooking(Booking.BookingStatus status, BigDecimal totalAmount) {
+        return bookingRepository.save(Booking.builder()
+                .bookingReference("STATS-" + System.nanoTime())
+                .status(status)
+                .totalAmount(totalAmount)
+                .discountAmount(BigDecimal.ZERO)
+                .taxAmount(BigDecimal.ZERO)
+                .serviceFee(BigDecimal.ZERO)
+                .totalTickets(1)
+                .holdExpiresAt(LocalDateTime.now().plusMinutes(15))
+                .user(organizer)
+                .event(event)
+                .build());
+    }
+}
@@ -0,0 +1,231 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.dto.BookingCreateRequest;
+import com.lunar.demo.dto.BookingResponse;
+import com.lunar.demo.entity.IdempotencyRecord;
+import com.lunar.demo.entity.User;
+import com.lunar.demo.exception.IdempotencyConflictException;
+import com.lunar.demo.repository.IdempotencyRecordRepository;
+import com.lunar.demo.security.UserPrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class IdempotencyServiceTest {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Authentication authentication;
+    private User user;
+
+    @BeforeEach
+    void authenticate() {
+        user = fixtures.createUser("idempotency");
+        UserPrincipal principal = UserPrincipal.create(user);
+        authentication = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+    }
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void concurrentDuplicatesCoalesceOntoOneExecution() throws Exception {
+        BookingCreateRequest request = request(1L);
+        AtomicInteger executions = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<BookingResponse>> results = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> {
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+                start.await();
+                return idempotencyService.execute("retry-key", request, BookingResponse.class, () -> {
+                    executions.incrementAndGet();
+                    sleep(200);
+                    return BookingResponse.builder().id(42L).bookingReference("LUNAR-TEST").build();
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<BookingResponse> result : results) {
+            assertEquals(42L, result.get(10, TimeUnit.SECONDS).getId());
+        }
+        executor.shutdown();
+
+        BookingResponse replay = idempotencyService.execute("retry-key", request, BookingResponse.class, () -> {
+            executions.incrementAndGet();
+            return BookingResponse.builder().id(43L).build();
+        });
+        assertEquals(42L, replay.getId());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void keyCannotBeReusedForADifferentRequest() {
+        idempotencyService.execute("reuse-key", request(1L), BookingResponse.class,
+                () -> BookingResponse.builder().id(1L).build());
+
+        assertThrows(IdempotencyConflictException.class, () -> idempotencyService.execute("reuse-key", request(2L),
+                BookingResponse.class, () -> BookingResponse.builder().id(2L).build()));
+    }
+
+    @Test
+    void failedRequestsReleaseTheirKey() {
+        BookingCreateRequest request = request(1L);
+        assertThrows(RuntimeException.class, () -> idempotencyService.execute("failing-key", request,
+                BookingResponse.class, () -> {
+                    throw new RuntimeException("Event is sold out");
+                }));
+
+        BookingResponse retried = idempotencyService.execute("failing-key", request, BookingResponse.class,
+                () -> BookingResponse.builder().id(7L).build());
+        assertEquals(7L, retried.getId());
+    }
+
+    @Test
+    void abandonedClaimsAreTakenOverOnceTheirLeaseLapses() {
+        BookingCreateRequest request = request(1L);
+        abandon("crashed-key", request);
+
+        assertThrows(IdempotencyConflictException.class, () -> idempotencyService.execute("crashed-key", request,
+                BookingResponse.class, () -> BookingResponse.builder().id(8L).build()));
+
+        IdempotencyRecord record = record("crashed-key");
+        record.setLeaseExpiresAt(LocalDateTime.now().minusSeconds(1));
+        idempotencyRecordRepository.save(record);
+
+        assertThrows(IdempotencyConflictException.class, () -> idempotencyService.execute("crashed-key", request(2L),
+                BookingResponse.class, () -> BookingResponse.builder().id(9L).build()));
+        BookingResponse retried = idempotencyService.execute("crashed-key", request, BookingResponse.class,
+                () -> BookingResponse.builder().id(8L).build());
+        assertEquals(8L, retried.getId());
+        assertEquals(IdempotencyRecord.IdempotencyStatus.COMPLETED, record("crashed-key").getStatus());
+    }
+
+    @Test
+    void requestsWhoseClaimWasTakenOverDoNotOverwriteTheRetry() {
+        BookingCreateRequest request = request(1L);
+        BookingResponse response = idempotencyService.execute("overtaken-key", request, BookingResponse.class, () -> {
+            takeOver("overtaken-key", "{\"id\":11}");
+            return BookingResponse.builder().id(12L).build();
+        });
+        assertEquals(12L, response.getId());
+
+        BookingResponse replay = idempotencyService.execute("overtaken-key", request, BookingResponse.class,
+                () -> BookingResponse.builder().id(13L).build());
+        assertEquals(11L, replay.getId());
+    }
+
+    @Test
+    void failedRequestsWhoseClaimWasTakenOverKeepTheRetrysClaim() {
+        assertThrows(RuntimeException.class, () -> idempotencyService.execute("overtaken-failing-key", request(1L),
+                BookingResponse.class, () -> {
+                    takeOver("overtaken-failing-key", null);
+                    throw new RuntimeException("Event is sold out");
+                }));
+
+        assertEquals(IdempotencyRecord.IdempotencyStatus.IN_PROGRESS, record("overtaken-failing-key").getStatus());
+    }
+
+    @Test
+    void leasesOfRunningRequestsAreRenewed() {
+        idempotencyService.execute("long-running-key", request(1L), BookingResponse.class, () -> {
+            IdempotencyRecord record = record("long-running-key");
+            record.setLeaseExpiresAt(LocalDateTime.now().minusSeconds(1));
+            idempotencyRecordRepository.save(record);
+
+            idempotencyService.renewLeases();
+
+            assertTrue(record("long-running-key").getLeaseExpiresAt().isAfter(LocalDateTime.now()));
+            return BookingResponse.builder().id(14L).build();
+        });
+        assertEquals(IdempotencyRecord.IdempotencyStatus.COMPLETED, record("long-running-key").getStatus());
+    }
+
+    @Test
+    void expiredKeysAreTreatedAsUnused() {
+        abandon("expired-key", request(1L));
+        IdempotencyRecord record = record("expired-key");
+        record.setExpiresAt(LocalDateTime.now().minusSeconds(1));
+        idempotencyRecordRepository.save(record);
+
+        BookingResponse response = idempotencyService.execute("expired-key", request(2L), BookingResponse.class,
+                () -> BookingResponse.builder().id(10L).build());
+        assertEquals(10L, response.getId());
+    }
+
+    // An Error skips the release a failed request gets, leaving the key claimed like a crashed node
+    private void abandon(String key, BookingCreateRequest request) {
+        assertThrows(AssertionError.class, () -> idempotencyService.execute(key, request, BookingResponse.class, () -> {
+            throw new AssertionError("node crashed");
+        }));
+    }
+
+    // Stands in for a retry on another node taking the claim over and, with a response, completing it
+    private void takeOver(String key, String responseBody) {
+        IdempotencyRecord record = record(key);
+        record.setClaimToken("other-node");
+        if (responseBody != null) {
+            record.setStatus(IdempotencyRecord.IdempotencyStatus.COMPLETED);
+            record.setResponseBody(responseBody);
+        }
+        idempotencyRecordRepository.save(record);
+    }
+
+    private IdempotencyRecord record(String key) {
+        return idempotencyRecordRepository.findByUserIdAndIdempotencyKeyAndExpiresAtAfter(user.getId(), key,
+                LocalDateTime.now().minusYears(1)).orElseThrow();
+    }
+
+    private BookingCreateRequest request(Long eventId) {
+        BookingCreateRequest.TicketRequest ticket = new BookingCreateRequest.TicketRequest();
+        ticket.setTicketTypeId(1L);
+        ticket.setQuantity(2);
+        BookingCreateRequest request = new BookingCreateRequest();
+        request.setEventId(eventId);
+        request.setTickets(List.of(ticket));
+        return request;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.lunar.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QrImageCacheTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private final CountingQrCodeService qrCodeService = new CountingQrCodeService();
+
+    @Test
+    void imagesAreRenderedOnceAndAddressedByPayload() {
+        QrImageCache cache = cache(1024 * 1024, false);
+
+        QrImageCache.QrImage first = cache.get("LUNAR_TICKET|1|2|TKT-A");
+        QrImageCache.QrImage again = cache.get("LUNAR_TICKET|1|2|TKT-A");
+        QrImageCache.QrImage other = cache.get("LUNAR_TICKET|1|3|TKT-B");
+
+        assertSame(first, again);
+        assertEquals(2, qrCodeService.renders.get());
+        assertEquals(cache.etag("LUNAR_TICKET|1|2|TKT-A"), first.etag());
+        assertNotEquals(first.etag(), other.etag());
+        assertFalse(Files.exists(uploadDir.resolve("qr-cache")));
+    }
+
+    @Test
+    void diskTierServesEvictedImagesAndSurvivesRestarts() throws Exception {
+        // Room for a single image in memory
+        QrImageCache cache = cache(40, true);
+        byte[] png = cache.get("LUNAR_TICKET|1|2|TKT-A").png();
+        cache.get("LUNAR_TICKET|1|3|TKT-B");
+        cache.get("LUNAR_TICKET|1|4|TKT-C");
+        int rendered = qrCodeService.renders.get();
+
+        assertArrayEquals(png, cache.get("LUNAR_TICKET|1|2|TKT-A").png());
+        QrImageCache restarted = cache(1024 * 1024, true);
+        assertArrayEquals(png, restarted.get("LUNAR_TICKET|1|2|TKT-A").png());
+        assertEquals(rendered, qrCodeService.renders.get());
+
+        String etag = cache.etag("LUNAR_TICKET|1|2|TKT-A");
+        Path file = uploadDir.resolve("qr-cache").resolve(etag.substring(0, 2)).resolve(etag + ".png");
+        assertArrayEquals(png, Files.readAllBytes(file));
+        try (var files = Files.walk(uploadDir)) {
+            assertTrue(files.noneMatch(path -> path.toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    void diskTierFilesPastTheAgeBoundAreSwept() throws Exception {
+        QrImageCache cache = cache(1024 * 1024, true);
+        cache.get("LUNAR_TICKET|1|2|TKT-A");
+        cache.get("LUNAR_TICKET|1|3|TKT-B");
+        Path stale = file(cache, "LUNAR_TICKET|1|2|TKT-A");
+        Path fresh = file(cache, "LUNAR_TICKET|1|3|TKT-B");
+        Path leftover = Files.createTempFile(stale.getParent(), "interrupted", ".tmp");
+        FileTime old = FileTime.from(Instant.now().minus(Duration.ofHours(25)));
+        Files.setLastModifiedTime(stale, old);
+        Files.setLastModifiedTime(leftover, old);
+
+        cache.sweepDisk();
+
+        assertFalse(Files.exists(stale));
+        assertFalse(Files.exists(leftover));
+        assertTrue(Files.exists(fresh));
+        int rendered = qrCodeService.renders.get();
+        cache(1024 * 1024, true).get("LUNAR_TICKET|1|2|TKT-A");
+        assertEquals(rendered + 1, qrCodeService.renders.get());
+        assertTrue(Files.exists(stale));
+    }
+
+    @Test
+    void issuedTicketsArePreRenderedInTheBackground() {
+        QrImageCache cache = cache(1024 * 1024, false);
+
+        cache.onTicketsIssued(new TicketsIssuedEvent(1L, List.of("LUNAR_TICKET|1|2|TKT-A", "LUNAR_TICKET|1|3|TKT-B")));
+        awaitUntil(() -> qrCodeService.renders.get() == 2);
+
+        cache.get("LUNAR_TICKET|1|2|TKT-A");
+        cache.get("LUNAR_TICKET|1|3|TKT-B");
+        assertEquals(2, qrCodeService.renders.get());
+        cache.shutdown();
+    }
+
+    private Path file(QrImageCache cache, String payload) {
+        String etag = cache.etag(payload);
+        return uploadDir.resolve("qr-cache").resolve(etag.substring(0, 2)).resolve(etag + ".png");
+    }
+
+    private QrImageCache cache(long maxMemoryBytes, boolean diskEnabled) {
+        return new QrImageCache(qrCodeService, maxMemoryBytes, diskEnabled, uploadDir.toString(), 24, 1, 10);
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met within 10s");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static class CountingQrCodeService extends QrCodeService {
+
+        private final AtomicInteger renders = new AtomicInteger();
+
+        @Override
+        public byte[] renderPng(String data) {
+            renders.incrementAndGet();
+            return ("png:" + data).getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String renderSettings() {
+            return "test";
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.entity.Booking;
+import com.lunar.demo.entity.EmailOutbox;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.ReminderCampaign;
+import com.lunar.demo.entity.User;
+import com.lunar.demo.repository.BookingRepository;
+import com.lunar.demo.repository.EmailOutboxRepository;
+import com.lunar.demo.repository.ReminderCampaignRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class ReminderCampaignServiceTest {
+
+    @Autowired
+    private ReminderCampaignService reminderCampaignService;
+
+    @Autowired
+    private ReminderCampaignRepository reminderCampaignRepository;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private final List<Long> bookingIds = new ArrayList<>();
+
+    @AfterEach
+    void removeQueuedReminders() {
+        // Keep other contexts' email dispatchers from sending these
+        emailOutboxRepository.deleteAll(emailOutboxRepository.findAll().stream()
+                .filter(email -> bookingIds.contains(email.getBookingId()))
+                .toList());
+    }
+
+    @Test
+    void eventsGetTheCampaignForTheWindowTheyStartIn() {
+        User user = fixtures.createUser("reminder-window");
+        Event tomorrow = createEvent(user, LocalDateTime.now().plusHours(20));
+        Event soon = createEvent(user, LocalDateTime.now().plusMinutes(30));
+        Event nextWeek = createEvent(user, LocalDateTime.now().plusDays(7));
+
+        reminderCampaignService.startDueCampaigns();
+        reminderCampaignService.startDueCampaigns();
+
+        assertTrue(reminderCampaignRepository.findByEventIdAndLeadMinutes(tomorrow.getId(), 1440).isPresent());
+        assertTrue(reminderCampaignRepository.findByEventIdAndLeadMinutes(tomorrow.getId(), 60).isEmpty());
+        assertTrue(reminderCampaignRepository.findByEventIdAndLeadMinutes(soon.getId(), 60).isPresent());
+        assertTrue(reminderCampaignRepository.findByEventIdAndLeadMinutes(soon.getId(), 1440).isEmpty());
+        assertTrue(reminderCampaignRepository.findAll().stream().noneMatch(c -> c.getEventId().equals(nextWeek.getId())));
+        assertEquals(1, reminderCampaignRepository.findAll().stream()
+                .filter(c -> c.getEventId().equals(tomorrow.getId())).count());
+    }
+
+    @Test
+    void campaignResumesFromItsCheckpointAndQueuesEachConfirmedBookingOnce() {
+        int confirmed = 250;
+        User user = fixtures.createUser("reminder-resume");
+        Event event = createEvent(user, LocalDateTime.now().plusHours(5));
+        List<Booking> bookings = new ArrayList<>();
+        for (int i = 0; i < confirmed + 20; i++) {
+            bookings.add(booking(user, event, i < confirmed ? Booking.BookingStatus.CONFIRMED : Booking.BookingStatus.PENDING));
+        }
+        bookingRepository.saveAll(bookings).forEach(booking -> bookingIds.add(booking.getId()));
+
+        reminderCampaignService.startDueCampaigns();
+        ReminderCampaign campaign = reminderCampaignRepository.findByEventIdAndLeadMinutes(event.getId(), 1440)
+                .orElseThrow();
+
+        assertEquals(100, reminderCampaignService.advance(campaign.getId(), 100));
+        ReminderCampaign checkpoint = reminderCampaignRepository.findById(campaign.getId()).orElseThrow();
+        assertEquals(100, checkpoint.getQueuedCount());
+        assertEquals(100, queuedReminders(event).size());
+
+        // A restarted node picks the campaign up after the committed page
+        int scanned;
+        do {
+            scanned = reminderCampaignService.advance(campaign.getId(), 64);
+        } while (scanned > 0);
+
+        ReminderCampaign completed = reminderCampaignRepository.findById(campaign.getId()).orElseThrow();
+        assertEquals(ReminderCampaign.CampaignStatus.COMPLETED, completed.getStatus());
+        assertEquals(confirmed, completed.getQueuedCount());
+        List<EmailOutbox> queued = queuedReminders(event);
+        Set<Long> distinct = new HashSet<>();
+        queued.forEach(email -> distinct.add(email.getBookingId()));
+        assertEquals(confirmed, queued.size());
+        assertEquals(confirmed, distinct.size());
+        assertTrue(queued.stream().allMatch(email -> email.getRecipient().equals(user.getEmail())));
+        assertEquals(0, reminderCampaignService.advance(campaign.getId(), 100));
+    }
+
+    private List<EmailOutbox> queuedReminders(Event event) {
+        Set<Long> eventBookings = new HashSet<>(bookingRepository.findByEventId(event.getId()).stream()
+                .map(Booking::getId)
+                .toList());
+        return emailOutboxRepository.findAll().stream()
+                .filter(email -> email.getType() == EmailOutbox.EmailType.EVENT_REMINDER)
+                .filter(email -> eventBookings.contains(email.getBookingId()))
+                .toList();
+    }
+
+    private Booking booking(User user, Event event, Booking.BookingStatus status) {
+        return Booking.builder()
+                .bookingReference("REMIND-" + System.nanoTime())
+                .status(status)
+                .totalAmount(BigDecimal.TEN)
+                .discountAmount(BigDecimal.ZERO)
+                .taxAmount(BigDecimal.ZERO)
+                .serviceFee(BigDecimal.ZERO)
+                .totalTickets(1)
+                .user(user)
+                .event(event)
+                .build();
+    }
+
+    private Event createEvent(User organizer, LocalDateTime startDate) {
+        return fixtures.createEvent(organizer, builder -> builder.startDate(startDate).endDate(startDate.plusHours(3)));
+    }
+}
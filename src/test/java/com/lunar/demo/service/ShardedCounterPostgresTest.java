@@ -0,0 +1,117 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.entity.CounterSlot;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.TicketType;
+import com.lunar.demo.entity.User;
+import com.lunar.demo.repository.TicketTypeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fold and reservation races under Postgres READ COMMITTED, which H2 does not reproduce.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+class ShardedCounterPostgresTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @Autowired
+    private ShardedCounterService shardedCounterService;
+
+    @Autowired
+    private TicketTypeRepository ticketTypeRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.PostgreSQLDialect");
+    }
+
+    @Test
+    void reservationsBlockedBehindAFoldDoNotCountTheReleaseTwice() throws Exception {
+        TicketType ticketType = createTicketType(10, 10);
+        transactionTemplate.executeWithoutResult(status -> shardedCounterService.enable(ticketType.getEvent()));
+        transactionTemplate.executeWithoutResult(status -> shardedCounterService.releaseSold(ticketType.getId(), 4));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch folding = new CountDownLatch(1);
+        try {
+            Future<Boolean> blocked = executor.submit(() -> {
+                folding.await();
+                return reserve(ticketType, 8);
+            });
+            // Hold the fold's locks open long enough for the reservation to queue behind them
+            transactionTemplate.executeWithoutResult(status -> {
+                assertEquals(-4, shardedCounterService.fold(
+                        CounterSlot.CounterKind.TICKET_TYPE_SOLD, ticketType.getId()));
+                folding.countDown();
+                sleep(500);
+            });
+
+            assertFalse(blocked.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(6, quantitySold(ticketType));
+        assertTrue(reserve(ticketType, 4));
+        assertFalse(reserve(ticketType, 1));
+        assertEquals(10, quantitySold(ticketType));
+    }
+
+    private boolean reserve(TicketType ticketType, int quantity) {
+        return transactionTemplate.execute(status -> shardedCounterService.reserveSold(ticketType.getId(), quantity));
+    }
+
+    private int quantitySold(TicketType ticketType) {
+        return ticketTypeRepository.findById(ticketType.getId()).orElseThrow().getQuantitySold();
+    }
+
+    private TicketType createTicketType(int available, int sold) {
+        User organizer = fixtures.createUser("sharded-postgres");
+        Event event = fixtures.createEvent(organizer, builder -> builder.expectedDemand(50_000));
+        return fixtures.createTicketType(event, builder -> builder
+                .quantityAvailable(available)
+                .quantitySold(sold));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
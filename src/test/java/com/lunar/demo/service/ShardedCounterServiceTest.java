@@ -0,0 +1,197 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.dto.EventCreateRequest;
+import com.lunar.demo.dto.EventResponse;
+import com.lunar.demo.entity.CounterSlot;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.TicketType;
+import com.lunar.demo.entity.User;
+import com.lunar.demo.repository.CounterSlotRepository;
+import com.lunar.demo.repository.EventRepository;
+import com.lunar.demo.repository.TicketTypeRepository;
+import com.lunar.demo.security.UserPrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class ShardedCounterServiceTest {
+
+    @Autowired
+    private ShardedCounterService shardedCounterService;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private TicketInventoryService ticketInventoryService;
+
+    @Autowired
+    private CounterSlotRepository counterSlotRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private TicketTypeRepository ticketTypeRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void highDemandEventsGetSlotsAndOthersDoNot() {
+        authenticate(fixtures.createUser("sharded-organizer"));
+
+        EventResponse hot = eventService.createEvent(eventRequest(50_000));
+        EventResponse quiet = eventService.createEvent(eventRequest(100));
+
+        assertEquals(16, counterSlotRepository.countByKindAndEntityId(
+                CounterSlot.CounterKind.EVENT_ATTENDEES, hot.getId()));
+        assertEquals(0, counterSlotRepository.countByKindAndEntityId(
+                CounterSlot.CounterKind.EVENT_ATTENDEES, quiet.getId()));
+
+        // Unsharded counters keep writing straight to the owning row
+        transactionTemplate.executeWithoutResult(status -> shardedCounterService.adjustAttendees(quiet.getId(), 3));
+        assertEquals(3, currentAttendees(quiet.getId()));
+        assertEquals(0, shardedCounterService.pendingDelta(CounterSlot.CounterKind.EVENT_ATTENDEES, quiet.getId()));
+    }
+
+    @Test
+    void parallelAttendeeUpdatesSpreadOverSlotsAndFoldToTheExactTotal() throws Exception {
+        int writers = 64;
+        User organizer = fixtures.createUser("sharded-parallel");
+        Event event = createEvent(organizer);
+        transactionTemplate.executeWithoutResult(status -> shardedCounterService.enable(event));
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < writers; i++) {
+                int delta = i % 4 == 0 ? -1 : 2;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    transactionTemplate.executeWithoutResult(
+                            status -> shardedCounterService.adjustAttendees(event.getId(), delta));
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int expected = (writers / 4) * -1 + (writers - writers / 4) * 2;
+        long pending = shardedCounterService.pendingDelta(CounterSlot.CounterKind.EVENT_ATTENDEES, event.getId());
+        // The scheduled fold may already have moved part of the total into the event row
+        assertEquals(expected, currentAttendees(event.getId()) + pending);
+
+        shardedCounterService.fold(CounterSlot.CounterKind.EVENT_ATTENDEES, event.getId());
+
+        assertEquals(expected, currentAttendees(event.getId()));
+        assertEquals(0, shardedCounterService.pendingDelta(CounterSlot.CounterKind.EVENT_ATTENDEES, event.getId()));
+    }
+
+    @Test
+    void releasesThroughSlotsAreVisibleToRemainingStockAndReservations() {
+        User organizer = fixtures.createUser("sharded-stock");
+        Event event = createEvent(organizer);
+        TicketType ticketType = fixtures.createTicketType(event, 10);
+        transactionTemplate.executeWithoutResult(status -> shardedCounterService.enable(event));
+
+        ticketInventoryService.reserve(Map.of(ticketType.getId(), 10));
+        assertEquals(0, ticketTypeRepository.findRemainingQuantity(ticketType.getId()));
+
+        transactionTemplate.executeWithoutResult(status -> shardedCounterService.releaseSold(ticketType.getId(), 4));
+
+        assertEquals(4, ticketTypeRepository.findRemainingQuantity(ticketType.getId()));
+        assertTrue(reserve(ticketType, 4));
+        assertFalse(reserve(ticketType, 1));
+
+        shardedCounterService.fold(CounterSlot.CounterKind.TICKET_TYPE_SOLD, ticketType.getId());
+
+        assertEquals(10, ticketTypeRepository.findById(ticketType.getId()).orElseThrow().getQuantitySold());
+        assertEquals(0, ticketTypeRepository.findRemainingQuantity(ticketType.getId()));
+        assertTrue(counterSlotRepository.findEntityIdsWithPendingDeltas(CounterSlot.CounterKind.TICKET_TYPE_SOLD)
+                .stream().noneMatch(ticketType.getId()::equals));
+    }
+
+    @Test
+    void releasingMoreThanWasSoldIsRefused() {
+        Event event = createEvent(fixtures.createUser("sharded-overrelease"));
+        TicketType ticketType = fixtures.createTicketType(event, 10);
+        assertTrue(reserve(ticketType, 3));
+
+        assertFalse(release(ticketType, 5));
+        assertEquals(3, ticketTypeRepository.findById(ticketType.getId()).orElseThrow().getQuantitySold());
+
+        assertTrue(release(ticketType, 3));
+        assertEquals(0, ticketTypeRepository.findById(ticketType.getId()).orElseThrow().getQuantitySold());
+    }
+
+    private boolean reserve(TicketType ticketType, int quantity) {
+        return transactionTemplate.execute(status -> shardedCounterService.reserveSold(ticketType.getId(), quantity));
+    }
+
+    private boolean release(TicketType ticketType, int quantity) {
+        return transactionTemplate.execute(status -> shardedCounterService.releaseSold(ticketType.getId(), quantity));
+    }
+
+    private int currentAttendees(Long eventId) {
+        return eventRepository.findById(eventId).orElseThrow().getCurrentAttendees();
+    }
+
+    private EventCreateRequest eventRequest(int expectedDemand) {
+        return EventCreateRequest.builder()
+                .title("Sharded Event " + expectedDemand)
+                .startDate(LocalDateTime.now().plusDays(10))
+                .endDate(LocalDateTime.now().plusDays(11))
+                .venueName("Test Venue")
+                .venueAddress("1 Test Street")
+                .category(Event.EventCategory.CONCERT)
+                .isPublic(true)
+                .expectedDemand(expectedDemand)
+                .build();
+    }
+
+    private void authenticate(User user) {
+        UserPrincipal principal = UserPrincipal.create(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    private Event createEvent(User organizer) {
+        return fixtures.createEvent(organizer, builder -> builder.expectedDemand(50_000));
+    }
+}
@@ -0,0 +1,178 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.config.CacheConfig;
+import com.lunar.demo.dto.QueueStatusResponse;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.User;
+import com.lunar.demo.exception.QueueAdmissionException;
+import com.lunar.demo.repository.EventRepository;
+import com.lunar.demo.security.UserPrincipal;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Waiting room state kept in Redis; writes made straight to Redis stand in for another node.
+ */
+@SpringBootTest(properties = "cache.redis.enabled=true")
+@ActiveProfiles("test")
+class SharedWaitingRoomTest {
+
+    private static RedisServer redisServer;
+
+    @Autowired
+    private WaitingRoomService waitingRoomService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        registry.add("spring.data.redis.host", () -> "localhost");
+        registry.add("spring.data.redis.port", () -> port);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        redisServer.stop();
+    }
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void positionsAndBookingsAreSharedAcrossNodes() {
+        User first = fixtures.createUser("shared-queue-first");
+        User second = fixtures.createUser("shared-queue-second");
+        Event event = createEvent(first, 1);
+        String prefix = "lunar:waiting-room:{" + event.getId() + "}:";
+
+        // Another node hands out position 1
+        redisTemplate.opsForValue().increment(prefix + "issued");
+
+        authenticate(first);
+        QueueStatusResponse firstStatus = waitingRoomService.join(event.getId());
+        assertEquals(2, firstStatus.getPosition());
+        assertEquals(firstStatus.getPosition(), waitingRoomService.join(event.getId()).getPosition());
+        assertFalse(firstStatus.getAdmitted());
+        assertThrows(QueueAdmissionException.class,
+                () -> waitingRoomService.admit(event.getId(), firstStatus.getQueueToken()));
+        assertEquals("2", redisTemplate.opsForHash().get(prefix + "positions", first.getId().toString()));
+        assertTrue(redisTemplate.getExpire(prefix + "positions") > 0);
+
+        authenticate(second);
+        QueueStatusResponse secondStatus = waitingRoomService.join(event.getId());
+        assertEquals(3, secondStatus.getPosition());
+
+        // The other node's user booked position 1; its own booking on this node is still open
+        redisTemplate.opsForSet().add(prefix + "booked", "1");
+        assertEquals(1, waitingRoomService.getStatus(event.getId(), secondStatus.getQueueToken()).getAdmittedThrough());
+
+        event.setStartDate(LocalDateTime.now().minusDays(2));
+        event.setEndDate(LocalDateTime.now().minusDays(1));
+        eventRepository.save(event);
+        waitingRoomService.evict(event.getId());
+        waitingRoomService.pruneEndedRooms();
+
+        assertFalse(redisTemplate.hasKey(prefix + "positions"));
+        assertFalse(redisTemplate.hasKey(prefix + "booked"));
+    }
+
+    @Test
+    void aPositionBookedOnAnotherNodeCannotBookAgain() {
+        User user = fixtures.createUser("shared-queue-booked");
+        Event event = createEvent(user, 10);
+        String prefix = "lunar:waiting-room:{" + event.getId() + "}:";
+        authenticate(user);
+        QueueStatusResponse status = waitingRoomService.join(event.getId());
+        assertTrue(status.getAdmitted());
+
+        redisTemplate.opsForSet().add(prefix + "booked", Long.toString(status.getPosition()));
+        assertThrows(RuntimeException.class, () -> waitingRoomService.admit(event.getId(), status.getQueueToken()));
+
+        waitingRoomService.readmit(event.getId(), status.getQueueToken());
+        waitingRoomService.admit(event.getId(), status.getQueueToken());
+        assertTrue(redisTemplate.opsForSet().isMember(prefix + "booked", Long.toString(status.getPosition())));
+    }
+
+    @Test
+    void roomSettingsChangedOnAnotherNodeApplyHere() throws InterruptedException {
+        User user = fixtures.createUser("shared-queue-remote");
+        Event event = createEvent(user, 10);
+        authenticate(user);
+        assertTrue(requiresToken(event));
+
+        // Another node turns the waiting room off, commits and broadcasts the change
+        event.setWaitingRoomEnabled(false);
+        Event disabled = eventRepository.save(event);
+        redisTemplate.convertAndSend(CacheConfig.INVALIDATION_CHANNEL, "other-node|event|" + event.getId());
+        awaitRequiresToken(event, false);
+
+        disabled.setWaitingRoomEnabled(true);
+        eventRepository.save(disabled);
+        redisTemplate.convertAndSend(CacheConfig.INVALIDATION_CHANNEL, "other-node|event|" + event.getId());
+        awaitRequiresToken(event, true);
+    }
+
+    private boolean requiresToken(Event event) {
+        try {
+            waitingRoomService.admit(event.getId(), null);
+            return false;
+        } catch (QueueAdmissionException e) {
+            return true;
+        }
+    }
+
+    private void awaitRequiresToken(Event event, boolean expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (requiresToken(event) != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, requiresToken(event));
+    }
+
+    private void authenticate(User user) {
+        UserPrincipal principal = UserPrincipal.create(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    private Event createEvent(User organizer, Integer admissionRate) {
+        return fixtures.createEvent(organizer, builder -> builder
+                .waitingRoomEnabled(true)
+                .admissionRatePerSecond(admissionRate));
+    }
+}
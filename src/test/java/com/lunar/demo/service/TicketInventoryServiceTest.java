@@ -0,0 +1,128 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.entity.CounterSlot;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.TicketType;
+import com.lunar.demo.repository.CounterSlotRepository;
+import com.lunar.demo.repository.TicketTypeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TicketInventoryServiceTest {
+
+    @Autowired
+    private TicketInventoryService ticketInventoryService;
+
+    @Autowired
+    private TicketTypeRepository ticketTypeRepository;
+
+    @Autowired
+    private CounterSlotRepository counterSlotRepository;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        TicketType ticketType = createTicketType("inventory-oversell", 100);
+        int threads = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                int reserved = 0;
+                for (int attempt = 0; attempt < 10; attempt++) {
+                    try {
+                        ticketInventoryService.reserve(Map.of(ticketType.getId(), 1));
+                        reserved++;
+                    } catch (RuntimeException e) {
+                        // sold out
+                    }
+                }
+                return reserved;
+            }));
+        }
+        start.countDown();
+
+        int totalReserved = 0;
+        for (Future<Integer> result : results) {
+            totalReserved += result.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(100, totalReserved);
+        assertEquals(100, ticketTypeRepository.findById(ticketType.getId()).orElseThrow().getQuantitySold());
+    }
+
+    @Test
+    void releasedUnitsCanBeReservedAgain() {
+        TicketType ticketType = createTicketType("inventory-release", 2);
+
+        List<TicketInventoryService.InventoryHold> holds = ticketInventoryService.reserve(Map.of(ticketType.getId(), 2));
+        assertThrows(RuntimeException.class, () -> ticketInventoryService.reserve(Map.of(ticketType.getId(), 1)));
+
+        ticketInventoryService.release(holds);
+        ticketInventoryService.reserve(Map.of(ticketType.getId(), 1));
+
+        assertEquals(1, ticketTypeRepository.findById(ticketType.getId()).orElseThrow().getQuantitySold());
+    }
+
+    @Test
+    void holdsAppliedForOtherTicketTypesAreGivenBackWhenAFlushFails() {
+        TicketType fits = createTicketType("inventory-partial-fits", 5);
+        TicketType fails = createTicketType("inventory-partial-fails", Integer.MAX_VALUE, Integer.MAX_VALUE - 5);
+        // A pending release of 10 lets 15 units through the stock check, but quantity_sold overflows
+        for (int slot = 0; slot < 2; slot++) {
+            counterSlotRepository.save(CounterSlot.builder()
+                    .kind(CounterSlot.CounterKind.TICKET_TYPE_SOLD)
+                    .entityId(fails.getId())
+                    .slot(slot)
+                    .delta(slot == 0 ? -10 : 0)
+                    .build());
+        }
+
+        try {
+            assertThrows(RuntimeException.class,
+                    () -> ticketInventoryService.reserve(Map.of(fits.getId(), 5, fails.getId(), 15)));
+        } finally {
+            counterSlotRepository.findAll().stream()
+                    .filter(slot -> slot.getEntityId().equals(fails.getId()))
+                    .forEach(counterSlotRepository::delete);
+        }
+
+        assertEquals(0, ticketTypeRepository.findById(fits.getId()).orElseThrow().getQuantitySold());
+        ticketInventoryService.reserve(Map.of(fits.getId(), 5));
+        assertEquals(5, ticketTypeRepository.findById(fits.getId()).orElseThrow().getQuantitySold());
+    }
+
+    private TicketType createTicketType(String name, int quantityAvailable) {
+        return createTicketType(name, quantityAvailable, 0);
+    }
+
+    private TicketType createTicketType(String name, int quantityAvailable, int quantitySold) {
+        Event event = fixtures.createEvent(fixtures.createUser(name));
+        return fixtures.createTicketType(event, builder -> builder
+                .quantityAvailable(quantityAvailable)
+                .quantitySold(quantitySold));
+    }
+}
@@ -0,0 +1,100 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.entity.Booking;
+import com.lunar.demo.entity.BookingItem;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.Ticket;
+import com.lunar.demo.entity.TicketType;
+import com.lunar.demo.entity.User;
+import com.lunar.demo.repository.BookingRepository;
+import com.lunar.demo.repository.TicketRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class TicketIssuanceServiceTest {
+
+    @Autowired
+    private TicketIssuanceService ticketIssuanceService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    void groupBookingTicketsAreInsertedInBatches() {
+        TicketType ticketType = createTicketType("issuance-batch");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Long bookingId = transactionTemplate.execute(status -> {
+            Booking booking = bookingRepository.save(Booking.builder()
+                    .bookingReference("ISSUE-" + System.nanoTime())
+                    .status(Booking.BookingStatus.PENDING)
+                    .totalAmount(BigDecimal.ZERO)
+                    .totalTickets(200)
+                    .user(ticketType.getEvent().getOrganizer())
+                    .event(ticketType.getEvent())
+                    .build());
+            BookingItem item = BookingItem.builder()
+                    .quantity(200)
+                    .unitPrice(ticketType.getPrice())
+                    .totalPrice(ticketType.getPrice().multiply(new BigDecimal(200)))
+                    .booking(booking)
+                    .ticketType(ticketType)
+                    .build();
+            entityManager.persist(item);
+            entityManager.flush();
+
+            statistics.clear();
+            List<Ticket> tickets = ticketIssuanceService.issueTickets(booking, List.of(item));
+            entityManager.flush();
+            assertEquals(200, new HashSet<>(tickets.stream().map(Ticket::getId).toList()).size());
+            return booking.getId();
+        });
+
+        // 4 sequence calls for 200 pooled ids plus 2 batched insert statements
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements <= 10, "expected batched inserts but prepared " + statements + " statements");
+        assertEquals(200, ticketRepository.findByBookingId(bookingId).size());
+    }
+
+    private TicketType createTicketType(String name) {
+        User organizer = fixtures.createUser(name, builder -> builder.role(User.UserRole.ORGANIZER));
+        Event event = fixtures.createEvent(organizer, builder -> builder.category(Event.EventCategory.CONFERENCE));
+        return fixtures.createTicketType(event, builder -> builder
+                .name("Delegate")
+                .price(new BigDecimal("50.00"))
+                .quantityAvailable(500));
+    }
+}
@@ -0,0 +1,164 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.entity.Booking;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.Ticket;
+import com.lunar.demo.entity.TicketType;
+import com.lunar.demo.entity.User;
+import com.lunar.demo.repository.BookingRepository;
+import com.lunar.demo.repository.TicketRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class TicketTokenServiceTest {
+
+    @Autowired
+    private TicketTokenService ticketTokenService;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private User user;
+    private Event event;
+    private Booking booking;
+    private TicketType ticketType;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = String.valueOf(System.nanoTime());
+        user = fixtures.createUser("token");
+        event = fixtures.createEvent(user, builder -> builder
+                .startDate(LocalDateTime.now().plusHours(1))
+                .endDate(LocalDateTime.now().plusHours(4)));
+        ticketType = fixtures.createTicketType(event, 100);
+        booking = bookingRepository.save(Booking.builder()
+                .bookingReference("TOKEN-" + suffix)
+                .status(Booking.BookingStatus.CONFIRMED)
+                .totalAmount(BigDecimal.TEN)
+                .discountAmount(BigDecimal.ZERO)
+                .taxAmount(BigDecimal.ZERO)
+                .serviceFee(BigDecimal.ZERO)
+                .totalTickets(1)
+                .user(user)
+                .event(event)
+                .build());
+    }
+
+    @Test
+    void tokensVerifyWithoutReadingTheDatabase() {
+        Ticket ticket = createTicket();
+        String token = issue(ticket);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        TicketTokenService.Verification verification = ticketTokenService.verify(token);
+
+        assertTrue(verification.isValid());
+        assertEquals(ticket.getId(), verification.ticketId());
+        assertEquals(event.getId(), verification.eventId());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(63, token.length());
+        assertTrue(TicketTokenService.isToken(token));
+        assertEquals(token, issue(ticket));
+    }
+
+    @Test
+    void rejectsForgedMalformedAndOutOfWindowTokens() {
+        Ticket ticket = createTicket();
+        String token = issue(ticket);
+        char last = token.charAt(token.length() - 1);
+        String tampered = token.substring(0, token.length() - 1) + (last == 'A' ? 'B' : 'A');
+        TicketTokenService otherKey = new TicketTokenService(ticketRepository, "another-secret", 24, 6);
+
+        assertEquals(TicketTokenService.Status.BAD_SIGNATURE, ticketTokenService.verify(tampered).status());
+        assertEquals(TicketTokenService.Status.BAD_SIGNATURE, ticketTokenService.verify(otherKey.issue(
+                ticket.getId(), event.getId(), event.getStartDate(), event.getEndDate(), 0)).status());
+        assertEquals(TicketTokenService.Status.MALFORMED, ticketTokenService.verify("LT.abc").status());
+        assertEquals(TicketTokenService.Status.MALFORMED,
+                ticketTokenService.verify("LT." + "*".repeat(token.length() - 3)).status());
+        assertEquals(TicketTokenService.Status.MALFORMED, ticketTokenService.verify("LUNAR_TICKET|1|2|TKT").status());
+
+        long start = epochMinutes(event.getStartDate());
+        long end = epochMinutes(event.getEndDate());
+        assertEquals(TicketTokenService.Status.NOT_YET_VALID, ticketTokenService.verify(token, start - 24 * 60 - 1).status());
+        assertEquals(TicketTokenService.Status.VALID, ticketTokenService.verify(token, start - 24 * 60).status());
+        assertEquals(TicketTokenService.Status.VALID, ticketTokenService.verify(token, end + 6 * 60).status());
+        assertEquals(TicketTokenService.Status.EXPIRED, ticketTokenService.verify(token, end + 6 * 60 + 1).status());
+    }
+
+    @Test
+    void transferredAndCancelledTicketsAreRevoked() {
+        Ticket transferred = createTicket();
+        Ticket cancelled = createTicket();
+        Ticket reissued = createTicket();
+        Ticket untouched = createTicket();
+        String transferredToken = issue(transferred);
+        String cancelledToken = issue(cancelled);
+        String staleToken = issue(reissued);
+
+        transferred.transferTo(user.getId(), "gift");
+        ticketRepository.save(transferred);
+        cancelled.setStatus(Ticket.TicketStatus.CANCELLED);
+        ticketRepository.save(cancelled);
+        reissued.setTokenEpoch(2);
+        reissued = ticketRepository.save(reissued);
+        ticketTokenService.refreshRevocations();
+
+        assertEquals(TicketTokenService.Status.REVOKED, ticketTokenService.verify(transferredToken).status());
+        assertEquals(TicketTokenService.Status.REVOKED, ticketTokenService.verify(issue(transferred)).status());
+        assertEquals(TicketTokenService.Status.REVOKED, ticketTokenService.verify(cancelledToken).status());
+        assertEquals(TicketTokenService.Status.REVOKED, ticketTokenService.verify(staleToken).status());
+        assertEquals(TicketTokenService.Status.VALID, ticketTokenService.verify(issue(reissued)).status());
+        assertEquals(TicketTokenService.Status.VALID, ticketTokenService.verify(issue(untouched)).status());
+
+        // Revocations made on this node apply before the next refresh
+        ticketTokenService.revoke(untouched.getId(), Integer.MAX_VALUE);
+        assertEquals(TicketTokenService.Status.REVOKED, ticketTokenService.verify(issue(untouched)).status());
+    }
+
+    private String issue(Ticket ticket) {
+        return ticketTokenService.issue(ticket.getId(), event.getId(), event.getStartDate(), event.getEndDate(),
+                ticket.getTokenEpoch());
+    }
+
+    private static long epochMinutes(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond() / 60;
+    }
+
+    private Ticket createTicket() {
+        return ticketRepository.save(Ticket.builder()
+                .ticketCode("TOK-" + System.nanoTime())
+                .qrCode("TOK-QR-" + System.nanoTime())
+                .status(Ticket.TicketStatus.ACTIVE)
+                .isUsed(false)
+                .booking(booking)
+                .ticketType(ticketType)
+                .user(user)
+                .build());
+    }
+}
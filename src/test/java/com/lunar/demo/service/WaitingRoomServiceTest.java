@@ -0,0 +1,126 @@
+package com.lunar.demo.service;
+
+import com.lunar.demo.TestFixtures;
+import com.lunar.demo.dto.QueueStatusResponse;
+import com.lunar.demo.entity.Event;
+import com.lunar.demo.entity.User;
+import com.lunar.demo.exception.QueueAdmissionException;
+import com.lunar.demo.repository.EventRepository;
+import com.lunar.demo.security.UserPrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class WaitingRoomServiceTest {
+
+    @Autowired
+    private WaitingRoomService waitingRoomService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void usersAreAdmittedInQueueOrderAtTheConfiguredRate() {
+        User first = fixtures.createUser("queue-first");
+        User second = fixtures.createUser("queue-second");
+        Event event = createEvent(first, true, 1);
+
+        authenticate(first);
+        QueueStatusResponse firstStatus = waitingRoomService.join(event.getId());
+        assertEquals(1, firstStatus.getPosition());
+        assertTrue(firstStatus.getAdmitted());
+        assertEquals(firstStatus.getPosition(), waitingRoomService.join(event.getId()).getPosition());
+
+        authenticate(second);
+        QueueStatusResponse secondStatus = waitingRoomService.join(event.getId());
+        assertEquals(2, secondStatus.getPosition());
+        assertFalse(secondStatus.getAdmitted());
+        assertThrows(QueueAdmissionException.class,
+                () -> waitingRoomService.admit(event.getId(), secondStatus.getQueueToken()));
+        assertThrows(RuntimeException.class,
+                () -> waitingRoomService.admit(event.getId(), firstStatus.getQueueToken()));
+
+        authenticate(first);
+        waitingRoomService.admit(event.getId(), firstStatus.getQueueToken());
+        assertThrows(RuntimeException.class,
+                () -> waitingRoomService.admit(event.getId(), firstStatus.getQueueToken()));
+    }
+
+    @Test
+    void tamperedTokensAreRejected() {
+        User user = fixtures.createUser("queue-tamper");
+        Event event = createEvent(user, true, 10);
+        authenticate(user);
+
+        String token = waitingRoomService.join(event.getId()).getQueueToken();
+        String forged = token.substring(0, token.indexOf('.') + 1) + "AAAA";
+
+        assertThrows(RuntimeException.class, () -> waitingRoomService.getStatus(event.getId(), forged));
+        assertThrows(QueueAdmissionException.class, () -> waitingRoomService.admit(event.getId(), null));
+    }
+
+    @Test
+    void eventsWithoutWaitingRoomNeedNoToken() {
+        User user = fixtures.createUser("queue-none");
+        Event event = createEvent(user, false, null);
+        authenticate(user);
+
+        assertDoesNotThrow(() -> waitingRoomService.admit(event.getId(), null));
+    }
+
+    @Test
+    void roomsOfEndedEventsArePruned() {
+        User first = fixtures.createUser("queue-prune-first");
+        User second = fixtures.createUser("queue-prune-second");
+        Event event = createEvent(first, true, 10);
+        authenticate(first);
+        waitingRoomService.join(event.getId());
+        authenticate(second);
+        assertEquals(2, waitingRoomService.join(event.getId()).getPosition());
+
+        waitingRoomService.pruneEndedRooms();
+        assertEquals(2, waitingRoomService.join(event.getId()).getPosition());
+
+        event.setStartDate(LocalDateTime.now().minusDays(2));
+        event.setEndDate(LocalDateTime.now().minusDays(1));
+        eventRepository.save(event);
+        waitingRoomService.evict(event.getId());
+        waitingRoomService.pruneEndedRooms();
+
+        assertEquals(1, waitingRoomService.join(event.getId()).getPosition());
+    }
+
+    private void authenticate(User user) {
+        UserPrincipal principal = UserPrincipal.create(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    private Event createEvent(User organizer, boolean waitingRoomEnabled, Integer admissionRate) {
+        return fixtures.createEvent(organizer, builder -> builder
+                .waitingRoomEnabled(waitingRoomEnabled)
+                .admissionRatePerSecond(admissionRate));
+    }
+}
@@ -0,0 +1,86 @@
+package com.lunar.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckInIndexTest {
+
+    @Test
+    void findsEveryTicketAndItsBooking() {
+        int tickets = 40_000;
+        long[] ticketIds = new long[tickets];
+        long[] bookingIds = new long[tickets];
+        for (int i = 0; i < tickets; i++) {
+            // Sequence-allocated ids, as the pooled ticket sequence hands them out
+            ticketIds[i] = 1_000_000 + i;
+            bookingIds[i] = 500_000 + i / 4;
+        }
+
+        CheckInIndex index = new CheckInIndex(ticketIds, bookingIds);
+
+        assertEquals(tickets, index.size());
+        for (int i = 0; i < tickets; i++) {
+            int slot = index.slot(ticketIds[i]);
+            assertTrue(slot >= 0);
+            assertEquals(bookingIds[i], index.bookingId(slot));
+            assertFalse(index.isUsed(slot));
+        }
+        assertEquals(-1, index.slot(999_999));
+        assertEquals(-1, index.slot(1_000_000 + tickets));
+        assertEquals(-1, index.slot(0));
+    }
+
+    @Test
+    void concurrentScansOfATicketAdmitExactlyOne() throws Exception {
+        long[] ticketIds = {11, 12, 13};
+        CheckInIndex index = new CheckInIndex(ticketIds, new long[]{1, 1, 2});
+        int gates = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(gates);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        List<Future<?>> scans = new ArrayList<>();
+        for (int gate = 0; gate < gates; gate++) {
+            scans.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 1000; i++) {
+                    if (index.markUsed(index.slot(12))) {
+                        admitted.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> scan : scans) {
+            scan.get();
+        }
+        pool.shutdown();
+
+        assertEquals(1, admitted.get());
+        assertTrue(index.isUsed(index.slot(12)));
+        assertFalse(index.isUsed(index.slot(11)));
+        List<Long> used = new ArrayList<>();
+        index.forEachUsed(used::add);
+        assertEquals(List.of(12L), used);
+    }
+
+    @Test
+    void rejectsInvalidIds() {
+        assertThrows(IllegalArgumentException.class, () -> new CheckInIndex(new long[]{1, 1}, new long[]{1, 1}));
+        assertThrows(IllegalArgumentException.class, () -> new CheckInIndex(new long[]{0}, new long[]{1}));
+        assertThrows(IllegalArgumentException.class, () -> new CheckInIndex(new long[]{1}, new long[0]));
+        assertEquals(-1, new CheckInIndex(new long[0], new long[0]).slot(1));
+    }
+}
@@ -0,0 +1,80 @@
+package com.lunar.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeoGridIndexTest {
+
+    @Test
+    void radiusQueriesMatchABruteForceScan() {
+        GeoGridIndex index = new GeoGridIndex(0.1);
+        Random random = new Random(42);
+        double[][] points = new double[20_000][];
+        for (int i = 0; i < points.length; i++) {
+            // Cluster around Bengaluru so most cells are populated
+            points[i] = new double[]{12.97 + random.nextGaussian() * 0.5, 77.59 + random.nextGaussian() * 0.5};
+            index.put(i, points[i][0], points[i][1]);
+        }
+
+        List<GeoGridIndex.Hit> hits = index.withinRadius(12.97, 77.59, 15, 1_000_000);
+
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < points.length; i++) {
+            if (GeoGridIndex.distanceKm(12.97, 77.59, points[i][0], points[i][1]) <= 15) {
+                expected.add((long) i);
+            }
+        }
+        assertEquals(expected.size(), hits.size());
+        assertTrue(hits.stream().map(GeoGridIndex.Hit::id).toList().containsAll(expected));
+        for (int i = 1; i < hits.size(); i++) {
+            assertTrue(hits.get(i - 1).distanceKm() <= hits.get(i).distanceKm());
+        }
+    }
+
+    @Test
+    void resultsAreNearestFirstAndLimited() {
+        GeoGridIndex index = new GeoGridIndex(0.1);
+        index.put(1, 51.5074, -0.1278);
+        index.put(2, 51.5200, -0.1000);
+        index.put(3, 51.4500, -0.2000);
+        index.put(4, 48.8566, 2.3522);
+
+        List<GeoGridIndex.Hit> hits = index.withinRadius(51.5074, -0.1278, 20, 2);
+
+        assertEquals(List.of(1L, 2L), hits.stream().map(GeoGridIndex.Hit::id).toList());
+        assertEquals(0, hits.get(0).distanceKm(), 1e-9);
+    }
+
+    @Test
+    void queriesWrapAcrossTheAntimeridian() {
+        GeoGridIndex index = new GeoGridIndex(0.5);
+        index.put(1, -17.71, 179.9);
+        index.put(2, -17.71, -179.9);
+        index.put(3, -17.71, 170.0);
+
+        assertEquals(List.of(1L, 2L), index.withinRadius(-17.71, 179.95, 30, 10).stream()
+                .map(GeoGridIndex.Hit::id).sorted().toList());
+        assertEquals(List.of(1L, 2L), index.withinBox(-18, 179, -17, -179, -17.71, 179.95, 10).stream()
+                .map(GeoGridIndex.Hit::id).sorted().toList());
+    }
+
+    @Test
+    void movedAndRemovedPointsAreNotReturned() {
+        GeoGridIndex index = new GeoGridIndex(0.1);
+        index.put(1, 40.7128, -74.0060);
+        index.put(1, 34.0522, -118.2437);
+
+        assertTrue(index.withinRadius(40.7128, -74.0060, 50, 10).isEmpty());
+        assertEquals(1, index.withinRadius(34.0522, -118.2437, 50, 10).size());
+
+        index.remove(1);
+        assertTrue(index.withinRadius(34.0522, -118.2437, 50, 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+}
@@ -0,0 +1,57 @@
+package com.lunar.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HierarchicalTimingWheelTest {
+
+    @Test
+    void entriesFireOnceTheirTickHasElapsed() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(10, 8, 3, 0);
+        wheel.add(1, 25);
+        wheel.add(2, 79);
+
+        assertTrue(wheel.advance(20).isEmpty());
+        assertEquals(List.of(1L), wheel.advance(30));
+        assertTrue(wheel.advance(79).isEmpty());
+        assertEquals(List.of(2L), wheel.advance(80));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void entriesCascadeFromUpperLevelsAndOverflow() {
+        // Level spans: 80ms, 640ms, 5120ms; anything later goes to overflow
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(10, 8, 3, 0);
+        long[] deadlines = {5, 95, 700, 4000, 9000, 20000};
+        for (int i = 0; i < deadlines.length; i++) {
+            wheel.add(i, deadlines[i]);
+        }
+        assertEquals(deadlines.length, wheel.size());
+
+        List<Long> fired = new ArrayList<>();
+        for (long now = 0; now <= 20010; now += 10) {
+            for (Long id : wheel.advance(now)) {
+                long deadline = deadlines[id.intValue()];
+                assertTrue(now > deadline && now - deadline <= 10, "id " + id + " fired at " + now);
+                fired.add(id);
+            }
+        }
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void pastDeadlinesAreRejected() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(10, 8, 2, 1000);
+
+        assertFalse(wheel.add(1, 999));
+        assertTrue(wheel.add(2, 1000));
+        assertEquals(List.of(2L), wheel.advance(1010));
+    }
+}
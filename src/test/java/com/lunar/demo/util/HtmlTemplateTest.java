@@ -0,0 +1,47 @@
+package com.lunar.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HtmlTemplateTest {
+
+    @Test
+    void placeholdersAreFilledByDeclarationOrderAndEscaped() {
+        HtmlTemplate template = HtmlTemplate.compile(
+                "<h1>{{title}}</h1><a href=\"{{url}}/{{ id }}\">{{title}}</a>", List.of("id", "title", "url"));
+
+        assertEquals("<h1>Rock &amp; Roll &lt;Live&gt;</h1><a href=\"https://x.test/42\">Rock &amp; Roll &lt;Live&gt;</a>",
+                template.render(42, "Rock & Roll <Live>", "https://x.test"));
+        assertEquals("<h1>It&#39;s &quot;on&quot;</h1><a href=\"/7\">It&#39;s &quot;on&quot;</a>",
+                template.render(7, "It's \"on\"", null));
+    }
+
+    @Test
+    void reusedBufferDoesNotLeakBetweenRenders() {
+        HtmlTemplate template = HtmlTemplate.compile("[{{a}}]", List.of("a"));
+
+        assertEquals("[" + "x".repeat(100_000) + "]", template.render("x".repeat(100_000)));
+        assertEquals("[y]", template.render("y"));
+
+        StringBuilder out = new StringBuilder("prefix:");
+        template.renderTo(out, "z");
+        assertEquals("prefix:[z]", out.toString());
+    }
+
+    @Test
+    void literalBracesAndTemplatesWithoutPlaceholdersAreKept() {
+        assertEquals("a { b } {c}", HtmlTemplate.compile("a { b } {c}", List.of()).render());
+    }
+
+    @Test
+    void undeclaredPlaceholdersAndWrongValueCountsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> HtmlTemplate.compile("{{missing}}", List.of("other")));
+
+        HtmlTemplate template = HtmlTemplate.compile("{{a}}{{b}}", List.of("a", "b"));
+        assertThrows(IllegalArgumentException.class, () -> template.render("only one"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.lunar.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdGeneratorTest {
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        IdGenerator generator = new IdGenerator(7);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<Long>>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            results.add(executor.submit(() -> {
+                List<Long> ids = new ArrayList<>(50_000);
+                for (int i = 0; i < 50_000; i++) {
+                    ids.add(generator.nextId());
+                }
+                return ids;
+            }));
+        }
+
+        Set<Long> unique = new HashSet<>();
+        for (Future<List<Long>> result : results) {
+            List<Long> ids = result.get(30, TimeUnit.SECONDS);
+            for (int i = 1; i < ids.size(); i++) {
+                assertTrue(ids.get(i) > ids.get(i - 1), "ids must increase within a thread");
+            }
+            unique.addAll(ids);
+        }
+        executor.shutdown();
+
+        assertEquals(400_000, unique.size());
+    }
+
+    @Test
+    void idsCarryNodeAndTimestamp() {
+        long before = System.currentTimeMillis();
+        long id = new IdGenerator(513).nextId();
+
+        assertEquals(513, IdGenerator.nodeOf(id));
+        assertTrue(IdGenerator.timestampOf(id) >= before);
+    }
+
+    @Test
+    void codesRoundTripAndSortInIdOrder() {
+        IdGenerator generator = new IdGenerator(1);
+        String first = generator.nextCode("LUNAR-");
+        String second = generator.nextCode("LUNAR-");
+
+        assertEquals(19, first.length());
+        assertTrue(first.compareTo(second) < 0);
+        assertEquals(Long.MAX_VALUE, IdGenerator.decode(IdGenerator.encode(Long.MAX_VALUE)));
+        assertEquals(-1L, IdGenerator.decode(IdGenerator.encode(-1L)));
+        assertEquals(IdGenerator.decode(second.substring(6)),
+                IdGenerator.decode(second.substring(6).toLowerCase()));
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.decode("U000000000000"));
+    }
+}
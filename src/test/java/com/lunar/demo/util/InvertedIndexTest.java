@@ -0,0 +1,84 @@
+package com.lunar.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvertedIndexTest {
+
+    @Test
+    void titleMatchesOutrankDescriptionMatches() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, document("Community meetup", "An evening of jazz and food"));
+        index.put(2, document("Jazz night", "Live music downtown"));
+        index.put(3, document("Tech talk", "Databases at scale"));
+
+        InvertedIndex.Hits hits = index.search("jazz", 0, 10);
+
+        assertEquals(List.of(2L, 1L), hits.ids());
+        assertEquals(2, hits.total());
+    }
+
+    @Test
+    void everyTokenMustMatchAndTheLastMayBeAPrefix() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, document("Jazz festival", "Open air"));
+        index.put(2, document("Jazz night", "Club session"));
+        index.put(3, document("Film festival", "Indie cinema"));
+
+        assertEquals(List.of(1L), index.search("jazz fest", 0, 10).ids());
+        assertEquals(List.of(1L, 3L), index.search("FESTIVAL", 0, 10).ids());
+        assertTrue(index.search("jazz opera", 0, 10).ids().isEmpty());
+    }
+
+    @Test
+    void exactMatchesOutrankPrefixMatches() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, document("Rocket launch", ""));
+        index.put(2, document("Rock concert", ""));
+
+        assertEquals(List.of(2L, 1L), index.search("rock", 0, 10).ids());
+    }
+
+    @Test
+    void diacriticsAndPunctuationAreFolded() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, document("Café-Concert à Montréal", ""));
+
+        assertEquals(List.of(1L), index.search("cafe montreal", 0, 10).ids());
+    }
+
+    @Test
+    void documentsCanBeReplacedAndRemoved() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, document("Jazz night", ""));
+        index.put(1, document("Blues night", ""));
+
+        assertTrue(index.search("jazz", 0, 10).ids().isEmpty());
+        assertEquals(List.of(1L), index.search("blues", 0, 10).ids());
+
+        index.remove(1);
+        assertTrue(index.search("blues", 0, 10).ids().isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void resultsArePaged() {
+        InvertedIndex index = new InvertedIndex();
+        for (long id = 1; id <= 25; id++) {
+            index.put(id, document("Marathon " + id, ""));
+        }
+
+        InvertedIndex.Hits page = index.search("marathon", 20, 10);
+
+        assertEquals(25, page.total());
+        assertEquals(List.of(21L, 22L, 23L, 24L, 25L), page.ids());
+    }
+
+    private static List<InvertedIndex.Field> document(String title, String description) {
+        return List.of(new InvertedIndex.Field(title, 3f), new InvertedIndex.Field(description, 1f));
+    }
+}
@@ -0,0 +1,80 @@
+package com.lunar.demo.util;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QrImageWriterTest {
+
+    @Test
+    void pngMatchesTheMatrixPixelForPixelAndDecodes() throws Exception {
+        // Widths that do and do not fill the last byte and word of a scanline
+        for (int size : new int[]{300, 57, 64, 121}) {
+            String payload = "LUNAR_TICKET|12|345|TKT-" + size;
+            BitMatrix matrix = new QRCodeWriter().encode(payload, BarcodeFormat.QR_CODE, size, size);
+
+            byte[] png = QrImageWriter.png(matrix);
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+
+            assertEquals(matrix.getWidth(), image.getWidth());
+            assertEquals(matrix.getHeight(), image.getHeight());
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    int expected = matrix.get(x, y) ? 0x000000 : 0xffffff;
+                    assertEquals(expected, image.getRGB(x, y) & 0xffffff, "pixel " + x + "," + y + " at " + size);
+                }
+            }
+            String decoded = new QRCodeReader().decode(new BinaryBitmap(
+                    new HybridBinarizer(new BufferedImageLuminanceSource(image))),
+                    Map.of(DecodeHintType.PURE_BARCODE, true)).getText();
+            assertEquals(payload, decoded);
+        }
+    }
+
+    @Test
+    void pngIsAOneBitPaletteImage() throws Exception {
+        BitMatrix matrix = new QRCodeWriter().encode("LUNAR_TICKET|1|2|TKT-A", BarcodeFormat.QR_CODE, 300, 300);
+
+        byte[] png = QrImageWriter.png(matrix);
+
+        assertEquals("IHDR", new String(png, 12, 4, StandardCharsets.US_ASCII));
+        assertEquals(1, png[24]);
+        assertEquals(3, png[25]);
+        assertEquals("PLTE", new String(png, 37, 4, StandardCharsets.US_ASCII));
+        assertEquals("IEND", new String(png, png.length - 8, 4, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void svgPathsCoverExactlyTheDarkModules() throws Exception {
+        BitMatrix matrix = new QRCodeWriter().encode("LUNAR_TICKET|1|2|TKT-A", BarcodeFormat.QR_CODE, 0, 0);
+
+        String svg = QrImageWriter.svg(matrix, 300);
+
+        assertTrue(svg.startsWith("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 "
+                + matrix.getWidth() + " " + matrix.getHeight() + "\" width=\"300\" height=\"300\""));
+        BitMatrix drawn = new BitMatrix(matrix.getWidth(), matrix.getHeight());
+        Matcher run = Pattern.compile("M(\\d+) (\\d+)h(\\d+)v1h-\\3z").matcher(svg);
+        while (run.find()) {
+            drawn.setRegion(Integer.parseInt(run.group(1)), Integer.parseInt(run.group(2)),
+                    Integer.parseInt(run.group(3)), 1);
+        }
+        assertEquals(matrix, drawn);
+    }
+}